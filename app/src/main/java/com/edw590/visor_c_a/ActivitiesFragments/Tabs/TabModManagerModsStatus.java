@@ -82,8 +82,8 @@ public final class TabModManagerModsStatus extends Fragment {
 				ViewGroup.LayoutParams.WRAP_CONTENT);
 
 		for (int module_index = 0; module_index < ModulesList.ELEMENTS_LIST_LENGTH; ++module_index) { // Add a Switch for each module.
-			final boolean is_module = (boolean) ModulesList.getElementValue(module_index, ModulesList.ELEMENT_IS_MODULE);
-			final CharSequence elem_name = (CharSequence) ModulesList.getElementValue(module_index, ModulesList.ELEMENT_NAME);
+			final boolean is_module = ModulesList.isElementModule(module_index);
+			final CharSequence elem_name = ModulesList.getElementName(module_index);
 
 			final SwitchCompat switchCompat = new SwitchCompat(requireContext());
 			switchCompat.setId(module_index); // Set the ID to be the index of the module in the list
@@ -96,7 +96,7 @@ public final class TabModManagerModsStatus extends Fragment {
 			switchCompat.setTextIsSelectable(true);
 			switchCompat.setBackgroundColor(Color.WHITE);
 
-			if (!(boolean) ModulesList.getElementValue(module_index, ModulesList.ELEMENT_SUPPORTED)) {
+			if (!ModulesList.getElementSupported(module_index)) {
 				switchCompat.setTextColor(Color.parseColor(color_primary));
 				switchCompat.setBackgroundColor(Color.GRAY);
 			}
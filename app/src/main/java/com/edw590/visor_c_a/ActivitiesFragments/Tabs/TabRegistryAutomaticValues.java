@@ -21,7 +21,10 @@
 
 package com.edw590.visor_c_a.ActivitiesFragments.Tabs;
 
+import android.app.Activity;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -33,6 +36,10 @@ import androidx.appcompat.widget.AppCompatTextView;
 import androidx.fragment.app.Fragment;
 
 import com.edw590.visor_c_a.R;
+import com.edw590.visor_c_a.Registry.RegistrySubscription;
+import com.edw590.visor_c_a.Registry.UtilsRegistry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import UtilsSWA.UtilsSWA;
 
@@ -40,15 +47,42 @@ public final class TabRegistryAutomaticValues extends Fragment {
 
 	AppCompatTextView textView = null;
 
-	private Thread infinity_checker = null;
+	@Nullable private RegistrySubscription subscription = null;
+	/** Thread where the changes are received and the text is got - flushing the Registry and generating the text are
+	 * native calls, which don't belong on the UI thread. */
+	@Nullable private HandlerThread render_thread = null;
+	@Nullable private Handler render_handler = null;
+	/** If a render is already waiting on {@link #render_handler}, to render only once for all the keys that changed
+	 * in the meantime. */
+	private final AtomicBoolean render_scheduled = new AtomicBoolean(false);
+
+	@Override
+	public void onStart() {
+		super.onStart();
+
+		// Re-render only when a value changes instead of every 5 seconds.
+		render_thread = new HandlerThread("TabRegistryAutomaticValues - render");
+		render_thread.start();
+		render_handler = new Handler(render_thread.getLooper());
+		scheduleRender();
+		subscription = UtilsRegistry.subscribeAll(render_handler::post, key -> scheduleRender());
+	}
 
 	@Override
 	public void onStop() {
 		super.onStop();
 
-		if (infinity_checker != null) {
-			infinity_checker.interrupt();
+		if (subscription != null) {
+			subscription.cancel();
+			subscription = null;
+		}
+		if (render_thread != null) {
+			// Anything posted after this is dropped.
+			render_thread.quit();
+			render_thread = null;
+			render_handler = null;
 		}
+		render_scheduled.set(false);
 	}
 
 	@Nullable
@@ -69,24 +103,43 @@ public final class TabRegistryAutomaticValues extends Fragment {
 		textView = new AppCompatTextView(requireContext());
 
 		linearLayout.addView(textView);
+	}
 
-		createStartInfinityChecker();
+	/**
+	 * <p>Schedules a render on {@link #render_handler}, unless one is already waiting there.</p>
+	 * <p>The subscription delivers each batch of changed keys on the same thread, so all the keys of a batch are
+	 * received before the render runs and result in a single render.</p>
+	 */
+	void scheduleRender() {
+		final Handler handler = render_handler;
+		if (handler == null || !render_scheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		if (!handler.post(this::render)) {
+			// The thread is quitting.
+			render_scheduled.set(false);
+		}
 	}
 
-	void createStartInfinityChecker() {
-		Runnable runnable = () -> {
-			textView.setText(UtilsSWA.getRegistryTextREGISTRY(1));
-		};
-		infinity_checker = new Thread(() -> {
-			while (true) {
-				requireActivity().runOnUiThread(runnable);
-
-				try {
-					Thread.sleep(5000);
-				} catch (final InterruptedException ignored) {
-				}
+	/**
+	 * <p>Gets the text of the values and shows it on the UI thread.</p>
+	 */
+	void render() {
+		// Reset before getting the text, so a change after this schedules another render.
+		render_scheduled.set(false);
+
+		UtilsRegistry.flush();
+		final String text = UtilsSWA.getRegistryTextREGISTRY(1);
+
+		final Activity activity = getActivity();
+		if (activity == null) {
+			return;
+		}
+		activity.runOnUiThread(() -> {
+			if (textView != null) {
+				textView.setText(text);
 			}
 		});
-		infinity_checker.start();
 	}
 }
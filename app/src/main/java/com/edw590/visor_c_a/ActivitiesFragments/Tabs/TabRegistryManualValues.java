@@ -33,6 +33,7 @@ import androidx.appcompat.widget.AppCompatTextView;
 import androidx.fragment.app.Fragment;
 
 import com.edw590.visor_c_a.R;
+import com.edw590.visor_c_a.Registry.UtilsRegistry;
 
 import UtilsSWA.UtilsSWA;
 
@@ -54,6 +55,7 @@ public final class TabRegistryManualValues extends Fragment {
 		linearLayout.setPadding(padding, padding, padding, padding);
 
 		AppCompatTextView textView = new AppCompatTextView(requireContext());
+		UtilsRegistry.flush();
 		textView.setText(UtilsSWA.getRegistryTextREGISTRY(2));
 
 		linearLayout.addView(textView);
@@ -35,6 +35,7 @@ import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
 import com.edw590.visor_c_a.GlobalUtils.UtilsSettings;
 import com.edw590.visor_c_a.MainSrvc.UtilsMainSrvc;
 import com.edw590.visor_c_a.Modules.CmdsExecutor.CmdsList.CmdsList;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Registry.RegistryKeys;
 import com.github.anrwatchdog.ANRWatchDog;
 
@@ -180,7 +181,7 @@ public final class ApplicationClass extends Application {
 			}
 		}
 		while (true) {
-			// Write user and gen settings every 5 seconds
+			// Check the user and gen settings every 5 seconds (they're only written if they changed)
 
 			UtilsSettings.writeSettingsFile(SettingsSync.getJsonUserSettings(), true);
 
@@ -222,6 +223,10 @@ public final class ApplicationClass extends Application {
 		throwable.printStackTrace();
 		UtilsLogging.logLnError("2------------- CRITICAL APP ERROR -------------2");
 
+		// The thread may have belonged to some module - have the Modules Manager check it (or all of them, if it's not
+		// known which one it was) now instead of only on its next full check.
+		ModulesSupervisor.reportThreadCrashed(thread);
+
 		// todo Put it writing some log or whatever here!!!
 		// If you need Context for anything, use getApplicationContext, since this is used before the static one is set.
 	}
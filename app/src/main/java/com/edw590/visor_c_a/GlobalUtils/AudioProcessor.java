@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.GlobalUtils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * <p>Processing stage for 16-bit mono PCM audio (like the one read from {@link android.media.AudioRecord}): optional
+ * DC removal or high-pass filtering, fixed-point gain with symmetric saturation and RMS/peak/clipping level metering,
+ * all in place and without allocating anything per buffer.</p>
+ * <p>This class is not thread-safe - use one instance per audio stream.</p>
+ */
+public final class AudioProcessor {
+
+	/** Number of fractional bits of the fixed-point gain. */
+	private static final int GAIN_FRAC_BITS = 12;
+	/** Number of fractional bits of the fixed-point filter coefficient. */
+	private static final int COEF_FRAC_BITS = 15;
+	/** Cutoff frequency used for DC removal. */
+	public static final float DC_REMOVAL_CUTOFF_HZ = 10.0f;
+
+	/** The gain in fixed-point, with {@link #GAIN_FRAC_BITS} fractional bits. */
+	private int gain_fixed;
+	/** The coefficient of the first-order high-pass filter in fixed-point, or 0 if the filter is disabled. */
+	private final int hp_coef;
+
+	/** Previous input sample of the high-pass filter. */
+	private int hp_prev_in = 0;
+	/** Previous output sample of the high-pass filter, in fixed-point with {@link #COEF_FRAC_BITS} fractional bits. */
+	private long hp_prev_out = 0;
+
+	private int last_rms = 0;
+	private int last_peak = 0;
+	private int last_num_clipped = 0;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param sample_rate the sample rate of the audio
+	 * @param gain the gain to apply (1.0f for none)
+	 * @param high_pass_hz the cutoff frequency of the high-pass filter to apply before the gain - use
+	 *                     {@link #DC_REMOVAL_CUTOFF_HZ} to only remove the DC offset, or 0 to disable the filter
+	 */
+	public AudioProcessor(final int sample_rate, final float gain, final float high_pass_hz) {
+		setGain(gain);
+
+		if (high_pass_hz > 0.0f) {
+			// First-order high-pass: y[n] = a * (y[n-1] + x[n] - x[n-1]), with a = RC / (RC + dt).
+			final double rc = 1.0 / (2.0 * Math.PI * high_pass_hz);
+			final double dt = 1.0 / sample_rate;
+			hp_coef = (int) Math.round(rc / (rc + dt) * (1 << COEF_FRAC_BITS));
+		} else {
+			hp_coef = 0;
+		}
+	}
+
+	/**
+	 * <p>Sets the gain to apply.</p>
+	 *
+	 * @param gain the gain (1.0f for none)
+	 */
+	public void setGain(final float gain) {
+		gain_fixed = Math.round(gain * (1 << GAIN_FRAC_BITS));
+	}
+
+	/**
+	 * <p>Processes the first {@code length} samples of the buffer in place and updates the level meter.</p>
+	 *
+	 * @param buffer the audio samples
+	 * @param length the number of valid samples on the buffer
+	 */
+	public void process(@NonNull final short[] buffer, final int length) {
+		final boolean apply_gain = gain_fixed != (1 << GAIN_FRAC_BITS);
+		long sum_squares = 0;
+		int peak = 0;
+		int num_clipped = 0;
+
+		for (int i = 0; i < length; ++i) {
+			int sample = buffer[i];
+
+			if (hp_coef != 0) {
+				final long out = (hp_coef * (hp_prev_out + ((long) (sample - hp_prev_in) << COEF_FRAC_BITS)))
+						>> COEF_FRAC_BITS;
+				hp_prev_in = sample;
+				hp_prev_out = out;
+				sample = (int) (out >> COEF_FRAC_BITS);
+			}
+
+			if (apply_gain) {
+				sample = (int) (((long) sample * gain_fixed) >> GAIN_FRAC_BITS);
+			}
+
+			// Saturate on both sides, or loud negative samples would wrap around to positive ones.
+			if (sample >= Short.MAX_VALUE) {
+				sample = Short.MAX_VALUE;
+				++num_clipped;
+			} else if (sample <= Short.MIN_VALUE) {
+				sample = Short.MIN_VALUE;
+				++num_clipped;
+			}
+			buffer[i] = (short) sample;
+
+			sum_squares += sample * sample;
+			final int abs = sample < 0 ? -sample : sample;
+			if (abs > peak) {
+				peak = abs;
+			}
+		}
+
+		last_peak = peak;
+		last_num_clipped = num_clipped;
+		last_rms = length > 0 ? (int) Math.sqrt((double) sum_squares / length) : 0;
+	}
+
+	/**
+	 * <p>Gets the RMS level of the last processed buffer.</p>
+	 *
+	 * @return the level, from 0 to 32768
+	 */
+	public int getRms() {
+		return last_rms;
+	}
+
+	/**
+	 * <p>Gets the peak level of the last processed buffer.</p>
+	 *
+	 * @return the level, from 0 to 32768
+	 */
+	public int getPeak() {
+		return last_peak;
+	}
+
+	/**
+	 * <p>Gets the number of samples of the last processed buffer that are at full scale, either because the gain
+	 * saturated them or because they already came clipped from the source.</p>
+	 *
+	 * @return the number of samples
+	 */
+	public int getNumClipped() {
+		return last_num_clipped;
+	}
+
+	/**
+	 * <p>Resets the filter state and the level meter, for example when the audio stream restarts.</p>
+	 */
+	public void reset() {
+		hp_prev_in = 0;
+		hp_prev_out = 0;
+		last_rms = 0;
+		last_peak = 0;
+		last_num_clipped = 0;
+	}
+}
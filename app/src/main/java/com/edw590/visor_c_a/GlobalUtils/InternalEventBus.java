@@ -0,0 +1,214 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.GlobalUtils;
+
+import android.content.Intent;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>In-process publish/subscribe bus for the app-internal actions.</p>
+ * <p>{@link UtilsApp#sendInternalBroadcast(Intent)} first tries to deliver the intent through here: if some element of
+ * the same process subscribed to the action, the intent is posted directly to the element's {@link Handler}, without
+ * going through the system broadcast dispatcher (no binder call, no parceling, no receiver matching). If there's no
+ * subscriber (for example the sender is on another process) or the subscriber's queue is full, the intent is broadcast
+ * as always - so the elements must keep their broadcast receivers registered too.</p>
+ * <p>Each action can only have one subscriber, as the internal actions are each meant for a single element.</p>
+ * <p>This class is thread-safe.</p>
+ */
+public final class InternalEventBus {
+
+	/** Default maximum number of intents waiting on a subscriber's handler. */
+	public static final int DEFAULT_MAX_PENDING = 64;
+	/** Minimum time between two logs of the delivery statistics of a subscription. */
+	private static final long STATS_LOG_INTERVAL_MS = 10L * 60_000L;
+
+	/** Map of each action to its subscription. */
+	private static final ConcurrentHashMap<String, Subscription> subscriptions = new ConcurrentHashMap<>(32);
+
+	/**
+	 * <p>Private empty constructor so the class can't be instantiated (utility class).</p>
+	 */
+	private InternalEventBus() {
+	}
+
+	/**
+	 * <p>Handler of the intents delivered through the bus.</p>
+	 */
+	public interface Subscriber {
+		/**
+		 * <p>Called on the subscription's {@link Handler} thread for each intent published with a subscribed
+		 * action.</p>
+		 *
+		 * @param intent the published intent (not a copy)
+		 */
+		void onEvent(@NonNull Intent intent);
+	}
+
+	/**
+	 * <p>A subscription to the bus, plus its delivery statistics.</p>
+	 * <p>The statistics are logged at most every {@link #STATS_LOG_INTERVAL_MS} by the handler's thread and then
+	 * reset. All but the rejected count are only touched by that thread, so they need no synchronization.</p>
+	 */
+	public static final class Subscription {
+		@NonNull final String[] actions;
+		@NonNull final Handler handler;
+		@NonNull final Subscriber subscriber;
+		final int max_pending;
+
+		/** Number of intents posted to the handler and not yet handled. */
+		final AtomicInteger pending = new AtomicInteger(0);
+		/** Number of intents that found the queue full and were broadcast instead. */
+		final AtomicInteger num_rejected = new AtomicInteger(0);
+		int num_delivered = 0;
+		long total_latency_ns = 0;
+		long max_latency_ns = 0;
+		long last_stats_log_ms = System.currentTimeMillis();
+
+		/**
+		 * <p>Main class constructor.</p>
+		 *
+		 * @param actions the actions subscribed
+		 * @param handler the handler to run the subscriber on
+		 * @param subscriber the subscriber
+		 * @param max_pending the maximum number of intents waiting on the handler
+		 */
+		Subscription(@NonNull final String[] actions, @NonNull final Handler handler,
+					 @NonNull final Subscriber subscriber, final int max_pending) {
+			this.actions = actions.clone();
+			this.handler = handler;
+			this.subscriber = subscriber;
+			this.max_pending = max_pending;
+		}
+
+		/**
+		 * <p>Records the delivery of an intent and logs the statistics if it's time to.</p>
+		 * <p>Only call from the handler's thread.</p>
+		 *
+		 * @param latency_ns the time between publishing the intent and its delivery
+		 */
+		void recordDelivery(final long latency_ns) {
+			++num_delivered;
+			total_latency_ns += latency_ns;
+			if (latency_ns > max_latency_ns) {
+				max_latency_ns = latency_ns;
+			}
+
+			final long curr_time_ms = System.currentTimeMillis();
+			if (curr_time_ms - last_stats_log_ms < STATS_LOG_INTERVAL_MS) {
+				return;
+			}
+			UtilsLogging.logLnInfo("InternalEventBus - " + Arrays.toString(actions) + ": " + num_delivered +
+					" delivered, " + num_rejected.getAndSet(0) + " rejected, publish-to-handler latency mean " +
+					total_latency_ns / num_delivered / 1000 + " us, max " + max_latency_ns / 1000 + " us");
+			num_delivered = 0;
+			total_latency_ns = 0;
+			max_latency_ns = 0;
+			last_stats_log_ms = curr_time_ms;
+		}
+	}
+
+	/**
+	 * <p>Subscribes to the given actions, replacing any previous subscription of each of them.</p>
+	 *
+	 * @param handler the handler on which to run the subscriber (the same one used to register the element's broadcast
+	 *                receiver, to keep the threading the same)
+	 * @param max_pending the maximum number of intents waiting on the handler - after that, the intents are broadcast
+	 * @param subscriber the subscriber
+	 * @param actions the actions to subscribe to
+	 *
+	 * @return the subscription, to use with {@link #unsubscribe(Subscription)}
+	 */
+	@NonNull
+	public static Subscription subscribe(@NonNull final Handler handler, final int max_pending,
+										 @NonNull final Subscriber subscriber, @NonNull final String... actions) {
+		final Subscription subscription = new Subscription(actions, handler, subscriber, max_pending);
+		for (final String action : actions) {
+			subscriptions.put(action, subscription);
+		}
+
+		return subscription;
+	}
+
+	/**
+	 * <p>Removes a subscription. Intents already posted to its handler are still delivered.</p>
+	 *
+	 * @param subscription the subscription, or null to do nothing
+	 */
+	public static void unsubscribe(@Nullable final Subscription subscription) {
+		if (subscription == null) {
+			return;
+		}
+
+		for (final String action : subscription.actions) {
+			// Only remove if it wasn't replaced in the meantime.
+			subscriptions.remove(action, subscription);
+		}
+	}
+
+	/**
+	 * <p>Publishes an intent to the subscriber of its action, if there's one on this process.</p>
+	 *
+	 * @param intent the intent
+	 *
+	 * @return true if the intent was posted to the subscriber, false if it must be broadcast instead
+	 */
+	public static boolean publish(@NonNull final Intent intent) {
+		final String action = intent.getAction();
+		if (action == null) {
+			return false;
+		}
+		final Subscription subscription = subscriptions.get(action);
+		if (subscription == null) {
+			return false;
+		}
+
+		if (subscription.pending.incrementAndGet() > subscription.max_pending) {
+			subscription.pending.decrementAndGet();
+			subscription.num_rejected.incrementAndGet();
+
+			return false;
+		}
+
+		final long publish_time_ns = System.nanoTime();
+		final boolean posted = subscription.handler.post(new Runnable() {
+			@Override
+			public void run() {
+				subscription.pending.decrementAndGet();
+				subscription.recordDelivery(System.nanoTime() - publish_time_ns);
+				subscription.subscriber.onEvent(intent);
+			}
+		});
+		if (!posted) {
+			// The handler's looper is quitting - the element is being destroyed.
+			subscription.pending.decrementAndGet();
+		}
+
+		return posted;
+	}
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.GlobalUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>A long-lived shell ({@code su} or {@code sh}) that runs commands one after the other, so each command doesn't
+ * have to start a new shell (and ask for root permission again).</p>
+ * <p>Each command runs on a child shell ({@code sh -c}) with its standard input from /dev/null, so it can't change
+ * or read from the session, and is given to it single-quoted, so quotes in it can't mix it with the rest of the
+ * session's input. After it, the session writes a unique marker line with the exit code to the standard output and
+ * another to the standard error - the output of the command is everything before the markers.</p>
+ * <p>Only one command can run at a time: use it through {@link ShellSessionPool}.</p>
+ */
+final class ShellSession {
+
+	/** Size of the chunks read from the shell. */
+	private static final int CHUNK_SIZE = 8 * 1024;
+	/** Time after which a command without timeout is given up on, so one that never ends can't block forever. */
+	static final long MAX_CMD_TIME_MS = 30L * 60 * 1000;
+
+	/** True if this is a root shell, false otherwise. */
+	final boolean root;
+	@NonNull private final Process process;
+	@NonNull private final OutputStream stdin;
+	@NonNull private final Framer stdout_framer;
+	@NonNull private final Framer stderr_framer;
+	/** Random part of the markers of this session. */
+	@NonNull private final String marker_base;
+	private long num_cmds = 0;
+	/** If the session can't be used anymore (a command timed out or the shell died). */
+	private boolean broken = false;
+	/** Time at which the last command finished. */
+	long last_used_ms;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param root {@link #root}
+	 *
+	 * @throws IOException if the shell could not be started
+	 */
+	ShellSession(final boolean root) throws IOException {
+		this.root = root;
+
+		process = new ProcessBuilder(root ? "su" : "sh").start();
+		stdin = process.getOutputStream();
+		stdout_framer = new Framer(process.getInputStream(), "ShellSession stdout");
+		stderr_framer = new Framer(process.getErrorStream(), "ShellSession stderr");
+
+		final byte[] random_bytes = new byte[8];
+		new SecureRandom().nextBytes(random_bytes);
+		final StringBuilder marker_base_builder = new StringBuilder("__VISOR_");
+		for (final byte random_byte : random_bytes) {
+			marker_base_builder.append(Character.forDigit((random_byte >> 4) & 0xF, 16));
+			marker_base_builder.append(Character.forDigit(random_byte & 0xF, 16));
+		}
+		marker_base = marker_base_builder.toString();
+
+		last_used_ms = System.currentTimeMillis();
+	}
+
+	/**
+	 * <p>Runs a command on the session.</p>
+	 * <p>If the command doesn't finish in time (or in {@link #MAX_CMD_TIME_MS} with {@link UtilsShell#NO_TIMEOUT}),
+	 * the session is destroyed (the command may keep running).</p>
+	 *
+	 * @param command the command (can have multiple lines)
+	 * @param output_sink where to write the standard output of the command to
+	 * @param error_sink where to write the standard error of the command to, or null to discard it
+	 * @param timeout_ms the maximum time to wait for the command to finish, or {@link UtilsShell#NO_TIMEOUT}
+	 *
+	 * @return the exit code of the command, or {@link UtilsShell.ErrCodes#GEN_ERR} if the shell died while running it
+	 *
+	 * @throws IOException if the command could not be sent to the shell (it died before, so the command didn't run)
+	 * @throws TimeoutException if the command didn't finish in time
+	 */
+	int run(@NonNull final String command, @NonNull final OutputStream output_sink,
+			@Nullable final OutputStream error_sink, final long timeout_ms) throws IOException, TimeoutException {
+		final String marker = marker_base + '_' + num_cmds;
+		++num_cmds;
+		stdout_framer.expect(marker, output_sink);
+		stderr_framer.expect(marker, error_sink);
+
+		// Only echo is used for the markers because it's the one thing available on all Android versions' shells.
+		final String framed_command = "sh -c " + quote(command) + " </dev/null\n" +
+				"__visor_ret=$?\n" +
+				"echo\n" +
+				"echo '" + marker + ":'$__visor_ret\n" +
+				"echo >&2\n" +
+				"echo '" + marker + ":0' >&2\n";
+		try {
+			stdin.write(framed_command.getBytes(Charset.defaultCharset()));
+			stdin.flush();
+		} catch (final IOException e) {
+			destroy();
+
+			throw e;
+		}
+
+		final long deadline_ms = System.currentTimeMillis() +
+				(timeout_ms == UtilsShell.NO_TIMEOUT ? MAX_CMD_TIME_MS : timeout_ms);
+		try {
+			final int exit_code = stdout_framer.await(deadline_ms);
+			stderr_framer.await(deadline_ms);
+			last_used_ms = System.currentTimeMillis();
+
+			return exit_code;
+		} catch (final IOException ignored) {
+			destroy();
+
+			return UtilsShell.ErrCodes.GEN_ERR;
+		} catch (final TimeoutException e) {
+			destroy();
+
+			throw e;
+		}
+	}
+
+	/**
+	 * <p>Single-quotes a string for the shell, so that it's given as one argument exactly as it is.</p>
+	 *
+	 * @param string the string
+	 *
+	 * @return the quoted string
+	 */
+	@NonNull
+	private static String quote(@NonNull final String string) {
+		// Nothing is special inside single quotes except the quote itself, which is closed, escaped and reopened.
+		return "'" + string.replace("'", "'\\''") + "'";
+	}
+
+	/**
+	 * <p>Checks if the session can still run commands.</p>
+	 *
+	 * @return true if it can, false if it was destroyed or the shell died
+	 */
+	boolean isUsable() {
+		return !broken && !stdout_framer.isClosed() && !stderr_framer.isClosed();
+	}
+
+	/**
+	 * <p>Stops the shell.</p>
+	 */
+	void destroy() {
+		broken = true;
+		process.destroy();
+	}
+
+	/**
+	 * <p>Reads a stream of the shell on its own thread, writing what each command outputs to the command's sink until
+	 * the command's marker is found.</p>
+	 */
+	private static final class Framer implements Runnable {
+		@NonNull private final InputStream stream;
+		/** Data read and not yet given to the sink. */
+		@NonNull private byte[] buffer = new byte[CHUNK_SIZE * 2];
+		private int buffer_len = 0;
+		/** {@code "\n<marker>:"} of the current command, or null if no command is running. */
+		@Nullable private byte[] marker_prefix = null;
+		@Nullable private OutputStream sink = null;
+		private boolean found = false;
+		private int exit_code = 0;
+		private boolean closed = false;
+
+		/**
+		 * <p>Main class constructor.</p>
+		 *
+		 * @param stream the stream to read
+		 * @param thread_name the name of the thread that reads it
+		 */
+		Framer(@NonNull final InputStream stream, @NonNull final String thread_name) {
+			this.stream = stream;
+
+			final Thread thread = new Thread(this, thread_name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		/**
+		 * <p>Prepares to receive the output of a new command.</p>
+		 *
+		 * @param marker the marker of the command
+		 * @param sink where to write the output of the command to, or null to discard it
+		 */
+		synchronized void expect(@NonNull final String marker, @Nullable final OutputStream sink) {
+			marker_prefix = ("\n" + marker + ':').getBytes(Charset.defaultCharset());
+			this.sink = sink;
+			found = false;
+			buffer_len = 0;
+		}
+
+		/**
+		 * <p>Waits for the marker of the current command.</p>
+		 *
+		 * @param deadline_ms the time until which to wait
+		 *
+		 * @return the exit code written with the marker
+		 *
+		 * @throws IOException if the stream ended before the marker
+		 * @throws TimeoutException if the marker didn't come in time
+		 */
+		synchronized int await(final long deadline_ms) throws IOException, TimeoutException {
+			while (!found && !closed) {
+				final long wait_ms = deadline_ms - System.currentTimeMillis();
+				if (wait_ms <= 0) {
+					throw new TimeoutException("The shell command timed out");
+				}
+				try {
+					wait(wait_ms);
+				} catch (final InterruptedException ignored) {
+					Thread.currentThread().interrupt();
+
+					throw new TimeoutException("Interrupted waiting for the shell command");
+				}
+			}
+			marker_prefix = null;
+			sink = null;
+			if (!found) {
+				throw new IOException("The shell died");
+			}
+
+			return exit_code;
+		}
+
+		/**
+		 * <p>Checks if the stream ended.</p>
+		 *
+		 * @return true if it did, false otherwise
+		 */
+		synchronized boolean isClosed() {
+			return closed;
+		}
+
+		@Override
+		public void run() {
+			final byte[] chunk = new byte[CHUNK_SIZE];
+			try {
+				int num_read;
+				while ((num_read = stream.read(chunk)) != -1) {
+					synchronized (this) {
+						if (buffer_len + num_read > buffer.length) {
+							final byte[] new_buffer = new byte[(buffer_len + num_read) * 2];
+							System.arraycopy(buffer, 0, new_buffer, 0, buffer_len);
+							buffer = new_buffer;
+						}
+						System.arraycopy(chunk, 0, buffer, buffer_len, num_read);
+						buffer_len += num_read;
+						processBuffer();
+					}
+				}
+			} catch (final IOException ignored) {
+				// The shell was destroyed.
+			}
+
+			synchronized (this) {
+				closed = true;
+				notifyAll();
+			}
+		}
+
+		/**
+		 * <p>Looks for the marker on the buffer and gives the sink all the data that can't be part of it.</p>
+		 */
+		private void processBuffer() {
+			if (marker_prefix == null || found) {
+				// Nothing expected (like a message of su) - discard it.
+				buffer_len = 0;
+
+				return;
+			}
+
+			final int marker_idx = indexOf(buffer, buffer_len, marker_prefix);
+			if (marker_idx < 0) {
+				// The end of the buffer may be the start of the marker, so keep it for the next time.
+				final int safe_len = buffer_len - marker_prefix.length;
+				if (safe_len > 0) {
+					giveToSink(safe_len);
+				}
+
+				return;
+			}
+
+			final int code_idx = marker_idx + marker_prefix.length;
+			int end_idx = code_idx;
+			while (end_idx < buffer_len && buffer[end_idx] != '\n') {
+				++end_idx;
+			}
+			if (end_idx == buffer_len) {
+				// The exit code is not complete yet.
+				return;
+			}
+
+			try {
+				exit_code = Integer.parseInt(new String(buffer, code_idx, end_idx - code_idx,
+						Charset.defaultCharset()).trim());
+			} catch (final NumberFormatException ignored) {
+				exit_code = UtilsShell.ErrCodes.GEN_ERR;
+			}
+			giveToSink(marker_idx);
+			buffer_len = 0;
+			found = true;
+			notifyAll();
+		}
+
+		/**
+		 * <p>Writes the start of the buffer to the sink and removes it from the buffer.</p>
+		 *
+		 * @param len the number of bytes to write
+		 */
+		private void giveToSink(final int len) {
+			if (sink != null) {
+				try {
+					sink.write(buffer, 0, len);
+				} catch (final IOException e) {
+					// Keep framing - the command's output will just be discarded from now on.
+					e.printStackTrace();
+					sink = null;
+				}
+			}
+			System.arraycopy(buffer, len, buffer, 0, buffer_len - len);
+			buffer_len -= len;
+		}
+
+		/**
+		 * <p>Finds the first occurrence of a pattern in an array.</p>
+		 *
+		 * @param array the array
+		 * @param array_len the number of bytes to search on the array
+		 * @param pattern the pattern
+		 *
+		 * @return the index of the pattern, or -1 if it's not on the array
+		 */
+		private static int indexOf(@NonNull final byte[] array, final int array_len, @NonNull final byte[] pattern) {
+			outer:
+			for (int i = 0; i <= array_len - pattern.length; ++i) {
+				for (int j = 0; j < pattern.length; ++j) {
+					if (array[i + j] != pattern[j]) {
+						continue outer;
+					}
+				}
+
+				return i;
+			}
+
+			return -1;
+		}
+	}
+}
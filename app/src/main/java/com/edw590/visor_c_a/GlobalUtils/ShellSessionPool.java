@@ -0,0 +1,233 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.GlobalUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>Keeps idle {@link ShellSession}s (root and non-root) to run shell commands on, starting new ones when all are
+ * busy and replacing the ones that died.</p>
+ * <p>If su is denied or not available, the root commands run on non-root sessions, and su is only tried again after
+ * {@link #SU_RETRY_MS}.</p>
+ * <p>This class is thread-safe.</p>
+ */
+final class ShellSessionPool {
+
+	/** Maximum number of idle sessions kept of each kind. */
+	private static final int MAX_IDLE_SESSIONS = 2;
+	/** Time after which an idle session is stopped. */
+	private static final long IDLE_TIMEOUT_MS = 5L * 60 * 1000;
+	/** Maximum time to wait for su to be granted. */
+	private static final long SU_GRANT_TIMEOUT_MS = 30_000;
+	/** Time to wait before trying su again after it was denied. */
+	private static final long SU_RETRY_MS = 60_000;
+	/** Interval at which the command statistics are logged. */
+	private static final long STATS_LOG_INTERVAL_MS = 10L * 60_000L;
+
+	private final Deque<ShellSession> idle_root_sessions = new ArrayDeque<>(MAX_IDLE_SESSIONS);
+	private final Deque<ShellSession> idle_user_sessions = new ArrayDeque<>(MAX_IDLE_SESSIONS);
+	/** Time at which su was last denied, or 0 if it wasn't. */
+	private volatile long su_denied_ms = 0;
+
+	// Statistics of the commands since the last log (guarded by this).
+	private long num_cmds = 0;
+	private long num_timeouts = 0;
+	private long num_sessions_started = 0;
+	private long total_latency_ns = 0;
+	private long max_latency_ns = 0;
+	private long last_stats_log_ms = System.currentTimeMillis();
+
+	/**
+	 * <p>Runs a command on a session of the pool.</p>
+	 *
+	 * @param attempt_su true to run it as root if possible, false to run it as the app
+	 * @param command the command
+	 * @param output_sink where to write the standard output of the command to
+	 * @param error_sink where to write the standard error of the command to, or null to discard it
+	 * @param timeout_ms the maximum time to wait for the command to finish, or {@link UtilsShell#NO_TIMEOUT}
+	 *
+	 * @return the exit code of the command, {@link UtilsShell.ErrCodes#TIMED_OUT} if it didn't finish in time, or
+	 * {@link UtilsShell.ErrCodes#GEN_ERR} if the shell died while running it
+	 *
+	 * @throws IOException if no session could be started (the command didn't run)
+	 */
+	int execute(final boolean attempt_su, @NonNull final String command, @NonNull final OutputStream output_sink,
+				@Nullable final OutputStream error_sink, final long timeout_ms) throws IOException {
+		final long start_ns = System.nanoTime();
+
+		int exit_code;
+		boolean timed_out = false;
+		ShellSession session = acquire(attempt_su);
+		try {
+			try {
+				exit_code = session.run(command, output_sink, error_sink, timeout_ms);
+			} catch (final IOException ignored) {
+				// The session died while idle, so the command didn't run - try once more on a new one.
+				session = acquire(attempt_su);
+				exit_code = session.run(command, output_sink, error_sink, timeout_ms);
+			}
+		} catch (final TimeoutException ignored) {
+			exit_code = UtilsShell.ErrCodes.TIMED_OUT;
+			timed_out = true;
+		} finally {
+			release(session);
+		}
+
+		recordCmd(System.nanoTime() - start_ns, timed_out);
+
+		return exit_code;
+	}
+
+	/**
+	 * <p>Gets an idle session or starts a new one.</p>
+	 *
+	 * @param attempt_su true to get a root session if su is available, false to get a non-root one
+	 *
+	 * @return the session
+	 *
+	 * @throws IOException if no session could be started
+	 */
+	@NonNull
+	private ShellSession acquire(final boolean attempt_su) throws IOException {
+		final boolean root = attempt_su &&
+				(su_denied_ms == 0 || System.currentTimeMillis() - su_denied_ms >= SU_RETRY_MS);
+
+		synchronized (this) {
+			final long now_ms = System.currentTimeMillis();
+			final Deque<ShellSession> idle_sessions = root ? idle_root_sessions : idle_user_sessions;
+			ShellSession session;
+			while ((session = idle_sessions.pollFirst()) != null) {
+				if (session.isUsable() && now_ms - session.last_used_ms < IDLE_TIMEOUT_MS) {
+					return session;
+				}
+				session.destroy();
+			}
+		}
+
+		if (root) {
+			try {
+				return startRootSession();
+			} catch (final IOException | TimeoutException ignored) {
+				su_denied_ms = System.currentTimeMillis();
+			}
+		}
+
+		final ShellSession session = new ShellSession(false);
+		synchronized (this) {
+			++num_sessions_started;
+		}
+
+		return session;
+	}
+
+	/**
+	 * <p>Starts a root session and waits for su to be granted.</p>
+	 *
+	 * @return the session
+	 *
+	 * @throws IOException if su is not available or was denied
+	 * @throws TimeoutException if su was not granted in time
+	 */
+	@NonNull
+	private ShellSession startRootSession() throws IOException, TimeoutException {
+		final ShellSession session = new ShellSession(true);
+		synchronized (this) {
+			++num_sessions_started;
+		}
+
+		// If su was denied, it exits and the session dies.
+		final int exit_code = session.run("true", new ByteArrayOutputStream(0), null, SU_GRANT_TIMEOUT_MS);
+		if (exit_code != UtilsShell.ErrCodes.NO_ERR || !session.isUsable()) {
+			session.destroy();
+
+			throw new IOException("su denied");
+		}
+		su_denied_ms = 0;
+
+		return session;
+	}
+
+	/**
+	 * <p>Gives a session back to the pool, or stops it if it can't be used anymore or the pool is full.</p>
+	 *
+	 * @param session the session
+	 */
+	private void release(@NonNull final ShellSession session) {
+		if (session.isUsable()) {
+			synchronized (this) {
+				final Deque<ShellSession> idle_sessions = session.root ? idle_root_sessions : idle_user_sessions;
+				if (idle_sessions.size() < MAX_IDLE_SESSIONS) {
+					// Most recently used first, so the extra ones are the ones that time out.
+					idle_sessions.addFirst(session);
+
+					return;
+				}
+			}
+		}
+		session.destroy();
+	}
+
+	/**
+	 * <p>Adds a command to the statistics and logs them if at least {@link #STATS_LOG_INTERVAL_MS} passed since the
+	 * last log, starting new ones.</p>
+	 * <p>The latency is from the call to the exit code, so it includes waiting for su and starting sessions.</p>
+	 *
+	 * @param latency_ns the latency of the command in nanoseconds
+	 * @param timed_out true if the command timed out, false otherwise
+	 */
+	private void recordCmd(final long latency_ns, final boolean timed_out) {
+		final String stats;
+		synchronized (this) {
+			++num_cmds;
+			if (timed_out) {
+				++num_timeouts;
+			}
+			total_latency_ns += latency_ns;
+			if (latency_ns > max_latency_ns) {
+				max_latency_ns = latency_ns;
+			}
+
+			final long curr_time_ms = System.currentTimeMillis();
+			if (curr_time_ms - last_stats_log_ms < STATS_LOG_INTERVAL_MS) {
+				return;
+			}
+			stats = "ShellSessionPool - " + num_cmds + " commands (" + num_timeouts + " timed out) on " +
+					num_sessions_started + " new shells; mean/max latency: " + total_latency_ns / num_cmds / 1_000 +
+					'/' + max_latency_ns / 1_000 + " us";
+			num_cmds = 0;
+			num_timeouts = 0;
+			num_sessions_started = 0;
+			total_latency_ns = 0;
+			max_latency_ns = 0;
+			last_stats_log_ms = curr_time_ms;
+		}
+		UtilsLogging.logLnInfo(stats);
+	}
+}
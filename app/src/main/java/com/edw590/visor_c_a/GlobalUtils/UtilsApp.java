@@ -198,10 +198,16 @@ public final class UtilsApp {
 	 * <p>Sends a broadcast that can only be received by components inside this application (which means, an
 	 * app-internal broadcast).</p>
 	 * <p>To do this, this method sets {@link Intent#setPackage(String)} to this package's name automatically.</p>
+	 * <p>If the action has a subscriber on this process in the {@link InternalEventBus}, the intent is delivered
+	 * directly to it instead and no broadcast is sent.</p>
 	 *
 	 * @param intent the intent to use with the broadcast
 	 */
 	public static void sendInternalBroadcast(@NonNull final Intent intent) {
+		if (InternalEventBus.publish(intent)) {
+			return;
+		}
+
 		final Context context = UtilsContext.getContext();
 		intent.setPackage(context.getPackageName());
 		// Don't add setComponent() here. If it's an internal broadcast receiver to a class (a registered one), it
@@ -83,8 +83,11 @@ public final class UtilsAudio {
 	/**
 	 * <p>Adjusts the volume of raw audio data, for example gotten from {@link AudioRecord}.</p>
 	 * <p>Note that this function does not care about noise or anything at all - it just applies the same gain to ALL
-	 * bytes. If the gain would generate an overflow, {@link Short#MAX_VALUE} is used instead.</p>
+	 * bytes. If the gain would generate an overflow, {@link Short#MAX_VALUE} or {@link Short#MIN_VALUE} are used
+	 * instead.</p>
 	 * <p>If gain is 1.0f, this function is a no-op.</p>
+	 * <p>For continuous streams, prefer an {@link AudioProcessor}, which does the same in fixed-point and also meters
+	 * the levels.</p>
 	 *
 	 * @param audio_bytes the audio data
 	 * @param gain the gain to apply to the data
@@ -96,7 +99,8 @@ public final class UtilsAudio {
 
 		final int audio_length = audio_bytes.length;
 		for (int i = 0; i < audio_length; ++i) {
-			audio_bytes[i] = (short)Math.min((int)((float) audio_bytes[i] * gain), (int)Short.MAX_VALUE);
+			final int sample = (int) ((float) audio_bytes[i] * gain);
+			audio_bytes[i] = (short) Math.max(Math.min(sample, (int) Short.MAX_VALUE), (int) Short.MIN_VALUE);
 		}
 	}
 
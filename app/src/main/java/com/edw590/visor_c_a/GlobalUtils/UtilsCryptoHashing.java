@@ -21,12 +21,25 @@
 
 package com.edw590.visor_c_a.GlobalUtils;
 
-import androidx.annotation.NonNull;
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.StructStat;
 
-import org.apache.commons.io.FileUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import UtilsSWA.UtilsSWA;
 
@@ -35,6 +48,35 @@ import UtilsSWA.UtilsSWA;
  */
 public final class UtilsCryptoHashing {
 
+	/** The algorithm of {@link UtilsSWA#getHashStringOfBytesCRYPTOHASHING(byte[])}. */
+	private static final String HASH_ALGORITHM = "SHA-512";
+	/** Size of the chunks files are hashed in. */
+	private static final int CHUNK_SIZE = 64 * 1024;
+	/** Maximum number of files in {@link #file_hashes_cache}. */
+	private static final int MAX_CACHED_FILES = 64;
+	/** Files whose status changed less than this many seconds ago are not cached (see {@link #getFileState(String)}). */
+	private static final long MIN_STATE_AGE_S = 2;
+
+	/** The hashes of the last files hashed, by file path (least recently used first). */
+	private static final Map<String, CachedHash> file_hashes_cache =
+			new LinkedHashMap<String, CachedHash>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(@NonNull final Map.Entry<String, CachedHash> eldest) {
+					return size() > MAX_CACHED_FILES;
+				}
+			};
+
+	/** The hash of a file and the state of the file when it was calculated. */
+	private static final class CachedHash {
+		@NonNull final long[] state;
+		@NonNull final String hash;
+
+		CachedHash(@NonNull final long[] state, @NonNull final String hash) {
+			this.state = state;
+			this.hash = hash;
+		}
+	}
+
 	/**
 	 * <p>Private empty constructor so the class can't be instantiated (utility class).</p>
 	 */
@@ -59,14 +101,11 @@ public final class UtilsCryptoHashing {
 	 * false otherwise
 	 */
 	public static boolean fileMatchesHash(@NonNull final String file_path, @NonNull final String[] hashes) {
-		final byte[] file_bytes;
-		try {
-			file_bytes = FileUtils.readFileToByteArray(new File(file_path));
-		} catch (final IOException ignored) {
+		final String hash_file = getHashStringOfFile(file_path, true);
+		if (hash_file == null) {
 			return false;
 		}
 
-		final String hash_file = UtilsSWA.getHashStringOfBytesCRYPTOHASHING(file_bytes);
 		for (final String hash : hashes) {
 			if (hash.equals(hash_file)) {
 				return true;
@@ -75,4 +114,110 @@ public final class UtilsCryptoHashing {
 
 		return false;
 	}
+
+	/**
+	 * <p>Calculates the hash of a file the same way as {@link UtilsSWA#getHashStringOfBytesCRYPTOHASHING(byte[])}, but
+	 * reading the file in chunks - so files of any size are hashed in constant memory.</p>
+	 * <p>With the cache, the hash is only calculated again if the file changed since the last time - which is known by
+	 * its device, inode, size and modification and status change times (the last one can't be set by apps, unlike the
+	 * modification time, so a file can't be changed without the cache noticing). The cache is only available from
+	 * Lollipop onwards - below that the hash is always calculated.</p>
+	 *
+	 * @param file_path the complete file path
+	 * @param use_cache true to use the cache, false to always calculate the hash (it's still cached for the next time)
+	 *
+	 * @return the hash, or null if the file could not be read
+	 */
+	@Nullable
+	public static String getHashStringOfFile(@NonNull final String file_path, final boolean use_cache) {
+		final File file = new File(file_path);
+		if (!file.isFile()) {
+			return null;
+		}
+		long[] state = null;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			state = getFileState(file_path);
+		}
+
+		if (use_cache && state != null) {
+			final CachedHash cached_hash;
+			synchronized (file_hashes_cache) {
+				cached_hash = file_hashes_cache.get(file_path);
+			}
+			if (cached_hash != null && Arrays.equals(cached_hash.state, state)) {
+				return cached_hash.hash;
+			}
+		}
+
+		final String hash;
+		try (final FileInputStream file_input_stream = new FileInputStream(file)) {
+			final MessageDigest message_digest = MessageDigest.getInstance(HASH_ALGORITHM);
+			final FileChannel file_channel = file_input_stream.getChannel();
+			final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+			while (file_channel.read(buffer) != -1) {
+				buffer.flip();
+				message_digest.update(buffer);
+				buffer.clear();
+			}
+			hash = digestToString(message_digest.digest());
+		} catch (final IOException | NoSuchAlgorithmException ignored) {
+			return null;
+		}
+
+		synchronized (file_hashes_cache) {
+			if (state != null) {
+				file_hashes_cache.put(file_path, new CachedHash(state, hash));
+			} else {
+				file_hashes_cache.remove(file_path);
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * <p>Gets the state of a file to know if it changed: its device, inode, size, and modification and status change
+	 * times.</p>
+	 * <p>The times have a resolution of 1 second, so a file changed twice in the same second could look unchanged. To
+	 * prevent that, files whose status changed less than {@link #MIN_STATE_AGE_S} seconds ago have no state (the hash
+	 * is calculated again until their status is old enough).</p>
+	 *
+	 * @param file_path the complete file path
+	 *
+	 * @return the state, or null if it could not be gotten or the status of the file changed too recently
+	 */
+	@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+	@Nullable
+	private static long[] getFileState(@NonNull final String file_path) {
+		final StructStat stat;
+		try {
+			stat = Os.stat(file_path);
+		} catch (final ErrnoException ignored) {
+			return null;
+		}
+		if (System.currentTimeMillis() / 1000 - stat.st_ctime < MIN_STATE_AGE_S) {
+			return null;
+		}
+
+		return new long[]{stat.st_dev, stat.st_ino, stat.st_size, stat.st_mtime, stat.st_ctime};
+	}
+
+	/**
+	 * <p>Converts a digest to a string in the format of
+	 * {@link UtilsSWA#getHashStringOfBytesCRYPTOHASHING(byte[])} (uppercase hexadecimal).</p>
+	 *
+	 * @param digest the digest
+	 *
+	 * @return the string
+	 */
+	@NonNull
+	private static String digestToString(@NonNull final byte[] digest) {
+		final StringBuilder string_builder = new StringBuilder(digest.length * 2);
+		for (final byte digest_byte : digest) {
+			string_builder.append(Character.toUpperCase(Character.forDigit((digest_byte >> 4) & 0xF, 16)));
+			string_builder.append(Character.toUpperCase(Character.forDigit(digest_byte & 0xF, 16)));
+		}
+
+		return string_builder.toString();
+	}
 }
@@ -29,6 +29,12 @@ import androidx.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 
@@ -43,6 +49,9 @@ import kotlin.io.FilesKt;
  */
 public final class UtilsFilesDirs {
 
+	/** Size of the chunks files are streamed in. */
+	private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
 	/**
 	 * <p>Private empty constructor so the class can't be instantiated (utility class).</p>
 	 */
@@ -164,7 +173,8 @@ public final class UtilsFilesDirs {
 	}
 
 	/**
-	 * <p>Reads the bytes from the given file using the cat shell command.</p>
+	 * <p>Reads the bytes from the given file, or using the cat shell command.</p>
+	 * <p>For big files, use {@link #openInputStream(GPath)} instead.</p>
 	 *
 	 * @param file_path the path to the file
 	 *
@@ -172,14 +182,12 @@ public final class UtilsFilesDirs {
 	 */
 	@Nullable
 	public static byte[] readFileBytes(@NonNull final GPath file_path) {
-		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-			try {
-				return Files.readAllBytes(new File(file_path.gPathToStringConversion()).toPath());
-			} catch (final Exception e) {
-				e.printStackTrace();
-			} catch (final OutOfMemoryError ignored) {
-				return null;
-			}
+		try {
+			return FileUtils.readFileToByteArray(new File(file_path.gPathToStringConversion()));
+		} catch (final Exception e) {
+			e.printStackTrace();
+		} catch (final OutOfMemoryError ignored) {
+			return null;
 		}
 
 		final String command = "cat '" + file_path.gPathToStringConversion() + "'";
@@ -189,12 +197,102 @@ public final class UtilsFilesDirs {
 		return UtilsShell.executeShellCmd(true, command).output_stream;
 	}
 
+	/**
+	 * <p>Opens a file for reading.</p>
+	 * <p>If the file can't be opened with SDK methods, its contents are streamed from the cat shell command - so the
+	 * file is never fully loaded into memory either way.</p>
+	 *
+	 * @param file_path the path to the file
+	 *
+	 * @return the stream to read the file from
+	 *
+	 * @throws IOException if the file could not be opened in any way (errors of the shell command are only known when
+	 * reaching the end of the stream - see {@link UtilsShell#openPipeInput(boolean, String)})
+	 */
+	@NonNull
+	public static InputStream openInputStream(@NonNull final GPath file_path) throws IOException {
+		try {
+			return new FileInputStream(file_path.gPathToStringConversion());
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+
+		final String command = "cat '" + file_path.gPathToStringConversion() + "'";
+
+		return UtilsShell.openPipeInput(true, command);
+	}
+
+	/**
+	 * <p>Opens a file for writing, creating the parent directories if needed.</p>
+	 * <p>If the file can't be opened with SDK methods, the written bytes are streamed raw to the cat shell command
+	 * (which does NOT create parent directories!).</p>
+	 *
+	 * @param file_path the path to the file
+	 * @param append true to write to the end of the file, false to replace all file contents
+	 *
+	 * @return the stream to write the file with
+	 *
+	 * @throws IOException if the file could not be opened in any way (errors of the shell command are only known when
+	 * closing the stream - see {@link UtilsShell#openPipeOutput(boolean, String)})
+	 */
+	@NonNull
+	public static OutputStream openOutputStream(@NonNull final GPath file_path, final boolean append)
+			throws IOException {
+		try {
+			return FileUtils.openOutputStream(new File(file_path.gPathToStringConversion()), append);
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+
+		final String command = "cat " + (append ? ">>" : ">") + " '" + file_path.gPathToStringConversion() + "'";
+
+		return UtilsShell.openPipeOutput(true, command);
+	}
+
+	/**
+	 * <p>Copies all the bytes of a stream to another, in chunks of {@link #STREAM_CHUNK_SIZE} bytes.</p>
+	 * <p>If both are file streams, the bytes are transferred between their channels directly.</p>
+	 * <p>None of the streams is closed.</p>
+	 *
+	 * @param input_stream the stream to read from
+	 * @param output_stream the stream to write to
+	 *
+	 * @return the number of bytes copied
+	 *
+	 * @throws IOException if an error occurs reading or writing
+	 */
+	public static long copyStream(@NonNull final InputStream input_stream, @NonNull final OutputStream output_stream)
+			throws IOException {
+		if (input_stream instanceof FileInputStream && output_stream instanceof FileOutputStream) {
+			final FileChannel input_channel = ((FileInputStream) input_stream).getChannel();
+			final FileChannel output_channel = ((FileOutputStream) output_stream).getChannel();
+			long num_copied = 0;
+			while (true) {
+				final long num_transferred = input_channel.transferTo(input_channel.position(), STREAM_CHUNK_SIZE,
+						output_channel);
+				if (num_transferred <= 0) {
+					return num_copied;
+				}
+				input_channel.position(input_channel.position() + num_transferred);
+				num_copied += num_transferred;
+			}
+		}
+
+		final byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+		long num_copied = 0;
+		int num_read;
+		while ((num_read = input_stream.read(buffer)) != -1) {
+			output_stream.write(buffer, 0, num_read);
+			num_copied += num_read;
+		}
+
+		return num_copied;
+	}
+
 	/**
 	 * <p>Writes the given files bytes to a file (replaces all file contents).</p>
-	 * <p>ATTENTION: try not to give too big files to this function without checking write permissions, because the
-	 * function that uses shell commands is (notice the name) {@link #writeSmallFile(GPath, byte[])}.</p>
-	 * <p>ATTENTION: if {@link FileUtils#writeByteArrayToFile(File, byte[])} can't write the file,
-	 * {@link #writeSmallFile(GPath, byte[])} will be called which does NOT create parent directories!</p>
+	 * <p>ATTENTION: if {@link FileUtils#writeByteArrayToFile(File, byte[])} can't write the file, the shell commands
+	 * used do NOT create parent directories!</p>
 	 *
 	 * @param file_path the path to the file
 	 * @param file_bytes the bytes to write
@@ -210,11 +308,97 @@ public final class UtilsFilesDirs {
 			e.printStackTrace();
 		}
 
+		final String command = "cat > '" + file_path.gPathToStringConversion() + "'";
+		try (final OutputStream output_stream = UtilsShell.openPipeOutput(true, command)) {
+			output_stream.write(file_bytes);
+
+			return UtilsShell.ErrCodes.NO_ERR;
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+
 		return writeSmallFile(file_path, file_bytes);
 	}
 
 	/**
-	 * <p>Same as {@link #writeFile(GPath, byte[])}, but only uses a shell command.</p>
+	 * <p>Writes the contents of a stream to a file (replaces all file contents), streaming it - so it can be used with
+	 * files of any size.</p>
+	 * <p>ATTENTION: if the file can't be opened with SDK methods, the shell command used does NOT create parent
+	 * directories!</p>
+	 * <p>The stream is not closed.</p>
+	 *
+	 * @param file_path the path to the file
+	 * @param input_stream the stream to get the bytes from
+	 *
+	 * @return same as {@link UtilsShell#executeShellCmd(boolean, String)}
+	 */
+	public static int writeFile(@NonNull final GPath file_path, @NonNull final InputStream input_stream) {
+		try (final OutputStream output_stream = openOutputStream(file_path, false)) {
+			copyStream(input_stream, output_stream);
+		} catch (final Exception e) {
+			e.printStackTrace();
+
+			return UtilsShell.ErrCodes.GEN_ERR;
+		}
+
+		return UtilsShell.ErrCodes.NO_ERR;
+	}
+
+	/**
+	 * <p>Writes the given files bytes to a file atomically: either the file has all the new contents or it keeps all
+	 * the old ones, even if the app or the device stop in the middle.</p>
+	 * <p>The bytes are written to a temporary file next to it, synced to the storage, and only then the temporary file
+	 * is renamed to the file. If a backup path is given, the old file is renamed to it right before (rotating the
+	 * backup), so the backup is always the previous complete version - and if there's a stop between the 2 renames,
+	 * only the backup exists.</p>
+	 * <p>If it's not possible to write with SDK methods, the file and the backup are written with
+	 * {@link #writeFile(GPath, byte[])} (not atomically).</p>
+	 *
+	 * @param file_path the path to the file
+	 * @param file_bytes the bytes to write
+	 * @param backup_path the path to the backup file, or null to not keep a backup
+	 *
+	 * @return same as {@link UtilsShell#executeShellCmd(boolean, String)}
+	 */
+	public static int writeFileAtomically(@NonNull final GPath file_path, @NonNull final byte[] file_bytes,
+										  @Nullable final GPath backup_path) {
+		try {
+			final File file = new File(file_path.gPathToStringConversion());
+			final File tmp_file = new File(file.getPath() + ".tmp");
+			final File parent_dir = file.getParentFile();
+			if (parent_dir != null && !parent_dir.exists()) {
+				parent_dir.mkdirs();
+			}
+
+			try (final FileOutputStream fileOutputStream = new FileOutputStream(tmp_file)) {
+				fileOutputStream.write(file_bytes);
+				fileOutputStream.flush();
+				fileOutputStream.getFD().sync();
+			}
+
+			if (backup_path != null && file.exists()) {
+				// If this fails, the backup just stays the older version.
+				file.renameTo(new File(backup_path.gPathToStringConversion()));
+			}
+			if (tmp_file.renameTo(file)) {
+				return UtilsShell.ErrCodes.NO_ERR;
+			}
+			tmp_file.delete();
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+
+		final int ret = writeFile(file_path, file_bytes);
+		if (backup_path != null && ret == UtilsShell.ErrCodes.NO_ERR) {
+			writeFile(backup_path, file_bytes);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * <p>Same as {@link #writeFile(GPath, byte[])}, but only uses a shell command with the bytes on it - last resort in
+	 * case the cat command can't be started.</p>
 	 * <p>ONLY with small files!!! <strong>This function allocates 4-5 times the file size into memory!</strong></p>
 	 * <p>Allocates 4 times more on KitKat+, and 5 times more below that.</p>
 	 * <p>ATTENTION: this function does NOT create parent directories!</p>
@@ -238,8 +422,7 @@ public final class UtilsFilesDirs {
 
 	/**
 	 * <p>Copies the source path to the destination path (file, directory, whatever).</p>
-	 * <p>ATTENTION: try not to give too big files to this function without checking write permissions and SDK version,
-	 * because... read this: {@link #writeFile(GPath, byte[])} - can only happen below Android KitKat.</p>
+	 * <p>Below KitKat, only files can be copied if SDK methods can't do it, and they're streamed through cat.</p>
 	 *
 	 * @param src_path the source file path
 	 * @param dest_path the destination file path
@@ -263,12 +446,13 @@ public final class UtilsFilesDirs {
 
 			return UtilsShell.executeShellCmd(true, command).exit_code;
 		} else {
-			final byte[] src_bytes = readFileBytes(src_path);
-			if (src_bytes == null) {
+			try (final InputStream input_stream = openInputStream(src_path)) {
+				return writeFile(dest_path, input_stream);
+			} catch (final Exception e) {
+				e.printStackTrace();
+
 				return -1;
 			}
-
-			return writeFile(dest_path, src_bytes); // 4 times the size
 		}
 	}
 
@@ -22,6 +22,7 @@
 package com.edw590.visor_c_a.GlobalUtils;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.nio.charset.Charset;
 
@@ -33,6 +34,11 @@ import UtilsSWA.UtilsSWA;
  */
 public final class UtilsSettings {
 
+	/** The last user settings JSON written to disk, to only write it again when it changes. */
+	@Nullable private static String last_user_json = null;
+	/** Same as {@link #last_user_json} but for the generated settings. */
+	@Nullable private static String last_gen_json = null;
+
 	/**
 	 * <p>Private empty constructor so the class can't be instantiated (utility class).</p>
 	 */
@@ -84,19 +90,34 @@ public final class UtilsSettings {
 	}
 
 	/**
-	 * <p>Writes the User and Generated settings to disk.</p>
+	 * <p>Writes the User and Generated settings to disk, if they changed since the last write.</p>
+	 * <p>The file is written atomically and the previous version becomes the backup - see
+	 * {@link UtilsFilesDirs#writeFileAtomically(GPath, byte[], GPath)}.</p>
 	 *
 	 * @param json the JSON string to write
 	 * @param user_settings true if the user settings should be saved, false if the generated settings should be saved
 	 */
-	public static void writeSettingsFile(@NonNull final String json, final boolean user_settings) {
+	public static synchronized void writeSettingsFile(@NonNull final String json, final boolean user_settings) {
+		if (json.equals(user_settings ? last_user_json : last_gen_json)) {
+			return;
+		}
+
 		String settings_file_str = user_settings ? UtilsSWA.USER_SETTINGS_FILE : UtilsSWA.GEN_SETTINGS_FILE_CLIENT;
 		String backup_file_str = settings_file_str + ".bak";
 
 		GPath settings_file = new GPath(true, GL_CONSTS.VISOR_EXT_FOLDER_PATH).add2(false, settings_file_str);
 		GPath backup_file = new GPath(true, GL_CONSTS.VISOR_EXT_FOLDER_PATH).add2(false, backup_file_str);
 
-		UtilsFilesDirs.writeFile(settings_file, json.getBytes(Charset.defaultCharset()));
-		UtilsFilesDirs.writeFile(backup_file, json.getBytes(Charset.defaultCharset()));
+		if (UtilsFilesDirs.writeFileAtomically(settings_file, json.getBytes(Charset.defaultCharset()), backup_file) !=
+				UtilsShell.ErrCodes.NO_ERR) {
+			// Try again on the next call.
+			return;
+		}
+
+		if (user_settings) {
+			last_user_json = json;
+		} else {
+			last_gen_json = json;
+		}
 	}
 }
@@ -24,6 +24,13 @@ package com.edw590.visor_c_a.GlobalUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -48,8 +55,16 @@ public final class UtilsShell {
 		public static final int WRONG_USAGE = 2;
 		/** No permission to access the path. */
 		public static final int PERM_DENIED = 13;
+		/** The command didn't finish in time (same as the timeout command). */
+		public static final int TIMED_OUT = 124;
 	}
 
+	/** For the timeouts: wait until the command finishes, up to {@link ShellSession#MAX_CMD_TIME_MS} for stuck ones. */
+	public static final long NO_TIMEOUT = 0;
+
+	/** The shells the commands run on. */
+	private static final ShellSessionPool session_pool = new ShellSessionPool();
+
 	/**
 	 * <p>Private empty constructor so the class can't be instantiated (utility class).</p>
 	 */
@@ -85,6 +100,8 @@ public final class UtilsShell {
 
 	/**
 	 * <p>Executes any given command and returns the outputs.</p>
+	 * <p>The command runs on a shell kept open for the next commands, and is waited for until it finishes (with
+	 * {@link #NO_TIMEOUT}). If no shell can be started, it runs on a new shell through the native library.</p>
 	 * <br>
 	 * <p><u><strong>SECURITY WARNING:</strong></u></p>
 	 * <p>Do NOT use this to execute commands saved in some file or whatever. Execute ONLY constants or generated
@@ -95,15 +112,84 @@ public final class UtilsShell {
 	 * @param commands_list list of commands to execute
 	 *
 	 * @return an instance of {@link CmdOutput}, and if any error occurs, {@link UtilsSWA#GENERIC_ERR} will be returned
+	 * (or {@link ErrCodes#TIMED_OUT} if the command is stuck)
 	 */
 	@NonNull
 	public static CmdOutput executeShellCmd(final boolean attempt_su, @NonNull final Iterable<String> commands_list) {
+		final String command = String.join("\n", commands_list);
+
+		final ByteArrayOutputStream output_sink = new ByteArrayOutputStream(64);
+		final ByteArrayOutputStream error_sink = new ByteArrayOutputStream(64);
+		try {
+			final int exit_code = session_pool.execute(attempt_su, command, output_sink, error_sink, NO_TIMEOUT);
+
+			return new CmdOutput(exit_code, output_sink.toByteArray(), error_sink.toByteArray());
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+
+		return executeNativeShellCmd(attempt_su, command);
+	}
+
+	/**
+	 * <p>Same as {@link #executeShellCmd(boolean, String)}, but the output is streamed as the command writes it, for
+	 * commands with big or long-running outputs.</p>
+	 * <p>The same SECURITY WARNING of {@link #executeShellCmd(boolean, Iterable)} applies here.</p>
+	 * <p>On timeout the shell running the command is stopped, but with {@code attempt_su} that only stops su - the
+	 * command itself runs as root and the app can't stop it, so it may keep running. Choose the timeout (or
+	 * {@link #NO_TIMEOUT}) accordingly.</p>
+	 *
+	 * @param attempt_su same as in {@link #executeShellCmd(boolean, Iterable)}
+	 * @param command the command to execute
+	 * @param output_sink where to write the standard output of the command to (it's not closed)
+	 * @param error_sink where to write the standard error of the command to (it's not closed), or null to discard it
+	 * @param timeout_ms the maximum time to wait for the command to finish, or {@link #NO_TIMEOUT}
+	 *
+	 * @return the exit code of the command, {@link ErrCodes#TIMED_OUT} if it didn't finish in time,
+	 * {@link ErrCodes#GEN_ERR} if the shell died while executing it, or {@link UtilsSWA#GENERIC_ERR} in case of
+	 * error
+	 */
+	public static int executeShellCmd(final boolean attempt_su, @NonNull final String command,
+									  @NonNull final OutputStream output_sink, @Nullable final OutputStream error_sink,
+									  final long timeout_ms) {
+		try {
+			return session_pool.execute(attempt_su, command, output_sink, error_sink, timeout_ms);
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+
+		final CmdOutput cmd_output = executeNativeShellCmd(attempt_su, command);
+		try {
+			if (cmd_output.output_stream != null) {
+				output_sink.write(cmd_output.output_stream);
+			}
+			if (error_sink != null && cmd_output.error_stream != null) {
+				error_sink.write(cmd_output.error_stream);
+			}
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+
+		return cmd_output.exit_code;
+	}
+
+	/**
+	 * <p>Executes a command on a new shell through the native library (the way commands were executed before the
+	 * shells were kept open).</p>
+	 *
+	 * @param attempt_su same as in {@link #executeShellCmd(boolean, Iterable)}
+	 * @param command the command to execute
+	 *
+	 * @return same as in {@link #executeShellCmd(boolean, Iterable)}
+	 */
+	@NonNull
+	private static CmdOutput executeNativeShellCmd(final boolean attempt_su, @NonNull final String command) {
 		int exit_code;
 		byte[] output_stream = null;
 		byte[] error_stream = null;
 
 		try {
-			final byte[] cmd_output = UtilsSWA.execCmdSHELL(attempt_su, String.join("\n", commands_list));
+			final byte[] cmd_output = UtilsSWA.execCmdSHELL(attempt_su, command);
 
 			exit_code = (int) UtilsSWA.getExitCodeSHELL(cmd_output);
 			output_stream = UtilsSWA.getStdoutSHELL(cmd_output);
@@ -116,6 +202,142 @@ public final class UtilsShell {
 
 		return new CmdOutput(exit_code, output_stream, error_stream);
 	}
+
+	/**
+	 * <p>Starts a command and gives its standard output as a stream, for commands whose output is too big to keep in
+	 * memory (like cat'ing a big file).</p>
+	 * <p>If the command exits with an error, reaching the end of the stream throws an {@link IOException} (the output
+	 * may be incomplete). Closing the stream before its end stops the command.</p>
+	 * <p>The standard error is not read, so don't use this with commands that write a lot to it.</p>
+	 * <p>The same SECURITY WARNING of {@link #executeShellCmd(boolean, Iterable)} applies here.</p>
+	 *
+	 * @param attempt_su true to run the command with su, false to run it with a normal shell
+	 * @param command the command to execute
+	 *
+	 * @return the standard output of the command
+	 *
+	 * @throws IOException if the command could not be started
+	 */
+	@NonNull
+	public static InputStream openPipeInput(final boolean attempt_su, @NonNull final String command)
+			throws IOException {
+		final Process process = startProcess(attempt_su, command);
+		process.getOutputStream().close();
+
+		return new FilterInputStream(process.getInputStream()) {
+			@Override
+			public int read() throws IOException {
+				final int ret = super.read();
+				if (ret == -1) {
+					checkExitCode(process);
+				}
+
+				return ret;
+			}
+
+			@Override
+			public int read(@NonNull final byte[] b, final int off, final int len) throws IOException {
+				final int ret = super.read(b, off, len);
+				if (ret == -1) {
+					checkExitCode(process);
+				}
+
+				return ret;
+			}
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					process.destroy();
+				}
+			}
+		};
+	}
+
+	/**
+	 * <p>Starts a command and gives its standard input as a stream, for commands that must receive too much data to
+	 * keep in memory or to put on the command itself (like {@code cat > file}).</p>
+	 * <p>Closing the stream waits for the command to finish and throws an {@link IOException} if it exits with an
+	 * error.</p>
+	 * <p>The standard output and error are not read, so don't use this with commands that write a lot to them.</p>
+	 * <p>The same SECURITY WARNING of {@link #executeShellCmd(boolean, Iterable)} applies here.</p>
+	 *
+	 * @param attempt_su true to run the command with su, false to run it with a normal shell
+	 * @param command the command to execute
+	 *
+	 * @return the standard input of the command
+	 *
+	 * @throws IOException if the command could not be started
+	 */
+	@NonNull
+	public static OutputStream openPipeOutput(final boolean attempt_su, @NonNull final String command)
+			throws IOException {
+		final Process process = startProcess(attempt_su, command);
+
+		return new FilterOutputStream(process.getOutputStream()) {
+			@Override
+			public void write(@NonNull final byte[] b, final int off, final int len) throws IOException {
+				// FilterOutputStream writes byte by byte.
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+					checkExitCode(process);
+				} finally {
+					process.destroy();
+				}
+			}
+		};
+	}
+
+	/**
+	 * <p>Starts a command with su or with a normal shell.</p>
+	 *
+	 * @param attempt_su true to try su first, false to use a normal shell right away
+	 * @param command the command
+	 *
+	 * @return the process of the command
+	 *
+	 * @throws IOException if the command could not be started
+	 */
+	@NonNull
+	private static Process startProcess(final boolean attempt_su, @NonNull final String command) throws IOException {
+		if (attempt_su) {
+			try {
+				return new ProcessBuilder("su", "-c", command).start();
+			} catch (final IOException ignored) {
+				// No su binary on the device - use a normal shell.
+			}
+		}
+
+		return new ProcessBuilder("sh", "-c", command).start();
+	}
+
+	/**
+	 * <p>Waits for a process to finish and checks if it exited without errors.</p>
+	 *
+	 * @param process the process
+	 *
+	 * @throws IOException if it exited with an error or if the wait was interrupted
+	 */
+	private static void checkExitCode(@NonNull final Process process) throws IOException {
+		final int exit_code;
+		try {
+			exit_code = process.waitFor();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException("Interrupted waiting for the command to finish");
+		}
+		if (exit_code != ErrCodes.NO_ERR) {
+			throw new IOException("The command exited with code " + exit_code);
+		}
+	}
 	/**
 	 * <p>Class to use for the returning value of {@link #executeShellCmd(boolean, String)}.</p>
 	 * <p>Read the documentation of the class constructor to know more about it.</p>
@@ -33,11 +33,13 @@ import android.os.HandlerThread;
 import androidx.annotation.Nullable;
 
 import com.edw590.visor_c_a.GlobalInterfaces.IModuleInst;
+import com.edw590.visor_c_a.GlobalUtils.InternalEventBus;
 import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsMedia;
 import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
 import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
 import com.edw590.visor_c_a.Modules.SpeechRecognitionCtrl.UtilsSpeechRecognizersBC;
@@ -54,9 +56,9 @@ import java.io.IOException;
 public final class AudioRecorder implements IModuleInst {
 
 	private final int element_index = ModulesList.getElementIndex(getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String) ModulesList.getElementValue(element_index,
-			ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private final Handler main_handler;
+	@Nullable private InternalEventBus.Subscription bus_subscription = null;
 
 	@Nullable private MediaRecorder recorder = null;
 
@@ -73,6 +75,7 @@ public final class AudioRecorder implements IModuleInst {
 	}
 	@Override
 	public void destroy() {
+		InternalEventBus.unsubscribe(bus_subscription);
 		try {
 			UtilsContext.getContext().unregisterReceiver(broadcastReceiver);
 		} catch (final IllegalArgumentException ignored) {
@@ -102,6 +105,7 @@ public final class AudioRecorder implements IModuleInst {
 	 */
 	public AudioRecorder() {
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, AudioRecorder.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
 		// Update the Values Storage
@@ -114,6 +118,9 @@ public final class AudioRecorder implements IModuleInst {
 
 			UtilsContext.getContext().registerReceiver(broadcastReceiver, new IntentFilter(intentFilter), null,
 					main_handler);
+			bus_subscription = InternalEventBus.subscribe(main_handler, InternalEventBus.DEFAULT_MAX_PENDING,
+					intent -> broadcastReceiver.onReceive(null, intent),
+					CONSTS_BC_AudioRec.ACTION_RECORD_AUDIO);
 		} catch (final IllegalArgumentException ignored) {
 		}
 	}
@@ -39,12 +39,14 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
 import com.edw590.visor_c_a.GlobalInterfaces.IModuleInst;
+import com.edw590.visor_c_a.GlobalUtils.InternalEventBus;
 import com.edw590.visor_c_a.GlobalUtils.UtilsCheckHardwareFeatures;
 import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
 import com.edw590.visor_c_a.GlobalUtils.UtilsServices;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
 import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
 import com.edw590.visor_c_a.ModulesList;
@@ -61,9 +63,9 @@ import GPTComm.GPTComm;
 public final class CameraManagement implements IModuleInst {
 
 	private final int element_index = ModulesList.getElementIndex(this.getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String) ModulesList.getElementValue(element_index,
-			ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private final Handler main_handler;
+	@Nullable private InternalEventBus.Subscription bus_subscription = null;
 
 	@Nullable private Camera camera_old = null;
 	@Nullable TakePictureOld takePictureOld = null;
@@ -89,6 +91,7 @@ public final class CameraManagement implements IModuleInst {
 	}
 	@Override
 	public void destroy() {
+		InternalEventBus.unsubscribe(bus_subscription);
 		try {
 			UtilsContext.getContext().unregisterReceiver(broadcastReceiver);
 		} catch (final IllegalArgumentException ignored) {
@@ -126,6 +129,7 @@ public final class CameraManagement implements IModuleInst {
 	 */
 	public CameraManagement() {
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, CameraManagement.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
 		try {
@@ -143,6 +147,16 @@ public final class CameraManagement implements IModuleInst {
 
 			UtilsContext.getContext().registerReceiver(broadcastReceiver, new IntentFilter(intentFilter), null,
 					main_handler);
+			bus_subscription = InternalEventBus.subscribe(main_handler, InternalEventBus.DEFAULT_MAX_PENDING,
+					intent -> broadcastReceiver.onReceive(null, intent),
+					CONSTS_BC_CameraManag.ACTION_USE_CAMERA,
+					CONSTS_BC_CameraManag.ACTION_PICTURE_TAKEN,
+					CONSTS_BC_CameraManag.ACTION_PICTURE_TAKEN_NO_FOCUS,
+					CONSTS_BC_CameraManag.ACTION_ERR_CANT_OPEN_CAM,
+					CONSTS_BC_CameraManag.ACTION_ERR_CANT_CREATE_FILE,
+					CONSTS_BC_CameraManag.ACTION_ERR_FILE_DELETED,
+					CONSTS_BC_CameraManag.ACTION_ERR_WRITING_PIC_TO_FILE,
+					CONSTS_BC_CameraManag.ACTION_ERR_UNSUPPORTED_FLASH_MODE);
 		} catch (final IllegalArgumentException ignored) {
 		}
 
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.CmdsExecutor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.edw590.visor_c_a.Modules.CmdsExecutor.CmdsList.CmdsList;
+import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Everything a {@link CmdHandler} needs to know about the command it's executing.</p>
+ * <p>When running with other commands, what's said through here is spoken in the order of the commands - see
+ * {@link IntentsRunner.Batch}.</p>
+ */
+final class CmdContext {
+
+	/** The intent detected for the command. */
+	@NonNull final DialogMan.Intent intent;
+	/** The value of the {@link #intent} (one of the {@link CmdsList.CmdRetIds}). */
+	@NonNull final String value;
+	/** True if the {@link #value} is {@link CmdsList.CmdRetIds#RET_ON}, false otherwise. */
+	final boolean on;
+	/** The priority to speak with. */
+	final int speech_priority;
+	/** The speech mode to speak with. */
+	final int speech_mode2;
+	/** Same as in {@link CmdsExecutor#processTask(String, boolean, boolean)}. */
+	final boolean partial_results;
+	/** The batch of commands this one is running with, or null if it's running alone. */
+	@Nullable private final IntentsRunner.Batch batch;
+	/** The order of the command on the {@link #batch}. */
+	final int order;
+	/** What the command said while it couldn't speak yet (only used with a {@link #batch}). */
+	private final List<HeldSpeech> held_speeches = new ArrayList<>(4);
+
+	/** A speech held until the command can speak. */
+	private static final class HeldSpeech {
+		@NonNull final String speak;
+		@NonNull final String session_type;
+		final boolean wait_for_gpt;
+		@Nullable final Runnable after_speaking;
+
+		HeldSpeech(@NonNull final String speak, @NonNull final String session_type, final boolean wait_for_gpt,
+				   @Nullable final Runnable after_speaking) {
+			this.speak = speak;
+			this.session_type = session_type;
+			this.wait_for_gpt = wait_for_gpt;
+			this.after_speaking = after_speaking;
+		}
+	}
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param intent {@link #intent}
+	 * @param speech_priority {@link #speech_priority}
+	 * @param speech_mode2 {@link #speech_mode2}
+	 * @param partial_results {@link #partial_results}
+	 * @param batch {@link #batch}
+	 * @param order {@link #order}
+	 */
+	CmdContext(@NonNull final DialogMan.Intent intent, final int speech_priority, final int speech_mode2,
+			   final boolean partial_results, @Nullable final IntentsRunner.Batch batch, final int order) {
+		this.intent = intent;
+		this.speech_priority = speech_priority;
+		this.speech_mode2 = speech_mode2;
+		this.partial_results = partial_results;
+		this.batch = batch;
+		this.order = order;
+
+		value = intent.getValue();
+		on = CmdsList.CmdRetIds.RET_ON.equals(value);
+
+		if (batch != null) {
+			batch.setContext(this);
+		}
+	}
+
+	/**
+	 * <p>Speaks a phrase with no session and nothing to do after speaking.</p>
+	 *
+	 * @param speak the phrase
+	 */
+	void say(@NonNull final String speak) {
+		say(speak, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+	}
+
+	/**
+	 * <p>Speaks a phrase with the command's priority and mode.</p>
+	 *
+	 * @param speak the phrase
+	 * @param session_type same as in {@link UtilsSpeech2BC#speak(String, int, int, String, boolean, Runnable)}
+	 * @param wait_for_gpt same as in {@link UtilsSpeech2BC#speak(String, int, int, String, boolean, Runnable)}
+	 * @param after_speaking same as in {@link UtilsSpeech2BC#speak(String, int, int, String, boolean, Runnable)}
+	 */
+	void say(@NonNull final String speak, @NonNull final String session_type, final boolean wait_for_gpt,
+			 @Nullable final Runnable after_speaking) {
+		if (batch == null) {
+			UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, session_type, wait_for_gpt, after_speaking);
+
+			return;
+		}
+
+		synchronized (batch) {
+			if (batch.canSpeak(order)) {
+				UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, session_type, wait_for_gpt, after_speaking);
+			} else {
+				held_speeches.add(new HeldSpeech(speak, session_type, wait_for_gpt, after_speaking));
+			}
+		}
+	}
+
+	/**
+	 * <p>Speaks what was held until now. Called by the {@link #batch} when this command can speak.</p>
+	 */
+	void speakHeld() {
+		for (final HeldSpeech held : held_speeches) {
+			UtilsSpeech2BC.speak(held.speak, speech_priority, speech_mode2, held.session_type, held.wait_for_gpt,
+					held.after_speaking);
+		}
+		held_speeches.clear();
+	}
+
+	/**
+	 * <p>Call when the command finished executing.</p>
+	 */
+	void onFinished() {
+		if (batch != null) {
+			batch.onFinished(order);
+		}
+	}
+
+	/**
+	 * <p>Speaks the phrase of a response table for a result code, if there's one.</p>
+	 *
+	 * @param table the table
+	 * @param result_code the result code
+	 */
+	void respond(@NonNull final ResponseTable table, final int result_code) {
+		final String speak = table.get(result_code, on);
+		if (speak != null) {
+			say(speak);
+		}
+	}
+}
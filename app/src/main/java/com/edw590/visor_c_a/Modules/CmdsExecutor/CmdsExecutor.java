@@ -40,6 +40,7 @@ import com.edw590.visor_c_a.GlobalUtils.AndroidSystem.UtilsAndroid;
 import com.edw590.visor_c_a.GlobalUtils.AndroidSystem.UtilsAndroidConnectivity;
 import com.edw590.visor_c_a.GlobalUtils.AndroidSystem.UtilsAndroidPower;
 import com.edw590.visor_c_a.GlobalUtils.AndroidSystem.UtilsAndroidTelephony;
+import com.edw590.visor_c_a.GlobalUtils.InternalEventBus;
 import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
@@ -52,6 +53,7 @@ import com.edw590.visor_c_a.Modules.CameraManager.CameraManagement;
 import com.edw590.visor_c_a.Modules.CameraManager.UtilsCameraManagerBC;
 import com.edw590.visor_c_a.Modules.CmdsExecutor.CmdsList.CmdsList;
 import com.edw590.visor_c_a.Modules.CmdsExecutor.CmdsList.UtilsCmdsList;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Modules.ScreenRecorder.ScreenRecorder;
 import com.edw590.visor_c_a.Modules.ScreenRecorder.UtilsScreenRecorderBC;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
@@ -62,6 +64,9 @@ import com.edw590.visor_c_a.ModulesList;
 import com.edw590.visor_c_a.Registry.RegistryKeys;
 import com.edw590.visor_c_a.Registry.UtilsRegistry;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 import ACD.ACD;
 import GMan.GMan;
 import GPTComm.GPTComm;
@@ -74,14 +79,108 @@ import UtilsSWA.UtilsSWA;
 public final class CmdsExecutor implements IModuleInst {
 
 	private final int element_index = ModulesList.getElementIndex(this.getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String)
-			ModulesList.getElementValue(element_index, ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private final Handler main_handler;
+	@Nullable private InternalEventBus.Subscription bus_subscription = null;
 
-	boolean ask_anything_else = true;
+	volatile boolean ask_anything_else = true;
 
 	DialogMan.HandleInputResult handle_input_result = null;
 
+	/** Highest command ID supported by {@link #handlers}. */
+	private static final int MAX_CMD_ID = 63;
+	/** The handlers of the commands, indexed by the command ID. */
+	private final CmdHandler[] handlers = new CmdHandler[MAX_CMD_ID + 1];
+	/** Same indexes as {@link #handlers}: if the command only requires speaking something. */
+	private final boolean[] only_speak = new boolean[MAX_CMD_ID + 1];
+	/** Same indexes as {@link #handlers}: the conflict groups the command changes (see {@link IntentsRunner}). */
+	private final int[] exclusive_groups = new int[MAX_CMD_ID + 1];
+	/** Same indexes as {@link #handlers}: the conflict groups the command depends on (see {@link IntentsRunner}). */
+	private final int[] shared_groups = new int[MAX_CMD_ID + 1];
+	/** Same indexes as {@link #handlers}: number of executions of the command. */
+	private final AtomicLongArray num_executions = new AtomicLongArray(MAX_CMD_ID + 1);
+	/** Same indexes as {@link #handlers}: sum of the execution times of the command. */
+	private final AtomicLongArray total_exec_ns = new AtomicLongArray(MAX_CMD_ID + 1);
+	/** Same indexes as {@link #handlers}: maximum of the execution times of the command. */
+	private final AtomicLongArray max_exec_ns = new AtomicLongArray(MAX_CMD_ID + 1);
+	/** Minimum time between two logs of the execution statistics. */
+	private static final long STATS_LOG_INTERVAL_MS = 10L * 60_000L;
+	/** {@link System#currentTimeMillis()} of the last log of the execution statistics. */
+	private final AtomicLong last_stats_log_ms = new AtomicLong(System.currentTimeMillis());
+
+	/** Runs the commands of the same sentence concurrently. */
+	private final IntentsRunner intents_runner = new IntentsRunner(ModulesList.getElementName(element_index) +
+			" - commands");
+
+	/** Lock for the network lease: {@link #acquireNetwork()} and {@link #releaseNetwork()}. */
+	private final Object network_lock = new Object();
+	/** Number of commands currently using the network lease. */
+	private int network_users = 0;
+	/** If the Mobile Data was enabled before the first command acquired the network lease. */
+	private boolean data_was_enabled = false;
+	/** If the Wi-Fi was enabled before the first command acquired the network lease. */
+	private boolean wifi_was_enabled = false;
+
+	private static final ResponseTable RESPONSES_WIFI = new ResponseTable()
+			.putOnOff(UtilsShell.ErrCodes.NO_ERR, "Wi-Fi turned on.", "Wi-Fi turned off.")
+			.put(UtilsAndroid.NOT_AVAILABLE, "Wi-Fi service not available on the device.")
+			.put(UtilsShell.ErrCodes.PERM_DENIED, "No permission to toggle the Wi-Fi.")
+			.put(UtilsAndroid.ALREADY_DISABLED, "The Wi-Fi is already disabled.")
+			.put(UtilsAndroid.ALREADY_DISABLING, "The Wi-Fi is already being disabled.")
+			.put(UtilsAndroid.ALREADY_ENABLED, "The Wi-Fi is already enabled.")
+			.put(UtilsAndroid.ALREADY_ENABLING, "The Wi-Fi is already being enabled.")
+			.setDefault("Unspecified error attempting to toggle the Wi-Fi.");
+	private static final ResponseTable RESPONSES_MOBILE_DATA = new ResponseTable()
+			.putOnOff(UtilsShell.ErrCodes.NO_ERR, "Mobile Data connection turned on.",
+					"Mobile Data connection turned off.")
+			.put(UtilsAndroid.NOT_AVAILABLE, "Telephony service not available on the device.")
+			.put(UtilsShell.ErrCodes.PERM_DENIED, "No permission to toggle the Mobile Data connection.")
+			.put(UtilsAndroid.ALREADY_DISABLED, "The Mobile Data is already disabled.")
+			.put(UtilsAndroid.ALREADY_ENABLED, "The Mobile Data is already enabled.")
+			.setDefault("Unspecified error attempting to toggle the Mobile Data connection.");
+	private static final ResponseTable RESPONSES_BLUETOOTH = new ResponseTable()
+			.putOnOff(UtilsShell.ErrCodes.NO_ERR, "Bluetooth turned on.", "Bluetooth turned off.")
+			.put(UtilsAndroid.NOT_AVAILABLE, "The device does not feature a Bluetooth adapter.")
+			.put(UtilsShell.ErrCodes.GEN_ERR, "Error toggling the Bluetooth.")
+			.put(UtilsShell.ErrCodes.PERM_DENIED, "No permission to toggle the Bluetooth.")
+			.put(UtilsAndroid.ALREADY_DISABLED, "The Bluetooth is already disabled.")
+			.put(UtilsAndroid.ALREADY_DISABLING, "The Bluetooth is already being disabled.")
+			.put(UtilsAndroid.ALREADY_ENABLED, "The Bluetooth is already enabled.")
+			.put(UtilsAndroid.ALREADY_ENABLING, "The Bluetooth is already being enabled.")
+			.setDefault("Unspecified error attempting to toggle the Bluetooth.");
+	private static final ResponseTable RESPONSES_ANSWER_CALL = new ResponseTable()
+			.put(UtilsShell.ErrCodes.NO_ERR, "Call answered.")
+			.put(UtilsAndroid.NOT_AVAILABLE, "Telephony service not available on the device.")
+			.put(UtilsShell.ErrCodes.GEN_ERR, "Error answering the call.");
+	private static final ResponseTable RESPONSES_END_CALL = new ResponseTable()
+			.put(UtilsShell.ErrCodes.NO_ERR, "Call ended.")
+			.put(UtilsAndroid.NOT_AVAILABLE, "Telephony service not available on the device.")
+			.put(UtilsShell.ErrCodes.GEN_ERR, "Error ending the call.");
+	private static final ResponseTable RESPONSES_AIRPLANE_MODE = new ResponseTable()
+			.putOnOff(UtilsShell.ErrCodes.NO_ERR, "Airplane Mode turned on.", "Airplane Mode turned off.")
+			.put(UtilsShell.ErrCodes.PERM_DENIED, "No permission to toggle the Airplane Mode.")
+			.put(UtilsAndroid.ALREADY_DISABLED, "The Airplane Mode is already disabled.")
+			.put(UtilsAndroid.ALREADY_ENABLED, "The Airplane Mode is already enabled.")
+			.setDefault("Unspecified error attempting to toggle the Airplane Mode.");
+	private static final ResponseTable RESPONSES_SHUT_DOWN = new ResponseTable()
+			.put(UtilsShell.ErrCodes.NO_ERR, "Shutting down the device...")
+			.put(UtilsAndroid.NOT_AVAILABLE, "Power service not available on the device.")
+			.put(UtilsShell.ErrCodes.PERM_DENIED, "No permission to shut down the device.")
+			.setDefault("Unspecified error attempting to shut down the device.");
+	private static final ResponseTable RESPONSES_REBOOT = new ResponseTable()
+			.put(UtilsShell.ErrCodes.NO_ERR, "Rebooting the device...")
+			.put(UtilsAndroid.NOT_AVAILABLE, "Power service not available on the device.")
+			.put(UtilsShell.ErrCodes.PERM_DENIED, "No permission to reboot the device.")
+			.setDefault("Unspecified error attempting to reboot the device.");
+	private static final ResponseTable RESPONSES_CALL_CONTACT = new ResponseTable()
+			.put(UtilsAndroid.NO_CALL_ANY, "Insufficient privileges to call numbers. The number was instead only " +
+					"dialed and requires your manual confirmation to proceed the call.")
+			.put(UtilsAndroid.NOT_AVAILABLE, "Phone calls not supported on the device.");
+	private static final ResponseTable RESPONSES_POWER_SAVER_MODE = new ResponseTable()
+			.putOnOff(UtilsShell.ErrCodes.NO_ERR, "Battery Saver Mode turned on.", "Battery Saver Mode turned off.")
+			.put(UtilsShell.ErrCodes.PERM_DENIED, "No permission to toggle the Battery Saver Mode.")
+			.setDefault("Unspecified error attempting to toggle the Battery Saver Mode.");
+
 	///////////////////////////////////////////////////////////////
 	// IModuleInst stuff
 	private boolean is_module_destroyed = false;
@@ -95,6 +194,8 @@ public final class CmdsExecutor implements IModuleInst {
 	}
 	@Override
 	public void destroy() {
+		InternalEventBus.unsubscribe(bus_subscription);
+		intents_runner.shutdown();
 		try {
 			UtilsContext.getContext().unregisterReceiver(broadcastReceiver);
 		} catch (final IllegalArgumentException ignored) {
@@ -125,8 +226,10 @@ public final class CmdsExecutor implements IModuleInst {
 		}
 
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, CmdsExecutor.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
+		registerHandlers();
 		registerReceiver();
 	}
 
@@ -157,8 +260,6 @@ public final class CmdsExecutor implements IModuleInst {
 			speech_priority = Speech2.PRIORITY_USER_ACTION;
 		}
 
-		final AudioManager audioManager = (AudioManager) UtilsContext.getSystemService(Context.AUDIO_SERVICE);
-
 		ask_anything_else = true;
 
 		handle_input_result = DialogMan.DialogMan.handleInput(sentence, handle_input_result);
@@ -173,970 +274,714 @@ public final class CmdsExecutor implements IModuleInst {
 					UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
 		}
 
-		boolean any_intent_detected = false;
 		DialogMan.Intent[] intents = {
 				handle_input_result.getIntent0(), handle_input_result.getIntent1(), handle_input_result.getIntent2(),
 				handle_input_result.getIntent3(), handle_input_result.getIntent4(), handle_input_result.getIntent5(),
 				handle_input_result.getIntent6(), handle_input_result.getIntent7(), handle_input_result.getIntent8(),
 				handle_input_result.getIntent9()
 		};
+		boolean any_intent_detected = false;
+		final int[] cmd_indexes = new int[intents.length];
+		int num_cmds = 0;
 		for (final DialogMan.Intent intent : intents) {
 			if (intent == null) {
 				break;
 			}
 			any_intent_detected = true;
 
-			// Keep it checking with CMDi_INF1_DO_SOMETHING and inverting the output. That way, if cmd_to_check is ""
-			// (no previous command), it won't equal DO_SOMETHING and will set cmdi_only_speak to true.
-			final int speech_mode2 = CmdsList.CmdAddInfo.CMDi_INF1_ONLY_SPEAK.
-					equals(CmdsList.CmdAddInfo.CMDi_INFO.get(intent.getAcd_cmd_id())) ?
-					Speech2.MODE2_BYPASS_NO_SND : Speech2.MODE_DEFAULT;
-
-			switch (intent.getAcd_cmd_id()) {
-				case (CmdsList.CmdIds.CMD_TOGGLE_FLASHLIGHT): {
-					UtilsCameraManagerBC.useCamera(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON) ?
-							CameraManagement.USAGE_FLASHLIGHT_ON : CameraManagement.USAGE_FLASHLIGHT_OFF);
-
-					if (intent.getValue().equals(CmdsList.CmdRetIds.RET_ON)) {
-						final String speak = "Flashlight turned on.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					} else {
-						final String speak = "Flashlight turned off.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					}
+			final int cmd_index = getCmdIndex(intent.getAcd_cmd_id());
+			if (cmd_index >= 0 && handlers[cmd_index] != null) {
+				cmd_indexes[num_cmds] = cmd_index;
+				intents[num_cmds] = intent;
+				++num_cmds;
+			}
+		}
+		if (!any_intent_detected) {
+			sendToGPT(sentence);
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_ASK_TIME): {
-					final String speak = "It's " + UtilsTimeDate.getTimeStr(-1);
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+			return;
+		}
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_ASK_DATE): {
-					final String speak = "Today's " + UtilsTimeDate.getDateStr(-1);
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+		if (num_cmds == 1) {
+			// Nothing to run concurrently with.
+			executeCmd(cmd_indexes[0], new CmdContext(intents[0], speech_priority, getSpeechMode2(cmd_indexes[0]),
+					partial_results, null, 0));
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_TOGGLE_WIFI): {
-					switch (UtilsAndroidConnectivity.setWifiEnabled(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON))) {
-						case (UtilsShell.ErrCodes.NO_ERR): {
-							final String speak = "Wi-Fi turned " + (intent.getValue().equals(CmdsList.CmdRetIds.RET_ON) ?
-									"on." : "off.");
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-									false, null);
-
-							break;
-						}
-						case (UtilsAndroid.NOT_AVAILABLE): {
-							final String speak = "Wi-Fi service not available on the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.PERM_DENIED): {
-							final String speak = "No permission to toggle the Wi-Fi.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_DISABLED): {
-							final String speak = "The Wi-Fi is already disabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_DISABLING): {
-							final String speak = "The Wi-Fi is already being disabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_ENABLED): {
-							final String speak = "The Wi-Fi is already enabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_ENABLING): {
-							final String speak = "The Wi-Fi is already being enabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						default: {
-							final String speak = "Unspecified error attempting to toggle the Wi-Fi.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-					}
+			return;
+		}
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_TOGGLE_MOBILE_DATA): {
-					switch (UtilsAndroidConnectivity.setMobileDataEnabled(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON))) {
-						case (UtilsShell.ErrCodes.NO_ERR): {
-							final String speak = "Mobile Data connection turned " +
-									(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON) ? "on." : "off.");
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-									false, null);
-
-							break;
-						}
-						case (UtilsAndroid.NOT_AVAILABLE): {
-							final String speak = "Telephony service not available on the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.PERM_DENIED): {
-							final String speak = "No permission to toggle the Mobile Data connection.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_DISABLED): {
-							final String speak = "The Mobile Data is already disabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_ENABLED): {
-							final String speak = "The Mobile Data is already enabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						default: {
-							final String speak = "Unspecified error attempting to toggle the Mobile Data connection.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-					}
+		final IntentsRunner.Batch batch = new IntentsRunner.Batch(num_cmds);
+		final IntentsRunner.Job[] jobs = new IntentsRunner.Job[num_cmds];
+		for (int i = 0; i < num_cmds; ++i) {
+			final int cmd_index = cmd_indexes[i];
+			final CmdContext ctx = new CmdContext(intents[i], speech_priority, getSpeechMode2(cmd_index),
+					partial_results, batch, i);
+			jobs[i] = new IntentsRunner.Job(ctx, exclusive_groups[cmd_index], shared_groups[cmd_index],
+					() -> executeCmd(cmd_index, ctx));
+		}
+		intents_runner.runAll(jobs);
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_TOGGLE_BLUETOOTH): {
-					switch (UtilsAndroidConnectivity.setBluetoothEnabled(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON))) {
-						case (UtilsShell.ErrCodes.NO_ERR): {
-							final String speak = "Bluetooth turned " + (intent.getValue().equals(CmdsList.CmdRetIds.RET_ON) ?
-									"on." : "off.");
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.NOT_AVAILABLE): {
-							final String speak = "The device does not feature a Bluetooth adapter.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.GEN_ERR): {
-							final String speak = "Error toggling the Bluetooth.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.PERM_DENIED): {
-							final String speak = "No permission to toggle the Bluetooth.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_DISABLED): {
-							final String speak = "The Bluetooth is already disabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_DISABLING): {
-							final String speak = "The Bluetooth is already being disabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_ENABLED): {
-							final String speak = "The Bluetooth is already enabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_ENABLING): {
-							final String speak = "The Bluetooth is already being enabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						default: {
-							final String speak = "Unspecified error attempting to toggle the Bluetooth.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-					}
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_ANSWER_CALL): {
-					switch (UtilsAndroidTelephony.answerPhoneCall()) {
-						case (UtilsShell.ErrCodes.NO_ERR): {
-							final String speak = "Call answered.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.NOT_AVAILABLE): {
-							final String speak = "Telephony service not available on the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.GEN_ERR): {
-							final String speak = "Error answering the call.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
+		/*if (detected_cmds.length == 0) {
+			return NOTHING_EXECUTED;
+		} else {
+			if (something_done) {
+				if (!something_said) {
+					if (!only_returning) {
+						final String speak = "Done.";
+						UtilsSpeech2BC.speak(speak, speech_priority, 0, null);
 					}
-
-					break;
 				}
-				case (CmdsList.CmdIds.CMD_END_CALL): {
-					switch (UtilsAndroidTelephony.endPhoneCall()) {
-						case (UtilsShell.ErrCodes.NO_ERR): {
-							final String speak = "Call ended.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.NOT_AVAILABLE): {
-							final String speak = "Telephony service not available on the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.GEN_ERR): {
-							final String speak = "Error ending the call.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-					}
+			} else if (!something_said) {
+				return NOTHING_EXECUTED;
+			}
+		}*/
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_TOGGLE_SPEAKERS): {
-					final String speak;
-					if (((String) UtilsRegistry.getData(RegistryKeys.K_CURR_PHONE_CALL_NUMBER, true)).isEmpty()) {
-						speak = "The device not in a phone call.";
-					} else {
-						if (UtilsAndroidTelephony.setCallSpeakerphoneEnabled(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON))) {
-							speak = "Speakerphone turned " + (intent.getValue().equals(CmdsList.CmdRetIds.RET_ON) ?
-									"on." : "off.");
-						} else {
-							speak = "Audio service not available on the device.";
-						}
-					}
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+		/*if (ask_anything_else && !internal_usage) {
+			final String speak = "Anything else sir?";
+			UtilsSpeech2BC.speak(speak, speech_priority, 0, true, UtilsSpeech2.CALL_COMMANDS_RECOG);
+		}*/
+	}
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_TOGGLE_AIRPLANE_MODE): {
-					switch (UtilsAndroidConnectivity.setAirplaneModeEnabled(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON))) {
-						case (UtilsShell.ErrCodes.NO_ERR): {
-							final String speak = "Airplane Mode turned " + (intent.getValue().equals(CmdsList.CmdRetIds.RET_ON) ?
-									"on." : "off.");
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.PERM_DENIED): {
-							final String speak = "No permission to toggle the Airplane Mode.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_DISABLED): {
-							final String speak = "The Airplane Mode is already disabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsAndroid.ALREADY_ENABLED): {
-							final String speak = "The Airplane Mode is already enabled.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						default: {
-							final String speak = "Unspecified error attempting to toggle the Airplane Mode.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-					}
+	/**
+	 * <p>Gets the speech mode a command speaks with.</p>
+	 *
+	 * @param cmd_index the index of the command as returned by {@link #getCmdIndex(String)}
+	 *
+	 * @return the mode
+	 */
+	private int getSpeechMode2(final int cmd_index) {
+		// Commands that only require speaking don't need to wait for the "no sound" checks.
+		return only_speak[cmd_index] ? Speech2.MODE2_BYPASS_NO_SND : Speech2.MODE_DEFAULT;
+	}
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_ASK_BATTERY_PERCENT): {
-					final boolean battery_present = (boolean) UtilsRegistry.
-							getData(RegistryKeys.K_BATTERY_PRESENT, true);
-					if (!battery_present) {
-						final String speak = "There is no battery present on the device.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					}
+	/**
+	 * <p>Executes a command with its handler and measures how long it took.</p>
+	 * <p>This is the only place the handlers are called from. It may be called from multiple threads at the same
+	 * time.</p>
+	 *
+	 * @param cmd_index the index of the command as returned by {@link #getCmdIndex(String)}
+	 * @param ctx the context of the command
+	 */
+	private void executeCmd(final int cmd_index, @NonNull final CmdContext ctx) {
+		final long start_ns = System.nanoTime();
+		try {
+			handlers[cmd_index].execute(ctx);
+		} finally {
+			final long exec_ns = System.nanoTime() - start_ns;
+			num_executions.incrementAndGet(cmd_index);
+			total_exec_ns.addAndGet(cmd_index, exec_ns);
+			long curr_max = max_exec_ns.get(cmd_index);
+			while (exec_ns > curr_max && !max_exec_ns.compareAndSet(cmd_index, curr_max, exec_ns)) {
+				curr_max = max_exec_ns.get(cmd_index);
+			}
 
-					final int battery_percentage = (int) UtilsRegistry.getData(RegistryKeys.K_BATTERY_LEVEL, true);
-					final String speak = "Battery percentage: " + battery_percentage + "%.";
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+			logExecStatsIfDue();
+		}
+	}
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_POWER_SHUT_DOWN): {
-					// Don't say anything if it's successful - he will already say "Shutdown detected".
-					// EDIT: sometimes he doesn't say that. Now it says something anyway.
-
-					switch (UtilsAndroidPower.shutDownDevice()) {
-						case (UtilsShell.ErrCodes.NO_ERR): {
-							final String speak = "Shutting down the device...";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							ask_anything_else = false;
-
-							break;
-						}
-						case (UtilsAndroid.NOT_AVAILABLE): {
-							final String speak = "Power service not available on the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.PERM_DENIED): {
-							final String speak = "No permission to shut down the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						default: {
-							final String speak = "Unspecified error attempting to shut down the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-					}
+	/**
+	 * <p>Logs the number of executions and the mean and maximum execution times of each command executed since the
+	 * module started, if at least {@link #STATS_LOG_INTERVAL_MS} passed since the last log.</p>
+	 */
+	private void logExecStatsIfDue() {
+		final long curr_time_ms = System.currentTimeMillis();
+		final long last_log_ms = last_stats_log_ms.get();
+		if (curr_time_ms - last_log_ms < STATS_LOG_INTERVAL_MS ||
+				!last_stats_log_ms.compareAndSet(last_log_ms, curr_time_ms)) {
+			// Not time yet, or another command thread is logging them.
+			return;
+		}
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_POWER_REBOOT): {
-					// Don't say anything if it's successful - he will already say "Shutdown detected".
-					// EDIT: sometimes he doesn't say that. Now it says something anyway.
-
-					final int reboot_mode;
-					switch (intent.getValue()) {
-						case CmdsList.CmdRetIds.RET_14_NORMAL: {
-							reboot_mode = UtilsAndroid.MODE_NORMAL;
-							break;
-						}
-						case CmdsList.CmdRetIds.RET_14_SAFE_MODE: {
-							reboot_mode = UtilsAndroid.MODE_SAFE;
-							break;
-						}
-						case CmdsList.CmdRetIds.RET_14_RECOVERY: {
-							reboot_mode = UtilsAndroid.MODE_RECOVERY;
-							break;
-						}
-						case CmdsList.CmdRetIds.RET_14_BOOTLOADER: {
-							reboot_mode = UtilsAndroid.MODE_BOOTLOADER;
-							break;
-						}
-						case CmdsList.CmdRetIds.RET_14_FAST: {
-							reboot_mode = UtilsAndroid.MODE_FAST;
-							break;
-						}
-						default: {
-							continue;
-						}
-					}
+		final StringBuilder stats = new StringBuilder(512);
+		stats.append("CmdsExecutor - executions (command: count, mean/max time):");
+		for (int cmd_index = 0; cmd_index <= MAX_CMD_ID; ++cmd_index) {
+			final long count = num_executions.get(cmd_index);
+			if (count == 0) {
+				continue;
+			}
+			stats.append(' ').append(cmd_index).append(": ").append(count).append(", ")
+					.append(total_exec_ns.get(cmd_index) / count / 1_000).append('/')
+					.append(max_exec_ns.get(cmd_index) / 1_000).append(" us;");
+		}
+		UtilsLogging.logLnInfo(stats);
+	}
 
-					switch (UtilsAndroidPower.rebootDevice(reboot_mode)) {
-						case (UtilsShell.ErrCodes.NO_ERR): {
-							final String speak = "Rebooting the device...";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							ask_anything_else = false;
-
-							break;
-						}
-						case (UtilsAndroid.NOT_AVAILABLE): {
-							final String speak = "Power service not available on the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						case (UtilsShell.ErrCodes.PERM_DENIED): {
-							final String speak = "No permission to reboot the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-						default: {
-							final String speak = "Unspecified error attempting to reboot the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-					}
+	/**
+	 * <p>Registers the handler of a command.</p>
+	 * <p>To add a new command, add it to {@link CmdsList} and register its handler here - nothing else is needed.</p>
+	 *
+	 * @param cmd_id one of the {@link CmdsList.CmdIds}
+	 * @param cmd_exclusive_groups the {@code GROUP_} constants of {@link IntentsRunner} the command changes
+	 * @param cmd_shared_groups the {@code GROUP_} constants of {@link IntentsRunner} the command depends on
+	 * @param handler the handler of the command
+	 */
+	private void registerHandler(@NonNull final String cmd_id, final int cmd_exclusive_groups,
+								 final int cmd_shared_groups, @NonNull final CmdHandler handler) {
+		final int cmd_index = getCmdIndex(cmd_id);
+		if (cmd_index < 0) {
+			throw new IllegalArgumentException("Command ID out of range: " + cmd_id);
+		}
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_TAKE_PHOTO): {
-					boolean rear_pic = intent.getValue().equals(CmdsList.CmdRetIds.RET_15_REAR);
+		handlers[cmd_index] = handler;
+		exclusive_groups[cmd_index] = cmd_exclusive_groups;
+		shared_groups[cmd_index] = cmd_shared_groups;
+		only_speak[cmd_index] = CmdsList.CmdAddInfo.CMDi_INF1_ONLY_SPEAK.
+				equals(CmdsList.CmdAddInfo.CMDi_INFO.get(cmd_id));
+	}
 
-					UtilsCameraManagerBC.useCamera(rear_pic ? CameraManagement.USAGE_TAKE_REAR_PHOTO :
-							CameraManagement.USAGE_TAKE_FRONTAL_PHOTO);
+	/**
+	 * <p>Registers the handlers of all the commands.</p>
+	 */
+	private void registerHandlers() {
+		final int connectivity = IntentsRunner.GROUP_CONNECTIVITY;
+		final int telephony = IntentsRunner.GROUP_TELEPHONY;
+		final int camera = IntentsRunner.GROUP_CAMERA;
+		final int recording = IntentsRunner.GROUP_RECORDING;
+		final int recognition = IntentsRunner.GROUP_RECOGNITION;
+		final int power = IntentsRunner.GROUP_POWER;
+
+		registerHandler(CmdsList.CmdIds.CMD_TOGGLE_FLASHLIGHT, camera, 0, this::cmdToggleFlashlight);
+		registerHandler(CmdsList.CmdIds.CMD_ASK_TIME, 0, 0, ctx -> ctx.say("It's " + UtilsTimeDate.getTimeStr(-1)));
+		registerHandler(CmdsList.CmdIds.CMD_ASK_DATE, 0, 0, ctx -> ctx.say("Today's " + UtilsTimeDate.getDateStr(-1)));
+		registerHandler(CmdsList.CmdIds.CMD_TOGGLE_WIFI, connectivity, 0, ctx ->
+				ctx.respond(RESPONSES_WIFI, UtilsAndroidConnectivity.setWifiEnabled(ctx.on)));
+		registerHandler(CmdsList.CmdIds.CMD_TOGGLE_MOBILE_DATA, connectivity, 0, ctx ->
+				ctx.respond(RESPONSES_MOBILE_DATA, UtilsAndroidConnectivity.setMobileDataEnabled(ctx.on)));
+		registerHandler(CmdsList.CmdIds.CMD_TOGGLE_BLUETOOTH, connectivity, 0, ctx ->
+				ctx.respond(RESPONSES_BLUETOOTH, UtilsAndroidConnectivity.setBluetoothEnabled(ctx.on)));
+		registerHandler(CmdsList.CmdIds.CMD_ANSWER_CALL, telephony, 0, ctx ->
+				ctx.respond(RESPONSES_ANSWER_CALL, UtilsAndroidTelephony.answerPhoneCall()));
+		registerHandler(CmdsList.CmdIds.CMD_END_CALL, telephony, 0, ctx ->
+				ctx.respond(RESPONSES_END_CALL, UtilsAndroidTelephony.endPhoneCall()));
+		registerHandler(CmdsList.CmdIds.CMD_TOGGLE_SPEAKERS, telephony, 0, this::cmdToggleSpeakers);
+		registerHandler(CmdsList.CmdIds.CMD_TOGGLE_AIRPLANE_MODE, connectivity | telephony, 0, ctx ->
+				ctx.respond(RESPONSES_AIRPLANE_MODE, UtilsAndroidConnectivity.setAirplaneModeEnabled(ctx.on)));
+		registerHandler(CmdsList.CmdIds.CMD_ASK_BATTERY_PERCENT, 0, power, this::cmdAskBatteryPercent);
+		registerHandler(CmdsList.CmdIds.CMD_POWER_SHUT_DOWN, IntentsRunner.GROUP_ALL, 0, this::cmdPowerShutDown);
+		registerHandler(CmdsList.CmdIds.CMD_POWER_REBOOT, IntentsRunner.GROUP_ALL, 0, this::cmdPowerReboot);
+		registerHandler(CmdsList.CmdIds.CMD_TAKE_PHOTO, camera, 0, this::cmdTakePhoto);
+		registerHandler(CmdsList.CmdIds.CMD_RECORD_MEDIA, recording | recognition, 0, this::cmdRecordMedia);
+		// todo Save speeches on an ArrayList or something to be possible to say the second-last thing or
+		// one or two more (humans have limited memory --> "I don't know what I said 3 minutes ago!").
+		// Also make sure if there are things with higher priority on the lists that the last thing said is
+		// the last thing said when it was requested.
+		registerHandler(CmdsList.CmdIds.CMD_SAY_AGAIN, 0, 0, ctx -> UtilsSpeech2BC.sayAgain());
+		registerHandler(CmdsList.CmdIds.CMD_CALL_CONTACT, telephony, 0, this::cmdCallContact);
+		registerHandler(CmdsList.CmdIds.CMD_STOP_RECORD_MEDIA, recording, 0, this::cmdStopRecordMedia);
+		registerHandler(CmdsList.CmdIds.CMD_TOGGLE_POWER_SAVER_MODE, power, 0, this::cmdTogglePowerSaverMode);
+		registerHandler(CmdsList.CmdIds.CMD_CONTROL_MEDIA, IntentsRunner.GROUP_MEDIA, 0, this::cmdControlMedia);
+		registerHandler(CmdsList.CmdIds.CMD_STOP_LISTENING, recognition, 0, this::cmdStopListening);
+		registerHandler(CmdsList.CmdIds.CMD_START_LISTENING, recognition, 0, this::cmdStartListening);
+		// The network queries only share the connectivity - the network lease takes care of them among themselves.
+		registerHandler(CmdsList.CmdIds.CMD_TELL_WEATHER, 0, connectivity, this::cmdTellWeather);
+		registerHandler(CmdsList.CmdIds.CMD_TELL_NEWS, 0, connectivity, this::cmdTellNews);
+		registerHandler(CmdsList.CmdIds.CMD_ASK_EVENTS, 0, connectivity, this::cmdAskEvents);
+		registerHandler(CmdsList.CmdIds.CMD_GONNA_SLEEP, 0, 0, ctx -> {
+			//UtilsAndroidConnectivity.setAirplaneModeEnabled(true); todo Needs root commands implementation
+			//UtilsRegistry.setValue(ValuesRegistry.Keys.IS_USER_SLEEPING, true);
+		});
+	}
 
-					String speak = "Taking a " + (rear_pic ? "rear" : "frontal") + " picture...";
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+	/**
+	 * <p>Gets the index of a command on {@link #handlers} from its ID, without creating objects.</p>
+	 *
+	 * @param cmd_id one of the {@link CmdsList.CmdIds}
+	 *
+	 * @return the index, or -1 if the ID is not a number from 0 to {@link #MAX_CMD_ID}
+	 */
+	static int getCmdIndex(@NonNull final String cmd_id) {
+		final int length = cmd_id.length();
+		if (length == 0 || length > 4) {
+			return -1;
+		}
 
-					break;
+		int cmd_index = 0;
+		for (int i = 0; i < length; ++i) {
+			final char c = cmd_id.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			cmd_index = cmd_index * 10 + (c - '0');
+		}
+
+		return cmd_index <= MAX_CMD_ID ? cmd_index : -1;
+	}
+
+	/**
+	 * <p>Gets the number of times a command was executed.</p>
+	 *
+	 * @param cmd_id one of the {@link CmdsList.CmdIds}
+	 *
+	 * @return the number of executions
+	 */
+	public long getNumExecutions(@NonNull final String cmd_id) {
+		final int cmd_index = getCmdIndex(cmd_id);
+
+		return cmd_index < 0 ? 0 : num_executions.get(cmd_index);
+	}
+
+	/**
+	 * <p>Gets the mean time the handler of a command took to execute.</p>
+	 *
+	 * @param cmd_id one of the {@link CmdsList.CmdIds}
+	 *
+	 * @return the time in microseconds, or 0 if the command was never executed
+	 */
+	public long getMeanExecTimeUs(@NonNull final String cmd_id) {
+		final int cmd_index = getCmdIndex(cmd_id);
+		if (cmd_index < 0) {
+			return 0;
+		}
+		final long count = num_executions.get(cmd_index);
+
+		return count == 0 ? 0 : total_exec_ns.get(cmd_index) / count / 1_000;
+	}
+
+	/**
+	 * <p>Same as {@link #getMeanExecTimeUs(String)} but the maximum.</p>
+	 */
+	public long getMaxExecTimeUs(@NonNull final String cmd_id) {
+		final int cmd_index = getCmdIndex(cmd_id);
+
+		return cmd_index < 0 ? 0 : max_exec_ns.get(cmd_index) / 1_000;
+	}
+
+	/**
+	 * <p>Makes sure there's a network connection to use, turning on the Mobile Data and the Wi-Fi if there's none.</p>
+	 * <p>Commands running at the same time share the same lease: only the first one checks and turns them on and only
+	 * the last one to call {@link #releaseNetwork()} turns off the ones that were off before.</p>
+	 */
+	private void acquireNetwork() {
+		synchronized (network_lock) {
+			if (network_users == 0) {
+				data_was_enabled = UtilsAndroidConnectivity.getMobileDataEnabled();
+				wifi_was_enabled = UtilsAndroidConnectivity.getWifiEnabled();
+				if ((int) UtilsRegistry.getData(RegistryKeys.K_CURR_NETWORK_TYPE, true) == -1) {
+					UtilsAndroidConnectivity.setMobileDataEnabled(true);
+					UtilsAndroidConnectivity.setWifiEnabled(true);
 				}
-				case (CmdsList.CmdIds.CMD_RECORD_MEDIA): {
-					switch (intent.getValue()) {
-						case (CmdsList.CmdRetIds.RET_16_AUDIO_1):
-						case (CmdsList.CmdRetIds.RET_16_AUDIO_2): {
-							if (!(boolean) ModulesList.getElementValue(
-									ModulesList.getElementIndex(AudioRecorder.class), ModulesList.ELEMENT_SUPPORTED)) {
-								final String speak = "Audio recording is not supported on this device through " +
-										"either hardware or application permissions limitations.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2,
-										UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-
-								continue;
-							}
-
-							// Can only start recording when the commands speech recognition has finished. Not before,
-							// or other things the user might want to say will be ignored (not cool).
-							if (!partial_results) {
-								ask_anything_else = false;
-
-								UtilsSpeechRecognizersBC.stopRecognition(() -> {
-									UtilsAudioRecorderBC.recordAudio(true, MediaRecorder.AudioSource.MIC, false);
-								});
-							}
-
-							break;
-						}
-						case (CmdsList.CmdRetIds.RET_16_VIDEO_1):
-						case (CmdsList.CmdRetIds.RET_16_VIDEO_2): {
-							// todo
-							// todo Also missing the record frontal and rear video commands (this one is generic)
-
-							break;
-						}
-						case (CmdsList.CmdRetIds.RET_16_SCREEN_1):
-						case (CmdsList.CmdRetIds.RET_16_SCREEN_2): {
-							if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
-								String speak = "Screen recording is not available below Android 5.0 Lollipop.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2,
-										UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-
-								continue;
-							}
-
-							if (!(boolean) ModulesList.getElementValue(
-									ModulesList.getElementIndex(ScreenRecorder.class), ModulesList.ELEMENT_SUPPORTED)) {
-								final String speak = "Screen recording is not supported on this device through " +
-										"either hardware or application permissions limitations.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2,
-										UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-
-								continue;
-							}
-
-							// Can only start recording when the commands speech recognition has finished. Not before,
-							// or other things the user might want to say will be ignored (not cool).
-							if (!partial_results) {
-								ask_anything_else = false;
-
-								UtilsScreenRecorderBC.recordScreen(true, false);
-							}
-
-							break;
-						}
-					}
+			}
+			++network_users;
+		}
+	}
 
-					break;
+	/**
+	 * <p>Releases the lease taken with {@link #acquireNetwork()}.</p>
+	 */
+	private void releaseNetwork() {
+		synchronized (network_lock) {
+			--network_users;
+			if (network_users == 0) {
+				if (!data_was_enabled) {
+					UtilsAndroidConnectivity.setMobileDataEnabled(false);
+				}
+				if (!wifi_was_enabled) {
+					UtilsAndroidConnectivity.setWifiEnabled(false);
 				}
-				case (CmdsList.CmdIds.CMD_SAY_AGAIN): {
-					UtilsSpeech2BC.sayAgain();
+			}
+		}
+	}
 
-					// todo Save speeches on an ArrayList or something to be possible to say the second-last thing or
-					// one or two more (humans have limited memory --> "I don't know what I said 3 minutes ago!").
-					// Also make sure if there are things with higher priority on the lists that the last thing said is
-					// the last thing said when it was requested.
+	private void cmdToggleFlashlight(@NonNull final CmdContext ctx) {
+		UtilsCameraManagerBC.useCamera(ctx.on ? CameraManagement.USAGE_FLASHLIGHT_ON :
+				CameraManagement.USAGE_FLASHLIGHT_OFF);
 
-					break;
-				}
-				case (CmdsList.CmdIds.CMD_CALL_CONTACT): {
-					final int contact_index = (int) ACD.getSubCmdIndex(intent.getValue());
-					final String[][] contacts_list = TelephonyManagement.getContactsList();
-					final String contact_name = contacts_list[contact_index][0];
-					final String contact_number = contacts_list[contact_index][1];
-
-					final Runnable runnable = () -> {
-						final int return_code = UtilsAndroidTelephony.makePhoneCall(contact_number);
-
-						switch (return_code) {
-							case (UtilsAndroid.NO_CALL_EMERGENCY): {
-								final String speak = "Insufficient privileges to call " + contact_number +
-										", since it is an emergency number. " +
-										"Instead, it was only dialed and requires your manual confirmation " +
-										"to proceed the call.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-
-								break;
-							}
-							case (UtilsAndroid.NO_CALL_ANY): {
-								final String speak = "Insufficient privileges to call numbers. The number " +
-										"was instead only dialed and requires your manual confirmation " +
-										"to proceed the call.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-
-								break;
-							}
-							case (UtilsAndroid.NOT_AVAILABLE): {
-								final String speak = "Phone calls not supported on the device.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-
-								break;
-							}
-						}
-					};
-
-					final String speak = "Calling " + contact_name + " now, sir.";
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-							runnable);
+		ctx.say(ctx.on ? "Flashlight turned on." : "Flashlight turned off.");
+	}
 
-					break;
+	private void cmdToggleSpeakers(@NonNull final CmdContext ctx) {
+		final String speak;
+		if (((String) UtilsRegistry.getData(RegistryKeys.K_CURR_PHONE_CALL_NUMBER, true)).isEmpty()) {
+			speak = "The device not in a phone call.";
+		} else {
+			if (UtilsAndroidTelephony.setCallSpeakerphoneEnabled(ctx.on)) {
+				speak = ctx.on ? "Speakerphone turned on." : "Speakerphone turned off.";
+			} else {
+				speak = "Audio service not available on the device.";
+			}
+		}
+		ctx.say(speak);
+	}
+
+	private void cmdAskBatteryPercent(@NonNull final CmdContext ctx) {
+		final boolean battery_present = (boolean) UtilsRegistry.getData(RegistryKeys.K_BATTERY_PRESENT, true);
+		if (!battery_present) {
+			ctx.say("There is no battery present on the device.");
+		}
+
+		final int battery_percentage = (int) UtilsRegistry.getData(RegistryKeys.K_BATTERY_LEVEL, true);
+		ctx.say("Battery percentage: " + battery_percentage + "%.");
+	}
+
+	private void cmdPowerShutDown(@NonNull final CmdContext ctx) {
+		// Don't say anything if it's successful - he will already say "Shutdown detected".
+		// EDIT: sometimes he doesn't say that. Now it says something anyway.
+
+		final int result_code = UtilsAndroidPower.shutDownDevice();
+		if (result_code == UtilsShell.ErrCodes.NO_ERR) {
+			ask_anything_else = false;
+		}
+		ctx.respond(RESPONSES_SHUT_DOWN, result_code);
+	}
+
+	private void cmdPowerReboot(@NonNull final CmdContext ctx) {
+		// Don't say anything if it's successful - he will already say "Shutdown detected".
+		// EDIT: sometimes he doesn't say that. Now it says something anyway.
+
+		final int reboot_mode;
+		switch (ctx.value) {
+			case CmdsList.CmdRetIds.RET_14_NORMAL: {
+				reboot_mode = UtilsAndroid.MODE_NORMAL;
+				break;
+			}
+			case CmdsList.CmdRetIds.RET_14_SAFE_MODE: {
+				reboot_mode = UtilsAndroid.MODE_SAFE;
+				break;
+			}
+			case CmdsList.CmdRetIds.RET_14_RECOVERY: {
+				reboot_mode = UtilsAndroid.MODE_RECOVERY;
+				break;
+			}
+			case CmdsList.CmdRetIds.RET_14_BOOTLOADER: {
+				reboot_mode = UtilsAndroid.MODE_BOOTLOADER;
+				break;
+			}
+			case CmdsList.CmdRetIds.RET_14_FAST: {
+				reboot_mode = UtilsAndroid.MODE_FAST;
+				break;
+			}
+			default: {
+				return;
+			}
+		}
+
+		final int result_code = UtilsAndroidPower.rebootDevice(reboot_mode);
+		if (result_code == UtilsShell.ErrCodes.NO_ERR) {
+			ask_anything_else = false;
+		}
+		ctx.respond(RESPONSES_REBOOT, result_code);
+	}
+
+	private void cmdTakePhoto(@NonNull final CmdContext ctx) {
+		final boolean rear_pic = ctx.value.equals(CmdsList.CmdRetIds.RET_15_REAR);
+
+		UtilsCameraManagerBC.useCamera(rear_pic ? CameraManagement.USAGE_TAKE_REAR_PHOTO :
+				CameraManagement.USAGE_TAKE_FRONTAL_PHOTO);
+
+		ctx.say(rear_pic ? "Taking a rear picture..." : "Taking a frontal picture...");
+	}
+
+	private void cmdRecordMedia(@NonNull final CmdContext ctx) {
+		switch (ctx.value) {
+			case (CmdsList.CmdRetIds.RET_16_AUDIO_1):
+			case (CmdsList.CmdRetIds.RET_16_AUDIO_2): {
+				if (!ModulesList.getElementSupported(ModulesList.getElementIndex(AudioRecorder.class))) {
+					ctx.say("Audio recording is not supported on this device through either hardware or " +
+							"application permissions limitations.");
+
+					return;
 				}
-				case (CmdsList.CmdIds.CMD_STOP_RECORD_MEDIA): {
-					boolean stop_audio = false;
-					boolean stop_video = false;
-					boolean stop_screen = false;
-
-					switch (intent.getValue()) {
-						case CmdsList.CmdRetIds.RET_20_AUDIO: {
-							stop_audio = true;
-
-							break;
-						}
-						case CmdsList.CmdRetIds.RET_20_VIDEO: {
-							stop_video = true;
-
-							break;
-						}
-						case CmdsList.CmdRetIds.RET_20_SCREEN: {
-							stop_screen = true;
-
-							break;
-						}
-						case CmdsList.CmdRetIds.RET_20_ANY: {
-							stop_audio = true;
-							stop_video = true;
-							stop_screen = true;
-
-							break;
-						}
-						default: {
-							continue;
-						}
-					}
 
-					if (stop_audio) {
-						UtilsAudioRecorderBC.recordAudio(false, -1, true);
-					}
-					if (stop_video) {
-						// todo
-					}
-					if (stop_screen) {
-						UtilsScreenRecorderBC.recordScreen(false, true);
-					}
+				// Can only start recording when the commands speech recognition has finished. Not before,
+				// or other things the user might want to say will be ignored (not cool).
+				if (!ctx.partial_results) {
+					ask_anything_else = false;
 
-					break;
+					UtilsSpeechRecognizersBC.stopRecognition(() -> {
+						UtilsAudioRecorderBC.recordAudio(true, MediaRecorder.AudioSource.MIC, false);
+					});
 				}
-				case (CmdsList.CmdIds.CMD_TOGGLE_POWER_SAVER_MODE): {
-					if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
-						final String speak = "Battery Saver Mode not available below Android Lollipop.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					} else {
-						switch (UtilsAndroidPower.setBatterySaverEnabled(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON))) {
-							case (UtilsShell.ErrCodes.NO_ERR): {
-								final String speak = "Battery Saver Mode turned " +
-										(intent.getValue().equals(CmdsList.CmdRetIds.RET_ON) ? "on." : "off.");
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-
-								break;
-							}
-							case (UtilsShell.ErrCodes.PERM_DENIED): {
-								final String speak = "No permission to toggle the Battery Saver Mode.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-
-								break;
-							}
-							default: {
-								final String speak = "Unspecified error attempting to toggle the Battery Saver Mode.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-
-								break;
-							}
-						}
-					}
 
-					break;
+				break;
+			}
+			case (CmdsList.CmdRetIds.RET_16_VIDEO_1):
+			case (CmdsList.CmdRetIds.RET_16_VIDEO_2): {
+				// todo
+				// todo Also missing the record frontal and rear video commands (this one is generic)
+
+				break;
+			}
+			case (CmdsList.CmdRetIds.RET_16_SCREEN_1):
+			case (CmdsList.CmdRetIds.RET_16_SCREEN_2): {
+				if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+					ctx.say("Screen recording is not available below Android 5.0 Lollipop.");
+
+					return;
 				}
-				case (CmdsList.CmdIds.CMD_CONTROL_MEDIA): {
-					if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-						if (audioManager == null) {
-							String speak = "No audio available on the device.";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-									null);
-
-							break;
-						}
-
-						switch (intent.getValue()) {
-							case (CmdsList.CmdRetIds.RET_21_PLAY): {
-								String speak = "Playing now, Sir.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_MEDIA_PLAY));
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_MEDIA_PLAY));
-
-								break;
-							}
-							case (CmdsList.CmdRetIds.RET_21_PAUSE): {
-								String speak = "Paused, Sir.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_MEDIA_PAUSE));
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_MEDIA_PAUSE));
-
-								break;
-							}
-							case (CmdsList.CmdRetIds.RET_21_STOP): {
-								String speak = "Stopped, Sir.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_MEDIA_STOP));
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_MEDIA_STOP));
-
-
-								break;
-							}
-							case (CmdsList.CmdRetIds.RET_21_NEXT): {
-								String speak = "Next one, Sir.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_MEDIA_NEXT));
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_MEDIA_NEXT));
-
-								break;
-							}
-							case (CmdsList.CmdRetIds.RET_21_PREVIOUS): {
-								String speak = "Previous one, Sir.";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_MEDIA_PREVIOUS));
-								audioManager.dispatchMediaKeyEvent(
-										new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_MEDIA_PREVIOUS));
-
-								break;
-							}
-						}
-					} else {
-						final String speak = "Feature only available on Android KitKat or newer.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					}
 
-					break;
+				if (!ModulesList.getElementSupported(ModulesList.getElementIndex(ScreenRecorder.class))) {
+					ctx.say("Screen recording is not supported on this device through either hardware or " +
+							"application permissions limitations.");
+
+					return;
 				}
-				case (CmdsList.CmdIds.CMD_STOP_LISTENING): {
-					if ((boolean) UtilsRegistry.getData(RegistryKeys.K_POCKETSPHINX_REQUEST_STOP, true)) {
-						final String speak = "Background hot-word recognition already stopped.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					} else {
-						UtilsRegistry.setData(RegistryKeys.K_POCKETSPHINX_REQUEST_STOP, true, false);
-						UtilsSpeechRecognizersBC.stopRecognition(null);
-
-						final String speak = "Background hot-word recognition stopped.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					}
 
-					break;
+				// Can only start recording when the commands speech recognition has finished. Not before,
+				// or other things the user might want to say will be ignored (not cool).
+				if (!ctx.partial_results) {
+					ask_anything_else = false;
+
+					UtilsScreenRecorderBC.recordScreen(true, false);
 				}
-				case (CmdsList.CmdIds.CMD_START_LISTENING): {
-					if ((boolean) UtilsRegistry.getData(RegistryKeys.K_POCKETSPHINX_REQUEST_STOP, true)) {
-						UtilsRegistry.setData(RegistryKeys.K_POCKETSPHINX_REQUEST_STOP, false, false);
-						// We could wait for the controller to restart it, but this way it's faster.
-						UtilsSpeechRecognizersBC.startPocketSphinxRecognition();
-
-						final String speak = "Background hot-word recognition started.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					} else {
-						final String speak = "The background hot-word recognition is not stopped.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					}
+
+				break;
+			}
+		}
+	}
+
+	private void cmdCallContact(@NonNull final CmdContext ctx) {
+		final int contact_index = (int) ACD.getSubCmdIndex(ctx.value);
+		final String[][] contacts_list = TelephonyManagement.getContactsList();
+		final String contact_name = contacts_list[contact_index][0];
+		final String contact_number = contacts_list[contact_index][1];
+
+		final Runnable runnable = () -> {
+			final int return_code = UtilsAndroidTelephony.makePhoneCall(contact_number);
+			if (return_code == UtilsAndroid.NO_CALL_EMERGENCY) {
+				// The only phrase depending on the call, so not on the table.
+				ctx.say("Insufficient privileges to call " + contact_number + ", since it is an emergency " +
+						"number. Instead, it was only dialed and requires your manual confirmation to proceed the " +
+						"call.");
+			} else {
+				ctx.respond(RESPONSES_CALL_CONTACT, return_code);
+			}
+		};
+
+		ctx.say("Calling " + contact_name + " now, sir.", UtilsSpeech2BC.SESSION_TYPE_NONE, false, runnable);
+	}
+
+	private void cmdStopRecordMedia(@NonNull final CmdContext ctx) {
+		boolean stop_audio = false;
+		boolean stop_video = false;
+		boolean stop_screen = false;
+
+		switch (ctx.value) {
+			case CmdsList.CmdRetIds.RET_20_AUDIO: {
+				stop_audio = true;
+
+				break;
+			}
+			case CmdsList.CmdRetIds.RET_20_VIDEO: {
+				stop_video = true;
+
+				break;
+			}
+			case CmdsList.CmdRetIds.RET_20_SCREEN: {
+				stop_screen = true;
+
+				break;
+			}
+			case CmdsList.CmdRetIds.RET_20_ANY: {
+				stop_audio = true;
+				stop_video = true;
+				stop_screen = true;
+
+				break;
+			}
+			default: {
+				return;
+			}
+		}
+
+		if (stop_audio) {
+			UtilsAudioRecorderBC.recordAudio(false, -1, true);
+		}
+		if (stop_video) {
+			// todo
+		}
+		if (stop_screen) {
+			UtilsScreenRecorderBC.recordScreen(false, true);
+		}
+	}
+
+	private void cmdTogglePowerSaverMode(@NonNull final CmdContext ctx) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+			ctx.say("Battery Saver Mode not available below Android Lollipop.");
+		} else {
+			ctx.respond(RESPONSES_POWER_SAVER_MODE, UtilsAndroidPower.setBatterySaverEnabled(ctx.on));
+		}
+	}
+
+	private void cmdControlMedia(@NonNull final CmdContext ctx) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+			ctx.say("Feature only available on Android KitKat or newer.");
+
+			return;
+		}
+
+		final AudioManager audioManager = (AudioManager) UtilsContext.getSystemService(Context.AUDIO_SERVICE);
+		if (audioManager == null) {
+			ctx.say("No audio available on the device.");
+
+			return;
+		}
+
+		final String speak;
+		final int key_code;
+		switch (ctx.value) {
+			case (CmdsList.CmdRetIds.RET_21_PLAY): {
+				speak = "Playing now, Sir.";
+				key_code = KeyEvent.KEYCODE_MEDIA_PLAY;
+
+				break;
+			}
+			case (CmdsList.CmdRetIds.RET_21_PAUSE): {
+				speak = "Paused, Sir.";
+				key_code = KeyEvent.KEYCODE_MEDIA_PAUSE;
+
+				break;
+			}
+			case (CmdsList.CmdRetIds.RET_21_STOP): {
+				speak = "Stopped, Sir.";
+				key_code = KeyEvent.KEYCODE_MEDIA_STOP;
+
+				break;
+			}
+			case (CmdsList.CmdRetIds.RET_21_NEXT): {
+				speak = "Next one, Sir.";
+				key_code = KeyEvent.KEYCODE_MEDIA_NEXT;
+
+				break;
+			}
+			case (CmdsList.CmdRetIds.RET_21_PREVIOUS): {
+				speak = "Previous one, Sir.";
+				key_code = KeyEvent.KEYCODE_MEDIA_PREVIOUS;
+
+				break;
+			}
+			default: {
+				return;
+			}
+		}
+
+		ctx.say(speak);
+		audioManager.dispatchMediaKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, key_code));
+		audioManager.dispatchMediaKeyEvent(new KeyEvent(KeyEvent.ACTION_UP, key_code));
+	}
+
+	private void cmdStopListening(@NonNull final CmdContext ctx) {
+		if ((boolean) UtilsRegistry.getData(RegistryKeys.K_POCKETSPHINX_REQUEST_STOP, true)) {
+			ctx.say("Background hot-word recognition already stopped.");
+		} else {
+			UtilsRegistry.setData(RegistryKeys.K_POCKETSPHINX_REQUEST_STOP, true, false);
+			UtilsSpeechRecognizersBC.stopRecognition(null);
+
+			ctx.say("Background hot-word recognition stopped.");
+		}
+	}
+
+	private void cmdStartListening(@NonNull final CmdContext ctx) {
+		if ((boolean) UtilsRegistry.getData(RegistryKeys.K_POCKETSPHINX_REQUEST_STOP, true)) {
+			UtilsRegistry.setData(RegistryKeys.K_POCKETSPHINX_REQUEST_STOP, false, false);
+			// We could wait for the controller to restart it, but this way it's faster.
+			UtilsSpeechRecognizersBC.startPocketSphinxRecognition();
+
+			ctx.say("Background hot-word recognition started.");
+		} else {
+			ctx.say("The background hot-word recognition is not stopped.");
+		}
+	}
+
+	private void cmdTellWeather(@NonNull final CmdContext ctx) {
+		ctx.say("Obtaining the weather...");
+
+		acquireNetwork();
+		if (UtilsSWA.waitForNetwork(10)) {
+			String[] weather_locs = OICComm.getWeatherLocationsList().split("\\|");
+
+			releaseNetwork();
+
+			for (final String weather_loc : weather_locs) {
+				final ModsFileInfo.Weather weather = OICComm.getWeather(weather_loc);
+
+				if (weather == null) {
+					ctx.say("I'm sorry Sir, but I couldn't get the weather information.");
 
 					break;
 				}
-				case (CmdsList.CmdIds.CMD_TELL_WEATHER): {
-					String speak = "Obtaining the weather...";
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-							null);
-
-					final boolean data_was_enabled = UtilsAndroidConnectivity.getMobileDataEnabled();
-					final boolean wifi_was_enabled = UtilsAndroidConnectivity.getWifiEnabled();
-					if ((int) UtilsRegistry.getData(RegistryKeys.K_CURR_NETWORK_TYPE, true) == -1) {
-						UtilsAndroidConnectivity.setMobileDataEnabled(true);
-						UtilsAndroidConnectivity.setWifiEnabled(true);
-					}
-					if (UtilsSWA.waitForNetwork(10)) {
-						String[] weather_locs = OICComm.getWeatherLocationsList().split("\\|");
-
-						if (!data_was_enabled) {
-							UtilsAndroidConnectivity.setMobileDataEnabled(false);
-						}
-						if (!wifi_was_enabled) {
-							UtilsAndroidConnectivity.setWifiEnabled(false);
-						}
-
-						for (final String weather_loc : weather_locs) {
-							final ModsFileInfo.Weather weather = OICComm.getWeather(weather_loc);
-
-							if (weather == null) {
-								UtilsSpeech2BC.speak("I'm sorry Sir, but I couldn't get the weather information.",
-										speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-
-								break;
-							}
-
-							if (weather.getTemperature().isEmpty()) {
-								// One being empty means the whole weather is empty
-								speak = "There was a problem obtaining the weather for " + weather.getLocation() + ".";
-								UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE,
-										false, null);
-
-								continue;
-							}
-
-							String status_part = " is ";
-							if (!weather.getStatus().equals("ERROR")) {
-								status_part += weather.getStatus() + " with ";
-							}
-
-							speak = "The weather in " + weather.getLocation() + status_part + weather.getTemperature() +
-									" degrees, a high of " + weather.getMax_temp() + " degrees and a low of " +
-									weather.getMin_temp() + " degrees. The mean precipitation is of " +
-									weather.getPrecipitation() + ", mean humidity of " + weather.getHumidity() +
-									", and mean wind of " + weather.getWind() + ".";
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, GPTComm.SESSION_TYPE_ACTIVE,
-									false, null);
-						}
-					} else {
-						speak = "Not connected to the server to get the weather.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					}
 
-					break;
+				if (weather.getTemperature().isEmpty()) {
+					// One being empty means the whole weather is empty
+					ctx.say("There was a problem obtaining the weather for " + weather.getLocation() + ".");
+
+					continue;
 				}
-				case (CmdsList.CmdIds.CMD_TELL_NEWS): {
-					String speak = "Obtaining the latest news...";
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-							null);
-
-					final boolean data_was_enabled = UtilsAndroidConnectivity.getMobileDataEnabled();
-					final boolean wifi_was_enabled = UtilsAndroidConnectivity.getWifiEnabled();
-					if ((int) UtilsRegistry.getData(RegistryKeys.K_CURR_NETWORK_TYPE, true) == -1) {
-						UtilsAndroidConnectivity.setMobileDataEnabled(true);
-						UtilsAndroidConnectivity.setWifiEnabled(true);
-					}
-					if (UtilsSWA.waitForNetwork(10)) {
-						String[] news_locs = OICComm.getNewsLocationsList().split("\\|");
-
-						if (!data_was_enabled) {
-							UtilsAndroidConnectivity.setMobileDataEnabled(false);
-						}
-						if (!wifi_was_enabled) {
-							UtilsAndroidConnectivity.setWifiEnabled(false);
-						}
-
-						for (final String news_loc : news_locs) {
-							final ModsFileInfo.News news = OICComm.getNews(news_loc);
-
-							if (news == null) {
-								UtilsSpeech2BC.speak("I'm sorry Sir, but I couldn't get the news information.",
-										speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-
-								break;
-							}
-
-							speak = "News in " + news.getLocation() + ". ";
-
-							String[] news_info = news.getNewsList().split("\\|");
-							final int news_len = news_info.length;
-							for (int i = 1; i < news_len; ++i) {
-								speak += news_info[i] + ". ";
-							}
-							UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, GPTComm.SESSION_TYPE_ACTIVE,
-									false, null);
-						}
-					} else {
-						speak = "Not connected to the server to get the news.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					}
 
-					break;
+				String status_part = " is ";
+				if (!weather.getStatus().equals("ERROR")) {
+					status_part += weather.getStatus() + " with ";
 				}
-				case (CmdsList.CmdIds.CMD_ASK_EVENTS): {
-					String speak = "Obtaining the tasks and events...";
-					UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-							null);
-
-					final boolean data_was_enabled = UtilsAndroidConnectivity.getMobileDataEnabled();
-					final boolean wifi_was_enabled = UtilsAndroidConnectivity.getWifiEnabled();
-					if ((int) UtilsRegistry.getData(RegistryKeys.K_CURR_NETWORK_TYPE, true) == -1) {
-						UtilsAndroidConnectivity.setMobileDataEnabled(true);
-						UtilsAndroidConnectivity.setWifiEnabled(true);
-					}
-					if (UtilsSWA.waitForNetwork(10)) {
-						String[] events_ids = GMan.getEventsIdsList(true).split("\\|");
-						String[] tasks_ids = GMan.getTasksIdsList().split("\\|");
-
-						if (!data_was_enabled) {
-							UtilsAndroidConnectivity.setMobileDataEnabled(false);
-						}
-						if (!wifi_was_enabled) {
-							UtilsAndroidConnectivity.setWifiEnabled(false);
-						}
-
-						speak = GManUtils.getEventsList(events_ids, intent.getValue());
-
-						if (intent.getValue().equals(CmdsList.CmdRetIds.RET_31_TODAY) ||
-								intent.getValue().equals(CmdsList.CmdRetIds.RET_31_TOMORROW)) {
-							speak += " " + GManUtils.getTasksList(tasks_ids, intent.getValue());
-						}
-
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, GPTComm.SESSION_TYPE_ACTIVE, true,
-								null);
-					} else {
-						speak = "Not connected to the server to get the tasks and events.";
-						UtilsSpeech2BC.speak(speak, speech_priority, speech_mode2, UtilsSpeech2BC.SESSION_TYPE_NONE, false,
-								null);
-					}
+
+				final String speak = "The weather in " + weather.getLocation() + status_part +
+						weather.getTemperature() + " degrees, a high of " + weather.getMax_temp() +
+						" degrees and a low of " + weather.getMin_temp() + " degrees. The mean precipitation is of " +
+						weather.getPrecipitation() + ", mean humidity of " + weather.getHumidity() +
+						", and mean wind of " + weather.getWind() + ".";
+				ctx.say(speak, GPTComm.SESSION_TYPE_ACTIVE, false, null);
+			}
+		} else {
+			releaseNetwork();
+			ctx.say("Not connected to the server to get the weather.");
+		}
+	}
+
+	private void cmdTellNews(@NonNull final CmdContext ctx) {
+		ctx.say("Obtaining the latest news...");
+
+		acquireNetwork();
+		if (UtilsSWA.waitForNetwork(10)) {
+			String[] news_locs = OICComm.getNewsLocationsList().split("\\|");
+
+			releaseNetwork();
+
+			for (final String news_loc : news_locs) {
+				final ModsFileInfo.News news = OICComm.getNews(news_loc);
+
+				if (news == null) {
+					ctx.say("I'm sorry Sir, but I couldn't get the news information.");
 
 					break;
 				}
-				case (CmdsList.CmdIds.CMD_GONNA_SLEEP): {
-					//UtilsAndroidConnectivity.setAirplaneModeEnabled(true); todo Needs root commands implementation
-					//UtilsRegistry.setValue(ValuesRegistry.Keys.IS_USER_SLEEPING, true);
 
-					break;
+				final StringBuilder speak = new StringBuilder(512);
+				speak.append("News in ").append(news.getLocation()).append(". ");
+
+				String[] news_info = news.getNewsList().split("\\|");
+				final int news_len = news_info.length;
+				for (int i = 1; i < news_len; ++i) {
+					speak.append(news_info[i]).append(". ");
 				}
+				ctx.say(speak.toString(), GPTComm.SESSION_TYPE_ACTIVE, false, null);
 			}
+		} else {
+			releaseNetwork();
+			ctx.say("Not connected to the server to get the news.");
 		}
-		if (!any_intent_detected) {
-			sendToGPT(sentence);
-		}
+	}
 
+	private void cmdAskEvents(@NonNull final CmdContext ctx) {
+		ctx.say("Obtaining the tasks and events...");
 
-		/*if (detected_cmds.length == 0) {
-			return NOTHING_EXECUTED;
-		} else {
-			if (something_done) {
-				if (!something_said) {
-					if (!only_returning) {
-						final String speak = "Done.";
-						UtilsSpeech2BC.speak(speak, speech_priority, 0, null);
-					}
-				}
-			} else if (!something_said) {
-				return NOTHING_EXECUTED;
+		acquireNetwork();
+		if (UtilsSWA.waitForNetwork(10)) {
+			String[] events_ids = GMan.getEventsIdsList(true).split("\\|");
+			String[] tasks_ids = GMan.getTasksIdsList().split("\\|");
+
+			releaseNetwork();
+
+			String speak = GManUtils.getEventsList(events_ids, ctx.value);
+
+			if (ctx.value.equals(CmdsList.CmdRetIds.RET_31_TODAY) ||
+					ctx.value.equals(CmdsList.CmdRetIds.RET_31_TOMORROW)) {
+				speak += " " + GManUtils.getTasksList(tasks_ids, ctx.value);
 			}
-		}*/
 
-		/*if (ask_anything_else && !internal_usage) {
-			final String speak = "Anything else sir?";
-			UtilsSpeech2BC.speak(speak, speech_priority, 0, true, UtilsSpeech2.CALL_COMMANDS_RECOG);
-		}*/
+			ctx.say(speak, GPTComm.SESSION_TYPE_ACTIVE, true, null);
+		} else {
+			releaseNetwork();
+			ctx.say("Not connected to the server to get the tasks and events.");
+		}
 	}
 
 	/**
@@ -1188,6 +1033,9 @@ public final class CmdsExecutor implements IModuleInst {
 
 		try {
 			UtilsContext.getContext().registerReceiver(broadcastReceiver, intentFilter, null, main_handler);
+			bus_subscription = InternalEventBus.subscribe(main_handler, InternalEventBus.DEFAULT_MAX_PENDING,
+					intent -> broadcastReceiver.onReceive(null, intent),
+					CONSTS_BC_CmdsExec.ACTION_CALL_PROCESS_TASK);
 		} catch (final IllegalArgumentException ignored) {
 		}
 	}
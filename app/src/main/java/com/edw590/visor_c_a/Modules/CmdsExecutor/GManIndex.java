@@ -0,0 +1,281 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.CmdsExecutor;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import GMan.GMan;
+import UtilsSWA.UtilsSWA;
+
+/**
+ * <p>In-memory index of the Google Calendar events and Google Tasks tasks, so the listings don't have to get and check
+ * every event and task on each query.</p>
+ * <p>The events are kept in an augmented interval tree: a balanced binary search tree by start time, stored implicitly
+ * on the array of the events sorted by start time (the root of each range is its middle element), with each node
+ * keeping the maximum end time of its subtree. The events overlapping a time window are found in O((k + 1) * log n)
+ * for k results, skipping every subtree whose events all start after the window or all end before it. The tasks are
+ * kept in buckets by the day they're for.</p>
+ * <p>The index is updated with the IDs lists of GMan: if the list didn't change, nothing is done; if it did (the
+ * calendars were synced), only the new events and tasks are got from GMan. Everything is got again from time to time
+ * anyway, in case an existing event or task was edited.</p>
+ * <p>This class is thread-safe.</p>
+ */
+final class GManIndex {
+
+	/** Maximum time to keep an event or task without getting it again from GMan. */
+	private static final long FULL_RELOAD_MS = 15L * 60 * 1000;
+	/** Bucket key of the tasks with no date. */
+	private static final long NO_DATE = Long.MIN_VALUE;
+
+	/** An indexed event. */
+	static final class Event {
+		@NonNull final String summary;
+		final long start_s;
+		final long end_s;
+		final long duration_min;
+
+		Event(@NonNull final ModsFileInfo.GEvent event) {
+			summary = event.getSummary();
+			start_s = event.getStart_time_s();
+			duration_min = event.getDuration_min();
+			end_s = start_s + duration_min * 60;
+		}
+	}
+
+	/** An indexed task. */
+	private static final class Task {
+		@NonNull final String title;
+		/** Start of the day the task is for in seconds, or {@link #NO_DATE}. */
+		final long day_start_s;
+
+		Task(@NonNull final ModsFileInfo.GTask task) {
+			title = task.getTitle();
+			day_start_s = task.getDate_s() == 0 ? NO_DATE : UtilsSWA.getStartOfDayDATETIME(task.getDate_s());
+		}
+	}
+
+	@NonNull private String[] event_ids = {};
+	@NonNull private Map<String, Event> events_by_id = new HashMap<>(0);
+	/** The events sorted by start time. */
+	@NonNull private Event[] events = {};
+	/** Same indexes as {@link #events}: the maximum end time of the subtree whose root is the event (see
+	 * {@link #buildMaxEnds(Event[], long[], int, int)}). */
+	@NonNull private long[] subtree_max_ends = {};
+	private long events_loaded_ms = 0;
+
+	@NonNull private String[] task_ids = {};
+	@NonNull private Map<String, Task> tasks_by_id = new HashMap<>(0);
+	/** The task titles by {@link Task#day_start_s}. */
+	@NonNull private Map<Long, List<String>> tasks_by_day = new HashMap<>(0);
+	private long tasks_loaded_ms = 0;
+
+	/**
+	 * <p>Updates the events with the current IDs list from GMan.</p>
+	 *
+	 * @param ids the IDs of the events
+	 */
+	synchronized void updateEvents(@NonNull final String[] ids) {
+		final long now_ms = System.currentTimeMillis();
+		final boolean full_reload = now_ms - events_loaded_ms >= FULL_RELOAD_MS;
+		if (!full_reload && Arrays.equals(ids, event_ids)) {
+			return;
+		}
+
+		final Map<String, Event> new_events_by_id = new HashMap<>(ids.length * 2);
+		for (final String id : ids) {
+			Event event = full_reload ? null : events_by_id.get(id);
+			if (event == null && !id.isEmpty()) {
+				final ModsFileInfo.GEvent gevent = GMan.getEvent(id);
+				if (gevent != null) {
+					event = new Event(gevent);
+				}
+			}
+			if (event != null) {
+				new_events_by_id.put(id, event);
+			}
+		}
+
+		final Event[] new_events = new_events_by_id.values().toArray(new Event[0]);
+		Arrays.sort(new_events, (event1, event2) -> Long.compare(event1.start_s, event2.start_s));
+		final long[] new_subtree_max_ends = new long[new_events.length];
+		buildMaxEnds(new_events, new_subtree_max_ends, 0, new_events.length - 1);
+
+		event_ids = ids.clone();
+		events_by_id = new_events_by_id;
+		events = new_events;
+		subtree_max_ends = new_subtree_max_ends;
+		if (full_reload) {
+			events_loaded_ms = now_ms;
+		}
+	}
+
+	/**
+	 * <p>Gets the events overlapping a time window which didn't end yet.</p>
+	 *
+	 * @param from_s the start of the window in seconds
+	 * @param to_s the end of the window in seconds (inclusive)
+	 * @param now_s the current time in seconds
+	 *
+	 * @return the events, sorted by start time
+	 */
+	@NonNull
+	synchronized List<Event> queryEvents(final long from_s, final long to_s, final long now_s) {
+		final List<Event> result = new ArrayList<>(8);
+		// Events that already ended are not wanted either.
+		queryTree(0, events.length - 1, Math.max(from_s, now_s), to_s, result);
+
+		return result;
+	}
+
+	/**
+	 * <p>Fills the maximum end times of the subtree rooted at the middle of a range of events and of all its
+	 * subtrees.</p>
+	 *
+	 * @param sorted_events the events sorted by start time
+	 * @param max_ends the array to fill, with the same indexes as {@code sorted_events}
+	 * @param lo the first index of the range
+	 * @param hi the last index of the range (inclusive)
+	 *
+	 * @return the maximum end time of the range, or {@link Long#MIN_VALUE} if it's empty
+	 */
+	private static long buildMaxEnds(@NonNull final Event[] sorted_events, @NonNull final long[] max_ends,
+									 final int lo, final int hi) {
+		if (lo > hi) {
+			return Long.MIN_VALUE;
+		}
+
+		final int mid = (lo + hi) >>> 1;
+		final long max_end = Math.max(sorted_events[mid].end_s, Math.max(
+				buildMaxEnds(sorted_events, max_ends, lo, mid - 1),
+				buildMaxEnds(sorted_events, max_ends, mid + 1, hi)));
+		max_ends[mid] = max_end;
+
+		return max_end;
+	}
+
+	/**
+	 * <p>Adds to the list, sorted by start time, the events of the subtree rooted at the middle of a range that
+	 * start until {@code to_s} and end from {@code min_end_s} on.</p>
+	 *
+	 * @param lo the first index of the range
+	 * @param hi the last index of the range (inclusive)
+	 * @param min_end_s the minimum end time in seconds
+	 * @param to_s the maximum start time in seconds
+	 * @param result the list to add the events to
+	 */
+	private void queryTree(final int lo, final int hi, final long min_end_s, final long to_s,
+						   @NonNull final List<Event> result) {
+		if (lo > hi) {
+			return;
+		}
+
+		final int mid = (lo + hi) >>> 1;
+		if (subtree_max_ends[mid] < min_end_s) {
+			// All the events of the subtree ended before the window.
+			return;
+		}
+
+		queryTree(lo, mid - 1, min_end_s, to_s, result);
+
+		final Event event = events[mid];
+		if (event.start_s > to_s) {
+			// This one and all the ones after it start after the window.
+			return;
+		}
+		if (event.end_s >= min_end_s) {
+			result.add(event);
+		}
+
+		queryTree(mid + 1, hi, min_end_s, to_s, result);
+	}
+
+	/**
+	 * <p>Updates the tasks with the current IDs list from GMan.</p>
+	 *
+	 * @param ids the IDs of the tasks
+	 */
+	synchronized void updateTasks(@NonNull final String[] ids) {
+		final long now_ms = System.currentTimeMillis();
+		final boolean full_reload = now_ms - tasks_loaded_ms >= FULL_RELOAD_MS;
+		if (!full_reload && Arrays.equals(ids, task_ids)) {
+			return;
+		}
+
+		final Map<String, Task> new_tasks_by_id = new HashMap<>(ids.length * 2);
+		final Map<Long, List<String>> new_tasks_by_day = new HashMap<>(16);
+		for (final String id : ids) {
+			Task task = full_reload ? null : tasks_by_id.get(id);
+			if (task == null && !id.isEmpty()) {
+				final ModsFileInfo.GTask gtask = GMan.getTask(id);
+				if (gtask != null) {
+					task = new Task(gtask);
+				}
+			}
+			if (task == null) {
+				continue;
+			}
+
+			new_tasks_by_id.put(id, task);
+			List<String> bucket = new_tasks_by_day.get(task.day_start_s);
+			if (bucket == null) {
+				bucket = new ArrayList<>(4);
+				new_tasks_by_day.put(task.day_start_s, bucket);
+			}
+			bucket.add(task.title);
+		}
+
+		task_ids = ids.clone();
+		tasks_by_id = new_tasks_by_id;
+		tasks_by_day = new_tasks_by_day;
+		if (full_reload) {
+			tasks_loaded_ms = now_ms;
+		}
+	}
+
+	/**
+	 * <p>Gets the titles of the tasks for a day, which include the ones with no date (to be done every day).</p>
+	 *
+	 * @param day_start_s the start of the day in seconds
+	 *
+	 * @return the titles
+	 */
+	@NonNull
+	synchronized List<String> queryTasks(final long day_start_s) {
+		final List<String> result = new ArrayList<>(8);
+		final List<String> no_date = tasks_by_day.get(NO_DATE);
+		if (no_date != null) {
+			result.addAll(no_date);
+		}
+		final List<String> of_day = tasks_by_day.get(day_start_s);
+		if (of_day != null) {
+			result.addAll(of_day);
+		}
+
+		return result;
+	}
+}
@@ -27,181 +27,152 @@ import com.edw590.visor_c_a.Modules.CmdsExecutor.CmdsList.CmdsList;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
 
-import GMan.GMan;
 import UtilsSWA.UtilsSWA;
 
 class GManUtils {
 
-	@NonNull
-	static String getTasksList(@NonNull final String[] tasks_ids, @NonNull final String cmd_variant) {
-		String speak = "";
-		for (final String task_id : tasks_ids) {
-			ModsFileInfo.GTask task = GMan.getTask(task_id);
-			if (task == null) {
-				continue;
-			}
+	/** The index of the events and tasks, kept while the app process lives. */
+	private static final GManIndex index = new GManIndex();
+
+	/**
+	 * <p>The time window a query is about, computed once per query.</p>
+	 */
+	private static final class Window {
+		/** The current time in seconds. */
+		final long now_s;
+		/** The start of the current day in seconds. */
+		final long start_of_day_s;
+		/** The start of the next day in seconds. */
+		final long start_of_next_day_s;
+		/** The start of the window in seconds. */
+		final long from_s;
+		/** The end of the window in seconds (inclusive). */
+		final long to_s;
+		/** What to call the window on the speech ("today", "this week"...). */
+		@NonNull final String when;
+
+		Window(@NonNull final String cmd_variant) {
+			now_s = System.currentTimeMillis() / 1000;
+			start_of_day_s = UtilsSWA.getStartOfDayDATETIME(now_s);
+			start_of_next_day_s = addDays(start_of_day_s, 1);
+			final long start_of_week_s = addDays(start_of_day_s,
+					-(Calendar.getInstance().get(Calendar.DAY_OF_WEEK) - 1));
 
-			boolean add_task = false;
-			if (task.getDate_s() == 0) {
-				// If the task has no date, we add it to the list (it's to be done every day)
-				add_task = true;
-			} else {
-				// Else we check the date
-				Calendar task_calendar = Calendar.getInstance();
-				task_calendar.setTimeInMillis(task.getDate_s() * 1000);
-
-				Calendar now = Calendar.getInstance();
-				switch (cmd_variant) {
-					case CmdsList.CmdRetIds.RET_31_TODAY:
-						if (task_calendar.get(Calendar.DAY_OF_YEAR) == now.get(Calendar.DAY_OF_YEAR)) {
-							add_task = true;
-						}
-						break;
-					case CmdsList.CmdRetIds.RET_31_TOMORROW:
-						now.add(Calendar.DAY_OF_YEAR, 1);
-						if (task_calendar.get(Calendar.DAY_OF_YEAR) == now.get(Calendar.DAY_OF_YEAR)) {
-							add_task = true;
-						}
-						break;
-				}
-			}
-
-			if (add_task) {
-				speak += task.getTitle() + "; ";
+			switch (cmd_variant) {
+				case CmdsList.CmdRetIds.RET_31_TODAY:
+					from_s = start_of_day_s;
+					to_s = start_of_next_day_s - 1;
+					when = "today";
+					break;
+				case CmdsList.CmdRetIds.RET_31_TOMORROW:
+					from_s = start_of_next_day_s;
+					to_s = addDays(from_s, 1) - 1;
+					when = "tomorrow";
+					break;
+				case CmdsList.CmdRetIds.RET_31_THIS_WEEK:
+					from_s = start_of_week_s;
+					to_s = addDays(from_s, 7) - 1;
+					when = "this week";
+					break;
+				case CmdsList.CmdRetIds.RET_31_NEXT_WEEK:
+					from_s = addDays(start_of_week_s, 7);
+					to_s = addDays(from_s, 7) - 1;
+					when = "next week";
+					break;
+				default:
+					// Empty window.
+					from_s = 0;
+					to_s = -1;
+					when = "";
 			}
 		}
+	}
 
-		String when;
-		if (cmd_variant.equals(CmdsList.CmdRetIds.RET_31_TODAY)) {
-			when = "today";
-		} else if (cmd_variant.equals(CmdsList.CmdRetIds.RET_31_TOMORROW)) {
-			when = "tomorrow";
-		} else {
-			when = "";
-		}
-		if (speak.isEmpty()) {
-			speak = "You have no tasks found for " + when + ".";
-		} else {
-			speak = "Your list of tasks for " + when + ": " + speak + ".";
-		}
-
-		return speak;
+	/**
+	 * <p>Gets the start of the day some days after (or before) the given one.</p>
+	 * <p>The days are added on the calendar and not as 24 hours each, because on the days the clock changes for
+	 * daylight saving time, a day has 23 or 25 hours.</p>
+	 *
+	 * @param day_start_s the start of a day in seconds
+	 * @param days the number of days to add (negative to subtract)
+	 *
+	 * @return the start of the other day in seconds
+	 */
+	private static long addDays(final long day_start_s, final int days) {
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(day_start_s * 1000);
+		calendar.add(Calendar.DAY_OF_YEAR, days);
+
+		// In case midnight doesn't exist on the other day (the clock jumps at midnight on some time zones).
+		return UtilsSWA.getStartOfDayDATETIME(calendar.getTimeInMillis() / 1000);
 	}
 
 	@NonNull
-	static String getEventsList(@NonNull final String[] events_ids, @NonNull final String cmd_variant) {
-		String speak = "";
-
-		for (final String event_id : events_ids) {
-			ModsFileInfo.GEvent event = GMan.getEvent(event_id);
-			if (event == null) {
-				continue;
-			}
+	static String getTasksList(@NonNull final String[] tasks_ids, @NonNull final String cmd_variant) {
+		index.updateTasks(tasks_ids);
 
-			long curr_s = System.currentTimeMillis() / 1000;
+		final Window window = new Window(cmd_variant);
+		final boolean one_day = cmd_variant.equals(CmdsList.CmdRetIds.RET_31_TODAY) ||
+				cmd_variant.equals(CmdsList.CmdRetIds.RET_31_TOMORROW);
+		// Only the tasks with no date for the other variants (no day has this key).
+		final List<String> titles = index.queryTasks(one_day ? window.from_s : Long.MAX_VALUE);
 
-			long event_end_time_s = event.getStart_time_s() + event.getDuration_min() * 60;
-			if (event_end_time_s < curr_s) {
-				// Event already ended
-				continue;
-			}
+		final String when = one_day ? window.when : "";
+		if (titles.isEmpty()) {
+			return "You have no tasks found for " + when + ".";
+		}
 
-			long start_of_day_s = UtilsSWA.getStartOfDayDATETIME(curr_s);
-			long end_of_day_s = start_of_day_s + 86400 - 1; // 86400 seconds in a day (24*60*60)
+		final StringBuilder speak = new StringBuilder(titles.size() * 32);
+		speak.append("Your list of tasks for ").append(when).append(": ");
+		for (final String title : titles) {
+			speak.append(title).append("; ");
+		}
+		speak.append('.');
 
-			long start_of_next_day_s = start_of_day_s + 86400;
-			long end_of_next_day_s = start_of_next_day_s + 86400 - 1;
+		return speak.toString();
+	}
 
-			long start_of_week_s =
-					UtilsSWA.getStartOfDayDATETIME(curr_s - (Calendar.getInstance().get(Calendar.DAY_OF_WEEK) - 1)) * 86400;
-			long end_of_week_s = start_of_week_s + 7 * 86400 - 1;
+	@NonNull
+	static String getEventsList(@NonNull final String[] events_ids, @NonNull final String cmd_variant) {
+		index.updateEvents(events_ids);
 
-			long start_of_next_week_s = start_of_week_s + 7 * 86400;
-			long end_of_next_week_s = start_of_next_week_s + 7 * 86400 - 1;
+		final Window window = new Window(cmd_variant);
+		final List<GManIndex.Event> events = index.queryEvents(window.from_s, window.to_s, window.now_s);
+		if (events.isEmpty()) {
+			return "You have no events found for " + window.when + ".";
+		}
 
-			boolean add_event = false;
-			switch (cmd_variant) {
-				case CmdsList.CmdRetIds.RET_31_TODAY:
-					if ((event.getStart_time_s() >= start_of_day_s && event.getStart_time_s() <= end_of_day_s) ||
-							(event_end_time_s >= start_of_day_s && event_end_time_s <= end_of_day_s) ||
-							(start_of_day_s >= event.getStart_time_s() && end_of_day_s <= event_end_time_s)) {
-						add_event = true;
-					}
-					break;
-				case CmdsList.CmdRetIds.RET_31_TOMORROW:
-					if ((event.getStart_time_s() >= start_of_next_day_s && event.getStart_time_s() <= end_of_next_day_s) ||
-							(event_end_time_s >= start_of_next_day_s && event_end_time_s <= end_of_next_day_s) ||
-							(start_of_next_day_s >= event.getStart_time_s() && end_of_next_day_s <= event_end_time_s)) {
-						add_event = true;
-					}
-					break;
-				case CmdsList.CmdRetIds.RET_31_THIS_WEEK:
-					if ((event.getStart_time_s() >= start_of_week_s && event.getStart_time_s() <= end_of_week_s) ||
-							(event_end_time_s >= start_of_week_s && event_end_time_s <= end_of_week_s) ||
-							(start_of_week_s >= event.getStart_time_s() && end_of_week_s <= event_end_time_s)) {
-						add_event = true;
-					}
-					break;
-				case CmdsList.CmdRetIds.RET_31_NEXT_WEEK:
-					if ((event.getStart_time_s() >= start_of_next_week_s && event.getStart_time_s() <= end_of_next_week_s) ||
-							(event_end_time_s >= start_of_next_week_s && event_end_time_s <= end_of_next_week_s) ||
-							(start_of_next_week_s >= event.getStart_time_s() && end_of_next_week_s <= event_end_time_s)) {
-						add_event = true;
-					}
-					break;
+		final boolean say_day = cmd_variant.equals(CmdsList.CmdRetIds.RET_31_THIS_WEEK) ||
+				cmd_variant.equals(CmdsList.CmdRetIds.RET_31_NEXT_WEEK);
+		final long end_of_day_s = window.start_of_next_day_s - 1;
+		final long now_min = System.currentTimeMillis() / 1000 / 60;
+		final Calendar event_calendar = Calendar.getInstance();
+		final SimpleDateFormat sdf = new SimpleDateFormat("HH:mm", Locale.US);
+		sdf.setTimeZone(event_calendar.getTimeZone());
+
+		final StringBuilder speak = new StringBuilder(events.size() * 64);
+		speak.append("Your list of events for ").append(window.when).append(": ");
+		for (final GManIndex.Event event : events) {
+			event_calendar.setTimeInMillis(event.start_s * 1000);
+
+			speak.append(event.summary);
+			if (say_day) {
+				speak.append(" on ").append(event_calendar.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.LONG,
+						Locale.US));
 			}
-			if (add_event) {
-				Calendar event_calendar = Calendar.getInstance();
-				event_calendar.setTimeInMillis(event.getStart_time_s() * 1000);
-
-				String event_on = "";
-				if (cmd_variant.equals(CmdsList.CmdRetIds.RET_31_THIS_WEEK) ||
-						cmd_variant.equals(CmdsList.CmdRetIds.RET_31_NEXT_WEEK)) {
-					event_on = " on " + event_calendar.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.LONG, Locale.US);
-				}
-
-				boolean event_began_today = event.getStart_time_s() >= start_of_day_s &&
-						event.getStart_time_s() <= end_of_day_s;
-				String event_at = "";
-				if (event_began_today) {
-					SimpleDateFormat sdf = new SimpleDateFormat("HH:mm", Locale.US);
-					sdf.setTimeZone(event_calendar.getTimeZone());
-					event_at = "at " + sdf.format(event_calendar.getTime());
-				}
-
-				long curr_duration = event.getStart_time_s()/60 + event.getDuration_min() -
-						System.currentTimeMillis()/1000/60;
-
-				speak += event.getSummary() + event_on + " " + event_at + " for " +
-						UtilsSWA.toReadableDurationDATETIME(curr_duration) + "; ";
+			speak.append(' ');
+			if (event.start_s >= window.start_of_day_s && event.start_s <= end_of_day_s) {
+				// Began today
+				speak.append("at ").append(sdf.format(event_calendar.getTime()));
 			}
+			final long curr_duration = event.start_s / 60 + event.duration_min - now_min;
+			speak.append(" for ").append(UtilsSWA.toReadableDurationDATETIME(curr_duration)).append("; ");
 		}
+		speak.append('.');
 
-		String when;
-		switch (cmd_variant) {
-			case CmdsList.CmdRetIds.RET_31_TODAY:
-				when = "today";
-				break;
-			case CmdsList.CmdRetIds.RET_31_TOMORROW:
-				when = "tomorrow";
-				break;
-			case CmdsList.CmdRetIds.RET_31_THIS_WEEK:
-				when = "this week";
-				break;
-			case CmdsList.CmdRetIds.RET_31_NEXT_WEEK:
-				when = "next week";
-				break;
-			default:
-				when = "";
-		}
-		if (speak.isEmpty()) {
-			speak = "You have no events found for " + when + ".";
-		} else {
-			speak = "Your list of events for " + when + ": " + speak + ".";
-		}
-
-		return speak;
+		return speak.toString();
 	}
 }
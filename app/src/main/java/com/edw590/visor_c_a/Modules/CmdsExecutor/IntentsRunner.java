@@ -0,0 +1,257 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.CmdsExecutor;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Runs the commands detected on the same sentence concurrently, except the ones that conflict with each other.</p>
+ * <p>Each command declares the conflict groups it uses, either exclusively (it changes something, like toggling the
+ * Wi-Fi) or shared (it only depends on it, like getting the weather through the network). A command only starts after
+ * all the previous commands it conflicts with finished; all others run at the same time. So "turn on the Wi-Fi and
+ * tell me the weather and my events" toggles the Wi-Fi first and then gets both the weather and the events at the
+ * same time.</p>
+ * <p>What the commands say is still spoken in the order they were detected: see {@link Batch}.</p>
+ */
+final class IntentsRunner {
+
+	/** Connectivity (Wi-Fi, Mobile Data, Bluetooth, Airplane Mode) state. */
+	static final int GROUP_CONNECTIVITY = 1;
+	/** Phone calls. */
+	static final int GROUP_TELEPHONY = 1 << 1;
+	/** Camera (flashlight and photos). */
+	static final int GROUP_CAMERA = 1 << 2;
+	/** Audio, video and screen recordings. */
+	static final int GROUP_RECORDING = 1 << 3;
+	/** Media playback. */
+	static final int GROUP_MEDIA = 1 << 4;
+	/** Speech recognition. */
+	static final int GROUP_RECOGNITION = 1 << 5;
+	/** Power state (battery saver). */
+	static final int GROUP_POWER = 1 << 6;
+	/** Conflicts with all other commands (like shutting down the device). Only valid as exclusive group. */
+	static final int GROUP_ALL = -1;
+
+	/** Maximum number of commands running at the same time. */
+	private static final int MAX_THREADS = 4;
+	/** Seconds an idle thread is kept alive for the next sentence. */
+	private static final long KEEP_ALIVE_S = 30;
+
+	/** A command to run. */
+	static final class Job {
+		/** The context of the command. */
+		@NonNull final CmdContext ctx;
+		/** The groups the command changes. */
+		final int exclusive_groups;
+		/** The groups the command only depends on. */
+		final int shared_groups;
+		/** What to run. */
+		@NonNull final Runnable runnable;
+
+		/**
+		 * <p>Main class constructor.</p>
+		 *
+		 * @param ctx {@link #ctx}
+		 * @param exclusive_groups {@link #exclusive_groups}
+		 * @param shared_groups {@link #shared_groups}
+		 * @param runnable {@link #runnable}
+		 */
+		Job(@NonNull final CmdContext ctx, final int exclusive_groups, final int shared_groups,
+			@NonNull final Runnable runnable) {
+			this.ctx = ctx;
+			this.exclusive_groups = exclusive_groups;
+			this.shared_groups = shared_groups;
+			this.runnable = runnable;
+		}
+
+		/**
+		 * <p>Checks if this job conflicts with another one (meaning they can't run at the same time).</p>
+		 *
+		 * @param other the other job
+		 *
+		 * @return true if they conflict, false otherwise
+		 */
+		boolean conflictsWith(@NonNull final Job other) {
+			if (exclusive_groups == GROUP_ALL || other.exclusive_groups == GROUP_ALL) {
+				return true;
+			}
+
+			return (exclusive_groups & (other.exclusive_groups | other.shared_groups)) != 0 ||
+					(other.exclusive_groups & shared_groups) != 0;
+		}
+	}
+
+	/**
+	 * <p>Keeps what the commands of a sentence say in the order the commands were detected.</p>
+	 * <p>Only the first command not finished yet (the head) speaks right away. What the others say is held on their
+	 * {@link CmdContext}s and spoken as soon as they become the head. Commands before the head already had their turn,
+	 * so what they still say after finishing (like from an after-speaking Runnable) is spoken right away too.</p>
+	 */
+	static final class Batch {
+		@NonNull private final CmdContext[] contexts;
+		private final boolean[] finished;
+		/** Index of the first context not finished yet. */
+		private int head = 0;
+
+		/**
+		 * <p>Main class constructor.</p>
+		 *
+		 * @param num_contexts the number of contexts of the batch
+		 */
+		Batch(final int num_contexts) {
+			contexts = new CmdContext[num_contexts];
+			finished = new boolean[num_contexts];
+		}
+
+		/**
+		 * <p>Sets the context with the given order.</p>
+		 *
+		 * @param ctx the context
+		 */
+		synchronized void setContext(@NonNull final CmdContext ctx) {
+			contexts[ctx.order] = ctx;
+		}
+
+		/**
+		 * <p>Checks if the context with the given order can speak right away.</p>
+		 * <p>Call with the lock of the batch held, and speak while still holding it.</p>
+		 *
+		 * @param order the order of the context
+		 *
+		 * @return true if it can, false if it must hold the speech
+		 */
+		synchronized boolean canSpeak(final int order) {
+			// Contexts before the head were already the head and spoke what they held - nothing would flush anything
+			// they held from now on.
+			return order <= head;
+		}
+
+		/**
+		 * <p>Marks a context as finished and speaks what the next ones held.</p>
+		 *
+		 * @param order the order of the context
+		 */
+		synchronized void onFinished(final int order) {
+			finished[order] = true;
+			while (head < contexts.length && finished[head]) {
+				++head;
+				if (head < contexts.length) {
+					contexts[head].speakHeld();
+				}
+			}
+		}
+	}
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param thread_name the name of the threads of the runner
+	 */
+	IntentsRunner(@NonNull final String thread_name) {
+		executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, KEEP_ALIVE_S, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, thread_name));
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * <p>Runs the jobs and waits for all of them to finish.</p>
+	 *
+	 * @param jobs the jobs, in the order the commands were detected, each with its {@link CmdContext#order} being its
+	 * index here
+	 */
+	void runAll(@NonNull final Job[] jobs) {
+		final int num_jobs = jobs.length;
+		final boolean[][] conflicts = new boolean[num_jobs][num_jobs];
+		final AtomicInteger[] deps_left = new AtomicInteger[num_jobs];
+		for (int i = 0; i < num_jobs; ++i) {
+			int num_deps = 0;
+			for (int j = 0; j < i; ++j) {
+				if (jobs[i].conflictsWith(jobs[j])) {
+					conflicts[j][i] = true;
+					++num_deps;
+				}
+			}
+			deps_left[i] = new AtomicInteger(num_deps);
+		}
+
+		final CountDownLatch all_done = new CountDownLatch(num_jobs);
+		final Runnable[] runnables = new Runnable[num_jobs];
+		for (int i = 0; i < num_jobs; ++i) {
+			final int job_idx = i;
+			runnables[i] = () -> {
+				try {
+					jobs[job_idx].runnable.run();
+				} finally {
+					jobs[job_idx].ctx.onFinished();
+					// Start the jobs that were only waiting for this one.
+					for (int j = job_idx + 1; j < num_jobs; ++j) {
+						if (conflicts[job_idx][j] && deps_left[j].decrementAndGet() == 0) {
+							submit(runnables[j]);
+						}
+					}
+					all_done.countDown();
+				}
+			};
+		}
+		for (int i = 0; i < num_jobs; ++i) {
+			if (deps_left[i].get() == 0) {
+				submit(runnables[i]);
+			}
+		}
+
+		try {
+			all_done.await();
+		} catch (final InterruptedException ignored) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * <p>Runs a job on the threads of the runner or, if the runner was shut down, on the current thread - so
+	 * {@link #runAll(Job[])} still returns.</p>
+	 *
+	 * @param runnable the job
+	 */
+	private void submit(@NonNull final Runnable runnable) {
+		try {
+			executor.execute(runnable);
+		} catch (final RejectedExecutionException ignored) {
+			runnable.run();
+		}
+	}
+
+	/**
+	 * <p>Stops the threads of the runner. Jobs already running are not interrupted.</p>
+	 */
+	void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.CmdsExecutor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.edw590.visor_c_a.GlobalUtils.AndroidSystem.UtilsAndroid;
+import com.edw590.visor_c_a.GlobalUtils.UtilsShell;
+
+/**
+ * <p>Prebuilt phrases to say for each result code a command can return, so the phrases are built once instead of on
+ * each execution.</p>
+ * <p>Each result code may have a different phrase for when the command was to turn something on and for when it was
+ * to turn it off. Result codes with no phrase get the default one (which may be none).</p>
+ */
+final class ResponseTable {
+
+	/** The result codes supported - their indexes are the indexes of the phrases on the tables. */
+	private static final int[] RESULT_CODES = {
+			UtilsShell.ErrCodes.NO_ERR,
+			UtilsShell.ErrCodes.GEN_ERR,
+			UtilsShell.ErrCodes.PERM_DENIED,
+			UtilsAndroid.NOT_AVAILABLE,
+			UtilsAndroid.ALREADY_ENABLED,
+			UtilsAndroid.ALREADY_ENABLING,
+			UtilsAndroid.ALREADY_DISABLED,
+			UtilsAndroid.ALREADY_DISABLING,
+			UtilsAndroid.NO_CALL_EMERGENCY,
+			UtilsAndroid.NO_CALL_ANY,
+	};
+
+	private final String[] on_responses = new String[RESULT_CODES.length];
+	private final String[] off_responses = new String[RESULT_CODES.length];
+	@Nullable private String default_response = null;
+
+	/**
+	 * <p>Sets the phrase for a result code, both for on and off.</p>
+	 *
+	 * @param result_code one of the {@link #RESULT_CODES}
+	 * @param response the phrase
+	 *
+	 * @return this table
+	 */
+	@NonNull
+	ResponseTable put(final int result_code, @NonNull final String response) {
+		return putOnOff(result_code, response, response);
+	}
+
+	/**
+	 * <p>Sets the phrases for a result code.</p>
+	 *
+	 * @param result_code one of the {@link #RESULT_CODES}
+	 * @param on_response the phrase for when the command was to turn something on
+	 * @param off_response the phrase for when the command was to turn something off
+	 *
+	 * @return this table
+	 */
+	@NonNull
+	ResponseTable putOnOff(final int result_code, @NonNull final String on_response,
+						   @NonNull final String off_response) {
+		final int idx = getIndex(result_code);
+		if (idx < 0) {
+			throw new IllegalArgumentException("Unsupported result code: " + result_code);
+		}
+		on_responses[idx] = on_response;
+		off_responses[idx] = off_response;
+
+		return this;
+	}
+
+	/**
+	 * <p>Sets the phrase for the result codes with no phrase.</p>
+	 *
+	 * @param response the phrase
+	 *
+	 * @return this table
+	 */
+	@NonNull
+	ResponseTable setDefault(@NonNull final String response) {
+		default_response = response;
+
+		return this;
+	}
+
+	/**
+	 * <p>Gets the phrase for a result code.</p>
+	 *
+	 * @param result_code the result code
+	 * @param on true if the command was to turn something on, false otherwise
+	 *
+	 * @return the phrase, or null if there's none for the result code nor a default one
+	 */
+	@Nullable
+	String get(final int result_code, final boolean on) {
+		final int idx = getIndex(result_code);
+		if (idx < 0) {
+			return default_response;
+		}
+
+		final String response = on ? on_responses[idx] : off_responses[idx];
+
+		return response == null ? default_response : response;
+	}
+
+	/**
+	 * <p>Gets the index of a result code on {@link #RESULT_CODES}.</p>
+	 *
+	 * @param result_code the result code
+	 *
+	 * @return the index, or -1 if the result code is not supported
+	 */
+	private static int getIndex(final int result_code) {
+		for (int i = 0; i < RESULT_CODES.length; ++i) {
+			if (RESULT_CODES[i] == result_code) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+}
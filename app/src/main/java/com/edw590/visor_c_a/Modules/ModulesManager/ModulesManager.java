@@ -21,21 +21,27 @@
 
 package com.edw590.visor_c_a.Modules.ModulesManager;
 
+import android.os.SystemClock;
+
 import com.edw590.visor_c_a.GlobalInterfaces.IModuleInst;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
 import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
 import com.edw590.visor_c_a.ModulesList;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * <p>The module which ensures all the other modules are working properly.</p>
+ * <p>It reacts to the events the elements push to the {@link ModulesSupervisor} and only checks all the elements every
+ * {@link #FULL_CHECK_INTERVAL} as a fallback.</p>
  */
 public final class ModulesManager implements IModuleInst {
 
+	/** Interval in milliseconds at which other modules poll their own stuff. */
 	public static final long CHECK_INTERVAL = 10_000;
+	/** Interval in milliseconds of the fallback full check of all the elements - the elements report their threads
+	 * crashing or stopping and send heartbeats through {@link ModulesSupervisor}, so they're checked right away, and
+	 * this only needs to catch what is not reported (like support changes). */
+	public static final long FULL_CHECK_INTERVAL = 60_000;
 
 	///////////////////////////////////////////////////////////////
 	// IModuleInst stuff
@@ -71,74 +77,148 @@ public final class ModulesManager implements IModuleInst {
 		infinity_thread.start();
 	}
 
+	/** The class of each element, by element index. */
+	private final Class<?>[] elements_classes = new Class<?>[ModulesList.ELEMENTS_LIST_LENGTH];
+	/** Whether each element was supported on the last check, to warn about support changes. */
+	private final boolean[] elements_support = new boolean[ModulesList.ELEMENTS_LIST_LENGTH];
+	/** Whether the user was already warned that each element reached its restart limit. */
+	private final boolean[] restart_limit_warned = new boolean[ModulesList.ELEMENTS_LIST_LENGTH];
+
 	final Thread infinity_thread = new Thread(new Runnable() {
 		@Override
 		public void run() {
-			boolean module_startup = true;
-
-			final List<Class<?>> elements_classes = new ArrayList<>(ModulesList.ELEMENTS_LIST_LENGTH);
-
 			// Check all modules' support and put on a list to later warn if there were changes of support or not.
-			final boolean[] elements_support = new boolean[ModulesList.ELEMENTS_LIST_LENGTH];
 			for (int module_index = 0; module_index < ModulesList.ELEMENTS_LIST_LENGTH; ++module_index) {
-				final Class<?> element_class = (Class<?>) ModulesList.getElementValue(module_index, ModulesList.ELEMENT_CLASS);
-				elements_classes.add(element_class);
+				final Class<?> element_class = ModulesList.getElementClass(module_index);
+				elements_classes[module_index] = element_class;
 				elements_support[module_index] = ModulesList.isElementSupported(element_class);
 			}
 
+			// Start everything the first time.
+			fullCheck(true);
+			long next_full_check = SystemClock.elapsedRealtime() + FULL_CHECK_INTERVAL;
+
 			while (true) {
-				for (int module_index = 0; module_index < ModulesList.ELEMENTS_LIST_LENGTH; ++module_index) {
-					final boolean element_supported = ModulesList.isElementSupported(elements_classes.get(module_index));
-					// Keep updating if the modules are supported or not, in case the user changes the app permissions.
-					ModulesList.setElementValue(module_index, ModulesList.ELEMENT_SUPPORTED, element_supported);
-
-					if (element_supported) {
-						if (!elements_support[module_index]) {
-							// Also warn if a module just got support (again or not).
-							final String speak = "The following module is now supported by hardware or application " +
-									"permissions changes: " +
-									ModulesList.getElementValue(module_index, ModulesList.ELEMENT_NAME);
-							UtilsSpeech2BC.speak(speak, Speech2.PRIORITY_MEDIUM, 0, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-						}
-						// startModule() already checks if the module is supported or not, but the manager would still
-						// call isModuleFullyWorking() for nothing, so I've put this in the if statement too.
-						// Also only keep checking and restarting the module if it's a module to check and restart and
-						// not to check only (in which case the TYP2 value would be negative).
-						if (!ModulesList.isElementFullyWorking(module_index) &&
-								((int) ModulesList.getElementValue(module_index, ModulesList.ELEMENT_TYPE1) > 0)) {
-							ModulesList.restartElement(module_index);
-							// Start everything the first time. If it has to restart a module, warn about it.
-							if (!module_startup) {
-								final String speak = "Attention - Module restarted: " +
-										ModulesList.getElementValue(module_index, ModulesList.ELEMENT_NAME);
-								UtilsSpeech2BC.speak(speak, Speech2.PRIORITY_HIGH, 0, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-							}
-						}
-					} else {
-						if (elements_support[module_index]) {
-							// If the module was supported and stopped being, warn about it.
-							final String speak = "Attention - The following module stopped being supported by " +
-									"hardware or application permissions changes: " +
-									ModulesList.getElementValue(module_index, ModulesList.ELEMENT_NAME);
-							UtilsSpeech2BC.speak(speak, Speech2.PRIORITY_HIGH, 0, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-						}
+				// Sleep until an element reports something, a deferred restart or heartbeat timeout is due, or it's
+				// time for the fallback full check - whatever comes first.
+				long now = SystemClock.elapsedRealtime();
+				final long wake_up_time = Math.min(next_full_check, ModulesSupervisor.getNextDeadline(now));
+				final int event;
+				try {
+					event = ModulesSupervisor.waitEvent(wake_up_time - now);
+				} catch (final InterruptedException ignored) {
+					return;
+				}
 
-						// If the user disabled some permission, or some hardware component was disconnected and
-						// Android detected it, stop the module (if it was running, anyway).
-						ModulesList.stopElement(module_index);
+				now = SystemClock.elapsedRealtime();
+				if (event == ModulesSupervisor.EVENT_FULL_CHECK || now >= next_full_check) {
+					fullCheck(false);
+					next_full_check = SystemClock.elapsedRealtime() + FULL_CHECK_INTERVAL;
+				} else if (event >= 0) {
+					checkElement(event, false, true);
+				} else {
+					for (int module_index = 0; module_index < ModulesList.ELEMENTS_LIST_LENGTH; ++module_index) {
+						if (ModulesSupervisor.isCheckDue(module_index, now)) {
+							checkElement(module_index, false, true);
+						}
 					}
+				}
+			}
+		}
+	});
 
-					elements_support[module_index] = element_supported;
+	/**
+	 * <p>Checks the support of all the elements and checks (and restarts, if needed) all the supported ones.</p>
+	 *
+	 * @param module_startup true if it's the first check, when all the modules are started
+	 */
+	void fullCheck(final boolean module_startup) {
+		final long now = SystemClock.elapsedRealtime();
+		for (int module_index = 0; module_index < ModulesList.ELEMENTS_LIST_LENGTH; ++module_index) {
+			final boolean element_supported = ModulesList.isElementSupported(elements_classes[module_index]);
+			// Keep updating if the modules are supported or not, in case the user changes the app permissions.
+			ModulesList.setElementSupported(module_index, element_supported);
+
+			if (element_supported) {
+				if (!elements_support[module_index]) {
+					// Also warn if a module just got support (again or not).
+					final String speak = "The following module is now supported by hardware or application " +
+							"permissions changes: " +
+							ModulesList.getElementName(module_index);
+					UtilsSpeech2BC.speak(speak, Speech2.PRIORITY_MEDIUM, 0, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
 				}
+				// Elements that keep sending heartbeats are known to be working - no need to poll them.
+				checkElement(module_index, module_startup, !ModulesSupervisor.isHeartbeatFresh(module_index, now));
+			} else {
+				if (elements_support[module_index]) {
+					// If the module was supported and stopped being, warn about it.
+					final String speak = "Attention - The following module stopped being supported by " +
+							"hardware or application permissions changes: " +
+							ModulesList.getElementName(module_index);
+					UtilsSpeech2BC.speak(speak, Speech2.PRIORITY_HIGH, 0, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+				}
+
+				// If the user disabled some permission, or some hardware component was disconnected and
+				// Android detected it, stop the module (if it was running, anyway).
+				ModulesSupervisor.cancelDeferredRestart(module_index);
+				ModulesList.stopElement(module_index);
+			}
 
-				module_startup = false;
+			elements_support[module_index] = element_supported;
+		}
+	}
 
-				try {
-					Thread.sleep(CHECK_INTERVAL);
-				} catch (final InterruptedException ignored) {
-					return;
-				}
+	/**
+	 * <p>Checks if a supported element is working and restarts it if it's not, according to its
+	 * {@link RestartPolicy}.</p>
+	 * <p>The support of the element is not checked again here - the last known value is used.</p>
+	 *
+	 * @param module_index the index of the element
+	 * @param module_startup true if it's the first check, when all the modules are started
+	 * @param poll_element true to check if the element is fully working, false to assume it is
+	 */
+	void checkElement(final int module_index, final boolean module_startup, final boolean poll_element) {
+		// Only keep checking and restarting the module if it's a module to check and restart and not to check only (in
+		// which case the TYP2 value would be negative).
+		if (!elements_support[module_index] ||
+				(ModulesList.getElementType1(module_index) <= 0)) {
+			return;
+		}
+
+		if (!poll_element || ModulesList.isElementFullyWorking(module_index)) {
+			ModulesSupervisor.cancelDeferredRestart(module_index);
+
+			return;
+		}
+
+		if (module_startup) {
+			ModulesList.restartElement(module_index);
+
+			return;
+		}
+
+		final long now = SystemClock.elapsedRealtime();
+		final long restart_allowed_time = ModulesSupervisor.getRestartAllowedTime(module_index, now);
+		if (restart_allowed_time > now) {
+			// Crash loop protection - try again later.
+			ModulesSupervisor.deferRestart(module_index, restart_allowed_time);
+			if (ModulesSupervisor.isRestartLimitReached(module_index, now) && !restart_limit_warned[module_index]) {
+				final String speak = "Attention - The following module keeps stopping and will not be restarted " +
+						"for a while: " + ModulesList.getElementName(module_index);
+				UtilsSpeech2BC.speak(speak, Speech2.PRIORITY_HIGH, 0, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+				restart_limit_warned[module_index] = true;
 			}
+
+			return;
 		}
-	});
+
+		ModulesList.restartElement(module_index);
+		ModulesSupervisor.recordRestart(module_index, now);
+		restart_limit_warned[module_index] = false;
+
+		// If it has to restart a module, warn about it.
+		final String speak = "Attention - Module restarted: " +
+				ModulesList.getElementName(module_index);
+		UtilsSpeech2BC.speak(speak, Speech2.PRIORITY_HIGH, 0, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
+	}
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.ModulesManager;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.edw590.visor_c_a.ModulesList;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Where the elements push their health events to, so the {@link ModulesManager} can react to them right away
+ * instead of only finding out on its next full check.</p>
+ * <p>Also keeps the {@link RestartPolicy} and the restart history of each element.</p>
+ * <p>The reporting functions can be called from any thread. The others are only to be used by the Modules Manager
+ * thread.</p>
+ */
+public final class ModulesSupervisor {
+
+	/** Returned by {@link #waitEvent(long)} if a full check of all the elements was requested. */
+	static final int EVENT_FULL_CHECK = -1;
+	/** Returned by {@link #waitEvent(long)} if no event arrived in time. */
+	static final int EVENT_TIMEOUT = -2;
+
+	/** Milliseconds after the last heartbeat of an element after which it's considered to have stopped beating. */
+	public static final long HEARTBEAT_TIMEOUT = 15_000;
+
+	/** Value of the times on the arrays below when they're not set. */
+	private static final long NOT_SET = -1;
+
+	/** The pending events: element indexes or {@link #EVENT_FULL_CHECK}. Bounded so that processes without a
+	 * running Modules Manager don't accumulate events forever. */
+	private static final BlockingQueue<Integer> events = new LinkedBlockingQueue<>(64);
+
+	/** {@link SystemClock#elapsedRealtime()} of the last heartbeat of each element. */
+	private static final AtomicLongArray last_heartbeat = new AtomicLongArray(ModulesList.ELEMENTS_LIST_LENGTH);
+	/** The restart policy of each element. */
+	private static final RestartPolicy[] restart_policies = new RestartPolicy[ModulesList.ELEMENTS_LIST_LENGTH];
+	/** The index of the element each thread registered with {@link #superviseThread(Thread, Class)} belongs to. Weak
+	 * keys so the threads of destroyed instances are forgotten. */
+	private static final Map<Thread, Integer> elements_threads = new WeakHashMap<>(32);
+
+	// Only used by the Modules Manager thread.
+	/** Start of the current restarts window of each element. */
+	private static final long[] window_start = new long[ModulesList.ELEMENTS_LIST_LENGTH];
+	/** Number of restarts of each element in the current window. */
+	private static final int[] restarts_in_window = new int[ModulesList.ELEMENTS_LIST_LENGTH];
+	/** Time of the last restart of each element. */
+	private static final long[] last_restart = new long[ModulesList.ELEMENTS_LIST_LENGTH];
+	/** Time at which a deferred restart of each element is due. */
+	private static final long[] deferred_restart = new long[ModulesList.ELEMENTS_LIST_LENGTH];
+
+	static {
+		for (int i = 0; i < ModulesList.ELEMENTS_LIST_LENGTH; ++i) {
+			last_heartbeat.set(i, NOT_SET);
+			restart_policies[i] = RestartPolicy.DEFAULT;
+			window_start[i] = NOT_SET;
+			last_restart[i] = NOT_SET;
+			deferred_restart[i] = NOT_SET;
+		}
+	}
+
+	/**
+	 * <p>Private empty constructor so the class can't be instantiated (utility class).</p>
+	 */
+	private ModulesSupervisor() {
+	}
+
+	/**
+	 * <p>Reports that an element stopped working, so that the Modules Manager checks it (and restarts it, if needed)
+	 * immediately.</p>
+	 *
+	 * @param element_class the class of the element
+	 */
+	public static void reportElementDown(@NonNull final Class<?> element_class) {
+		final int element_index = ModulesList.getElementIndex(element_class);
+		if (element_index >= 0) {
+			events.offer(element_index);
+		}
+	}
+
+	/**
+	 * <p>Reports that an element is alive.</p>
+	 * <p>After the first heartbeat, the element must keep calling this at least every {@link #HEARTBEAT_TIMEOUT}
+	 * milliseconds. While it does, the Modules Manager doesn't need to poll it on its full checks, and if it stops
+	 * doing it, the element is checked as soon as the timeout passes.</p>
+	 *
+	 * @param element_class the class of the element
+	 */
+	public static void reportHeartbeat(@NonNull final Class<?> element_class) {
+		final int element_index = ModulesList.getElementIndex(element_class);
+		if (element_index >= 0) {
+			last_heartbeat.set(element_index, SystemClock.elapsedRealtime());
+		}
+	}
+
+	/**
+	 * <p>Requests that all the elements be checked immediately - for example because some thread crashed and it's not
+	 * known to which element it belonged.</p>
+	 */
+	public static void requestFullCheck() {
+		events.offer(EVENT_FULL_CHECK);
+	}
+
+	/**
+	 * <p>Registers a thread of an element, so that if it crashes, {@link #reportThreadCrashed(Thread)} reports the
+	 * element down instead of requesting a full check.</p>
+	 * <p>Register all the threads (including {@link android.os.HandlerThread}s) whose death makes the element not
+	 * fully working.</p>
+	 *
+	 * @param thread the thread
+	 * @param element_class the class of the element
+	 */
+	public static void superviseThread(@NonNull final Thread thread, @NonNull final Class<?> element_class) {
+		final int element_index = ModulesList.getElementIndex(element_class);
+		if (element_index >= 0) {
+			synchronized (elements_threads) {
+				elements_threads.put(thread, element_index);
+			}
+		}
+	}
+
+	/**
+	 * <p>Reports that a thread crashed with an uncaught exception: the element it belongs to is reported down if it
+	 * was registered with {@link #superviseThread(Thread, Class)}, else a full check is requested.</p>
+	 *
+	 * @param thread the thread
+	 */
+	public static void reportThreadCrashed(@NonNull final Thread thread) {
+		final Integer element_index;
+		synchronized (elements_threads) {
+			element_index = elements_threads.remove(thread);
+		}
+		if (element_index != null) {
+			events.offer(element_index);
+		} else {
+			requestFullCheck();
+		}
+	}
+
+	/**
+	 * <p>Sets the restart policy of an element.</p>
+	 *
+	 * @param element_class the class of the element
+	 * @param restart_policy the policy
+	 */
+	public static void setRestartPolicy(@NonNull final Class<?> element_class,
+										@NonNull final RestartPolicy restart_policy) {
+		final int element_index = ModulesList.getElementIndex(element_class);
+		if (element_index >= 0) {
+			restart_policies[element_index] = restart_policy;
+		}
+	}
+
+	/**
+	 * <p>Waits for the next event.</p>
+	 *
+	 * @param timeout_ms maximum milliseconds to wait
+	 *
+	 * @return the index of the element the event is about, {@link #EVENT_FULL_CHECK} or {@link #EVENT_TIMEOUT}
+	 *
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	static int waitEvent(final long timeout_ms) throws InterruptedException {
+		final Integer event = events.poll(Math.max(timeout_ms, 0), TimeUnit.MILLISECONDS);
+
+		return event == null ? EVENT_TIMEOUT : event;
+	}
+
+	/**
+	 * <p>Checks if an element has sent a heartbeat within the last {@link #HEARTBEAT_TIMEOUT} milliseconds.</p>
+	 *
+	 * @param element_index the index of the element
+	 * @param now the current {@link SystemClock#elapsedRealtime()}
+	 *
+	 * @return true if the element is beating, false if it never sent a heartbeat or stopped sending them
+	 */
+	static boolean isHeartbeatFresh(final int element_index, final long now) {
+		final long heartbeat = last_heartbeat.get(element_index);
+
+		return heartbeat != NOT_SET && now - heartbeat < HEARTBEAT_TIMEOUT;
+	}
+
+	/**
+	 * <p>Checks if an element needs an early check because a deferred restart is due or because it stopped sending
+	 * heartbeats.</p>
+	 *
+	 * @param element_index the index of the element
+	 * @param now the current {@link SystemClock#elapsedRealtime()}
+	 *
+	 * @return true if the element is to be checked now, false otherwise
+	 */
+	static boolean isCheckDue(final int element_index, final long now) {
+		if (deferred_restart[element_index] != NOT_SET && now >= deferred_restart[element_index]) {
+			return true;
+		}
+
+		final long heartbeat = last_heartbeat.get(element_index);
+		if (heartbeat != NOT_SET && now - heartbeat >= HEARTBEAT_TIMEOUT) {
+			// Only once - the element is checked now and will be back on the full checks until it beats again.
+			last_heartbeat.set(element_index, NOT_SET);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * <p>Gets the next time at which some element must be checked because of a deferred restart or a heartbeat
+	 * timeout.</p>
+	 *
+	 * @param now the current {@link SystemClock#elapsedRealtime()}
+	 *
+	 * @return the time, or {@link Long#MAX_VALUE} if there is none
+	 */
+	static long getNextDeadline(final long now) {
+		long deadline = Long.MAX_VALUE;
+		for (int i = 0; i < ModulesList.ELEMENTS_LIST_LENGTH; ++i) {
+			if (deferred_restart[i] != NOT_SET) {
+				deadline = Math.min(deadline, deferred_restart[i]);
+			}
+			final long heartbeat = last_heartbeat.get(i);
+			if (heartbeat != NOT_SET) {
+				deadline = Math.min(deadline, heartbeat + HEARTBEAT_TIMEOUT);
+			}
+		}
+
+		return Math.max(deadline, now);
+	}
+
+	/**
+	 * <p>Gets the time at which the element can be restarted according to its {@link RestartPolicy}.</p>
+	 *
+	 * @param element_index the index of the element
+	 * @param now the current {@link SystemClock#elapsedRealtime()}
+	 *
+	 * @return {@code now} if it can be restarted now, or the time at which it can be restarted
+	 */
+	static long getRestartAllowedTime(final int element_index, final long now) {
+		final RestartPolicy restart_policy = restart_policies[element_index];
+		if (window_start[element_index] == NOT_SET || now - window_start[element_index] >= restart_policy.window_ms) {
+			return now;
+		}
+
+		if (restarts_in_window[element_index] >= restart_policy.max_restarts) {
+			return window_start[element_index] + restart_policy.window_ms;
+		}
+
+		return Math.max(now, last_restart[element_index] +
+				restart_policy.getBackoff(restarts_in_window[element_index]));
+	}
+
+	/**
+	 * <p>Checks if the element reached the maximum restarts allowed by its {@link RestartPolicy} in the current
+	 * window.</p>
+	 *
+	 * @param element_index the index of the element
+	 * @param now the current {@link SystemClock#elapsedRealtime()}
+	 *
+	 * @return true if the limit was reached, false otherwise
+	 */
+	static boolean isRestartLimitReached(final int element_index, final long now) {
+		final RestartPolicy restart_policy = restart_policies[element_index];
+
+		return window_start[element_index] != NOT_SET &&
+				now - window_start[element_index] < restart_policy.window_ms &&
+				restarts_in_window[element_index] >= restart_policy.max_restarts;
+	}
+
+	/**
+	 * <p>Records a restart of the element.</p>
+	 *
+	 * @param element_index the index of the element
+	 * @param now the current {@link SystemClock#elapsedRealtime()}
+	 */
+	static void recordRestart(final int element_index, final long now) {
+		if (window_start[element_index] == NOT_SET ||
+				now - window_start[element_index] >= restart_policies[element_index].window_ms) {
+			window_start[element_index] = now;
+			restarts_in_window[element_index] = 0;
+		}
+		++restarts_in_window[element_index];
+		last_restart[element_index] = now;
+		deferred_restart[element_index] = NOT_SET;
+	}
+
+	/**
+	 * <p>Defers the restart of an element until the given time.</p>
+	 *
+	 * @param element_index the index of the element
+	 * @param when the time at which the element is to be checked again
+	 */
+	static void deferRestart(final int element_index, final long when) {
+		deferred_restart[element_index] = when;
+	}
+
+	/**
+	 * <p>Cancels a deferred restart of an element (because it's working again or because it stopped being
+	 * supported).</p>
+	 *
+	 * @param element_index the index of the element
+	 */
+	static void cancelDeferredRestart(final int element_index) {
+		deferred_restart[element_index] = NOT_SET;
+	}
+}
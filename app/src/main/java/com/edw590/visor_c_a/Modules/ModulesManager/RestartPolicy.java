@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.ModulesManager;
+
+/**
+ * <p>The restart policy of an element, used by the {@link ModulesManager} to decide if and when a stopped or
+ * malfunctioning element may be restarted.</p>
+ * <p>After each restart inside the same window, the time until the next allowed restart doubles, starting on
+ * {@link #backoff_initial_ms} and up to {@link #backoff_max_ms}. If {@link #max_restarts} are reached inside
+ * {@link #window_ms}, the element is left alone until the window passes.</p>
+ */
+public final class RestartPolicy {
+
+	/** The default policy for all elements. */
+	public static final RestartPolicy DEFAULT = new RestartPolicy(500, 60_000, 5, 10 * 60_000);
+
+	/** Milliseconds to wait before the second restart inside a window (the first one is immediate). */
+	public final long backoff_initial_ms;
+	/** Maximum milliseconds to wait between restarts. */
+	public final long backoff_max_ms;
+	/** Maximum number of restarts inside {@link #window_ms}. */
+	public final int max_restarts;
+	/** Milliseconds of the window in which the restarts are counted. */
+	public final long window_ms;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param backoff_initial_ms {@link #backoff_initial_ms}
+	 * @param backoff_max_ms {@link #backoff_max_ms}
+	 * @param max_restarts {@link #max_restarts}
+	 * @param window_ms {@link #window_ms}
+	 */
+	public RestartPolicy(final long backoff_initial_ms, final long backoff_max_ms, final int max_restarts,
+						 final long window_ms) {
+		this.backoff_initial_ms = backoff_initial_ms;
+		this.backoff_max_ms = backoff_max_ms;
+		this.max_restarts = max_restarts;
+		this.window_ms = window_ms;
+	}
+
+	/**
+	 * <p>Gets the milliseconds to wait before a restart, given the number of restarts already done in the window.</p>
+	 *
+	 * @param num_restarts the number of restarts already done in the current window
+	 *
+	 * @return the milliseconds to wait after the last restart
+	 */
+	long getBackoff(final int num_restarts) {
+		if (num_restarts <= 0) {
+			return 0;
+		}
+
+		long backoff = backoff_initial_ms;
+		for (int i = 1; i < num_restarts && backoff < backoff_max_ms; ++i) {
+			backoff *= 2;
+		}
+
+		return Math.min(backoff, backoff_max_ms);
+	}
+}
@@ -47,11 +47,13 @@ import androidx.annotation.RequiresApi;
 
 import com.edw590.visor_c_a.ActivitiesFragments.Activities.ActScrCapturePerm;
 import com.edw590.visor_c_a.GlobalInterfaces.IModuleInst;
+import com.edw590.visor_c_a.GlobalUtils.InternalEventBus;
 import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsMedia;
 import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
 import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
 import com.edw590.visor_c_a.Modules.SpeechRecognitionCtrl.UtilsSpeechRecognizersBC;
@@ -71,9 +73,9 @@ public final class ScreenRecorder implements IModuleInst {
 	@Nullable public static Intent token_data = null;
 
 	private final int element_index = ModulesList.getElementIndex(getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String) ModulesList.getElementValue(element_index,
-			ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private final Handler main_handler;
+	@Nullable private InternalEventBus.Subscription bus_subscription = null;
 
 	private MediaProjectionManager media_projection_manager = null;
 	private MediaProjection media_projection = null;
@@ -93,6 +95,7 @@ public final class ScreenRecorder implements IModuleInst {
 	}
 	@Override
 	public void destroy() {
+		InternalEventBus.unsubscribe(bus_subscription);
 		try {
 			UtilsContext.getContext().unregisterReceiver(broadcastReceiver);
 		} catch (final IllegalArgumentException ignored) {
@@ -122,6 +125,7 @@ public final class ScreenRecorder implements IModuleInst {
 	 */
 	public ScreenRecorder() {
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, ScreenRecorder.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
 		// Update the Registry
@@ -137,6 +141,9 @@ public final class ScreenRecorder implements IModuleInst {
 
 			UtilsContext.getContext().registerReceiver(broadcastReceiver, new IntentFilter(intentFilter), null,
 					main_handler);
+			bus_subscription = InternalEventBus.subscribe(main_handler, InternalEventBus.DEFAULT_MAX_PENDING,
+					intent -> broadcastReceiver.onReceive(null, intent),
+					CONSTS_BC_ScreenRec.ACTION_RECORD_SCREEN);
 		} catch (final IllegalArgumentException ignored) {
 		}
 	}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.Speech;
+
+import androidx.annotation.NonNull;
+
+import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import GPTComm.GPTComm;
+
+/**
+ * <p>Streams the text the LLM generates on the server to the speech module as soon as it arrives.</p>
+ * <p>The GPTComm library has no callbacks, so this polls it - but only with short intervals while an answer is being
+ * streamed ({@link #ACTIVE_POLL_MS}), backing off to {@link #IDLE_POLL_MS_MAX} once it ends, so the thread mostly
+ * sleeps while no answer is being generated (at the cost of up to that much delay on the first sentence of the next
+ * answer). GPTComm already delivers the text in sentence-sized chunks, so each chunk is handed to the {@link Listener}
+ * right away - only split if it has more than one sentence, so the TTS can start on the first one. Nothing is held
+ * waiting for punctuation.</p>
+ * <p>It also measures the time from the arrival of the first text of a sentence to the TTS starting to speak it, and
+ * logs it at the end of each answer.</p>
+ */
+final class SentenceStream implements Runnable {
+
+	/** Polling interval while an answer is being streamed. */
+	static final long ACTIVE_POLL_MS = 20;
+	/** Maximum polling interval while no answer is being streamed. */
+	static final long IDLE_POLL_MS_MAX = 1000;
+	/** Maximum number of sentences waiting to be spoken kept for the measurements - just not to grow forever if
+	 * sentences are removed before being spoken. */
+	private static final int MAX_PENDING_SPEECHES = 64;
+
+	/** Receiver of the complete sentences. */
+	interface Listener {
+		/**
+		 * <p>Called on the stream thread for each sentence.</p>
+		 *
+		 * @param sentence the sentence
+		 * @param arrival_ns {@link System#nanoTime()} of when the sentence arrived
+		 */
+		void onSentence(@NonNull String sentence, long arrival_ns);
+	}
+
+	@NonNull private final Listener listener;
+
+	/** Speech IDs of the sentences not spoken yet mapped to the arrival time of their first text. */
+	private final Map<String, Long> pending_speeches = new HashMap<>(16);
+	private long num_spoken = 0;
+	private long last_latency_ms = 0;
+	private long total_latency_ms = 0;
+	private long max_latency_ms = 0;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param listener the receiver of the sentences
+	 */
+	SentenceStream(@NonNull final Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * <p>Polls GPTComm until the thread is interrupted.</p>
+	 */
+	@Override
+	public void run() {
+		long poll_ms = ACTIVE_POLL_MS;
+		boolean answer_active = false;
+		while (!Thread.currentThread().isInterrupted()) {
+			final String text = GPTComm.getNextSpeechSentence();
+			if (GPTComm.END_ENTRY.equals(text)) {
+				if (answer_active) {
+					UtilsLogging.logLnInfo("SentenceStream - sentence arrival to first audio latency: mean " +
+							getMeanLatencyMs() + " ms, max " + getMaxLatencyMs() + " ms");
+				}
+				answer_active = false;
+
+				continue;
+			}
+			if (text.isEmpty()) {
+				try {
+					Thread.sleep(poll_ms);
+				} catch (final InterruptedException ignored) {
+					return;
+				}
+				poll_ms = answer_active ? ACTIVE_POLL_MS : Math.min(poll_ms * 2, IDLE_POLL_MS_MAX);
+
+				continue;
+			}
+
+			answer_active = true;
+			poll_ms = ACTIVE_POLL_MS;
+			onChunk(text, System.nanoTime());
+		}
+	}
+
+	/**
+	 * <p>Hands the sentences of a chunk of text to the {@link #listener}, including the end of the chunk even if it
+	 * doesn't end with punctuation.</p>
+	 *
+	 * @param text the chunk
+	 * @param arrival_ns {@link System#nanoTime()} of when the chunk arrived
+	 */
+	void onChunk(@NonNull final String text, final long arrival_ns) {
+		int sentence_start = 0;
+		final int length = text.length();
+		for (int i = 0; i < length; ++i) {
+			final char c = text.charAt(i);
+			final boolean boundary;
+			if (c == '\n') {
+				boundary = true;
+			} else if (c == '.' || c == '!' || c == '?' || c == '\u2026') {
+				// Only if followed by a space, so numbers like 3.14 are not split.
+				boundary = i + 1 < length && Character.isWhitespace(text.charAt(i + 1));
+			} else {
+				boundary = false;
+			}
+
+			if (boundary) {
+				emit(text.substring(sentence_start, i + 1), arrival_ns);
+				sentence_start = i + 1;
+			}
+		}
+		emit(text.substring(sentence_start), arrival_ns);
+	}
+
+	private void emit(@NonNull final String sentence, final long arrival_ns) {
+		final String trimmed = sentence.trim();
+		if (!trimmed.isEmpty()) {
+			listener.onSentence(trimmed, arrival_ns);
+		}
+	}
+
+	/**
+	 * <p>Registers the speech ID a sentence was queued with, to measure the latency when it starts being spoken.</p>
+	 *
+	 * @param speech_id the speech ID
+	 * @param arrival_ns same as in {@link Listener#onSentence(String, long)}
+	 */
+	synchronized void onSentenceQueued(@NonNull final String speech_id, final long arrival_ns) {
+		if (pending_speeches.size() >= MAX_PENDING_SPEECHES) {
+			pending_speeches.clear();
+		}
+		pending_speeches.put(speech_id, arrival_ns);
+	}
+
+	/**
+	 * <p>Call when the TTS starts speaking any speech. Only the ones of this stream are measured.</p>
+	 *
+	 * @param speech_id the speech ID
+	 */
+	synchronized void onSpeechStarted(@NonNull final String speech_id) {
+		final Long arrival_ns = pending_speeches.remove(speech_id);
+		if (arrival_ns == null) {
+			return;
+		}
+
+		last_latency_ms = (System.nanoTime() - arrival_ns) / 1_000_000;
+		total_latency_ms += last_latency_ms;
+		if (last_latency_ms > max_latency_ms) {
+			max_latency_ms = last_latency_ms;
+		}
+		++num_spoken;
+	}
+
+	/**
+	 * <p>Gets the time from the arrival of the first text of the last spoken sentence to the TTS starting to speak
+	 * it.</p>
+	 *
+	 * @return the time in milliseconds
+	 */
+	synchronized long getLastLatencyMs() {
+		return last_latency_ms;
+	}
+
+	/**
+	 * <p>Same as {@link #getLastLatencyMs()} but the mean of all the spoken sentences.</p>
+	 *
+	 * @return the time in milliseconds, or 0 if no sentence was spoken yet
+	 */
+	synchronized long getMeanLatencyMs() {
+		return num_spoken == 0 ? 0 : total_latency_ms / num_spoken;
+	}
+
+	/**
+	 * <p>Same as {@link #getLastLatencyMs()} but the maximum of all the spoken sentences.</p>
+	 *
+	 * @return the time in milliseconds
+	 */
+	synchronized long getMaxLatencyMs() {
+		return max_latency_ms;
+	}
+}
@@ -47,6 +47,7 @@ import androidx.core.app.NotificationCompat;
 
 import com.edw590.visor_c_a.GlobalInterfaces.IModuleInst;
 import com.edw590.visor_c_a.GlobalUtils.GL_CONSTS;
+import com.edw590.visor_c_a.GlobalUtils.InternalEventBus;
 import com.edw590.visor_c_a.GlobalUtils.ObjectClasses;
 import com.edw590.visor_c_a.GlobalUtils.UtilsApp;
 import com.edw590.visor_c_a.GlobalUtils.UtilsCheckHardwareFeatures;
@@ -54,6 +55,7 @@ import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsNotifications;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.ModulesList;
 import com.edw590.visor_c_a.Registry.RegistryKeys;
 import com.edw590.visor_c_a.Registry.UtilsRegistry;
@@ -108,9 +110,9 @@ public final class Speech2 implements IModuleInst {
 	// even changing the voices and the engine for it to restart the speech worked - I really had to restart the app).
 
 	private final int element_index = ModulesList.getElementIndex(this.getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String) ModulesList.getElementValue(element_index,
-			ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private final Handler main_handler;
+	@Nullable private InternalEventBus.Subscription bus_subscription = null;
 
 	boolean tts_working = false;
 
@@ -119,8 +121,13 @@ public final class Speech2 implements IModuleInst {
 	// Leave the lists below static! This way, if the module is restarted, the lists are kept intact.
 	static final ArrayList<String> speech_notif_speeches = new ArrayList<>(10);
 	static final ArrayList<String> speech_toast_speeches = new ArrayList<>(10);
+	// Static too, to stay in sync with the native queue, which is kept on restarts.
+	/** Decides which speech of the native queue is spoken next and measures the waiting times. */
+	static final SpeechScheduler speech_scheduler = new SpeechScheduler();
 
 	TextToSpeech tts = null;
+	/** Cache of the repeated phrases, so they start being spoken sooner. */
+	private final TtsPhraseCache phrase_cache = new TtsPhraseCache();
 	String current_speech_id = "";
 	SpeechQueue.Speech last_speech = new SpeechQueue.Speech();
 	@Nullable private AudioFocusRequest audioFocusRequest = null;
@@ -211,6 +218,7 @@ public final class Speech2 implements IModuleInst {
 	}
 	@Override
 	public void destroy() {
+		InternalEventBus.unsubscribe(bus_subscription);
 		try {
 			UtilsContext.getContext().unregisterReceiver(broadcastReceiver);
 		} catch (final IllegalArgumentException ignored) {
@@ -221,6 +229,7 @@ public final class Speech2 implements IModuleInst {
 		infinity_thread2.interrupt();
 
 		SpeechQueue.SpeechQueue.clearQueue();
+		speech_scheduler.clear();
 
 		if (tts != null) {
 			tts.stop();
@@ -270,6 +279,7 @@ public final class Speech2 implements IModuleInst {
 		// TTS
 
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, Speech2.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
 		// By the way, this must ALWAYS be called here. The entire module expects the tts object to never be null after
@@ -277,29 +287,34 @@ public final class Speech2 implements IModuleInst {
 		initializeTts(true);
 
 		infinity_thread.start();
+		ModulesSupervisor.superviseThread(infinity_thread, Speech2.class);
 		infinity_thread2.start();
+		ModulesSupervisor.superviseThread(infinity_thread2, Speech2.class);
 	}
 
+	/** Streams the sentences of the LLM answers straight to the speech queue. */
+	final SentenceStream sentence_stream = new SentenceStream(this::onStreamSentence);
+
 	private final Thread infinity_thread = new Thread(() -> {
 		GPTComm.setPreparations(System.currentTimeMillis());
-		while (true) {
-			// Keep getting the next sentence to speak from the server
-			String speak = GPTComm.getNextSpeechSentence();
-			if (speak.isEmpty() || GPTComm.END_ENTRY.equals(speak)) {
-				try {
-					Thread.sleep(1000);
-				} catch (final InterruptedException ignored) {
-				}
+		// Keep getting the next sentences to speak from the server
+		sentence_stream.run();
+	});
 
-				continue;
-			}
+	/**
+	 * <p>Queues a sentence of {@link #sentence_stream} to be spoken.</p>
+	 *
+	 * @param sentence the sentence
+	 * @param arrival_ns same as in {@link SentenceStream.Listener#onSentence(String, long)}
+	 */
+	private void onStreamSentence(@NonNull final String sentence, final long arrival_ns) {
+		final String speech_id = SpeechQueue.SpeechQueue.generateSpeechID();
+		sentence_stream.onSentenceQueued(speech_id, arrival_ns);
 
-			// Don't call the internal speak() directly - use the broadcast. Useful to show Toasts on TVs, and they only
-			// work if sent from the UI thread, which apparently is the thread of the broadcast receiver, because they
-			// work there.
-			UtilsSpeech2BC.speak(speak, PRIORITY_USER_ACTION, MODE_DEFAULT, UtilsSpeech2BC.SESSION_TYPE_NONE, false, null);
-		}
-	});
+		// Go through the main handler, which is also the thread of the broadcast receiver - useful to show Toasts on
+		// TVs, and they only work if sent from there.
+		main_handler.post(() -> speakInternal(sentence, PRIORITY_USER_ACTION, MODE_DEFAULT, speech_id, -1));
+	}
 
 	private final Thread infinity_thread2 = new Thread(() -> {
 		while (true) {
@@ -390,6 +405,11 @@ public final class Speech2 implements IModuleInst {
 					// "Ready[, sir - this part is cut]" if the phone (BV9500) is in Vibrating mode. It starts
 					// speaking and it's interrupted - but onDone() is never called, only onStop().
 					// Which means, if it doesn't work well in at least one case, don't enable.
+
+					// The files registered on the previous instance were of its voice - register the ones of this one.
+					if (isPhraseCacheEnabled()) {
+						phrase_cache.registerAll(tts);
+					}
 				}
 
 				tts_working = true;
@@ -675,6 +695,7 @@ public final class Speech2 implements IModuleInst {
 			// having been added in the same millisecond. So use nanoseconds.
 			utterance_id_to_use = SpeechQueue.SpeechQueue.addSpeech(txt_to_speak, utterance_id_to_use,
 					UtilsGeneral.getUnixNano(), speech_priority, actual_mode, audio_stream, task_id);
+			speech_scheduler.add(utterance_id_to_use, speech_priority, audio_stream);
 		}
 
 		if (current_speech_id.isEmpty()) {
@@ -686,6 +707,7 @@ public final class Speech2 implements IModuleInst {
 			current_speech_id = utterance_id_to_use;
 			SpeechQueue.Speech curr_speech = SpeechQueue.SpeechQueue.getSpeech(current_speech_id);
 
+			speech_scheduler.onDispatched(current_speech_id);
 			final int tts_error_code = sendTtsSpeak(curr_speech.getText(), curr_speech.getID(),
 					curr_speech.getAudioStream());
 			if (tts_error_code != TextToSpeech.SUCCESS) {
@@ -714,7 +736,7 @@ public final class Speech2 implements IModuleInst {
 			// stops, it will take care of starting the next ones on the queues).
 			// Except if the new speech has a higher priority than the current one. In that case, the current one
 			// stops temporarily to give place to the new one.
-			if (speech_priority > SpeechQueue.SpeechQueue.getSpeech(current_speech_id).getPriority()) {
+			if (speech_scheduler.shouldPreempt(speech_priority, current_speech_id)) {
 				if (ttsStop(false) == TextToSpeech.SUCCESS) {
 					return CUR_SPEECH_STOPPED;
 				} else {
@@ -754,6 +776,12 @@ public final class Speech2 implements IModuleInst {
 			Bundle bundle = new Bundle(1);
 			bundle.putInt(TextToSpeech.Engine.KEY_PARAM_STREAM, audio_stream);
 
+			// The speech would wait for the synthesis of a phrase to cache to finish - cancel it (it's retried later).
+			phrase_cache.cancelSynthesis(tts);
+			if (isPhraseCacheEnabled()) {
+				phrase_cache.onSpeak(txt_to_speak);
+			}
+
 			return tts.speak(txt_to_speak, TextToSpeech.QUEUE_ADD, bundle, utterance_id);
 		} else {
 			HashMap<String, String> hashmap = new LinkedHashMap<>(2);
@@ -789,6 +817,9 @@ public final class Speech2 implements IModuleInst {
 
 				if (voice == null || !voice.equals(tts.getDefaultVoice())) {
 					reload_tts = true;
+				} else if (isPhraseCacheEnabled() && phrase_cache.voiceChanged(tts)) {
+					// For example the speech rate changed - the cached phrases registered on the TTS must be replaced.
+					reload_tts = true;
 				}
 			} else {
 				final Locale language = tts.getLanguage();
@@ -1065,6 +1096,9 @@ public final class Speech2 implements IModuleInst {
 	 * bypass a no-sound setting, like Do Not Disturb or Vibrating mode, for example.</p>
 	 */
 	void rightBeforeSpeaking(@NonNull final String utterance_id) {
+		speech_scheduler.onStarted(utterance_id);
+		sentence_stream.onSpeechStarted(utterance_id);
+
 		SpeechQueue.Speech curr_speech = SpeechQueue.SpeechQueue.getSpeech(utterance_id);
 
 		if (curr_speech == null) {
@@ -1141,6 +1175,10 @@ public final class Speech2 implements IModuleInst {
 
 		@Override
 		public void onStart(final String utteranceId) {
+			if (TtsPhraseCache.isCacheUtterance(utteranceId)) {
+				return;
+			}
+
 			UtilsLogging.logLnDebug("^/^/^/^/^/^/^/^/^/^/^/^/^/^/^");
 			rightBeforeSpeaking(utteranceId);
 			UtilsLogging.logLnDebug("^/^/^/^/^/^/^/^/^/^/^/^/^/^/^");
@@ -1148,6 +1186,15 @@ public final class Speech2 implements IModuleInst {
 
 		@Override
 		public void onDone(final String utteranceId) {
+			if (TtsPhraseCache.isCacheUtterance(utteranceId)) {
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+					phrase_cache.onSynthesisDone(tts, utteranceId, true);
+					synthesizePhrasesIfIdle();
+				}
+
+				return;
+			}
+
 			UtilsLogging.logLnDebug("^^^^^^^^^^^^^^^^^^^^^^^^^^^^^");
 			UtilsLogging.logLnDebug(utteranceId);
 			UtilsLogging.logLnDebug("^^^^^^^^^^^^^^^^^^^^^^^^^^^^^");
@@ -1167,6 +1214,15 @@ public final class Speech2 implements IModuleInst {
 		// Up to API 20
 		@Override
 		public void onError(final String utteranceId) {
+			if (TtsPhraseCache.isCacheUtterance(utteranceId)) {
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+					phrase_cache.onSynthesisDone(tts, utteranceId, false);
+					synthesizePhrasesIfIdle();
+				}
+
+				return;
+			}
+
 			UtilsLogging.logLnDebug("^-^-^-^-^-^-^-^-^-^-^-^-^-^-^");
 			UtilsLogging.logLnDebug(utteranceId);
 			UtilsLogging.logLnDebug("^-^-^-^-^-^-^-^-^-^-^-^-^-^-^");
@@ -1198,8 +1254,16 @@ public final class Speech2 implements IModuleInst {
 		public void onStop(final String utteranceId, final boolean interrupted) {
 			super.onStop(utteranceId, interrupted);
 
-			// Do nothing here. Why? Read the custom onStop() method's documentation which explains it.
-			// Do NOT implement this method. It's here just to indicate that it's not to be implemented.
+			if (TtsPhraseCache.isCacheUtterance(utteranceId)) {
+				// The synthesis requests of the cache are not speeches - they must know they were stopped, as neither
+				// onDone() nor onError() are called in that case.
+				phrase_cache.onSynthesisDone(tts, utteranceId, false);
+
+				return;
+			}
+
+			// Do nothing here for the speeches. Why? Read the custom onStop() method's documentation which explains it.
+			// Do NOT implement this method for them. It's here just to indicate that it's not to be implemented.
 		}
 	}
 	/**
@@ -1223,6 +1287,7 @@ public final class Speech2 implements IModuleInst {
 			speechTreatment(utteranceId);
 		} else {
 			SpeechQueue.SpeechQueue.getSpeech(utteranceId).rephraseInterrSpeech();
+			speech_scheduler.onPreempted(utteranceId);
 			// In this case, the speech is not to be removed from the list. Only stopped temporarily.
 			speechTreatment("");
 		}
@@ -1246,6 +1311,7 @@ public final class Speech2 implements IModuleInst {
 		if (!utteranceId.isEmpty()) {
 			// Won't happen, except from the custom onStop() - or the speech wouldn't have taken place.
 			last_speech = SpeechQueue.SpeechQueue.removeSpeech(utteranceId);
+			speech_scheduler.remove(utteranceId);
 			// todo It's getting null here on API 15 and 19 at least.... (on Oreo it doesn't)
 			//  EDIT: not on 15 anymore... hmm...
 			//  Synchronize the class... ('synchronize' keyword)
@@ -1263,7 +1329,16 @@ public final class Speech2 implements IModuleInst {
 					putExtra(CONSTS_BC_Speech.EXTRA_AFTER_SPEAK_ID_1, last_speech.getID()));
 		}
 
-		SpeechQueue.Speech next_speech = SpeechQueue.SpeechQueue.getNextSpeech(-1);
+		SpeechQueue.Speech next_speech = null;
+		String next_speech_id;
+		while ((next_speech_id = speech_scheduler.peekNext(volumeDndState.audio_stream)) != null) {
+			next_speech = SpeechQueue.SpeechQueue.getSpeech(next_speech_id);
+			if (next_speech != null) {
+				break;
+			}
+			// Not on the native queue anymore - forget it.
+			speech_scheduler.remove(next_speech_id);
+		}
 		if (next_speech != null) {
 			// If there are more speeches and they use the same audio stream, don't reset the volume and abandon
 			// the audio focus. Do that only if the stream to be used next is different (reset the previous one).
@@ -1329,6 +1404,35 @@ public final class Speech2 implements IModuleInst {
 
 		// Doesn't matter if the user changed the volume or not if all the speeches have been finished.
 		user_changed_volume = false;
+
+		// Nothing to speak - good time to synthesize the phrases to cache, if there are any.
+		synthesizePhrasesIfIdle();
+
+		speech_scheduler.logStatsIfDue();
+	}
+
+	/**
+	 * <p>Synthesizes the next phrase waiting to be cached by {@link #phrase_cache}, but only if there's no speech
+	 * taking place or waiting to be spoken and the TTS is not speaking.</p>
+	 */
+	void synthesizePhrasesIfIdle() {
+		if (!tts_working || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP || !isPhraseCacheEnabled()) {
+			return;
+		}
+
+		if (current_speech_id.isEmpty() && !speeches_on_lists && !tts.isSpeaking()) {
+			phrase_cache.synthesizePending(tts);
+		}
+	}
+
+	/**
+	 * <p>Checks if the repeated phrases are to be cached with {@link #phrase_cache}.</p>
+	 *
+	 * @return true if the cache is enabled in the settings and supported by the device, false otherwise
+	 */
+	private static boolean isPhraseCacheEnabled() {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP &&
+				(boolean) UtilsRegistry.getData(RegistryKeys.K_SPEECH_PHRASE_CACHE, true);
 	}
 
 
@@ -1352,6 +1456,13 @@ public final class Speech2 implements IModuleInst {
 
 		try {
 			UtilsContext.getContext().registerReceiver(broadcastReceiver, intentFilter, null, main_handler);
+			// The module's own actions are also delivered directly if they're sent from this process.
+			bus_subscription = InternalEventBus.subscribe(main_handler, InternalEventBus.DEFAULT_MAX_PENDING,
+					intent -> broadcastReceiver.onReceive(null, intent),
+					CONSTS_BC_Speech.ACTION_CALL_SPEAK,
+					CONSTS_BC_Speech.ACTION_SKIP_SPEECH,
+					CONSTS_BC_Speech.ACTION_REMOVE_SPEECH,
+					CONSTS_BC_Speech.ACTION_SAY_AGAIN);
 
 			// Don't take this out of here. This way, this function can be called as many times as needed and it will
 			// only act if it's the first time - else, the exception will be thrown (the receiver is already registered)
@@ -1399,9 +1510,13 @@ public final class Speech2 implements IModuleInst {
 					break;
 				}
 				case (CONSTS_BC_Speech.ACTION_REMOVE_SPEECH): {
-					final String speech_id = intent.getStringExtra(CONSTS_BC_Speech.EXTRA_CALL_SPEAK_1);
+					final String speech_id = intent.getStringExtra(CONSTS_BC_Speech.EXTRA_REMOVE_SPEECH_1);
+					if (speech_id == null) {
+						break;
+					}
 
 					SpeechQueue.SpeechQueue.removeSpeech(speech_id);
+					speech_scheduler.remove(speech_id);
 
 					break;
 				}
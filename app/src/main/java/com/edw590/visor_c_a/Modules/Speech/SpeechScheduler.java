@@ -0,0 +1,361 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.Speech;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Decides which speech {@link Speech2} speaks next and when a speech preempts the current one.</p>
+ * <p>The speeches themselves (text, mode, task...) stay on the native SpeechQueue - this class only keeps their IDs,
+ * priorities and audio streams, with the same semantics:</p>
+ * <p>- one FIFO per priority, the highest non-empty one being the one served;</p>
+ * <p>- a speech of higher priority than the current one preempts it;</p>
+ * <p>- a preempted speech stays at its place on its FIFO (the head, as it was the oldest there), so it's spoken again
+ * right after the higher priority ones;</p>
+ * <p>- inside the same priority, speeches using the audio stream in use are served first, so the volume and audio focus
+ * don't have to be reset and set again between them.</p>
+ * <p>Adding a speech is lock-free. Getting and removing speeches is meant to be done by the {@link Speech2} threads.</p>
+ * <p>It also measures, for each priority, how long the speeches waited on the queue until being sent to the TTS and
+ * until the TTS started speaking them, and how many times they were preempted, and logs that periodically.</p>
+ */
+final class SpeechScheduler {
+
+	/** All the priorities, from the lowest to the highest. */
+	private static final int[] PRIORITIES = {
+			Speech2.PRIORITY_LOW,
+			Speech2.PRIORITY_MEDIUM,
+			Speech2.PRIORITY_USER_ACTION,
+			Speech2.PRIORITY_HIGH,
+			Speech2.PRIORITY_CRITICAL,
+	};
+	/** Number of priority levels. */
+	static final int NUM_LEVELS = PRIORITIES.length;
+	/** Minimum time between two logs of the statistics. */
+	private static final long STATS_LOG_INTERVAL_MS = 10L * 60_000L;
+
+	/** A scheduled speech. */
+	private static final class Entry {
+		@NonNull final String speech_id;
+		final int level;
+		final int audio_stream;
+		/** {@link System#nanoTime()} of when the speech was added. */
+		final long added_ns;
+		/** If the speech was already sent to the TTS once (the queue wait was already measured). */
+		volatile boolean dispatched = false;
+		/** If the TTS already started speaking the speech once (the time to the first audio was already measured). */
+		volatile boolean started = false;
+
+		Entry(@NonNull final String speech_id, final int level, final int audio_stream) {
+			this.speech_id = speech_id;
+			this.level = level;
+			this.audio_stream = audio_stream;
+
+			added_ns = System.nanoTime();
+		}
+	}
+
+	/** One FIFO per priority level. */
+	private final ConcurrentLinkedQueue<Entry>[] queues;
+	/** The speeches on the queues by ID. */
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>(16);
+
+	/** Per level: number of speeches sent to the TTS. */
+	private final AtomicLongArray num_dispatched = new AtomicLongArray(NUM_LEVELS);
+	/** Per level: sum of the times between adding a speech and sending it to the TTS for the first time. */
+	private final AtomicLongArray total_wait_ns = new AtomicLongArray(NUM_LEVELS);
+	/** Per level: maximum of the times of {@link #total_wait_ns}. */
+	private final AtomicLongArray max_wait_ns = new AtomicLongArray(NUM_LEVELS);
+	/** Per level: number of speeches the TTS started speaking. */
+	private final AtomicLongArray num_started = new AtomicLongArray(NUM_LEVELS);
+	/** Per level: sum of the times between adding a speech and the TTS starting to speak it for the first time. */
+	private final AtomicLongArray total_first_audio_ns = new AtomicLongArray(NUM_LEVELS);
+	/** Per level: maximum of the times of {@link #total_first_audio_ns}. */
+	private final AtomicLongArray max_first_audio_ns = new AtomicLongArray(NUM_LEVELS);
+	/** Per level: number of times a speech was preempted. */
+	private final AtomicLongArray num_preemptions = new AtomicLongArray(NUM_LEVELS);
+	/** {@link System#currentTimeMillis()} of the last log of the statistics. */
+	private volatile long last_stats_log_ms = System.currentTimeMillis();
+
+	/**
+	 * <p>Main class constructor.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	SpeechScheduler() {
+		queues = new ConcurrentLinkedQueue[NUM_LEVELS];
+		for (int i = 0; i < NUM_LEVELS; ++i) {
+			queues[i] = new ConcurrentLinkedQueue<>();
+		}
+	}
+
+	/**
+	 * <p>Adds a speech to the end of the FIFO of its priority. Does nothing if the speech is already scheduled.</p>
+	 *
+	 * @param speech_id the ID of the speech
+	 * @param priority the priority of the speech (one of the {@code PRIORITY_} constants of {@link Speech2})
+	 * @param audio_stream the audio stream the speech will be spoken on
+	 */
+	void add(@NonNull final String speech_id, final int priority, final int audio_stream) {
+		final Entry entry = new Entry(speech_id, getLevel(priority), audio_stream);
+		if (entries.putIfAbsent(speech_id, entry) == null) {
+			queues[entry.level].offer(entry);
+		}
+	}
+
+	/**
+	 * <p>Removes a speech from the queues.</p>
+	 *
+	 * @param speech_id the ID of the speech
+	 */
+	void remove(@NonNull final String speech_id) {
+		final Entry entry = entries.remove(speech_id);
+		if (entry != null) {
+			queues[entry.level].remove(entry);
+		}
+	}
+
+	/**
+	 * <p>Removes all speeches from the queues. The measurements are kept.</p>
+	 */
+	void clear() {
+		entries.clear();
+		for (final ConcurrentLinkedQueue<Entry> queue : queues) {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * <p>Gets the speech to be spoken next, without removing it from the queues.</p>
+	 *
+	 * @param preferred_audio_stream the audio stream in use, or any other value (like
+	 * {@link VolumeDndState#DEFAULT_VALUE}) if none is
+	 *
+	 * @return the ID of the speech, or null if there are no speeches
+	 */
+	@Nullable
+	String peekNext(final int preferred_audio_stream) {
+		for (int level = NUM_LEVELS - 1; level >= 0; --level) {
+			Entry first = null;
+			for (final Entry entry : queues[level]) {
+				if (first == null) {
+					first = entry;
+				}
+				if (entry.audio_stream == preferred_audio_stream) {
+					return entry.speech_id;
+				}
+			}
+			if (first != null) {
+				return first.speech_id;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * <p>Checks if a new speech should preempt the current one.</p>
+	 *
+	 * @param priority the priority of the new speech
+	 * @param current_speech_id the ID of the speech being spoken
+	 *
+	 * @return true if the current speech is scheduled and has a lower priority than the given one, false otherwise
+	 */
+	boolean shouldPreempt(final int priority, @NonNull final String current_speech_id) {
+		final Entry current = entries.get(current_speech_id);
+
+		return current != null && getLevel(priority) > current.level;
+	}
+
+	/**
+	 * <p>Call when a speech is sent to the TTS.</p>
+	 *
+	 * @param speech_id the ID of the speech
+	 */
+	void onDispatched(@NonNull final String speech_id) {
+		final Entry entry = entries.get(speech_id);
+		if (entry == null || entry.dispatched) {
+			return;
+		}
+		entry.dispatched = true;
+
+		final long wait_ns = System.nanoTime() - entry.added_ns;
+		num_dispatched.incrementAndGet(entry.level);
+		total_wait_ns.addAndGet(entry.level, wait_ns);
+		updateMax(max_wait_ns, entry.level, wait_ns);
+	}
+
+	/**
+	 * <p>Call when the TTS starts speaking a speech.</p>
+	 *
+	 * @param speech_id the ID of the speech
+	 */
+	void onStarted(@NonNull final String speech_id) {
+		final Entry entry = entries.get(speech_id);
+		if (entry == null || entry.started) {
+			return;
+		}
+		entry.started = true;
+
+		final long first_audio_ns = System.nanoTime() - entry.added_ns;
+		num_started.incrementAndGet(entry.level);
+		total_first_audio_ns.addAndGet(entry.level, first_audio_ns);
+		updateMax(max_first_audio_ns, entry.level, first_audio_ns);
+	}
+
+	/**
+	 * <p>Call when a speech is stopped to give place to a higher priority one. It stays on the queues to be spoken
+	 * again.</p>
+	 *
+	 * @param speech_id the ID of the speech
+	 */
+	void onPreempted(@NonNull final String speech_id) {
+		final Entry entry = entries.get(speech_id);
+		if (entry != null) {
+			num_preemptions.incrementAndGet(entry.level);
+		}
+	}
+
+	/**
+	 * <p>Gets the number of speeches on the queues.</p>
+	 *
+	 * @return the number of speeches
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * <p>Gets the mean time the speeches of the given priority waited until being sent to the TTS.</p>
+	 *
+	 * @param priority one of the {@code PRIORITY_} constants of {@link Speech2}
+	 *
+	 * @return the time in milliseconds, or 0 if no speech of the priority was sent yet
+	 */
+	long getMeanQueueWaitMs(final int priority) {
+		final int level = getLevel(priority);
+
+		return getMeanMs(total_wait_ns.get(level), num_dispatched.get(level));
+	}
+
+	/**
+	 * <p>Same as {@link #getMeanQueueWaitMs(int)} but the maximum.</p>
+	 */
+	long getMaxQueueWaitMs(final int priority) {
+		return max_wait_ns.get(getLevel(priority)) / 1_000_000;
+	}
+
+	/**
+	 * <p>Gets the mean time between adding the speeches of the given priority and the TTS starting to speak them.</p>
+	 *
+	 * @param priority one of the {@code PRIORITY_} constants of {@link Speech2}
+	 *
+	 * @return the time in milliseconds, or 0 if no speech of the priority was spoken yet
+	 */
+	long getMeanTimeToFirstAudioMs(final int priority) {
+		final int level = getLevel(priority);
+
+		return getMeanMs(total_first_audio_ns.get(level), num_started.get(level));
+	}
+
+	/**
+	 * <p>Same as {@link #getMeanTimeToFirstAudioMs(int)} but the maximum.</p>
+	 */
+	long getMaxTimeToFirstAudioMs(final int priority) {
+		return max_first_audio_ns.get(getLevel(priority)) / 1_000_000;
+	}
+
+	/**
+	 * <p>Gets the number of times speeches of the given priority were preempted by higher priority ones.</p>
+	 *
+	 * @param priority one of the {@code PRIORITY_} constants of {@link Speech2}
+	 *
+	 * @return the number of preemptions
+	 */
+	long getNumPreemptions(final int priority) {
+		return num_preemptions.get(getLevel(priority));
+	}
+
+	/**
+	 * <p>Logs the statistics of each priority that had speeches sent to the TTS, if at least
+	 * {@link #STATS_LOG_INTERVAL_MS} passed since the last log. The values are the totals since the scheduler was
+	 * created.</p>
+	 */
+	void logStatsIfDue() {
+		final long curr_time_ms = System.currentTimeMillis();
+		if (curr_time_ms - last_stats_log_ms < STATS_LOG_INTERVAL_MS) {
+			return;
+		}
+		last_stats_log_ms = curr_time_ms;
+
+		final StringBuilder stats = new StringBuilder(256);
+		stats.append("SpeechScheduler -");
+		for (final int priority : PRIORITIES) {
+			final int level = getLevel(priority);
+			if (num_dispatched.get(level) == 0) {
+				continue;
+			}
+			stats.append(" priority ").append(priority).append(": ").append(num_dispatched.get(level))
+					.append(" dispatched, queue wait mean ").append(getMeanQueueWaitMs(priority)).append(" ms max ")
+					.append(getMaxQueueWaitMs(priority)).append(" ms, first audio mean ")
+					.append(getMeanTimeToFirstAudioMs(priority)).append(" ms max ")
+					.append(getMaxTimeToFirstAudioMs(priority)).append(" ms, ").append(getNumPreemptions(priority))
+					.append(" preemptions;");
+		}
+		if (stats.length() > "SpeechScheduler -".length()) {
+			UtilsLogging.logLnInfo(stats);
+		}
+	}
+
+	/**
+	 * <p>Gets the level of a priority on {@link #PRIORITIES}. Unknown priorities are treated as the lowest one.</p>
+	 *
+	 * @param priority the priority
+	 *
+	 * @return the level
+	 */
+	private static int getLevel(final int priority) {
+		for (int i = NUM_LEVELS - 1; i > 0; --i) {
+			if (PRIORITIES[i] == priority) {
+				return i;
+			}
+		}
+
+		return 0;
+	}
+
+	private static long getMeanMs(final long total_ns, final long count) {
+		return count == 0 ? 0 : total_ns / count / 1_000_000;
+	}
+
+	private static void updateMax(@NonNull final AtomicLongArray array, final int idx, final long value) {
+		long curr_max = array.get(idx);
+		while (value > curr_max && !array.compareAndSet(idx, curr_max, value)) {
+			curr_max = array.get(idx);
+		}
+	}
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.Speech;
+
+import android.content.ContentResolver;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.Settings;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.Voice;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * <p>On-disk cache of synthesized phrases, so that phrases spoken over and over (like "Flashlight turned on.") start
+ * playing right away instead of being synthesized every time.</p>
+ * <p>A phrase is synthesized to a file with {@link TextToSpeech#synthesizeToFile(CharSequence, Bundle, File, String)}
+ * when it's requested for the {@link #MIN_REPETITIONS}th time, at a moment the TTS has nothing to speak. The synthesis
+ * goes to the same queue as the speeches, so it's canceled with {@link #cancelSynthesis(TextToSpeech)} as soon as a
+ * speech is to be spoken (and retried later), and only files the engine finished writing are kept. The file is then
+ * registered on the TTS with {@link TextToSpeech#addSpeech(CharSequence, File)}, so from then on
+ * {@link TextToSpeech#speak(CharSequence, int, Bundle, String)} plays the file - with the same callbacks as a live
+ * speech, and falling back to the live synthesis if the phrase is not cached.</p>
+ * <p>The files are keyed by the text and a signature of the voice (engine, voice and speech rate and pitch). As the
+ * TTS has no way of unregistering a file, the size bound ({@link #MAX_CACHE_BYTES}) is enforced when the TTS instance
+ * is (re)created with {@link #registerAll(TextToSpeech)} - the least recently used files, and the ones of other
+ * voices, are deleted there. Until then no new phrases are cached once the bound is reached.</p>
+ * <p>Only available from Lollipop onwards.</p>
+ * <p>This class is thread-safe.</p>
+ */
+final class TtsPhraseCache {
+
+	/** Prefix of the utterance IDs of the synthesis requests of the cache. */
+	private static final String UTTERANCE_PREFIX = "TtsPhraseCache_";
+	private static final String AUDIO_EXT = ".wav";
+	private static final String TEXT_EXT = ".txt";
+	private static final String TEMP_EXT = ".tmp";
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+	/** Size of the header of the WAV files written by the engines. */
+	private static final int WAV_HEADER_LENGTH = 44;
+
+	/** Maximum size of the audio files. */
+	static final long MAX_CACHE_BYTES = 16L * 1024 * 1024;
+	/** Longer phrases are not cached (they're rarely repeated exactly and would take much space). */
+	static final int MAX_PHRASE_LENGTH = 200;
+	/** Number of times a phrase must be requested to be cached. */
+	static final int MIN_REPETITIONS = 2;
+	/** Maximum number of phrases whose repetitions are counted. */
+	private static final int MAX_COUNTED_PHRASES = 256;
+
+	@NonNull private final File cache_dir;
+
+	/** Signature of the voice of the TTS instance the files are registered on. */
+	@NonNull private String signature = "";
+	/** Texts registered on the TTS instance. */
+	private final Set<String> registered_texts = new HashSet<>(32);
+	/** Size of the audio files of {@link #signature}. */
+	private long cache_bytes = 0;
+	/** Number of times each uncached phrase was requested, in insertion order to drop the oldest. */
+	private final Map<String, Integer> repetitions = new HashMap<>(32);
+	private final Queue<String> repetitions_order = new ArrayDeque<>(32);
+	/** Phrases waiting to be synthesized. */
+	private final Set<String> pending_texts = new LinkedHashSet<>(8);
+	/** The text being synthesized, or null if none is. */
+	@Nullable private String synthesizing_text = null;
+	/** The utterance ID of the synthesis of {@link #synthesizing_text}. */
+	@NonNull private String synthesizing_id = "";
+	/** Number of synthesis requests made, to give each one a unique utterance ID (and temporary file). */
+	private long num_syntheses = 0;
+
+	private long num_hits = 0;
+	private long num_misses = 0;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 */
+	TtsPhraseCache() {
+		cache_dir = new File(UtilsContext.getContext().getCacheDir(), "tts_phrases");
+	}
+
+	/**
+	 * <p>Checks if an utterance ID is of a synthesis request of the cache - its callbacks must be given to
+	 * {@link #onSynthesisDone(TextToSpeech, String, boolean)} only (all of them, including onStop()).</p>
+	 *
+	 * @param utterance_id the utterance ID
+	 *
+	 * @return true if it's of the cache, false otherwise
+	 */
+	static boolean isCacheUtterance(@Nullable final String utterance_id) {
+		return utterance_id != null && utterance_id.startsWith(UTTERANCE_PREFIX);
+	}
+
+	/**
+	 * <p>Gets the signature of the voice the TTS instance is using.</p>
+	 *
+	 * @param tts the TTS instance
+	 *
+	 * @return the signature
+	 */
+	@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+	@NonNull
+	static String getVoiceSignature(@NonNull final TextToSpeech tts) {
+		String voice_name = "";
+		try {
+			final Voice voice = tts.getVoice();
+			if (voice != null) {
+				voice_name = voice.getName();
+			}
+		} catch (final Exception ignored) {
+			// Same as on Speech2.checkReloadTts().
+		}
+		final ContentResolver resolver = UtilsContext.getContext().getContentResolver();
+
+		return tts.getCurrentEngine() + '|' + voice_name + '|' +
+				Settings.Secure.getInt(resolver, Settings.Secure.TTS_DEFAULT_RATE, 100) + '|' +
+				Settings.Secure.getInt(resolver, Settings.Secure.TTS_DEFAULT_PITCH, 100);
+	}
+
+	/**
+	 * <p>Checks if the voice changed since the last {@link #registerAll(TextToSpeech)} - in which case the TTS instance
+	 * must be recreated, since the registered files are of the old voice.</p>
+	 *
+	 * @param tts the TTS instance
+	 *
+	 * @return true if the voice changed, false otherwise
+	 */
+	@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+	synchronized boolean voiceChanged(@NonNull final TextToSpeech tts) {
+		return !signature.isEmpty() && !signature.equals(getVoiceSignature(tts));
+	}
+
+	/**
+	 * <p>Registers the cached files of the voice of a new TTS instance on it, after deleting the files of other voices
+	 * and the least recently used ones over the size bound.</p>
+	 *
+	 * @param tts the new TTS instance, already initialized
+	 */
+	@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+	synchronized void registerAll(@NonNull final TextToSpeech tts) {
+		signature = getVoiceSignature(tts);
+		registered_texts.clear();
+		pending_texts.clear();
+		synthesizing_text = null;
+		synthesizing_id = "";
+		cache_bytes = 0;
+
+		final File[] files = cache_dir.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		final List<File> audio_files = new ArrayList<>(files.length);
+		for (final File file : files) {
+			if (file.getName().endsWith(AUDIO_EXT)) {
+				audio_files.add(file);
+			} else if (file.getName().endsWith(TEMP_EXT)) {
+				// Interrupted synthesis.
+				file.delete();
+			}
+		}
+		// Most recently used first.
+		final File[] sorted_files = audio_files.toArray(new File[0]);
+		Arrays.sort(sorted_files, new Comparator<File>() {
+			@Override
+			public int compare(final File file1, final File file2) {
+				final long time1 = file1.lastModified();
+				final long time2 = file2.lastModified();
+
+				return time1 > time2 ? -1 : (time1 == time2 ? 0 : 1);
+			}
+		});
+
+		for (final File audio_file : sorted_files) {
+			final File text_file = getTextFile(audio_file);
+			final String[] sig_text = readTextFile(text_file);
+			if (sig_text == null || !signature.equals(sig_text[0]) ||
+					cache_bytes + audio_file.length() > MAX_CACHE_BYTES) {
+				audio_file.delete();
+				text_file.delete();
+
+				continue;
+			}
+
+			cache_bytes += audio_file.length();
+			registered_texts.add(sig_text[1]);
+			tts.addSpeech(sig_text[1], audio_file);
+		}
+	}
+
+	/**
+	 * <p>Call right before a phrase is sent to the TTS to be spoken. Counts the hits and misses and, if the phrase is
+	 * not cached but repeated enough, schedules it to be synthesized by {@link #synthesizePending(TextToSpeech)}.</p>
+	 *
+	 * @param text the phrase
+	 */
+	synchronized void onSpeak(@NonNull final String text) {
+		if (registered_texts.contains(text)) {
+			++num_hits;
+			// Mark it as recently used.
+			new File(cache_dir, getKey(text) + AUDIO_EXT).setLastModified(System.currentTimeMillis());
+
+			return;
+		}
+
+		++num_misses;
+		if (text.length() > MAX_PHRASE_LENGTH || signature.isEmpty() || cache_bytes >= MAX_CACHE_BYTES) {
+			return;
+		}
+
+		final Integer count = repetitions.get(text);
+		final int new_count = count == null ? 1 : count + 1;
+		if (new_count >= MIN_REPETITIONS) {
+			repetitions.remove(text);
+			pending_texts.add(text);
+
+			return;
+		}
+
+		if (count == null) {
+			if (repetitions_order.size() >= MAX_COUNTED_PHRASES) {
+				repetitions.remove(repetitions_order.poll());
+			}
+			repetitions_order.add(text);
+		}
+		repetitions.put(text, new_count);
+	}
+
+	/**
+	 * <p>Synthesizes the next phrase waiting to be cached, if there's any and no other is being synthesized.</p>
+	 * <p>Call only when the TTS has nothing to speak and is not speaking, as the synthesis goes to the TTS queue.</p>
+	 *
+	 * @param tts the TTS instance
+	 */
+	@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+	synchronized void synthesizePending(@NonNull final TextToSpeech tts) {
+		if (synthesizing_text != null || pending_texts.isEmpty() || cache_bytes >= MAX_CACHE_BYTES) {
+			return;
+		}
+
+		final String text = pending_texts.iterator().next();
+		pending_texts.remove(text);
+		if (!cache_dir.isDirectory() && !cache_dir.mkdirs()) {
+			return;
+		}
+
+		++num_syntheses;
+		final String utterance_id = UTTERANCE_PREFIX + getKey(text) + '_' + num_syntheses;
+		if (tts.synthesizeToFile(text, null, getTempFile(utterance_id), utterance_id) == TextToSpeech.SUCCESS) {
+			synthesizing_text = text;
+			synthesizing_id = utterance_id;
+		}
+	}
+
+	/**
+	 * <p>Cancels the synthesis taking place, if any, so that a speech about to be sent to the TTS doesn't wait for it.
+	 * The phrase is synthesized again later.</p>
+	 * <p>Call only when the TTS is not speaking, as {@link TextToSpeech#stop()} is used.</p>
+	 *
+	 * @param tts the TTS instance
+	 */
+	@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+	synchronized void cancelSynthesis(@NonNull final TextToSpeech tts) {
+		final String text = synthesizing_text;
+		if (text == null) {
+			return;
+		}
+
+		// Cleared before stopping so that the callback of the stopped request (if there's any - and it may even be
+		// onDone() with a truncated file) is ignored.
+		synthesizing_text = null;
+		tts.stop();
+		getTempFile(synthesizing_id).delete();
+		pending_texts.add(text);
+	}
+
+	/**
+	 * <p>Call when the TTS finishes a synthesis request of the cache, successfully or not (onDone(), onError() or
+	 * onStop()). Registers the new file on the TTS if the synthesis was complete, or deletes it otherwise.</p>
+	 *
+	 * @param tts the TTS instance
+	 * @param utterance_id the utterance ID of the request
+	 * @param success true if the synthesis finished successfully, false if there was an error or it was stopped
+	 */
+	@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+	synchronized void onSynthesisDone(@NonNull final TextToSpeech tts, @NonNull final String utterance_id,
+									  final boolean success) {
+		final File temp_file = getTempFile(utterance_id);
+		final String text = synthesizing_text;
+		if (text == null || !utterance_id.equals(synthesizing_id)) {
+			// Canceled request or request of a previous TTS instance.
+			temp_file.delete();
+
+			return;
+		}
+		synthesizing_text = null;
+
+		final File audio_file = new File(cache_dir, getKey(text) + AUDIO_EXT);
+		if (success && isCompleteWav(temp_file) && writeTextFile(getTextFile(audio_file), text) &&
+				temp_file.renameTo(audio_file)) {
+			cache_bytes += audio_file.length();
+			registered_texts.add(text);
+			tts.addSpeech(text, audio_file);
+		} else {
+			temp_file.delete();
+		}
+	}
+
+	/**
+	 * <p>Gets the number of phrases spoken from the cache.</p>
+	 *
+	 * @return the number of hits
+	 */
+	synchronized long getNumHits() {
+		return num_hits;
+	}
+
+	/**
+	 * <p>Gets the number of phrases synthesized live because they were not on the cache.</p>
+	 *
+	 * @return the number of misses
+	 */
+	synchronized long getNumMisses() {
+		return num_misses;
+	}
+
+	/**
+	 * <p>Gets the size of the cached audio files of the current voice.</p>
+	 *
+	 * @return the size in bytes
+	 */
+	synchronized long getCacheBytes() {
+		return cache_bytes;
+	}
+
+	@NonNull
+	private String getKey(@NonNull final String text) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(signature.getBytes(CHARSET));
+			digest.update((byte) '\n');
+			final byte[] hash = digest.digest(text.getBytes(CHARSET));
+
+			final StringBuilder key = new StringBuilder(hash.length * 2);
+			for (final byte b : hash) {
+				key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+
+			return key.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			// SHA-1 is always available on Android.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@NonNull
+	private File getTempFile(@NonNull final String utterance_id) {
+		return new File(cache_dir, utterance_id.substring(UTTERANCE_PREFIX.length()) + TEMP_EXT);
+	}
+
+	/**
+	 * <p>Checks if a WAV file was completely written - the RIFF header is only filled in by the engine when the
+	 * synthesis finishes, with the size of the file, so a synthesis interrupted in the middle leaves it empty or with a
+	 * wrong size.</p>
+	 *
+	 * @param file the file
+	 *
+	 * @return true if the file is a complete WAV file, false otherwise
+	 */
+	private static boolean isCompleteWav(@NonNull final File file) {
+		final long length = file.length();
+		if (length <= WAV_HEADER_LENGTH) {
+			return false;
+		}
+
+		final byte[] header = new byte[12];
+		try {
+			final FileInputStream input = new FileInputStream(file);
+			try {
+				if (input.read(header) != header.length) {
+					return false;
+				}
+			} finally {
+				input.close();
+			}
+		} catch (final IOException ignored) {
+			return false;
+		}
+
+		final long riff_size = (header[4] & 0xFFL) | ((header[5] & 0xFFL) << 8) | ((header[6] & 0xFFL) << 16) |
+				((header[7] & 0xFFL) << 24);
+
+		return header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F' &&
+				header[8] == 'W' && header[9] == 'A' && header[10] == 'V' && header[11] == 'E' &&
+				riff_size + 8 == length;
+	}
+
+	@NonNull
+	private static File getTextFile(@NonNull final File audio_file) {
+		final String name = audio_file.getName();
+
+		return new File(audio_file.getParentFile(), name.substring(0, name.length() - AUDIO_EXT.length()) + TEXT_EXT);
+	}
+
+	/**
+	 * <p>Reads the file with the voice signature (1st line) and the text (the rest) of a cached phrase.</p>
+	 *
+	 * @return the signature and the text, or null if the file could not be read
+	 */
+	@Nullable
+	private static String[] readTextFile(@NonNull final File text_file) {
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(text_file),
+					CHARSET));
+			try {
+				final String file_signature = reader.readLine();
+				final StringBuilder text = new StringBuilder(64);
+				final char[] buffer = new char[256];
+				int nread;
+				while ((nread = reader.read(buffer)) != -1) {
+					text.append(buffer, 0, nread);
+				}
+				if (file_signature == null) {
+					return null;
+				}
+
+				return new String[]{file_signature, text.toString()};
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException ignored) {
+			return null;
+		}
+	}
+
+	private boolean writeTextFile(@NonNull final File text_file, @NonNull final String text) {
+		try {
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(text_file), CHARSET);
+			try {
+				writer.write(signature);
+				writer.write('\n');
+				writer.write(text);
+			} finally {
+				writer.close();
+			}
+
+			return true;
+		} catch (final IOException ignored) {
+			text_file.delete();
+
+			return false;
+		}
+	}
+}
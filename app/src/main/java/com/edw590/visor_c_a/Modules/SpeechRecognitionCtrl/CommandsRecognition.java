@@ -74,8 +74,7 @@ import java.util.Map;
 public final class CommandsRecognition extends Service implements IModuleSrv {
 
 	private final int element_index = ModulesList.getElementIndex(this.getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String) ModulesList.getElementValue(element_index,
-			ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private Handler main_handler;
 
 	@Nullable SpeechRecognizer recognizer = null;
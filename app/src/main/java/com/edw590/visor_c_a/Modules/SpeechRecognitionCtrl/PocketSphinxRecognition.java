@@ -44,6 +44,7 @@ import java.io.IOException;
 import edu.cmu.pocketsphinx.Hypothesis;
 import edu.cmu.pocketsphinx.RecognitionListener;
 import edu.cmu.pocketsphinx1.Assets;
+import edu.cmu.pocketsphinx1.DecoderHolder;
 import edu.cmu.pocketsphinx1.SpeechRecognizer;
 import edu.cmu.pocketsphinx1.SpeechRecognizerSetup;
 
@@ -55,11 +56,16 @@ public final class PocketSphinxRecognition implements IModuleInst {
 
 	private final int element_index = ModulesList.getElementIndex(PocketSphinxRecognition.class);
 	private final HandlerThread main_handlerThread =
-			new HandlerThread((String) ModulesList.getElementValue(element_index, ModulesList.ELEMENT_NAME));
+			new HandlerThread(ModulesList.getElementName(element_index));
 	final Handler main_handler;
 
 	boolean preparing = false;
 	static SpeechRecognizer recognizer = null;
+	/** Keeps the decoder loaded across recognizers (and module restarts), so that restarting the recognizer only
+	 * creates a new audio recorder instead of loading the acoustic model and dictionary again. */
+	static final DecoderHolder decoder_holder = new DecoderHolder("hotword");
+	/** The directory with the synchronized assets, or null if they were not synchronized yet on this process. */
+	@Nullable static File assets_dir = null;
 	//@Nullable static SpeechRecognizerSetup speechRecognizerSetup = null;
 
 	private static final String KEYWORD_WAKEUP = "WAKEUP";
@@ -84,6 +90,10 @@ public final class PocketSphinxRecognition implements IModuleInst {
 		UtilsGeneral.quitHandlerThread(main_handlerThread);
 
 		shutdownRecognizer();
+		// Keep the decoder loaded for the module restart unless memory is needed somewhere else.
+		if (UtilsGeneral.isDeviceLowOnMemory()) {
+			decoder_holder.release();
+		}
 
 		is_module_destroyed = true;
 	}
@@ -124,9 +134,11 @@ public final class PocketSphinxRecognition implements IModuleInst {
 
 		preparing = true;
 
-		final File assetsDir;
 		try {
-			assetsDir = new Assets(UtilsContext.getContext()).syncAssets();
+			if (assets_dir == null || !decoder_holder.isLoaded()) {
+				assets_dir = new Assets(UtilsContext.getContext()).syncAssets();
+			}
+			final File assetsDir = assets_dir;
 
 			// The recognizer can be configured to perform multiple searches
 			// of different kind and switch between them
@@ -142,15 +154,17 @@ public final class PocketSphinxRecognition implements IModuleInst {
 					.setSampleRate(16000) // As per the used files (not the "8k" option, so they're the default 16 kHz)
 					//.setString("-logfn","/dev/null") - doesn't work on Android... Supposedly turns off logging, but a
 					// "Cannot redirect log output" error appears instead.
+					// Small frames so the hotword is detected sooner after it's spoken.
+					.setLowLatencyMode(true)
 
 					// There's an exception here, but this module is only started if there's permission to capture
 					// audio, so this won't throw errors.
-					.getRecognizer(main_handler);
+					.getRecognizer(main_handler, decoder_holder);
 
 			recognizer.addListener(recognitionListener);
 
 			// Create keyword-activation search.
-			recognizer.addKeywordSearch(KEYWORD_WAKEUP, new File(assetsDir, "visor_keywords.gram"));
+			decoder_holder.addKeywordSearch(recognizer, KEYWORD_WAKEUP, new File(assetsDir, "visor_keywords.gram"));
 			//recognizer.addNgramSearch(NGRAM_SEARCH, new File(assetsDir, "en-70k-0.2.lm.bin"));
 		} catch (final IOException e) {
 			e.printStackTrace();
@@ -165,12 +179,16 @@ public final class PocketSphinxRecognition implements IModuleInst {
 
 	/**
 	 * <p>Shuts down the recognizer instance and a call to {@link #prepareRecognizer()} will be needed again.</p>
+	 * <p>The decoder is kept loaded on {@link #decoder_holder}, unless the recognizer didn't stop in time and is still
+	 * using it.</p>
 	 */
 	private static void shutdownRecognizer() {
 		is_listening = false;
 
 		if (recognizer != null) {
-			recognizer.shutdown();
+			if (!recognizer.shutdown()) {
+				decoder_holder.abandon();
+			}
 			recognizer = null;
 		}
 	}
@@ -38,6 +38,7 @@ import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.ModulesList;
 import com.edw590.visor_c_a.Registry.RegistryKeys;
 import com.edw590.visor_c_a.Registry.UtilsRegistry;
@@ -66,8 +67,7 @@ public final class SpeechRecognitionCtrl implements IModuleInst {
 	long wait_time = DEFAULT_WAIT_TIME;
 
 	private final int element_index = ModulesList.getElementIndex(this.getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String) ModulesList.getElementValue(element_index,
-			ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private final Handler main_handler;
 
 	///////////////////////////////////////////////////////////////
@@ -117,6 +117,7 @@ public final class SpeechRecognitionCtrl implements IModuleInst {
 	 */
 	public SpeechRecognitionCtrl() {
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, SpeechRecognitionCtrl.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
 		try {
@@ -134,6 +135,7 @@ public final class SpeechRecognitionCtrl implements IModuleInst {
 		}
 
 		infinity_thread.start();
+		ModulesSupervisor.superviseThread(infinity_thread, SpeechRecognitionCtrl.class);
 	}
 
 	private final Thread infinity_thread = new Thread(new Runnable() {
@@ -141,8 +143,8 @@ public final class SpeechRecognitionCtrl implements IModuleInst {
 		public void run() {
 			final int cmds_recog_module_index = ModulesList.getElementIndex(COMMANDS_RECOGNIZER);
 			while (true) {
-				//final PocketSphinxRecognition instance = (PocketSphinxRecognition) ModulesList.getElementValue(
-				//		pocket_sphinx_module_index, ModulesList.ELEMENT_INSTANCE);
+				//final PocketSphinxRecognition instance = (PocketSphinxRecognition) ModulesList.getElementInstance(
+				//		pocket_sphinx_module_index);
 				//if (instance != null) {
 				//	instance.prepareRecognizer();
 				//}
@@ -41,7 +41,6 @@ import com.edw590.visor_c_a.GlobalUtils.UtilsShell;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Locale;
 
 final class BluetoothChecker {
@@ -62,7 +61,8 @@ final class BluetoothChecker {
 
 	int attempts = 0;
 
-	static final List<ExtDevice> nearby_devices_bt = new ArrayList<>(64);
+	/** The nearby devices. A device missing from one discovery is only removed if it's still missing on the next. */
+	static final NeighborTable nearby_devices_bt = new NeighborTable(DISCOVER_BT_EACH_MS * 2);
 	final Collection<ExtDevice> found_devices = new ArrayList<>(64);
 
 	/**
@@ -123,6 +123,7 @@ final class BluetoothChecker {
 		} else {
 			waiting_time_ms = DISCOVER_BT_EACH_MS;
 		}
+		nearby_devices_bt.setMaxAge(waiting_time_ms * 2);
 	}
 
 	/**
@@ -143,8 +144,7 @@ final class BluetoothChecker {
 	void discoveryFinished() {
 		assert bluetooth_adapter != null; // Won't be null if the *adapter's* state changed...
 
-		nearby_devices_bt.clear();
-		nearby_devices_bt.addAll(found_devices);
+		nearby_devices_bt.update(found_devices, System.currentTimeMillis());
 
 		// Again, as soon as the discovery stops, reset the count. If it's not reset, the assistant will
 		// start the countdown as soon as the discovery started, and should be as soon as it finishes.
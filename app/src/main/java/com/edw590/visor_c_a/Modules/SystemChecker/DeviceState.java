@@ -0,0 +1,301 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.SystemChecker;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+import SCLink.SCLink;
+
+/**
+ * <p>The device information sent to the server, with per-field dirty tracking so it's only sent when something
+ * changed.</p>
+ * <p>The fields are split in 2: the urgent ones (states the server may act on right away, like the screen or the power
+ * being turned on) and the others (values that keep changing a bit, like the battery level or the RSSI of the nearby
+ * devices). A change to an urgent field is sent on the next {@link #send(long, long)}; the others are only sent once
+ * every uplink interval, all together. Nothing is sent while nothing changed, except for a full send every
+ * {@link #MAX_SEND_GAP_MS} to keep the server side fresh.</p>
+ * <p>The lists of nearby devices are only encoded again when their {@link NeighborTable.Snapshot#version} changes.</p>
+ * <p>Only to be used by one thread.</p>
+ */
+final class DeviceState {
+
+	static final int FIELD_LAST_TIME_USED = 1;
+	static final int FIELD_AIRPLANE_MODE = 1 << 1;
+	static final int FIELD_WIFI_ENABLED = 1 << 2;
+	static final int FIELD_BLUETOOTH_ENABLED = 1 << 3;
+	static final int FIELD_POWER_CONNECTED = 1 << 4;
+	static final int FIELD_BATTERY_LEVEL = 1 << 5;
+	static final int FIELD_SCREEN_ON = 1 << 6;
+	static final int FIELD_BRIGHTNESS = 1 << 7;
+	static final int FIELD_WIFI_NETWORKS = 1 << 8;
+	static final int FIELD_BLUETOOTH_DEVICES = 1 << 9;
+	static final int FIELD_SOUND_VOLUME = 1 << 10;
+	static final int FIELD_SOUND_MUTED = 1 << 11;
+
+	/** The fields sent as soon as they change. */
+	private static final int URGENT_FIELDS = FIELD_AIRPLANE_MODE | FIELD_WIFI_ENABLED | FIELD_BLUETOOTH_ENABLED |
+			FIELD_POWER_CONNECTED | FIELD_SCREEN_ON | FIELD_SOUND_MUTED;
+	/** Maximum time without sending, even if nothing changed. */
+	static final long MAX_SEND_GAP_MS = 60_000;
+
+	/**
+	 * <p>Where the state is sent to - the server through {@link SCLink}, except on host simulations.</p>
+	 */
+	interface Uplink {
+		/**
+		 * <p>Same as {@link SCLink#updateDeviceInfo}.</p>
+		 */
+		void updateDeviceInfo(long last_time_used, boolean airplane_mode, boolean wifi_enabled,
+							  boolean bluetooth_enabled, boolean power_connected, long battery_level, boolean screen_on,
+							  long brightness, @NonNull String wifi_networks, @NonNull String bluetooth_devices,
+							  long sound_volume, boolean sound_muted);
+	}
+
+	@NonNull private final Uplink uplink;
+
+	private long last_time_used = 0;
+	private boolean airplane_mode = false;
+	private boolean wifi_enabled = false;
+	private boolean bluetooth_enabled = false;
+	private boolean power_connected = false;
+	private int battery_level = 0;
+	private boolean screen_on = false;
+	private int brightness = 0;
+	@NonNull private String wifi_networks = "";
+	private long wifi_networks_version = -1;
+	@NonNull private String bluetooth_devices = "";
+	private long bluetooth_devices_version = -1;
+	private int sound_volume = 0;
+	private boolean sound_muted = false;
+
+	/** The fields changed since the last send. */
+	private int dirty_fields = 0;
+	/** Milliseconds at the last send, or 0 if nothing was sent yet. */
+	private long last_send_ms = 0;
+
+	/**
+	 * <p>Main class constructor - sends the state to the server.</p>
+	 */
+	DeviceState() {
+		// Not a method reference, so SCLink (native) is only loaded when something is actually sent.
+		this(new Uplink() {
+			@Override
+			public void updateDeviceInfo(final long last_time_used, final boolean airplane_mode,
+										 final boolean wifi_enabled, final boolean bluetooth_enabled,
+										 final boolean power_connected, final long battery_level,
+										 final boolean screen_on, final long brightness,
+										 @NonNull final String wifi_networks, @NonNull final String bluetooth_devices,
+										 final long sound_volume, final boolean sound_muted) {
+				SCLink.updateDeviceInfo(last_time_used, airplane_mode, wifi_enabled, bluetooth_enabled,
+						power_connected, battery_level, screen_on, brightness, wifi_networks, bluetooth_devices,
+						sound_volume, sound_muted);
+			}
+		});
+	}
+
+	/**
+	 * <p>Constructor for the host simulations.</p>
+	 *
+	 * @param uplink where to send the state to
+	 */
+	DeviceState(@NonNull final Uplink uplink) {
+		this.uplink = uplink;
+	}
+
+	void setLastTimeUsed(final long value) {
+		if (value != last_time_used) {
+			last_time_used = value;
+			dirty_fields |= FIELD_LAST_TIME_USED;
+		}
+	}
+
+	void setAirplaneMode(final boolean value) {
+		if (value != airplane_mode) {
+			airplane_mode = value;
+			dirty_fields |= FIELD_AIRPLANE_MODE;
+		}
+	}
+
+	void setWifiEnabled(final boolean value) {
+		if (value != wifi_enabled) {
+			wifi_enabled = value;
+			dirty_fields |= FIELD_WIFI_ENABLED;
+		}
+	}
+
+	void setBluetoothEnabled(final boolean value) {
+		if (value != bluetooth_enabled) {
+			bluetooth_enabled = value;
+			dirty_fields |= FIELD_BLUETOOTH_ENABLED;
+		}
+	}
+
+	void setPowerConnected(final boolean value) {
+		if (value != power_connected) {
+			power_connected = value;
+			dirty_fields |= FIELD_POWER_CONNECTED;
+		}
+	}
+
+	void setBatteryLevel(final int value) {
+		if (value != battery_level) {
+			battery_level = value;
+			dirty_fields |= FIELD_BATTERY_LEVEL;
+		}
+	}
+
+	void setScreenOn(final boolean value) {
+		if (value != screen_on) {
+			screen_on = value;
+			dirty_fields |= FIELD_SCREEN_ON;
+		}
+	}
+
+	void setBrightness(final int value) {
+		if (value != brightness) {
+			brightness = value;
+			dirty_fields |= FIELD_BRIGHTNESS;
+		}
+	}
+
+	void setSoundVolume(final int value) {
+		if (value != sound_volume) {
+			sound_volume = value;
+			dirty_fields |= FIELD_SOUND_VOLUME;
+		}
+	}
+
+	void setSoundMuted(final boolean value) {
+		if (value != sound_muted) {
+			sound_muted = value;
+			dirty_fields |= FIELD_SOUND_MUTED;
+		}
+	}
+
+	/**
+	 * <p>Sets the nearby Wi-Fi networks.</p>
+	 *
+	 * @param snapshot the snapshot of the networks table
+	 */
+	void setWifiNetworks(@NonNull final NeighborTable.Snapshot snapshot) {
+		if (snapshot.version != wifi_networks_version) {
+			wifi_networks_version = snapshot.version;
+			wifi_networks = encode(snapshot.devices);
+			dirty_fields |= FIELD_WIFI_NETWORKS;
+		}
+	}
+
+	/**
+	 * <p>Sets the nearby Bluetooth devices.</p>
+	 *
+	 * @param snapshot the snapshot of the devices table
+	 */
+	void setBluetoothDevices(@NonNull final NeighborTable.Snapshot snapshot) {
+		if (snapshot.version != bluetooth_devices_version) {
+			bluetooth_devices_version = snapshot.version;
+			bluetooth_devices = encode(snapshot.devices);
+			dirty_fields |= FIELD_BLUETOOTH_DEVICES;
+		}
+	}
+
+	/**
+	 * <p>Checks if the state must be sent now.</p>
+	 *
+	 * @param now_ms the current milliseconds
+	 * @param batch_interval_ms the minimum time between sends of non-urgent changes
+	 *
+	 * @return true if it must be sent, false otherwise
+	 */
+	boolean shouldSend(final long now_ms, final long batch_interval_ms) {
+		if (last_send_ms == 0 || now_ms - last_send_ms >= MAX_SEND_GAP_MS) {
+			return true;
+		}
+		if ((dirty_fields & URGENT_FIELDS) != 0) {
+			return true;
+		}
+
+		return dirty_fields != 0 && now_ms - last_send_ms >= batch_interval_ms;
+	}
+
+	/**
+	 * <p>Sends the state to the {@link Uplink} if {@link #shouldSend(long, long)} says so.</p>
+	 * <p>The native function takes all the fields, so all are sent, but only when one changed.</p>
+	 *
+	 * @param now_ms the current milliseconds
+	 * @param batch_interval_ms the minimum time between sends of non-urgent changes
+	 *
+	 * @return true if the state was sent, false if it was skipped
+	 */
+	boolean send(final long now_ms, final long batch_interval_ms) {
+		if (!shouldSend(now_ms, batch_interval_ms)) {
+			return false;
+		}
+
+		uplink.updateDeviceInfo(
+				last_time_used,
+				airplane_mode,
+				wifi_enabled,
+				bluetooth_enabled,
+				power_connected,
+				battery_level,
+				screen_on,
+				brightness,
+				wifi_networks,
+				bluetooth_devices,
+				sound_volume,
+				sound_muted
+		);
+
+		// Everything was just sent, so the pending non-urgent changes went too.
+		last_send_ms = now_ms;
+		dirty_fields = 0;
+
+		return true;
+	}
+
+	/**
+	 * <p>Encodes a list of devices in the format {@link SCLink#updateDeviceInfo} wants: for each device, its name,
+	 * address and RSSI, each followed by U+0001, and then U+0000.</p>
+	 *
+	 * @param devices the devices
+	 *
+	 * @return the encoded list
+	 */
+	@NonNull
+	static String encode(@NonNull final List<ExtDevice> devices) {
+		final StringBuilder builder = new StringBuilder(devices.size() * 48);
+		for (final ExtDevice device : devices) {
+			if (device == null) {
+				continue;
+			}
+
+			builder.append(device.name).append('\u0001');
+			builder.append(device.address).append('\u0001');
+			builder.append(device.rssi).append('\u0001');
+			builder.append('\u0000');
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.SystemChecker;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Table of the nearby devices of one type, by address.</p>
+ * <p>The scans update the table, which keeps for each device the last time it was seen and its RSSI smoothed over the
+ * scans (so one bad reading doesn't make it jump). A device not seen for {@link #setMaxAge(long) max age} is removed -
+ * so one missed by a scan is kept until the next one.</p>
+ * <p>The readers get an immutable {@link Snapshot}, published atomically after each update: they never see a
+ * half-updated table and never have to retry.</p>
+ * <p>This class is thread-safe.</p>
+ */
+final class NeighborTable {
+
+	/** Weight of a new RSSI reading on the smoothed RSSI. */
+	private static final float RSSI_ALPHA = 0.5f;
+	/** RSSI value meaning it's unknown (as Bluetooth uses when there's no RSSI). */
+	static final int RSSI_UNKNOWN = Short.MAX_VALUE;
+
+	/**
+	 * <p>Immutable state of the table at some point.</p>
+	 */
+	static final class Snapshot {
+		/** Incremented on each change of the table. */
+		final long version;
+		/** The devices, with their smoothed RSSI. Copies, so they're not changed after being published. */
+		@NonNull final List<ExtDevice> devices;
+
+		Snapshot(final long version, @NonNull final List<ExtDevice> devices) {
+			this.version = version;
+			this.devices = devices;
+		}
+	}
+
+	/** An entry of the table. */
+	private static final class Entry {
+		@NonNull ExtDevice device;
+		float smoothed_rssi;
+
+		Entry(@NonNull final ExtDevice device) {
+			this.device = device;
+			smoothed_rssi = device.rssi;
+		}
+	}
+
+	/** The entries ordered by last time seen, oldest first - so the eviction only goes through the ones to evict. */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64);
+	private long max_age_ms;
+	@NonNull private volatile Snapshot snapshot = new Snapshot(0, Collections.emptyList());
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param max_age_ms the initial max age (see {@link #setMaxAge(long)})
+	 */
+	NeighborTable(final long max_age_ms) {
+		this.max_age_ms = max_age_ms;
+	}
+
+	/**
+	 * <p>Sets the maximum time a device is kept without being seen.</p>
+	 *
+	 * @param max_age_ms the time in milliseconds
+	 */
+	synchronized void setMaxAge(final long max_age_ms) {
+		this.max_age_ms = max_age_ms;
+	}
+
+	/**
+	 * <p>Gets the current snapshot of the table.</p>
+	 *
+	 * @return the snapshot
+	 */
+	@NonNull
+	Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * <p>Updates the table with the results of a scan and removes the devices not seen for too long.</p>
+	 *
+	 * @param found the devices found on the scan
+	 * @param now_ms the current milliseconds
+	 */
+	synchronized void update(@NonNull final Collection<ExtDevice> found, final long now_ms) {
+		boolean changed = false;
+		for (final ExtDevice device : found) {
+			// Remove and put again to move the entry to the end (the most recently seen).
+			Entry entry = entries.remove(device.address);
+			if (entry == null) {
+				entry = new Entry(device);
+			} else {
+				if (device.rssi != RSSI_UNKNOWN) {
+					entry.smoothed_rssi = entry.smoothed_rssi == RSSI_UNKNOWN ? device.rssi :
+							entry.smoothed_rssi + RSSI_ALPHA * (device.rssi - entry.smoothed_rssi);
+				}
+				entry.device = device;
+			}
+			device.last_detection = now_ms;
+			entries.put(device.address, entry);
+			changed = true;
+		}
+
+		final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			if (now_ms - iterator.next().getValue().device.last_detection <= max_age_ms) {
+				break;
+			}
+			iterator.remove();
+			changed = true;
+		}
+
+		if (changed) {
+			publish();
+		}
+	}
+
+	private void publish() {
+		final List<ExtDevice> devices = new ArrayList<>(entries.size());
+		for (final Entry entry : entries.values()) {
+			final ExtDevice device = entry.device;
+			devices.add(new ExtDevice(device.type, device.address, device.last_detection,
+					Math.round(entry.smoothed_rssi), device.name, device.given_name, device.is_linked));
+		}
+		snapshot = new Snapshot(snapshot.version + 1, Collections.unmodifiableList(devices));
+	}
+}
@@ -47,21 +47,19 @@ import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsNetwork;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
 import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
 import com.edw590.visor_c_a.ModulesList;
 import com.edw590.visor_c_a.Registry.RegistryKeys;
 import com.edw590.visor_c_a.Registry.UtilsRegistry;
 
-import java.util.ConcurrentModificationException;
-
 import SCLink.SCLink;
 
 public final class SystemChecker implements IModuleInst {
 
 	private final HandlerThread main_handlerThread =
-			new HandlerThread((String) ModulesList.getElementValue(ModulesList.getElementIndex(getClass()),
-					ModulesList.ELEMENT_NAME));
+			new HandlerThread(ModulesList.getElementName(ModulesList.getElementIndex(getClass())));
 	private final Handler main_handler;
 
 	final PowerChecker power_checker = new PowerChecker();
@@ -82,6 +80,9 @@ public final class SystemChecker implements IModuleInst {
 	public static final long CHECK_TIME = 1_000;
 
 	@NonNull final PowerManager power_manager = (PowerManager) UtilsContext.getSystemService(Context.POWER_SERVICE);
+	@NonNull final AudioManager audio_manager = (AudioManager) UtilsContext.getSystemService(Context.AUDIO_SERVICE);
+	/** The device information sent to the server, only when it changes. */
+	private final DeviceState device_state = new DeviceState();
 
 	///////////////////////////////////////////////////////////////
 	// IModuleInst stuff
@@ -116,6 +117,7 @@ public final class SystemChecker implements IModuleInst {
 
 	public SystemChecker() {
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, SystemChecker.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
 		UtilsRegistry.setData(RegistryKeys.K_AIRPLANE_MODE_ON, UtilsAndroidConnectivity.getAirplaneModeEnabled(),
@@ -126,6 +128,7 @@ public final class SystemChecker implements IModuleInst {
 		registerReceiver();
 
 		infinity_thread.start();
+		ModulesSupervisor.superviseThread(infinity_thread, SystemChecker.class);
 	}
 
 	private final Thread infinity_thread = new Thread(() -> {
@@ -138,71 +141,37 @@ public final class SystemChecker implements IModuleInst {
 			if (times >= 15) {
 				// Only send the info after the first time (15 secs should be enough), so that the ExtDevices are
 				// checked first.
-				StringBuilder wifi_networks = new StringBuilder();
-				try {
-					for (final ExtDevice wifi_ap : WifiChecker.nearby_aps_wifi) {
-						if (wifi_ap == null) {
-							continue;
-						}
-
-						wifi_networks.append(wifi_ap.name).append("\u0001");
-						wifi_networks.append(wifi_ap.address).append("\u0001");
-						wifi_networks.append(wifi_ap.rssi).append("\u0001");
-						wifi_networks.append("\u0000");
-					}
-				} catch (final ConcurrentModificationException ignored) {
-					// If the list is being modified, it will throw a ConcurrentModificationException, so catch it and
-					// go to the next cycle immediately, on which the modifications should be ready.
-					continue;
-				}
-				StringBuilder bluetooth_devices = new StringBuilder();
-				try {
-					for (final ExtDevice bluetooth_device : BluetoothChecker.nearby_devices_bt) {
-						if (bluetooth_device == null) {
-							continue;
-						}
-
-						bluetooth_devices.append(bluetooth_device.name).append("\u0001");
-						bluetooth_devices.append(bluetooth_device.address).append("\u0001");
-						bluetooth_devices.append(bluetooth_device.rssi).append("\u0001");
-						bluetooth_devices.append("\u0000");
-					}
-				} catch (final ConcurrentModificationException ignored) {
-					continue;
-				}
+				device_state.setWifiNetworks(WifiChecker.nearby_aps_wifi.getSnapshot());
+				device_state.setBluetoothDevices(BluetoothChecker.nearby_devices_bt.getSnapshot());
 				if (power_manager.isScreenOn()) {
 					last_time_used = System.currentTimeMillis() / 1000;
 					is_interactive = true;
 				} else {
 					is_interactive = false;
 				}
-				UtilsRegistry.setData(RegistryKeys.K_DEVICE_IN_USE, is_interactive, false);
-
-				UtilsRegistry.setData(RegistryKeys.K_SCREEN_BRIGHTNESS, UtilsAndroidPower.getScreenBrightness(),
-						false);
-
-				AudioManager audioManager = (AudioManager) UtilsContext.getContext().
-						getSystemService(Context.AUDIO_SERVICE);
-				int normalized_volume = audioManager.getStreamVolume(AudioManager.STREAM_RING) * 100 /
-						audioManager.getStreamMaxVolume(AudioManager.STREAM_RING);
-				UtilsRegistry.setData(RegistryKeys.K_SOUND_VOLUME, normalized_volume, false);
-				UtilsRegistry.setData(RegistryKeys.K_SOUND_MUTED,
-						audioManager.getRingerMode() != AudioManager.RINGER_MODE_NORMAL, false);
-
-				SCLink.updateDeviceInfo(
-						last_time_used,
-						UtilsAndroidConnectivity.getAirplaneModeEnabled(),
-						UtilsAndroidConnectivity.getWifiEnabled(),
-						UtilsAndroidConnectivity.getBluetoothEnabled(),
-						(boolean) UtilsRegistry.getData(RegistryKeys.K_POWER_CONNECTED, true),
-						(int) UtilsRegistry.getData(RegistryKeys.K_BATTERY_LEVEL, true),
-						is_interactive,
-						UtilsAndroidPower.getScreenBrightness(),
-						wifi_networks.toString(),
-						bluetooth_devices.toString(),
-						normalized_volume,
-						audioManager.getRingerMode() != AudioManager.RINGER_MODE_NORMAL
-				);
+				UtilsRegistry.setBool(RegistryKeys.K_DEVICE_IN_USE, is_interactive, false);
+
+				final int brightness = UtilsAndroidPower.getScreenBrightness();
+				UtilsRegistry.setInt(RegistryKeys.K_SCREEN_BRIGHTNESS, brightness, false);
+
+				int normalized_volume = audio_manager.getStreamVolume(AudioManager.STREAM_RING) * 100 /
+						audio_manager.getStreamMaxVolume(AudioManager.STREAM_RING);
+				final boolean sound_muted = audio_manager.getRingerMode() != AudioManager.RINGER_MODE_NORMAL;
+				UtilsRegistry.setInt(RegistryKeys.K_SOUND_VOLUME, normalized_volume, false);
+				UtilsRegistry.setBool(RegistryKeys.K_SOUND_MUTED, sound_muted, false);
+
+				device_state.setLastTimeUsed(last_time_used);
+				device_state.setAirplaneMode(UtilsAndroidConnectivity.getAirplaneModeEnabled());
+				device_state.setWifiEnabled(UtilsAndroidConnectivity.getWifiEnabled());
+				device_state.setBluetoothEnabled(UtilsAndroidConnectivity.getBluetoothEnabled());
+				device_state.setPowerConnected(UtilsRegistry.getBool(RegistryKeys.K_POWER_CONNECTED, true));
+				device_state.setBatteryLevel(UtilsRegistry.getInt(RegistryKeys.K_BATTERY_LEVEL, true));
+				device_state.setScreenOn(is_interactive);
+				device_state.setBrightness(brightness);
+				device_state.setSoundVolume(normalized_volume);
+				device_state.setSoundMuted(sound_muted);
+				device_state.send(System.currentTimeMillis(),
+						UtilsRegistry.getInt(RegistryKeys.K_DEVICE_INFO_UPLINK_INTERVAL, true) * 1000L);
 			}
 
 			// Network type
@@ -222,6 +191,8 @@ public final class SystemChecker implements IModuleInst {
 
 			times++;
 
+			ModulesSupervisor.reportHeartbeat(SystemChecker.class);
+
 			try {
 				Thread.sleep(CHECK_TIME);
 			} catch (final InterruptedException ignored) {
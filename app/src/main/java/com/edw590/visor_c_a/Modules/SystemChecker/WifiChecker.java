@@ -41,7 +41,6 @@ import com.edw590.visor_c_a.Registry.UtilsRegistry;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Locale;
 
 import UtilsSWA.UtilsSWA;
@@ -58,7 +57,8 @@ final class WifiChecker {
 
 	int attempts = 0;
 
-	static final List<ExtDevice> nearby_aps_wifi = new ArrayList<>(64);
+	/** The nearby networks. A network missing from one scan is only removed if it's still missing on the next. */
+	static final NeighborTable nearby_aps_wifi = new NeighborTable(SCAN_WIFI_EACH_MS * 2);
 
 	/**
 	 * <p>Enables or disables Wi-Fi.</p>
@@ -101,6 +101,7 @@ final class WifiChecker {
 		} else {
 			waiting_time_ms = SCAN_WIFI_EACH_MS;
 		}
+		nearby_aps_wifi.setMaxAge(waiting_time_ms * 2);
 	}
 
 	/**
@@ -181,8 +182,7 @@ final class WifiChecker {
 		} else {
 			attempts = 0;
 
-			nearby_aps_wifi.clear();
-			nearby_aps_wifi.addAll(found_aps);
+			nearby_aps_wifi.update(found_aps, System.currentTimeMillis());
 
 			// After we got the results successfully
 			last_check_when_ms = System.currentTimeMillis();
@@ -25,6 +25,7 @@ import com.edw590.visor_c_a.GlobalInterfaces.IModuleInst;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.Modules.CmdsExecutor.UtilsCmdsExecutorBC;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
 import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
 
@@ -34,7 +35,8 @@ public class TasksExecutor implements IModuleInst {
 
 	///////////////////////////////////////////////////////////////
 	// IModuleInst stuff
-	private boolean is_module_destroyed = false;
+	/** Volatile and set before stopping the checker, so the thread knows if it stopped because of this. */
+	private volatile boolean is_module_destroyed = false;
 	@Override
 	public boolean isFullyWorking() {
 		if (is_module_destroyed) {
@@ -45,9 +47,9 @@ public class TasksExecutor implements IModuleInst {
 	}
 	@Override
 	public void destroy() {
-		TEHelper.stopChecker();
-
 		is_module_destroyed = true;
+
+		TEHelper.stopChecker();
 	}
 	@Override
 	public int wrongIsSupported() {return 0;}
@@ -64,12 +66,18 @@ public class TasksExecutor implements IModuleInst {
 	 */
 	public TasksExecutor() {
 		infinity_thread.start();
+		ModulesSupervisor.superviseThread(infinity_thread, TasksExecutor.class);
 	}
 
 	final Thread infinity_thread = new Thread(() -> {
 		while (true) {
 			ModsFileInfo.Task task = TEHelper.checkDueTasks();
 			if (task == null) {
+				if (!is_module_destroyed) {
+					// The tasks checker stopped by itself - have the Modules Manager restart the module right away.
+					ModulesSupervisor.reportElementDown(TasksExecutor.class);
+				}
+
 				return;
 			}
 
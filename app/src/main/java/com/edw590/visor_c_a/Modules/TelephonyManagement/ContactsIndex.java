@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.TelephonyManagement;
+
+import android.telephony.PhoneNumberUtils;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Index of the contacts by phone number, so getting the name of the contact of a number doesn't need to go through
+ * all contacts.</p>
+ * <p>The numbers are indexed by the last {@link #SUFFIX_LEN} digits, which are the same in the international and
+ * national forms of a number (+351 912 345 678 and 912 345 678 both give 2345678) - numbers with less digits are
+ * indexed by all of them. The few contacts with the same key are then compared with
+ * {@link PhoneNumberUtils#compareStrictly(String, String)}, so the result is the same as comparing with all
+ * contacts.</p>
+ * <p>The index is updated incrementally with the contacts list: only added and removed contacts are changed.</p>
+ * <p>This class is thread-safe.</p>
+ */
+final class ContactsIndex {
+
+	/** Number of digits of the keys (the minimum match of {@link PhoneNumberUtils#compare(String, String)}). */
+	static final int SUFFIX_LEN = 7;
+
+	/** The contacts ({name, number}) by number key, in the order they were added. */
+	private final Map<String, List<String[]>> contacts_by_key = new HashMap<>(64);
+	/** The contacts in the index, as {@link #contactId(String[])}. */
+	private Set<String> contact_ids = new HashSet<>(0);
+
+	/**
+	 * <p>Updates the index to have the given contacts only.</p>
+	 *
+	 * @param contacts the contacts list, as in {@link UtilsTelephony#getAllContacts(int)}
+	 */
+	synchronized void update(@NonNull final String[][] contacts) {
+		final Set<String> new_contact_ids = new HashSet<>(contacts.length * 2);
+		for (final String[] contact : contacts) {
+			final String contact_id = contactId(contact);
+			new_contact_ids.add(contact_id);
+			if (!contact_ids.contains(contact_id)) {
+				final String key = numberKey(contact[1]);
+				List<String[]> bucket = contacts_by_key.get(key);
+				if (bucket == null) {
+					bucket = new ArrayList<>(2);
+					contacts_by_key.put(key, bucket);
+				}
+				bucket.add(contact);
+			}
+		}
+
+		for (final String contact_id : contact_ids) {
+			if (new_contact_ids.contains(contact_id)) {
+				continue;
+			}
+
+			final String number = contact_id.substring(contact_id.indexOf('\u0000') + 1);
+			final String key = numberKey(number);
+			final List<String[]> bucket = contacts_by_key.get(key);
+			if (bucket == null) {
+				continue;
+			}
+			for (int i = 0; i < bucket.size(); ++i) {
+				if (contactId(bucket.get(i)).equals(contact_id)) {
+					bucket.remove(i);
+
+					break;
+				}
+			}
+			if (bucket.isEmpty()) {
+				contacts_by_key.remove(key);
+			}
+		}
+
+		contact_ids = new_contact_ids;
+	}
+
+	/**
+	 * <p>Gets the names of the contacts with the given number.</p>
+	 * <p>The same name is only returned once - the same contact may come from multiple accounts, or have the number
+	 * with and without the country code.</p>
+	 *
+	 * @param number the phone number
+	 *
+	 * @return the names, in the order of the contacts list
+	 */
+	@NonNull
+	synchronized List<String> getNames(@NonNull final String number) {
+		final List<String> names = new ArrayList<>(2);
+		final List<String[]> bucket = contacts_by_key.get(numberKey(number));
+		if (bucket == null) {
+			return names;
+		}
+
+		for (final String[] contact : bucket) {
+			if (!names.contains(contact[0]) && PhoneNumberUtils.compareStrictly(number, contact[1])) {
+				names.add(contact[0]);
+			}
+		}
+
+		return names;
+	}
+
+	/**
+	 * <p>Gets the key of a phone number: its last {@link #SUFFIX_LEN} digits, or all of them if it has less, or the
+	 * number itself if it has no digits (like "PayPal").</p>
+	 *
+	 * @param number the phone number
+	 *
+	 * @return the key
+	 */
+	@NonNull
+	static String numberKey(@NonNull final String number) {
+		final char[] key = new char[SUFFIX_LEN];
+		int num_digits = 0;
+		for (int i = number.length() - 1; i >= 0 && num_digits < SUFFIX_LEN; --i) {
+			final char c = number.charAt(i);
+			if (c >= '0' && c <= '9') {
+				key[SUFFIX_LEN - 1 - num_digits] = c;
+				++num_digits;
+			}
+		}
+		if (num_digits == 0) {
+			return number;
+		}
+
+		return new String(key, SUFFIX_LEN - num_digits, num_digits);
+	}
+
+	@NonNull
+	private static String contactId(@NonNull final String[] contact) {
+		return contact[0] + '\u0000' + contact[1];
+	}
+}
@@ -42,6 +42,7 @@ import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
 import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
 import com.edw590.visor_c_a.Modules.TelephonyManagement.TelephonyManagement;
@@ -61,8 +62,7 @@ import java.util.Objects;
 public final class PhoneCallsProcessor implements IModuleInst {
 
 	private final int element_index = ModulesList.getElementIndex(this.getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String) ModulesList.getElementValue(element_index,
-			ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private final Handler main_handler;
 
 	// 50 call events from the point the phone receives a call to when it ends the last call. More than than that, wow,
@@ -120,6 +120,7 @@ public final class PhoneCallsProcessor implements IModuleInst {
 	 */
 	public PhoneCallsProcessor() {
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, PhoneCallsProcessor.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
 		mapCallLogToCALL_PHASE = new LinkedHashMap<>(2);
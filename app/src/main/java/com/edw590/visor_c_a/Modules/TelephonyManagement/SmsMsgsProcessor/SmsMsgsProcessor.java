@@ -40,6 +40,7 @@ import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Modules.Speech.Speech2;
 import com.edw590.visor_c_a.Modules.Speech.UtilsSpeech2BC;
 import com.edw590.visor_c_a.Modules.TelephonyManagement.TelephonyManagement;
@@ -55,8 +56,7 @@ import com.edw590.visor_c_a.Registry.RegistryKeys;
 public final class SmsMsgsProcessor implements IModuleInst {
 
 	private final int element_index = ModulesList.getElementIndex(this.getClass());
-	private final HandlerThread main_handlerThread = new HandlerThread((String) ModulesList.getElementValue(element_index,
-			ModulesList.ELEMENT_NAME));
+	private final HandlerThread main_handlerThread = new HandlerThread(ModulesList.getElementName(element_index));
 	private final Handler main_handler;
 
 	///////////////////////////////////////////////////////////////
@@ -99,6 +99,7 @@ public final class SmsMsgsProcessor implements IModuleInst {
 	@SuppressLint("InlinedApi")
 	public SmsMsgsProcessor() {
 		main_handlerThread.start();
+		ModulesSupervisor.superviseThread(main_handlerThread, SmsMsgsProcessor.class);
 		main_handler = new Handler(main_handlerThread.getLooper());
 
 		try {
@@ -22,16 +22,21 @@
 package com.edw590.visor_c_a.Modules.TelephonyManagement;
 
 import android.Manifest;
+import android.database.ContentObserver;
+import android.provider.ContactsContract;
 
 import androidx.annotation.NonNull;
 
 import com.edw590.visor_c_a.GlobalInterfaces.IModuleInst;
 import com.edw590.visor_c_a.GlobalUtils.UtilsCheckHardwareFeatures;
+import com.edw590.visor_c_a.GlobalUtils.UtilsContext;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
 import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
 import com.edw590.visor_c_a.Modules.CmdsExecutor.CmdsList.UtilsCmdsList;
 import com.edw590.visor_c_a.Modules.ModulesManager.ModulesManager;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 import com.edw590.visor_c_a.Registry.RegistryKeys;
+import com.edw590.visor_c_a.Registry.RegistrySubscription;
 import com.edw590.visor_c_a.Registry.UtilsRegistry;
 import com.edw590.visor_c_a.Modules.TelephonyManagement.PhoneCallsProcessor.PhoneCallsProcessor;
 import com.edw590.visor_c_a.Modules.TelephonyManagement.SmsMsgsProcessor.SmsMsgsProcessor;
@@ -44,8 +49,25 @@ import com.edw590.visor_c_a.ModulesList;
 public final class TelephonyManagement implements IModuleInst {
 
 	@NonNull private static String[][] contacts_list = {};
+	/** Index of the {@link #contacts_list} by phone number. */
+	static final ContactsIndex contacts_index = new ContactsIndex();
 	private static final Object lock = new Object();
 
+	/** Notified to update the contacts list right away. */
+	private final Object update_lock = new Object();
+	/** If the contacts list must be updated right away. */
+	private boolean update_requested = false;
+	/** Updates the contacts list as soon as the setting to only use the SIM contacts changes. */
+	@NonNull private final RegistrySubscription sim_only_subscription = UtilsRegistry.subscribe(
+			RegistryKeys.K_CONTACTS_SIM_ONLY, Runnable::run, key -> requestUpdate());
+	/** Checks the contacts as soon as they change. */
+	private final ContentObserver contacts_observer = new ContentObserver(null) {
+		@Override
+		public void onChange(final boolean selfChange) {
+			requestUpdate();
+		}
+	};
+
 	///////////////////////////////////////////////////////////////
 	// IModuleInst stuff
 	private boolean is_module_destroyed = false;
@@ -59,6 +81,8 @@ public final class TelephonyManagement implements IModuleInst {
 	}
 	@Override
 	public void destroy() {
+		sim_only_subscription.cancel();
+		UtilsContext.getContext().getContentResolver().unregisterContentObserver(contacts_observer);
 		infinity_thread.interrupt();
 		ModulesList.stopElement(ModulesList.getElementIndex(PhoneCallsProcessor.class));
 		ModulesList.stopElement(ModulesList.getElementIndex(SmsMsgsProcessor.class));
@@ -80,33 +104,75 @@ public final class TelephonyManagement implements IModuleInst {
 	 * <p>Main class constructor.</p>
 	 */
 	public TelephonyManagement() {
+		try {
+			UtilsContext.getContext().getContentResolver().registerContentObserver(
+					ContactsContract.Contacts.CONTENT_URI, true, contacts_observer);
+		} catch (final SecurityException ignored) {
+			// No READ_CONTACTS permission - the thread still checks from time to time.
+		}
+
 		infinity_thread.start();
+		ModulesSupervisor.superviseThread(infinity_thread, TelephonyManagement.class);
+	}
+
+	/**
+	 * <p>Wakes the thread to check the contacts now.</p>
+	 */
+	private void requestUpdate() {
+		synchronized (update_lock) {
+			update_requested = true;
+			update_lock.notifyAll();
+		}
 	}
 
 	final Thread infinity_thread = new Thread(new Runnable() {
 		@Override
 		public void run() {
+			boolean loaded = false;
+			boolean loaded_only_sim = false;
+			long last_load_ms = 0;
 			while (true) {
 				// Update the contacts list
 				if (UtilsPermsAuths.checkSelfPermission(Manifest.permission.READ_CONTACTS)) {
-					// Nested synchronization as said here: https://stackoverflow.com/a/21462631/8228163.
-					synchronized (lock) {
-						synchronized (contacts_list) {
-							// Every CHECK_INTERNAL seconds, update the contacts list for commands to be available for new
-							// contacts or to remove from it removed contacts, or to update updated contacts (like number or
-							// name or whatever). Also if the READ_CONTACTS permissions was just granted, add the contacts from
-							// scratch.
-							final boolean only_sim = (boolean) UtilsRegistry.
-									getData(RegistryKeys.K_CONTACTS_SIM_ONLY, true);
-							contacts_list = UtilsTelephony.getAllContacts(only_sim ?
-									UtilsTelephony.CONTACTS_SIM : UtilsTelephony.ALL_CONTACTS);
-							UtilsCmdsList.updateMakeCallCmdContacts();
+					// When the contacts change (the observer wakes this up) or every CHECK_INTERVAL, update the
+					// contacts list for commands to be available for new contacts or to remove from it removed
+					// contacts, or to update updated contacts (like number or name or whatever) - but only if some
+					// contact was really updated or deleted since the last load. Also if the READ_CONTACTS permission
+					// was just granted, add the contacts from scratch. The SIM contacts have no timestamps, so they're
+					// always loaded again (there are few anyway).
+					final boolean only_sim = UtilsRegistry.getBool(RegistryKeys.K_CONTACTS_SIM_ONLY, true);
+					if (!loaded || only_sim || only_sim != loaded_only_sim ||
+							UtilsTelephony.contactsChangedSince(last_load_ms)) {
+						final long load_start_ms = System.currentTimeMillis();
+						final String[][] new_contacts_list = UtilsTelephony.getAllContacts(only_sim ?
+								UtilsTelephony.CONTACTS_SIM : UtilsTelephony.ALL_CONTACTS);
+
+						// Nested synchronization as said here: https://stackoverflow.com/a/21462631/8228163.
+						synchronized (lock) {
+							synchronized (contacts_list) {
+								contacts_list = new_contacts_list;
+								contacts_index.update(contacts_list);
+								UtilsCmdsList.updateMakeCallCmdContacts();
+							}
 						}
+
+						loaded = true;
+						loaded_only_sim = only_sim;
+						last_load_ms = load_start_ms;
 					}
+				} else {
+					loaded = false;
 				}
 
+				ModulesSupervisor.reportHeartbeat(TelephonyManagement.class);
+
 				try {
-					Thread.sleep(ModulesManager.CHECK_INTERVAL);
+					synchronized (update_lock) {
+						if (!update_requested) {
+							update_lock.wait(ModulesManager.CHECK_INTERVAL);
+						}
+						update_requested = false;
+					}
 				} catch (final InterruptedException ignored) {
 					return;
 				}
@@ -43,7 +43,9 @@ import com.edw590.visor_c_a.Registry.RegistryKeys;
 import com.edw590.visor_c_a.Registry.UtilsRegistry;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * <p>Global telephony-related utilities.</p>
@@ -72,7 +74,7 @@ public final class UtilsTelephony {
 	public static final String MULTIPLE_MATCHES = "3234_MULTIPLE_MATCHES";
 	/**
 	 * <p>Gets the name of a contact through its phone number searching on the
-	 * {@link TelephonyManagement#CONTACTS_LIST}.</p>
+	 * {@link TelephonyManagement#contacts_index}.</p>
 	 * <br>
 	 * <p><u>---CONSTANTS---</u></p>
 	 * <p>- {@link #NO_MATCHES} --> returned when no number was found for the given phone number</p>
@@ -87,38 +89,16 @@ public final class UtilsTelephony {
 	@NonNull
 	@RequiresPermission(Manifest.permission.READ_CONTACTS)
 	public static String getNameFromNum(@NonNull final String number, final boolean first_match) {
-		final List<String> matches = new ArrayList<>(10); // 10 matches at most as a start, I guess?
-		String last_name_found = "";
-
-		for (final String[] contact : TelephonyManagement.getContactsList()) {
-			final String name = contact[0];
-			final String phoneNo = contact[1];
-
-			if (PhoneNumberUtils.compareStrictly(number, phoneNo)) {
-				boolean already_found = false;
-				for (final String match : matches) {
-					// This excludes repeated contacts (same name and number, or maybe same name but number with and
-					// without country extension) from being considered different contacts. Don't forget the contacts
-					// can come from *multiple* accounts, so the same contact may appear in various - this will filter
-					// the repeated ones out.
-					if (match.equals(name)) {
-						already_found = true;
-						break;
-					}
-				}
-				if (!already_found) {
-					matches.add(name);
-					last_name_found = name;
-				}
-			}
-		}
+		// Repeated contacts (same name and number, or maybe same name but number with and without country extension)
+		// are not considered different contacts. Don't forget the contacts can come from *multiple* accounts, so the
+		// same contact may appear in various - the index filters the repeated ones out.
+		final List<String> matches = TelephonyManagement.contacts_index.getNames(number);
 
 		final int num_matches = matches.size();
 		if (num_matches == 0) {
 			return NO_MATCHES;
 		} else if (num_matches == 1) {
-			// If only one match, the last name found is returned (the only one found).
-			return last_name_found;
+			return matches.get(0);
 		} else {
 			if (first_match) {
 				return matches.get(0);
@@ -301,104 +281,93 @@ public final class UtilsTelephony {
 	@NonNull
 	@RequiresPermission(Manifest.permission.READ_CONTACTS)
 	public static String[][] getAllContacts(final int location_search) {
-		final ArrayList<String[]> contacts_found = new ArrayList<>(64);
-
 		final Uri uri_to_use;
+		final String[] projection;
+		final String name_column;
+		final String number_column;
 		switch (location_search) {
 			case (CONTACTS_SIM):
 				uri_to_use = ICC_URI_API4PLUS;
+				projection = null;
+				name_column = "name";
+				number_column = "number";
 
 				break;
 			default:
-				// This seems to give the contacts of the entire phone: SIM card, phone storage and accounts like Google,
-				// WhatsApp...
-				uri_to_use = ContactsContract.Contacts.CONTENT_URI;
+				// This seems to give the phone numbers of the entire phone: SIM card, phone storage and accounts like
+				// Google, WhatsApp... - each joined with the name of its contact, so it's all got in one query.
+				uri_to_use = ContactsContract.CommonDataKinds.Phone.CONTENT_URI;
+				projection = new String[]{
+						ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
+						ContactsContract.CommonDataKinds.Phone.NUMBER,
+				};
+				name_column = ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME;
+				number_column = ContactsContract.CommonDataKinds.Phone.NUMBER;
 
 				break;
 		}
 
 		final ContentResolver contentResolver = UtilsContext.getContext().getContentResolver();
+		try (final Cursor cursor = contentResolver.query(uri_to_use, projection, null, null, null)) {
+			if (cursor == null) {
+				return new String[0][];
+			}
+
+			final int name_idx = cursor.getColumnIndex(name_column);
+			final int number_idx = cursor.getColumnIndex(number_column);
+			if (name_idx < 0 || number_idx < 0) {
+				return new String[0][];
+			}
 
-		try (final Cursor cursor = contentResolver.query(uri_to_use, null, null, null, null)) {
-
-			if (location_search == ALL_CONTACTS) {
-				if ((cursor != null ? cursor.getCount() : 0) > 0) {
-					while (cursor.moveToNext()) {
-						final int col1_idx = cursor.getColumnIndex(BaseColumns._ID);
-						final int col2_idx = cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME);
-						if (col1_idx < 0 || col2_idx < 0) {
-							continue;
-						}
-						final String id = cursor.getString(col1_idx);
-						final String name = cursor.getString(col2_idx);
-
-						final int col3_idx = cursor.getColumnIndex(ContactsContract.Contacts.HAS_PHONE_NUMBER);
-						if (col3_idx >= 0 && cursor.getInt(col3_idx) > 0) {
-							try (
-									final Cursor cursor1 = contentResolver.query(
-											ContactsContract.CommonDataKinds.Phone.CONTENT_URI, null,
-											ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " = ?",
-											new String[]{id}, null)
-							) {
-								while (cursor1.moveToNext()) {
-									final int col4_idx = cursor1.getColumnIndex(
-											ContactsContract.CommonDataKinds.Phone.NUMBER);
-									if (col4_idx < 0) {
-										continue;
-									}
-									final String phoneNo = cursor1.getString(col4_idx);
-
-									boolean not_in_list = true;
-									for (final String[] contact : contacts_found) {
-										if (name.equals(contact[0]) && phoneNo.equals(contact[1])) {
-											not_in_list = false;
-
-											break;
-										}
-									}
-									if (not_in_list) {
-										// Also remove spaces so that the numbers don't get returned like
-										// "+351 123 456 789", which seems to be incompatible with isEmergencyNumber(),
-										// for example.
-										contacts_found.add(new String[]{name, phoneNo.replace(" ", "")});
-									}
-								}
-							}
-						}
-					}
+			final ArrayList<String[]> contacts_found = new ArrayList<>(cursor.getCount());
+			final Set<String> contacts_ids = new HashSet<>(cursor.getCount() * 2);
+			while (cursor.moveToNext()) {
+				final String name = cursor.getString(name_idx);
+				final String phoneNo = cursor.getString(number_idx);
+				if (name == null || phoneNo == null) {
+					continue;
 				}
-			} else if (location_search == CONTACTS_SIM) {
-				while (cursor.moveToNext()) {
-					final int col1_idx = cursor.getColumnIndex("name");
-					if (col1_idx < 0) {
-						continue;
-					}
-					final String name = cursor.getString(col1_idx);
-					//listContactId.add(cursorSim.getString(cursorSim.getColumnIndex("_id")));
-					final int col2_idx = cursor.getColumnIndex("number");
-					if (col2_idx < 0) {
-						continue;
-					}
-					final String phoneNo = cursor.getString(col2_idx);
-
-					boolean not_in_list = true;
-					for (final String[] contact : contacts_found) {
-						if (name.equals(contact[0]) && phoneNo.equals(contact[1])) {
-							not_in_list = false;
-
-							break;
-						}
-					}
-					if (not_in_list) {
-						// Also remove spaces so that the numbers don't get returned like
-						// "+351 123 456 789", which seems to be incompatible with isEmergencyNumber(),
-						// for example.
-						contacts_found.add(new String[]{name, phoneNo.replace(" ", "")});
-					}
+
+				// Also remove spaces so that the numbers don't get returned like "+351 123 456 789", which seems to be
+				// incompatible with isEmergencyNumber(), for example.
+				final String number = phoneNo.replace(" ", "");
+				if (contacts_ids.add(name + '\u0000' + number)) {
+					contacts_found.add(new String[]{name, number});
 				}
 			}
+
+			return contacts_found.toArray(new String[0][]);
 		}
+	}
 
-		return contacts_found.toArray(new String[0][]);
+	/**
+	 * <p>Checks if any contact was updated or deleted since the given time.</p>
+	 * <p>This is a quick check to know if {@link #getAllContacts(int)} with {@link #ALL_CONTACTS} would return
+	 * something different. Below Android 4.3 there are no timestamps, so it always returns true.</p>
+	 *
+	 * @param since_ms the time in milliseconds
+	 *
+	 * @return true if some contact was (or may have been) updated or deleted, false otherwise
+	 */
+	@RequiresPermission(Manifest.permission.READ_CONTACTS)
+	public static boolean contactsChangedSince(final long since_ms) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			return true;
+		}
+
+		final ContentResolver contentResolver = UtilsContext.getContext().getContentResolver();
+		final String[] selection_args = {String.valueOf(since_ms)};
+		try (final Cursor cursor = contentResolver.query(ContactsContract.Contacts.CONTENT_URI,
+				new String[]{BaseColumns._ID}, ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?",
+				selection_args, null)) {
+			if (cursor == null || cursor.getCount() > 0) {
+				return true;
+			}
+		}
+		try (final Cursor cursor = contentResolver.query(ContactsContract.DeletedContacts.CONTENT_URI,
+				new String[]{ContactsContract.DeletedContacts.CONTACT_ID},
+				ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + " > ?", selection_args, null)) {
+			return cursor == null || cursor.getCount() > 0;
+		}
 	}
 }
@@ -23,6 +23,7 @@ package com.edw590.visor_c_a.Modules.UserLocator;
 
 import com.edw590.visor_c_a.GlobalInterfaces.IModuleInst;
 import com.edw590.visor_c_a.GlobalUtils.UtilsGeneral;
+import com.edw590.visor_c_a.Modules.ModulesManager.ModulesSupervisor;
 
 import ULHelper.ULHelper;
 
@@ -30,7 +31,8 @@ public class UserLocator implements IModuleInst {
 
 	///////////////////////////////////////////////////////////////
 	// IModuleInst stuff
-	private boolean is_module_destroyed = false;
+	/** Volatile and set before stopping the checker, so the thread knows if it stopped because of this. */
+	private volatile boolean is_module_destroyed = false;
 	@Override
 	public boolean isFullyWorking() {
 		if (is_module_destroyed) {
@@ -41,9 +43,9 @@ public class UserLocator implements IModuleInst {
 	}
 	@Override
 	public void destroy() {
-		ULHelper.stopChecker();
-
 		is_module_destroyed = true;
+
+		ULHelper.stopChecker();
 	}
 	@Override
 	public int wrongIsSupported() {return 0;}
@@ -60,12 +62,18 @@ public class UserLocator implements IModuleInst {
 	 */
 	public UserLocator() {
 		infinity_thread.start();
+		ModulesSupervisor.superviseThread(infinity_thread, UserLocator.class);
 	}
 
 	final Thread infinity_thread = new Thread(new Runnable() {
 		@Override
 		public void run() {
 			ULHelper.updateUserLocation();
+
+			if (!is_module_destroyed) {
+				// The checker stopped by itself - have the Modules Manager restart the module right away.
+				ModulesSupervisor.reportElementDown(UserLocator.class);
+			}
 		}
 	});
 }
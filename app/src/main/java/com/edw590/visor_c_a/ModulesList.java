@@ -49,6 +49,8 @@ import com.edw590.visor_c_a.Modules.UserLocator.UserLocator;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * <p>The list of modules and submodules ("elements") of the assistant plus information about their status.</p>
@@ -97,7 +99,7 @@ public final class ModulesList {
 	// To disable an element, just comment its line here and be sure you disable its usages everywhere else or pray the
 	// app won't crash because of negative index from getModuleIndex() in case it's used for the disabled element.
 	/** List of all modules of the app, and also the wanted submodules to be shown on the Modules Status - check which
-	 * is what with {@link #ELEMENT_IS_MODULE}. They must also be in the order of module startup (the Modules Manager must
+	 * is what with {@link #isElementModule(int)}. They must also be in the order of module startup (the Modules Manager must
 	 * be the first one).*/
 	private static final ElementsObj[] ELEMENTS_LIST = {
 			new ElementsObj(ModulesManager.class, "Modules Manager", TYPE1_INSTANCE, true), // MOD_1
@@ -119,6 +121,13 @@ public final class ModulesList {
 			new ElementsObj(ProtectedLockScrSrv.class, "Protected Lock Screen", TYPE1_SERVICE_SEP_CHK_ONLY, true),
 	};
 	public static final int ELEMENTS_LIST_LENGTH = ELEMENTS_LIST.length;
+	/** Map of each element class to its index on {@link #ELEMENTS_LIST}. */
+	private static final Map<Class<?>, Integer> ELEMENTS_INDEXES = new IdentityHashMap<>(ELEMENTS_LIST_LENGTH);
+	static {
+		for (int element_index = 0; element_index < ELEMENTS_LIST_LENGTH; ++element_index) {
+			ELEMENTS_INDEXES.put(ELEMENTS_LIST[element_index].cls, element_index);
+		}
+	}
 	/**
 	 * <p>Class for the (sub)modules of the list.</p>
 	 */
@@ -131,13 +140,15 @@ public final class ModulesList {
 		@NonNull final String name;
 		/** True if the element is a module, false if it's a submodule. */
 		final boolean is_module;
+		/** The static {@code isSupported()} method of the element, gotten only once. */
+		@Nullable final Method is_supported_method;
 		/** True to say that the element is supported on the device, including hardware support, permissions, etc; false
 		 * otherwise. */
-		boolean supported = false;
+		volatile boolean supported = false;
 		/** The instance reference of the object - only if the element is of type |{@link #TYPE1_INSTANCE}|. */
-		@Nullable Object instance = null;
+		@Nullable volatile IModuleInst instance = null;
 		/** True if the user chose to disable the element, false otherwise. */
-		boolean disable = false;
+		volatile boolean disable = false;
 
 		/**
 		 * .
@@ -154,7 +165,8 @@ public final class ModulesList {
 			this.type1 = type1;
 			this.is_module = is_module;
 
-			supported = isElementSupported(cls);
+			is_supported_method = UtilsReflection.getMethod(cls, "isSupported");
+			supported = invokeIsSupported(cls, is_supported_method);
 		}
 	}
 
@@ -164,97 +176,105 @@ public final class ModulesList {
 	private ModulesList() {
 	}
 
-	public static final int ELEMENT_CLASS = 0;
-	public static final int ELEMENT_NAME = 1;
-	public static final int ELEMENT_TYPE1 = 2;
-	public static final int ELEMENT_IS_MODULE = 3;
-	public static final int ELEMENT_AUTO_RESTART = 4;
-	public static final int ELEMENT_INSTANCE = 5;
-	public static final int ELEMENT_SUPPORTED = 6;
-	public static final int ELEMENT_DISABLE = 7;
 	/**
-	 * <p>Get the value on the {@link #ELEMENTS_LIST} associated with the given key, for a specific element.</p>
-	 * <br>
-	 * <p><strong>WARNING:</strong> CHECK FIRST if the value you're getting matches the indexed element!!! If you get
-	 * a MODULE_ value from an element which is a submodule, bad things will happen - the function is not made to handle
-	 * that.</p>
-	 * <p>WARNING 2: This method does not have @Nullable on it, but it CAN return null. Though, having @Nullable would
-	 * only get in the way, because it can return null only if the requested value can be null. If an int is requested,
-	 * it won't be null. If it's the module instance, it can be null. So it's not necessary to check every time for
-	 * nullability, as it's supposed.</p>
-	 * <br>
-	 * <p><u>---CONSTANTS---</u></p>
-	 * <p>- {@link #ELEMENT_CLASS} --> for {@code key}: {@link ElementsObj#cls}</p>
-	 * <p>- {@link #ELEMENT_NAME} --> for {@code key}: {@link ElementsObj#name}</p>
-	 * <p>- {@link #ELEMENT_TYPE1} --> for {@code key}: {@link ElementsObj#type1}</p>
-	 * <p>- {@link #ELEMENT_IS_MODULE} --> for {@code key}: {@link ElementsObj#is_module}</p>
-	 * <p>- {@link #ELEMENT_INSTANCE} --> for {@code key}: {@link ElementsObj#instance}</p>
-	 * <p>- {@link #ELEMENT_SUPPORTED} --> for {@code key}: {@link ElementsObj#supported}</p>
-	 * <p>- {@link #ELEMENT_DISABLE} --> for {@code key}: {@link ElementsObj#disable}</p>
-	 * <p><u>---CONSTANTS---</u></p>
+	 * <p>Gets the class of an element.</p>
 	 *
 	 * @param element_index the index of the element
-	 * @param key the key of the value to get (one of the constants)
 	 *
-	 * @return the value associated with the given key, which may or may not be null, depending on type of the wanted
-	 * value as listed on {@link #ELEMENTS_LIST}'s documentation
+	 * @return {@link ElementsObj#cls}
 	 */
-	public static Object getElementValue(final int element_index, final int key) {
-		switch (key) {
-			case ELEMENT_CLASS: {
-				return ELEMENTS_LIST[element_index].cls;
-			}
-			case ELEMENT_NAME: {
-				return ELEMENTS_LIST[element_index].name;
-			}
-			case ELEMENT_TYPE1: {
-				return ELEMENTS_LIST[element_index].type1;
-			}
-			case ELEMENT_IS_MODULE: {
-				return ELEMENTS_LIST[element_index].is_module;
-			}
-			case ELEMENT_INSTANCE: {
-				return ELEMENTS_LIST[element_index].instance;
-			}
-			case ELEMENT_SUPPORTED: {
-				return ELEMENTS_LIST[element_index].supported;
-			}
-			case ELEMENT_DISABLE: {
-				return ELEMENTS_LIST[element_index].disable;
-			}
-		}
+	@NonNull
+	public static Class<?> getElementClass(final int element_index) {
+		return ELEMENTS_LIST[element_index].cls;
+	}
 
-		// Won't happen - always implement the constants on the switch.
-		// Don't put null, or Android Studio will think it's a @Nullable method and will warn about 'boolean' null
-		// values...
-		return "";
+	/**
+	 * <p>Gets the name of an element.</p>
+	 *
+	 * @param element_index the index of the element
+	 *
+	 * @return {@link ElementsObj#name}
+	 */
+	@NonNull
+	public static String getElementName(final int element_index) {
+		return ELEMENTS_LIST[element_index].name;
 	}
 
 	/**
-	 * <p>Set the value on the {@link #ELEMENTS_LIST} associated with the given key, for a specific element.</p>
-	 * <br>
-	 * <p><u>---CONSTANTS---</u></p>
-	 * <p>- {@link #ELEMENT_SUPPORTED} --> for {@code key}: {@link ElementsObj#supported}</p>
-	 * <p>- {@link #ELEMENT_DISABLE} --> for {@code key}: {@link ElementsObj#disable}</p>p>
-	 * <p><u>---CONSTANTS---</u></p>
+	 * <p>Gets the type 1 of an element.</p>
 	 *
 	 * @param element_index the index of the element
-	 * @param key the key of the value to get (one of the constants)
-	 * @param value the value associated with the given key
+	 *
+	 * @return {@link ElementsObj#type1}
 	 */
-	public static void setElementValue(final int element_index, final int key, @NonNull final Object value) {
-		switch (key) {
-			case ELEMENT_SUPPORTED: {
-				ELEMENTS_LIST[element_index].supported = (boolean) value;
+	public static int getElementType1(final int element_index) {
+		return ELEMENTS_LIST[element_index].type1;
+	}
 
-				break;
-			}
-			case ELEMENT_DISABLE: {
-				ELEMENTS_LIST[element_index].disable = (boolean) value;
+	/**
+	 * <p>Checks if an element is a module or a submodule.</p>
+	 *
+	 * @param element_index the index of the element
+	 *
+	 * @return {@link ElementsObj#is_module}
+	 */
+	public static boolean isElementModule(final int element_index) {
+		return ELEMENTS_LIST[element_index].is_module;
+	}
 
-				break;
-			}
-		}
+	/**
+	 * <p>Gets the instance of an element.</p>
+	 *
+	 * @param element_index the index of the element
+	 *
+	 * @return {@link ElementsObj#instance}
+	 */
+	@Nullable
+	public static IModuleInst getElementInstance(final int element_index) {
+		return ELEMENTS_LIST[element_index].instance;
+	}
+
+	/**
+	 * <p>Gets the last known support state of an element.</p>
+	 * <p>Use {@link #isElementSupported(Class)} to check it again.</p>
+	 *
+	 * @param element_index the index of the element
+	 *
+	 * @return {@link ElementsObj#supported}
+	 */
+	public static boolean getElementSupported(final int element_index) {
+		return ELEMENTS_LIST[element_index].supported;
+	}
+
+	/**
+	 * <p>Sets the support state of an element.</p>
+	 *
+	 * @param element_index the index of the element
+	 * @param supported {@link ElementsObj#supported}
+	 */
+	public static void setElementSupported(final int element_index, final boolean supported) {
+		ELEMENTS_LIST[element_index].supported = supported;
+	}
+
+	/**
+	 * <p>Checks if the user chose to disable an element.</p>
+	 *
+	 * @param element_index the index of the element
+	 *
+	 * @return {@link ElementsObj#disable}
+	 */
+	public static boolean getElementDisable(final int element_index) {
+		return ELEMENTS_LIST[element_index].disable;
+	}
+
+	/**
+	 * <p>Sets if the user chose to disable an element.</p>
+	 *
+	 * @param element_index the index of the element
+	 * @param disable {@link ElementsObj#disable}
+	 */
+	public static void setElementDisable(final int element_index, final boolean disable) {
+		ELEMENTS_LIST[element_index].disable = disable;
 	}
 
 	/**
@@ -266,12 +286,12 @@ public final class ModulesList {
 	 * @return true if it's running, false otherwise
 	 */
 	public static boolean isElementRunning(final int element_index) {
-		switch (Math.abs((int) getElementValue(element_index, ELEMENT_TYPE1))) {
+		switch (Math.abs(getElementType1(element_index))) {
 			case (TYPE1_SERVICE_SEP): {
-				return UtilsServices.isServiceRunning((Class<?>) getElementValue(element_index, ELEMENT_CLASS));
+				return UtilsServices.isServiceRunning(getElementClass(element_index));
 			}
 			case (TYPE1_INSTANCE): {
-				return getElementValue(element_index, ELEMENT_INSTANCE) != null;
+				return getElementInstance(element_index) != null;
 			}
 			default: {
 				return false;
@@ -287,15 +307,17 @@ public final class ModulesList {
 	 * @return true if it's fully working, false otherwise
 	 */
 	public static boolean isElementFullyWorking(final int element_index) {
-		switch (Math.abs((int) getElementValue(element_index, ELEMENT_TYPE1))) {
+		switch (Math.abs(getElementType1(element_index))) {
 			case (TYPE1_SERVICE_SEP): {
 				// Assume it's fully working if it's of TYPE1_SERVICE_SEP, which doesn't implement IModule (no way of
 				// knowing yet).
 				return isElementRunning(element_index);
 			}
 			case (TYPE1_INSTANCE): {
-				return isElementRunning(element_index) &&
-						((IModuleInst) getElementValue(element_index, ELEMENT_INSTANCE)).isFullyWorking();
+				// Get the instance only once - it may be set to null by another thread in the meantime.
+				final IModuleInst instance = getElementInstance(element_index);
+
+				return instance != null && instance.isFullyWorking();
 			}
 			default: {
 				return false;
@@ -311,10 +333,9 @@ public final class ModulesList {
 	 * @return the index of the element
 	 */
 	public static int getElementIndex(@NonNull final Class<?> element_class) {
-		for (int element_index = 0; element_index < ELEMENTS_LIST_LENGTH; ++element_index) {
-			if (getElementValue(element_index, ELEMENT_CLASS) == element_class) {
-				return element_index;
-			}
+		final Integer element_index = ELEMENTS_INDEXES.get(element_class);
+		if (element_index != null) {
+			return element_index;
 		}
 
 		return -1; // Won't ever get here - just supply a valid element by not using a string and calling .class on the
@@ -332,12 +353,12 @@ public final class ModulesList {
 	 * @param element_index the index of the element to start
 	 */
 	public static void startElement(final int element_index) {
-		final Class<?> element_class = (Class<?>) getElementValue(element_index, ELEMENT_CLASS);
+		final Class<?> element_class = getElementClass(element_index);
 		if (!isElementSupported(element_class)) {
 			return;
 		}
 
-		switch (Math.abs((int) getElementValue(element_index, ELEMENT_TYPE1))) {
+		switch (Math.abs(getElementType1(element_index))) {
 			case (ModulesList.TYPE1_SERVICE_SEP): {
 				UtilsServices.startService((Class<? extends Service>) element_class, null, false, true, false);
 
@@ -346,7 +367,7 @@ public final class ModulesList {
 			case (ModulesList.TYPE1_INSTANCE): {
 				if (!ModulesList.isElementRunning(element_index)) {
 					try {
-						ELEMENTS_LIST[element_index].instance = element_class.getConstructor().newInstance();
+						ELEMENTS_LIST[element_index].instance = (IModuleInst) element_class.getConstructor().newInstance();
 					} catch (final NoSuchMethodException e) {
 						e.printStackTrace();
 					} catch (final IllegalAccessException e) {
@@ -377,18 +398,19 @@ public final class ModulesList {
 	 * @param element_index the index of the element to stop
 	 */
 	public static void stopElement(final int element_index) {
-		switch (Math.abs((int) getElementValue(element_index, ELEMENT_TYPE1))) {
+		switch (Math.abs(getElementType1(element_index))) {
 			case (ModulesList.TYPE1_SERVICE_SEP): {
 				if (ModulesList.isElementRunning(element_index)) {
-					final Class<?> element_class = (Class<?>) getElementValue(element_index, ELEMENT_CLASS);
+					final Class<?> element_class = getElementClass(element_index);
 					UtilsProcesses.killPID(UtilsProcesses.getRunningServicePID(element_class));
 				}
 
 				break;
 			}
 			case (ModulesList.TYPE1_INSTANCE): {
-				if (ModulesList.isElementRunning(element_index)) {
-					((IModuleInst) getElementValue(element_index, ELEMENT_INSTANCE)).destroy();
+				final IModuleInst instance = getElementInstance(element_index);
+				if (instance != null) {
+					instance.destroy();
 					ELEMENTS_LIST[element_index].instance = null;
 				}
 
@@ -418,12 +440,28 @@ public final class ModulesList {
 	 * @return true if the element is supported by the device, false otherwise
 	 */
 	public static boolean isElementSupported(@NonNull final Class<?> element_class) {
+		final int element_index = getElementIndex(element_class);
+		if (element_index >= 0) {
+			return invokeIsSupported(element_class, ELEMENTS_LIST[element_index].is_supported_method);
+		}
+
+		return invokeIsSupported(element_class, UtilsReflection.getMethod(element_class, "isSupported"));
+	}
+
+	/**
+	 * <p>Invokes the static {@code isSupported()} method of an element.</p>
+	 *
+	 * @param element_class the class of the element
+	 * @param method the {@code isSupported()} method of the element
+	 *
+	 * @return the value returned by the method
+	 */
+	private static boolean invokeIsSupported(@NonNull final Class<?> element_class, @Nullable final Method method) {
 		// Below I mention only modules, but it's exactly the same for submodules.
 		// Had to use reflection. It's to behave like IModule, but with a static method that changes for every
 		// module and that can be called through the class, so that it doesn't matter if the module is a separate
 		// process services. Can't use an interface - use reflection and make sure all modules implement the method on
 		// them.
-		final Method method = UtilsReflection.getMethod(element_class, "isSupported");
 		// In case this throws an error while I'm messing with the modules, so that I know in which module is the error.
 		if (method == null) {
 			UtilsLogging.logLnDebug(element_class);
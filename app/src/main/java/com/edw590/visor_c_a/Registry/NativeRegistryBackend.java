@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Registry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * <p>The {@link RegistryMirror.Backend} of the native Registry (UtilsSWA).</p>
+ */
+final class NativeRegistryBackend implements RegistryMirror.Backend {
+
+	@Override
+	@Nullable
+	public RegistryMirror.Snapshot load(@NonNull final String key) {
+		final UtilsSWA.Value value = UtilsSWA.UtilsSWA.getValueREGISTRY(key);
+		if (value == null) {
+			return null;
+		}
+
+		switch (value.getType()) {
+			case UtilsSWA.UtilsSWA.TYPE_BOOL:
+				return new RegistryMirror.Snapshot(RegistryMirror.TYPE_BOOL, value.getBool(true) ? 1 : 0, null,
+						value.getBool(false) ? 1 : 0, null, 0);
+			case UtilsSWA.UtilsSWA.TYPE_INT:
+				return new RegistryMirror.Snapshot(RegistryMirror.TYPE_INT, value.getInt(true), null,
+						value.getInt(false), null, 0);
+			case UtilsSWA.UtilsSWA.TYPE_LONG:
+				return new RegistryMirror.Snapshot(RegistryMirror.TYPE_LONG, value.getLong(true), null,
+						value.getLong(false), null, 0);
+			case UtilsSWA.UtilsSWA.TYPE_FLOAT:
+				return new RegistryMirror.Snapshot(RegistryMirror.TYPE_FLOAT,
+						Double.doubleToRawLongBits(value.getFloat(true)), null,
+						Double.doubleToRawLongBits(value.getFloat(false)), null, 0);
+			case UtilsSWA.UtilsSWA.TYPE_DOUBLE:
+				return new RegistryMirror.Snapshot(RegistryMirror.TYPE_DOUBLE,
+						Double.doubleToRawLongBits(value.getDouble(true)), null,
+						Double.doubleToRawLongBits(value.getDouble(false)), null, 0);
+			case UtilsSWA.UtilsSWA.TYPE_STRING:
+				return new RegistryMirror.Snapshot(RegistryMirror.TYPE_STRING, 0, value.getString(true), 0,
+						value.getString(false), 0);
+			default:
+				return null;
+		}
+	}
+
+	@Override
+	public void store(@NonNull final String key, @NonNull final RegistryMirror.Snapshot snapshot) {
+		final UtilsSWA.Value value = UtilsSWA.UtilsSWA.getValueREGISTRY(key);
+		if (value == null) {
+			return;
+		}
+
+		switch (snapshot.type) {
+			case RegistryMirror.TYPE_BOOL:
+				value.setBool(snapshot.curr_bits != 0, true);
+				break;
+			case RegistryMirror.TYPE_INT:
+				value.setInt((int) snapshot.curr_bits, true);
+				break;
+			case RegistryMirror.TYPE_LONG:
+				value.setLong(snapshot.curr_bits, true);
+				break;
+			case RegistryMirror.TYPE_FLOAT:
+				value.setFloat((float) Double.longBitsToDouble(snapshot.curr_bits), true);
+				break;
+			case RegistryMirror.TYPE_DOUBLE:
+				value.setDouble(Double.longBitsToDouble(snapshot.curr_bits), true);
+				break;
+			default:
+				value.setData(snapshot.getString(true), true);
+				break;
+		}
+	}
+}
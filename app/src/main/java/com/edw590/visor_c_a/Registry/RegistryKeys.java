@@ -109,11 +109,17 @@ public final class RegistryKeys {
 	public static final String K_SPEECH_CRITICAL_VOL = SETTINGS_PREFIX + "SPEECH_CRITICAL_VOL";
 	/** Type: boolean. */
 	public static final String K_SPEECH_ALWAYS_NOTIFY = SETTINGS_PREFIX + "SPEECH_ALWAYS_NOTIFY";
+	/** Type: boolean. */
+	public static final String K_SPEECH_PHRASE_CACHE = SETTINGS_PREFIX + "SPEECH_PHRASE_CACHE";
 
 	// Permissions and authorizations
 	/** Type: boolean. */
 	public static final String K_PERMS_AUTHS_FORCE_ALL = SETTINGS_PREFIX + "PERMS_AUTHS_KEEP_FORCING";
 
+	// System Checker
+	/** Type: int. */
+	public static final String K_DEVICE_INFO_UPLINK_INTERVAL = SETTINGS_PREFIX + "DEVICE_INFO_UPLINK_INTERVAL";
+
 	// Augmented Reality
 	/** Type: int. */
 	public static final String K_AR_CAM_MAX_WIDTH = SETTINGS_PREFIX + "AR_CAM_MAX_WIDTH";
@@ -202,11 +208,19 @@ public final class RegistryKeys {
 				"The volume at which to speak critical speeches", UtilsSWA.TYPE_INT, "100", false);
 		UtilsSWA.registerValueREGISTRY(K_SPEECH_ALWAYS_NOTIFY, "Speech - Always notify",
 				"Always notify speeches", UtilsSWA.TYPE_BOOL, "false", false);
+		UtilsSWA.registerValueREGISTRY(K_SPEECH_PHRASE_CACHE, "Speech - Cache repeated phrases",
+				"Keep repeated phrases synthesized on the storage so they start being spoken sooner (Android 5+)",
+				UtilsSWA.TYPE_BOOL, "true", false);
 
 		// Permissions and authorizations
 		UtilsSWA.registerValueREGISTRY(K_PERMS_AUTHS_FORCE_ALL, "Permissions and authorizations - Force all",
 				"Keep forcing all app permissions and authorizations", UtilsSWA.TYPE_BOOL, "false", false);
 
+		// System Checker
+		UtilsSWA.registerValueREGISTRY(K_DEVICE_INFO_UPLINK_INTERVAL, "System Checker - Device info uplink interval",
+				"Seconds between sending changes of the device information that are not urgent (like the battery " +
+				"level or the nearby devices)", UtilsSWA.TYPE_INT, "5", false);
+
 		// Augmented Reality
 		UtilsSWA.registerValueREGISTRY(K_AR_CAM_MAX_WIDTH, "Augmented Reality - Camera width",
 				"The maximum width of the camera", UtilsSWA.TYPE_INT, "320", false);
@@ -217,5 +231,6 @@ public final class RegistryKeys {
 		// Clean the registry
 
 		UtilsSWA.cleanRegistryREGISTRY();
+		UtilsRegistry.resetMirror();
 	}
 }
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Registry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Java-side copy of the Registry values, so reading a value never goes to the native library and writing one only
+ * goes there in batches.</p>
+ * <p>Each key has a slot holding an immutable {@link Snapshot} of its current and previous values, stored as
+ * primitives. A read is a single volatile read of the slot (wait-free); a write replaces the snapshot with a
+ * compare-and-set and marks the slot dirty. The dirty slots are written to the {@link Backend} together
+ * {@link #FLUSH_DELAY_MS} after the first write, so a value written many times in the meantime is only written there
+ * once.</p>
+ * <p>The changes of the values are notified to the {@link RegistrySubscription}s of their keys.</p>
+ * <p>A key is loaded from the backend the first time it's used. All writes must go through here for the copy to stay
+ * right - if the backend is changed by other means, call {@link #reset()}.</p>
+ * <p>This class is thread-safe.</p>
+ */
+final class RegistryMirror {
+
+	static final int TYPE_BOOL = 0;
+	static final int TYPE_INT = 1;
+	static final int TYPE_LONG = 2;
+	static final int TYPE_FLOAT = 3;
+	static final int TYPE_DOUBLE = 4;
+	static final int TYPE_STRING = 5;
+
+	/** Return of {@link #set(String, int, long, String, boolean)}: the value was updated. */
+	static final int SET_UPDATED = 0;
+	/** Return of {@link #set(String, int, long, String, boolean)}: the value is the same, so it wasn't updated. */
+	static final int SET_SAME = 1;
+	/** Return of {@link #set(String, int, long, String, boolean)}: the key doesn't exist or has another type - use the
+	 * backend directly. */
+	static final int SET_UNSUPPORTED = 2;
+
+	/** Milliseconds between the first write to a clean mirror and writing the dirty values to the backend. */
+	static final long FLUSH_DELAY_MS = 500;
+
+	/**
+	 * <p>Where the values really are (the native Registry).</p>
+	 */
+	interface Backend {
+		/**
+		 * <p>Gets the current and previous values of a key.</p>
+		 *
+		 * @param key the key
+		 *
+		 * @return the values, or null if the key doesn't exist
+		 */
+		@Nullable
+		Snapshot load(@NonNull String key);
+
+		/**
+		 * <p>Sets the current value of a key, even if it's the same.</p>
+		 *
+		 * @param key the key
+		 * @param snapshot the snapshot with the value
+		 */
+		void store(@NonNull String key, @NonNull Snapshot snapshot);
+	}
+
+	/**
+	 * <p>Immutable current and previous values of a key.</p>
+	 * <p>Booleans are stored as 0 or 1, ints and longs as they are, floats and doubles as the bits of the double. The
+	 * strings are only used with {@link #TYPE_STRING}.</p>
+	 */
+	static final class Snapshot {
+		final int type;
+		final long curr_bits;
+		@Nullable final String curr_str;
+		final long prev_bits;
+		@Nullable final String prev_str;
+		/** Incremented on each update of the value. */
+		final long version;
+
+		Snapshot(final int type, final long curr_bits, @Nullable final String curr_str, final long prev_bits,
+				 @Nullable final String prev_str, final long version) {
+			this.type = type;
+			this.curr_bits = curr_bits;
+			this.curr_str = curr_str;
+			this.prev_bits = prev_bits;
+			this.prev_str = prev_str;
+			this.version = version;
+		}
+
+		long getBits(final boolean curr_data) {
+			return curr_data ? curr_bits : prev_bits;
+		}
+
+		@NonNull
+		String getString(final boolean curr_data) {
+			final String str = curr_data ? curr_str : prev_str;
+
+			return str == null ? "" : str;
+		}
+
+		/**
+		 * <p>Gets a value boxed in its type.</p>
+		 *
+		 * @param curr_data true for the current value, false for the previous one
+		 *
+		 * @return the value
+		 */
+		@NonNull
+		Object toObject(final boolean curr_data) {
+			final long bits = getBits(curr_data);
+			switch (type) {
+				case TYPE_BOOL:
+					return bits != 0;
+				case TYPE_INT:
+					return (int) bits;
+				case TYPE_LONG:
+					return bits;
+				case TYPE_FLOAT:
+					return (float) Double.longBitsToDouble(bits);
+				case TYPE_DOUBLE:
+					return Double.longBitsToDouble(bits);
+				default:
+					return getString(curr_data);
+			}
+		}
+
+		boolean currEquals(final long bits, @Nullable final String str) {
+			if (type == TYPE_STRING) {
+				return getString(true).equals(str == null ? "" : str);
+			}
+
+			return curr_bits == bits;
+		}
+	}
+
+	/** The slot of a key. */
+	private static final class Slot {
+		@NonNull final String key;
+		@NonNull final AtomicReference<Snapshot> snapshot;
+		/** If the slot is on {@link #dirty_slots}. */
+		@NonNull final AtomicBoolean dirty = new AtomicBoolean(false);
+
+		Slot(@NonNull final String key, @NonNull final Snapshot snapshot) {
+			this.key = key;
+			this.snapshot = new AtomicReference<>(snapshot);
+		}
+	}
+
+	@NonNull private final Backend backend;
+	/** The slots by key. Copy-on-write: the map itself is never changed, only replaced. */
+	@NonNull private volatile Map<String, Slot> slots = Collections.emptyMap();
+	@NonNull private final ConcurrentLinkedQueue<Slot> dirty_slots = new ConcurrentLinkedQueue<>();
+	@NonNull private final AtomicBoolean flush_scheduled = new AtomicBoolean(false);
+	/** Held while flushing, so a flush can't store an older snapshot of a slot after another one stored a newer one. */
+	@NonNull private final Object flush_lock = new Object();
+	@NonNull private final ScheduledThreadPoolExecutor flusher;
+	/** The subscriptions by key. */
+	@NonNull private final Map<String, CopyOnWriteArrayList<RegistrySubscription>> subscriptions =
+			new ConcurrentHashMap<>(8);
+	/** The subscriptions to all keys. */
+	@NonNull private final CopyOnWriteArrayList<RegistrySubscription> all_keys_subscriptions =
+			new CopyOnWriteArrayList<>();
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param backend the backend
+	 */
+	RegistryMirror(@NonNull final Backend backend) {
+		this.backend = backend;
+
+		flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+			final Thread thread = new Thread(runnable, "RegistryMirror flusher");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
+	/**
+	 * <p>Gets the snapshot of a key.</p>
+	 *
+	 * @param key the key
+	 *
+	 * @return the snapshot, or null if the key doesn't exist
+	 */
+	@Nullable
+	Snapshot get(@NonNull final String key) {
+		final Slot slot = getSlot(key);
+
+		return slot == null ? null : slot.snapshot.get();
+	}
+
+	/**
+	 * <p>Sets the value of a key.</p>
+	 *
+	 * @param key the key
+	 * @param type the type of the value, which must be the type of the key
+	 * @param bits the value if it's not a string (see {@link Snapshot})
+	 * @param str the value if it's a string
+	 * @param update_if_same if the value should be updated even if it's the same as the current one
+	 *
+	 * @return one of the {@code SET_} constants
+	 */
+	int set(@NonNull final String key, final int type, final long bits, @Nullable final String str,
+			final boolean update_if_same) {
+		final Slot slot = getSlot(key);
+		if (slot == null) {
+			return SET_UNSUPPORTED;
+		}
+
+		boolean changed;
+		while (true) {
+			final Snapshot old_snapshot = slot.snapshot.get();
+			if (old_snapshot.type != type) {
+				return SET_UNSUPPORTED;
+			}
+			changed = !old_snapshot.currEquals(bits, str);
+			if (!update_if_same && !changed) {
+				return SET_SAME;
+			}
+
+			final Snapshot new_snapshot = new Snapshot(type, bits, str, old_snapshot.curr_bits, old_snapshot.curr_str,
+					old_snapshot.version + 1);
+			if (slot.snapshot.compareAndSet(old_snapshot, new_snapshot)) {
+				break;
+			}
+		}
+
+		if (slot.dirty.compareAndSet(false, true)) {
+			dirty_slots.offer(slot);
+		}
+		if (flush_scheduled.compareAndSet(false, true)) {
+			flusher.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+		}
+		if (changed) {
+			notifyChanged(key);
+		}
+
+		return SET_UPDATED;
+	}
+
+	/**
+	 * <p>Writes all the dirty values to the backend now.</p>
+	 * <p>Flushes are serialized - if one is running already, this one waits for it to finish.</p>
+	 */
+	void flush() {
+		synchronized (flush_lock) {
+			flush_scheduled.set(false);
+
+			Slot slot;
+			while ((slot = dirty_slots.poll()) != null) {
+				// Clear the flag before reading the value, so a write after this will mark the slot dirty again and
+				// be stored after this one (by this flush or the next, as they don't overlap).
+				slot.dirty.set(false);
+				backend.store(slot.key, slot.snapshot.get());
+			}
+		}
+	}
+
+	/**
+	 * <p>Reloads a key from the backend, after it was changed there by other means.</p>
+	 *
+	 * @param key the key
+	 */
+	void reload(@NonNull final String key) {
+		final Slot slot = getSlot(key);
+		if (slot == null) {
+			return;
+		}
+
+		final Snapshot snapshot = backend.load(key);
+		if (snapshot == null) {
+			return;
+		}
+
+		final Snapshot old_snapshot = slot.snapshot.getAndSet(snapshot);
+		if (old_snapshot.type != snapshot.type || !old_snapshot.currEquals(snapshot.curr_bits, snapshot.curr_str)) {
+			notifyChanged(key);
+		}
+	}
+
+	/**
+	 * <p>Adds a subscription.</p>
+	 *
+	 * @param subscription the subscription
+	 */
+	void subscribe(@NonNull final RegistrySubscription subscription) {
+		if (subscription.key == null) {
+			all_keys_subscriptions.add(subscription);
+
+			return;
+		}
+
+		synchronized (subscriptions) {
+			CopyOnWriteArrayList<RegistrySubscription> key_subscriptions = subscriptions.get(subscription.key);
+			if (key_subscriptions == null) {
+				key_subscriptions = new CopyOnWriteArrayList<>();
+				subscriptions.put(subscription.key, key_subscriptions);
+			}
+			key_subscriptions.add(subscription);
+		}
+	}
+
+	/**
+	 * <p>Removes a subscription.</p>
+	 *
+	 * @param subscription the subscription
+	 */
+	void unsubscribe(@NonNull final RegistrySubscription subscription) {
+		if (subscription.key == null) {
+			all_keys_subscriptions.remove(subscription);
+
+			return;
+		}
+
+		synchronized (subscriptions) {
+			final CopyOnWriteArrayList<RegistrySubscription> key_subscriptions = subscriptions.get(subscription.key);
+			if (key_subscriptions != null) {
+				key_subscriptions.remove(subscription);
+				if (key_subscriptions.isEmpty()) {
+					subscriptions.remove(subscription.key);
+				}
+			}
+		}
+	}
+
+	private void notifyChanged(@NonNull final String key) {
+		final CopyOnWriteArrayList<RegistrySubscription> key_subscriptions = subscriptions.get(key);
+		if (key_subscriptions != null) {
+			for (final RegistrySubscription subscription : key_subscriptions) {
+				subscription.notifyChanged(key);
+			}
+		}
+		for (final RegistrySubscription subscription : all_keys_subscriptions) {
+			subscription.notifyChanged(key);
+		}
+	}
+
+	/**
+	 * <p>Writes the dirty values to the backend and forgets all keys, so they're loaded again on the next use. The
+	 * subscriptions are kept.</p>
+	 */
+	synchronized void reset() {
+		flush();
+		slots = Collections.emptyMap();
+	}
+
+	/**
+	 * <p>Gets the slot of a key, loading it from the backend if it wasn't loaded yet.</p>
+	 *
+	 * @param key the key
+	 *
+	 * @return the slot, or null if the key doesn't exist
+	 */
+	@Nullable
+	private Slot getSlot(@NonNull final String key) {
+		final Slot slot = slots.get(key);
+		if (slot != null) {
+			return slot;
+		}
+
+		return loadSlot(key);
+	}
+
+	@Nullable
+	private synchronized Slot loadSlot(@NonNull final String key) {
+		Slot slot = slots.get(key);
+		if (slot != null) {
+			return slot;
+		}
+
+		final Snapshot snapshot = backend.load(key);
+		if (snapshot == null) {
+			return null;
+		}
+
+		slot = new Slot(key, snapshot);
+		final Map<String, Slot> new_slots = new HashMap<>(slots);
+		new_slots.put(key, slot);
+		slots = Collections.unmodifiableMap(new_slots);
+
+		return slot;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Registry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>A subscription to the changes of Registry values, got from {@link UtilsRegistry#subscribe(String, Executor,
+ * Listener)} or {@link UtilsRegistry#subscribeAll(Executor, Listener)}.</p>
+ * <p>The listener is called on the chosen executor, once per changed key. The calls are coalesced: if a key changes
+ * many times before the listener is called, it's only called once - so always get the latest value inside it.</p>
+ * <p>Only changes made through {@link UtilsRegistry} are seen - not the ones made by the native libraries
+ * themselves.</p>
+ */
+public final class RegistrySubscription {
+
+	/**
+	 * <p>Listener of the changes of Registry values.</p>
+	 */
+	public interface Listener {
+		/**
+		 * <p>Called when the current value of a key changed.</p>
+		 *
+		 * @param key the key
+		 */
+		void onChanged(@NonNull String key);
+	}
+
+	/** The key subscribed to, or null for all keys. */
+	@Nullable final String key;
+	@NonNull private final Executor executor;
+	@NonNull private final Listener listener;
+	@NonNull private final RegistryMirror mirror;
+	/** The keys that changed since the listener was last called for them. */
+	@NonNull private final Set<String> pending_keys = Collections.newSetFromMap(new ConcurrentHashMap<>(4));
+	@NonNull private final AtomicBoolean delivery_scheduled = new AtomicBoolean(false);
+	private volatile boolean cancelled = false;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param key {@link #key}
+	 * @param executor the executor to call the listener on
+	 * @param listener the listener
+	 * @param mirror the mirror the subscription is on
+	 */
+	RegistrySubscription(@Nullable final String key, @NonNull final Executor executor, @NonNull final Listener listener,
+						 @NonNull final RegistryMirror mirror) {
+		this.key = key;
+		this.executor = executor;
+		this.listener = listener;
+		this.mirror = mirror;
+	}
+
+	/**
+	 * <p>Called by the mirror when a key this subscription is on changed.</p>
+	 *
+	 * @param changed_key the key
+	 */
+	void notifyChanged(@NonNull final String changed_key) {
+		if (cancelled) {
+			return;
+		}
+
+		pending_keys.add(changed_key);
+		if (delivery_scheduled.compareAndSet(false, true)) {
+			executor.execute(this::deliver);
+		}
+	}
+
+	private void deliver() {
+		// Reset before taking the keys, so a change after this schedules another delivery.
+		delivery_scheduled.set(false);
+
+		final Iterator<String> iterator = pending_keys.iterator();
+		while (iterator.hasNext()) {
+			final String changed_key = iterator.next();
+			iterator.remove();
+			if (!cancelled) {
+				listener.onChanged(changed_key);
+			}
+		}
+	}
+
+	/**
+	 * <p>Cancels the subscription. The listener is not called anymore after this returns, except for a call already
+	 * running.</p>
+	 */
+	public void cancel() {
+		cancelled = true;
+		mirror.unsubscribe(this);
+	}
+}
@@ -23,11 +23,20 @@ package com.edw590.visor_c_a.Registry;
 
 import androidx.annotation.NonNull;
 
+import java.util.concurrent.Executor;
+
 /**
  * <p>Utilities related to the Static Storage.</p>
+ * <p>The values are read from and written to a {@link RegistryMirror} of the native Registry, so reading never goes to
+ * the native library and writing goes there in batches. The native Registry is then up to
+ * {@link RegistryMirror#FLUSH_DELAY_MS} behind, except when reading through {@link #getValues()}.</p>
+ * <p>To react to changes of the values instead of checking them from time to time, use
+ * {@link #subscribe(String, Executor, RegistrySubscription.Listener)}.</p>
  */
 public final class UtilsRegistry {
 
+	private static final RegistryMirror mirror = new RegistryMirror(new NativeRegistryBackend());
+
 	/**
 	 * <p>Private empty constructor so the class can't be instantiated (utility class).</p>
 	 */
@@ -40,26 +49,109 @@ public final class UtilsRegistry {
 	 * @param key the key
 	 * @param new_value the new value
 	 * @param update_if_same if the value should be updated even if it's the same as the current one
+	 *
+	 * @return true if the value was updated, false otherwise
 	 */
 	public static boolean setData(@NonNull final String key, @NonNull final Object new_value, final boolean update_if_same) {
-		UtilsSWA.Value value = UtilsSWA.UtilsSWA.getValueREGISTRY(key);
+		final int ret;
 		if (new_value instanceof Boolean) {
-			return value.setBool((boolean) new_value, update_if_same);
+			ret = mirror.set(key, RegistryMirror.TYPE_BOOL, (boolean) new_value ? 1 : 0, null, update_if_same);
 		} else if (new_value instanceof Integer) {
-			return value.setInt((int) new_value, update_if_same);
+			ret = mirror.set(key, RegistryMirror.TYPE_INT, (int) new_value, null, update_if_same);
 		} else if (new_value instanceof String) {
-			// In case new_value is provided in String form with a number inside or boolean, just use setData() instead
-			// of setString() to force the update.
-			return value.setData((String) new_value, update_if_same);
+			// If the key is not of type String, the string may have a number or boolean inside - that's handled by the
+			// native setData() below.
+			ret = mirror.set(key, RegistryMirror.TYPE_STRING, 0, (String) new_value, update_if_same);
 		} else if (new_value instanceof Long) {
-			return value.setLong((long) new_value, update_if_same);
+			ret = mirror.set(key, RegistryMirror.TYPE_LONG, (long) new_value, null, update_if_same);
 		} else if (new_value instanceof Float) {
-			return value.setFloat((float) new_value, update_if_same);
+			ret = mirror.set(key, RegistryMirror.TYPE_FLOAT, Double.doubleToRawLongBits((float) new_value), null,
+					update_if_same);
 		} else if (new_value instanceof Double) {
-			return value.setDouble((double) new_value, update_if_same);
+			ret = mirror.set(key, RegistryMirror.TYPE_DOUBLE, Double.doubleToRawLongBits((double) new_value), null,
+					update_if_same);
 		} else {
 			throw new IllegalArgumentException("The new value must be a boolean, int, String, long, float or double.");
 		}
+
+		if (ret != RegistryMirror.SET_UNSUPPORTED) {
+			return ret == RegistryMirror.SET_UPDATED;
+		}
+
+		return setDataNative(key, new_value, update_if_same);
+	}
+
+	/**
+	 * <p>Same as {@link #setData(String, Object, boolean)} but for a boolean key, without boxing the value.</p>
+	 *
+	 * @param key the key
+	 * @param new_value the new value
+	 * @param update_if_same if the value should be updated even if it's the same as the current one
+	 *
+	 * @return true if the value was updated, false otherwise
+	 */
+	public static boolean setBool(@NonNull final String key, final boolean new_value, final boolean update_if_same) {
+		final int ret = mirror.set(key, RegistryMirror.TYPE_BOOL, new_value ? 1 : 0, null, update_if_same);
+		if (ret != RegistryMirror.SET_UNSUPPORTED) {
+			return ret == RegistryMirror.SET_UPDATED;
+		}
+
+		return setDataNative(key, new_value, update_if_same);
+	}
+
+	/**
+	 * <p>Same as {@link #setData(String, Object, boolean)} but for an int key, without boxing the value.</p>
+	 *
+	 * @param key the key
+	 * @param new_value the new value
+	 * @param update_if_same if the value should be updated even if it's the same as the current one
+	 *
+	 * @return true if the value was updated, false otherwise
+	 */
+	public static boolean setInt(@NonNull final String key, final int new_value, final boolean update_if_same) {
+		final int ret = mirror.set(key, RegistryMirror.TYPE_INT, new_value, null, update_if_same);
+		if (ret != RegistryMirror.SET_UNSUPPORTED) {
+			return ret == RegistryMirror.SET_UPDATED;
+		}
+
+		return setDataNative(key, new_value, update_if_same);
+	}
+
+	/**
+	 * <p>Sets a value directly on the native Registry, for the cases the mirror doesn't handle (like a string with a
+	 * number for an int key), and loads it back into the mirror.</p>
+	 *
+	 * @param key the key
+	 * @param new_value the new value
+	 * @param update_if_same if the value should be updated even if it's the same as the current one
+	 *
+	 * @return true if the value was updated, false otherwise
+	 */
+	private static boolean setDataNative(@NonNull final String key, @NonNull final Object new_value,
+										 final boolean update_if_same) {
+		// So a pending write of the mirror doesn't overwrite this one.
+		mirror.flush();
+
+		final UtilsSWA.Value value = UtilsSWA.UtilsSWA.getValueREGISTRY(key);
+		final boolean ret;
+		if (new_value instanceof Boolean) {
+			ret = value.setBool((boolean) new_value, update_if_same);
+		} else if (new_value instanceof Integer) {
+			ret = value.setInt((int) new_value, update_if_same);
+		} else if (new_value instanceof String) {
+			// In case new_value is provided in String form with a number inside or boolean, just use setData() instead
+			// of setString() to force the update.
+			ret = value.setData((String) new_value, update_if_same);
+		} else if (new_value instanceof Long) {
+			ret = value.setLong((long) new_value, update_if_same);
+		} else if (new_value instanceof Float) {
+			ret = value.setFloat((float) new_value, update_if_same);
+		} else {
+			ret = value.setDouble((double) new_value, update_if_same);
+		}
+		mirror.reload(key);
+
+		return ret;
 	}
 
 	/**
@@ -72,23 +164,66 @@ public final class UtilsRegistry {
 	 */
 	@NonNull
 	public static Object getData(@NonNull final String key, final boolean curr_data) {
-		UtilsSWA.Value value = UtilsSWA.UtilsSWA.getValueREGISTRY(key);
-		switch (value.getType()) {
-			case UtilsSWA.UtilsSWA.TYPE_BOOL:
-				return value.getBool(curr_data);
-			case UtilsSWA.UtilsSWA.TYPE_INT:
-				return Math.toIntExact(value.getInt(curr_data));
-			case UtilsSWA.UtilsSWA.TYPE_STRING:
-				return value.getString(curr_data);
-			case UtilsSWA.UtilsSWA.TYPE_LONG:
-				return value.getLong(curr_data);
-			case UtilsSWA.UtilsSWA.TYPE_FLOAT:
-				return value.getFloat(curr_data);
-			case UtilsSWA.UtilsSWA.TYPE_DOUBLE:
-				return value.getDouble(curr_data);
-			default:
-				throw new IllegalArgumentException("The value type is not supported: " + value.getType());
+		return getSnapshot(key).toObject(curr_data);
+	}
+
+	/**
+	 * <p>Same as {@link #getData(String, boolean)} but for a boolean key, without boxing the value.</p>
+	 *
+	 * @param key the key associated with the wanted value
+	 * @param curr_data if the current data is wanted or the previous data
+	 *
+	 * @return the value for the given key
+	 */
+	public static boolean getBool(@NonNull final String key, final boolean curr_data) {
+		return getSnapshot(key).getBits(curr_data) != 0;
+	}
+
+	/**
+	 * <p>Same as {@link #getData(String, boolean)} but for an int key, without boxing the value.</p>
+	 *
+	 * @param key the key associated with the wanted value
+	 * @param curr_data if the current data is wanted or the previous data
+	 *
+	 * @return the value for the given key
+	 */
+	public static int getInt(@NonNull final String key, final boolean curr_data) {
+		return (int) getSnapshot(key).getBits(curr_data);
+	}
+
+	/**
+	 * <p>Same as {@link #getData(String, boolean)} but for a long key, without boxing the value.</p>
+	 *
+	 * @param key the key associated with the wanted value
+	 * @param curr_data if the current data is wanted or the previous data
+	 *
+	 * @return the value for the given key
+	 */
+	public static long getLong(@NonNull final String key, final boolean curr_data) {
+		return getSnapshot(key).getBits(curr_data);
+	}
+
+	/**
+	 * <p>Same as {@link #getData(String, boolean)} but for a String key.</p>
+	 *
+	 * @param key the key associated with the wanted value
+	 * @param curr_data if the current data is wanted or the previous data
+	 *
+	 * @return the value for the given key
+	 */
+	@NonNull
+	public static String getString(@NonNull final String key, final boolean curr_data) {
+		return getSnapshot(key).getString(curr_data);
+	}
+
+	@NonNull
+	private static RegistryMirror.Snapshot getSnapshot(@NonNull final String key) {
+		final RegistryMirror.Snapshot snapshot = mirror.get(key);
+		if (snapshot == null) {
+			throw new IllegalArgumentException("The key does not exist or its type is not supported: " + key);
 		}
+
+		return snapshot;
 	}
 
 	/**
@@ -98,6 +233,8 @@ public final class UtilsRegistry {
 	 */
 	@NonNull
 	public static UtilsSWA.Value[] getValues() {
+		flush();
+
 		String[] keys = UtilsSWA.UtilsSWA.getKeysREGISTRY().split("\\|");
 		UtilsSWA.Value[] values = new UtilsSWA.Value[keys.length];
 		for (int i = 0; i < keys.length; ++i) {
@@ -106,4 +243,54 @@ public final class UtilsRegistry {
 
 		return values;
 	}
+
+	/**
+	 * <p>Subscribes to the changes of the value of a key.</p>
+	 *
+	 * @param key the key
+	 * @param executor the executor to call the listener on
+	 * @param listener the listener
+	 *
+	 * @return the subscription, to cancel when it's no longer needed
+	 */
+	@NonNull
+	public static RegistrySubscription subscribe(@NonNull final String key, @NonNull final Executor executor,
+												 @NonNull final RegistrySubscription.Listener listener) {
+		final RegistrySubscription subscription = new RegistrySubscription(key, executor, listener, mirror);
+		mirror.subscribe(subscription);
+
+		return subscription;
+	}
+
+	/**
+	 * <p>Subscribes to the changes of the values of all keys.</p>
+	 *
+	 * @param executor the executor to call the listener on
+	 * @param listener the listener
+	 *
+	 * @return the subscription, to cancel when it's no longer needed
+	 */
+	@NonNull
+	public static RegistrySubscription subscribeAll(@NonNull final Executor executor,
+													@NonNull final RegistrySubscription.Listener listener) {
+		final RegistrySubscription subscription = new RegistrySubscription(null, executor, listener, mirror);
+		mirror.subscribe(subscription);
+
+		return subscription;
+	}
+
+	/**
+	 * <p>Writes the pending values to the native Registry now - call before reading it directly.</p>
+	 */
+	public static void flush() {
+		mirror.flush();
+	}
+
+	/**
+	 * <p>Writes the pending values to the native Registry and forgets the mirrored ones - call after the keys of the
+	 * native Registry were changed other than through here (registered or removed).</p>
+	 */
+	static void resetMirror() {
+		mirror.reset();
+	}
 }
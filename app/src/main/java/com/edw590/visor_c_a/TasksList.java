@@ -22,29 +22,46 @@
 package com.edw590.visor_c_a;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>Class that stores all {@link Task}s to be executed by VISOR.</p>
  * <p>All in here is static so the runnables will remain here after added for as long as the app process lives.</p>
+ * <p>The tasks are kept in {@link #NUM_STRIPES} int-keyed open-addressing tables, each with its own lock, so adding
+ * and removing a task is O(1) and threads only contend if they hit the same stripe.</p>
  * <p>This class is thread-safe.</p>
  */
 public final class TasksList {
 
-	// By default, capacity of 10.
-	static final List<Task> tasks_list = new ArrayList<>(10);
+	/** Number of lock stripes - must be a power of 2. */
+	private static final int NUM_STRIPES = 8;
+	/** The stripes where the tasks are stored. The stripe of a task is chosen by the lower bits of its ID. */
+	private static final TasksTable[] stripes = new TasksTable[NUM_STRIPES];
+	static {
+		for (int i = 0; i < NUM_STRIPES; ++i) {
+			stripes[i] = new TasksTable();
+		}
+	}
+
+	/** Counter to generate the task IDs - it wraps around, so in practice an ID is only reused after 2^31 tasks. */
+	private static final AtomicInteger id_counter = new AtomicInteger(0);
 
 	/** Runnable that does nothing at all. */
 	private static final Runnable empty_runnable = new Runnable() {@Override public void run() {}};
 
+	/**
+	 * <p>Private empty constructor so the class can't be instantiated (utility class).</p>
+	 */
+	private TasksList() {
+	}
+
 	/** A postponed task to be executed VISOR. */
 	public static final class Task {
 		/** The runnable associated with this task (what to do). */
 		public final Runnable runnable;
-		/** A non-negative ID unique within {@link #tasks_list} associated with this task. */
+		/** A non-negative ID unique within the tasks list associated with this task (or -1 for the empty task). */
 		final int task_id;
 		/** The milliseconds of when the task was registered on the list. */
 		public final long registered_when;
@@ -53,20 +70,11 @@ public final class TasksList {
 		 * <p>Main class constructor.</p>
 		 *
 		 * @param runnable {@link #runnable}
+		 * @param task_id {@link #task_id}
 		 */
-		Task(@NonNull final Runnable runnable) {
+		Task(@NonNull final Runnable runnable, final int task_id) {
 			this.runnable = runnable;
-
-			final Random random = new Random();
-			int task_id_tmp = Math.abs(random.nextInt());
-			final int tasks_list_size = tasks_list.size();
-			for (int i = 0; i < tasks_list_size; ++i) {
-				if (tasks_list.get(i).task_id == task_id_tmp) {
-					task_id_tmp = Math.abs(random.nextInt());
-					i = -1;
-				}
-			}
-			task_id = task_id_tmp;
+			this.task_id = task_id;
 
 			registered_when = System.currentTimeMillis();
 		}
@@ -86,11 +94,17 @@ public final class TasksList {
 	 *
 	 * @return {@link Task#task_id}
 	 */
-	public static synchronized int addTask(@NonNull final Runnable runnable) {
-		final Task task = new Task(runnable);
-		tasks_list.add(task);
+	public static int addTask(@NonNull final Runnable runnable) {
+		while (true) {
+			// Clear the sign bit so the IDs wrap around to 0 instead of becoming negative.
+			final int task_id = id_counter.getAndIncrement() & Integer.MAX_VALUE;
 
-		return task.task_id;
+			final Task task = new Task(runnable, task_id);
+			if (getStripe(task_id).putIfAbsent(task)) {
+				return task_id;
+			}
+			// Else the ID is still in use by an old task (the counter wrapped around) - get another one.
+		}
 	}
 
 	/**
@@ -102,21 +116,174 @@ public final class TasksList {
 	 * on with no effect at all) or in case it doesn't exist on the list (which will never happen - why give a wrong ID)
 	 */
 	@NonNull
-	public static synchronized Task removeTask(final int task_id) {
+	public static Task removeTask(final int task_id) {
 		if (task_id >= 0) {
-			final int runnables_size = tasks_list.size();
-			for (int i = 0; i < runnables_size; ++i) {
-				final Task task = tasks_list.get(i);
-				if (task.task_id == task_id) {
-					// Don't execute and remove right here. If the task is executed here, not sure if the function remains
-					// active and then keeps the entire class locked (synchronized method).
-					tasks_list.remove(i);
+			// Don't execute the task here - only remove it. The stripe lock is only held during the removal.
+			final Task task = getStripe(task_id).remove(task_id);
+			if (task != null) {
+				return task;
+			}
+		}
+
+		return new Task(empty_runnable, -1);
+	}
+
+	/**
+	 * <p>Gets the stripe a task ID belongs to.</p>
+	 *
+	 * @param task_id the task ID
+	 *
+	 * @return the stripe
+	 */
+	@NonNull
+	private static TasksTable getStripe(final int task_id) {
+		return stripes[task_id & (NUM_STRIPES - 1)];
+	}
+
+	/**
+	 * <p>Open-addressing hash table (linear probing, backward-shift deletion) mapping task IDs to {@link Task}s,
+	 * without boxing the keys.</p>
+	 * <p>All methods lock on the instance itself.</p>
+	 */
+	private static final class TasksTable {
+		/** Marks an empty slot on {@link #keys} (the task IDs are never negative). */
+		private static final int EMPTY_KEY = -1;
+		/** Initial capacity - must be a power of 2. */
+		private static final int INITIAL_CAPACITY = 16;
+
+		private int[] keys = newKeysArray(INITIAL_CAPACITY);
+		private Task[] values = new Task[INITIAL_CAPACITY];
+		private int size = 0;
+
+		/**
+		 * <p>Adds a task to the table if its ID is not in use yet.</p>
+		 *
+		 * @param task the task
+		 *
+		 * @return true if the task was added, false if its ID was already in use
+		 */
+		synchronized boolean putIfAbsent(@NonNull final Task task) {
+			// Keep the load factor at or under 1/2 so the probe sequences remain short.
+			if ((size + 1) * 2 > keys.length) {
+				resize(keys.length * 2);
+			}
+
+			final int mask = keys.length - 1;
+			int idx = mix(task.task_id) & mask;
+			while (keys[idx] != EMPTY_KEY) {
+				if (keys[idx] == task.task_id) {
+					return false;
+				}
+				idx = (idx + 1) & mask;
+			}
+			keys[idx] = task.task_id;
+			values[idx] = task;
+			++size;
+
+			return true;
+		}
+
+		/**
+		 * <p>Removes a task from the table.</p>
+		 *
+		 * @param task_id the ID of the task
+		 *
+		 * @return the removed task, or null if there was no task with the given ID
+		 */
+		@Nullable
+		synchronized Task remove(final int task_id) {
+			final int mask = keys.length - 1;
+			int idx = mix(task_id) & mask;
+			while (keys[idx] != EMPTY_KEY) {
+				if (keys[idx] == task_id) {
+					final Task task = values[idx];
+					deleteSlot(idx);
+					--size;
 
 					return task;
 				}
+				idx = (idx + 1) & mask;
+			}
+
+			return null;
+		}
+
+		/**
+		 * <p>Empties a slot and shifts back the entries after it that would become unreachable, so no tombstones are
+		 * needed.</p>
+		 *
+		 * @param idx the index of the slot to empty
+		 */
+		private void deleteSlot(int idx) {
+			final int mask = keys.length - 1;
+			int next = (idx + 1) & mask;
+			while (keys[next] != EMPTY_KEY) {
+				final int home = mix(keys[next]) & mask;
+				// Move the entry back if its home slot is not cyclically between the emptied slot and its position.
+				if (((next - home) & mask) >= ((next - idx) & mask)) {
+					keys[idx] = keys[next];
+					values[idx] = values[next];
+					idx = next;
+				}
+				next = (next + 1) & mask;
+			}
+			keys[idx] = EMPTY_KEY;
+			values[idx] = null;
+		}
+
+		/**
+		 * <p>Rehashes the table into a new capacity.</p>
+		 *
+		 * @param new_capacity the new capacity - must be a power of 2
+		 */
+		private void resize(final int new_capacity) {
+			final int[] old_keys = keys;
+			final Task[] old_values = values;
+			keys = newKeysArray(new_capacity);
+			values = new Task[new_capacity];
+
+			final int mask = new_capacity - 1;
+			for (int i = 0; i < old_keys.length; ++i) {
+				if (old_keys[i] != EMPTY_KEY) {
+					int idx = mix(old_keys[i]) & mask;
+					while (keys[idx] != EMPTY_KEY) {
+						idx = (idx + 1) & mask;
+					}
+					keys[idx] = old_keys[i];
+					values[idx] = old_values[i];
+				}
+			}
+		}
+
+		/**
+		 * <p>Creates a new keys array with all slots empty.</p>
+		 *
+		 * @param capacity the capacity of the array
+		 *
+		 * @return the array
+		 */
+		@NonNull
+		private static int[] newKeysArray(final int capacity) {
+			final int[] new_keys = new int[capacity];
+			for (int i = 0; i < capacity; ++i) {
+				new_keys[i] = EMPTY_KEY;
 			}
+
+			return new_keys;
 		}
 
-		return new Task(empty_runnable);
+		/**
+		 * <p>Scrambles the bits of a task ID so sequential IDs (which share the lower bits inside a stripe) spread
+		 * over the table.</p>
+		 *
+		 * @param key the task ID
+		 *
+		 * @return the scrambled value
+		 */
+		private static int mix(final int key) {
+			final int h = key * 0x9E3779B9;
+
+			return h ^ (h >>> 16);
+		}
 	}
 }
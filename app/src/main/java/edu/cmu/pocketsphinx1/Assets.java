@@ -24,12 +24,15 @@
 package edu.cmu.pocketsphinx1;
 
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.util.Log;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,6 +40,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.nio.channels.FileChannel;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -45,6 +49,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Provides utility methods to keep asset files to external storage to allow
@@ -59,6 +68,14 @@ import java.util.Queue;
  * algorithm (e.g. MD5). Checksum files are copied along with the corresponding
  * asset files.
  *
+ * The synchronized files are recorded on a manifest ({@value #MANIFEST_NAME})
+ * with their checksum, size and modification time, along with the install time
+ * of the application package. While the package is not updated and the files
+ * keep their recorded size and modification time, nothing is opened at all.
+ * Otherwise only the small checksum assets are read, and only the files whose
+ * checksum changed (or which were modified on the storage) are copied - in
+ * parallel and through file channels when the asset is stored uncompressed.
+ *
  * @author Alexander Solovets
  */
 public class Assets {
@@ -66,11 +83,44 @@ public class Assets {
 	protected static final String TAG = Assets.class.getSimpleName();
 
 	public static final String ASSET_LIST_NAME = "assets.lst";
+	public static final String MANIFEST_NAME = "assets.manifest";
 	public static final String SYNC_DIR = "PocketSphinxFiles";
 	public static final String HASH_EXT = ".md5";
+	/** Extension of the files being copied, before they're renamed to their final names. */
+	private static final String TEMP_EXT = ".tmp";
+	/** Prefix of the manifest line with the install time of the package the files were synchronized from. */
+	private static final String STAMP_PREFIX = "#stamp ";
+	/** Buffer size for compressed assets, which can't be copied through a channel. */
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+	/** Maximum number of files copied at the same time. */
+	private static final int MAX_COPY_THREADS = 4;
 
 	private final AssetManager assetManager;
 	private final File cacheDir;
+	private final long packageStamp;
+
+	/**
+	 * A file recorded on the manifest.
+	 */
+	private static final class ManifestEntry {
+		final String hash;
+		final long size;
+		final long mtime;
+
+		ManifestEntry(String hash, long size, long mtime) {
+			this.hash = hash;
+			this.size = size;
+			this.mtime = mtime;
+		}
+
+		/**
+		 * Checks if the file on the storage still is the one recorded, without
+		 * opening it.
+		 */
+		boolean matches(File file) {
+			return file.length() == size && file.lastModified() == mtime;
+		}
+	}
 
 	/**
 	 * Creates new instance for asset synchronization
@@ -82,6 +132,7 @@ public class Assets {
 		File appDir = context.getCacheDir(); // Changed to the private app cache directory
 		cacheDir = new File(appDir, SYNC_DIR);
 		assetManager = context.getAssets();
+		packageStamp = getPackageStamp(context);
 	}
 
 	/**
@@ -95,6 +146,21 @@ public class Assets {
 	public Assets(Context context, String dest) {
 		cacheDir = new File(dest);
 		assetManager = context.getAssets();
+		packageStamp = getPackageStamp(context);
+	}
+
+	/**
+	 * Returns the time the application package was last installed or updated,
+	 * which changes every time the assets may have changed.
+	 *
+	 * @return the time, or -1 if it could not be obtained
+	 */
+	private static long getPackageStamp(Context context) {
+		try {
+			return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+		} catch (PackageManager.NameNotFoundException e) {
+			return -1;
+		}
 	}
 
 	/**
@@ -117,7 +183,12 @@ public class Assets {
 		Map<String, String> items = new HashMap<String, String>();
 		for (String path : readLines(openAsset(ASSET_LIST_NAME))) {
 			Reader reader = new InputStreamReader(openAsset(path + HASH_EXT));
-			items.put(path, new BufferedReader(reader).readLine());
+			BufferedReader br = new BufferedReader(reader);
+			try {
+				items.put(path, br.readLine());
+			} finally {
+				br.close();
+			}
 		}
 		return items;
 	}
@@ -127,17 +198,10 @@ public class Assets {
 	 * method can be used to find out assets which must be updated.
 	 */
 	public Map<String, String> getExternalItems() {
-		try {
-			Map<String, String> items = new HashMap<String, String>();
-			File assetFile = new File(cacheDir, ASSET_LIST_NAME);
-			for (String line : readLines(new FileInputStream(assetFile))) {
-				String[] fields = line.split(" ");
-				items.put(fields[0], fields[1]);
-			}
-			return items;
-		} catch (IOException e) {
-			return Collections.emptyMap();
-		}
+		Map<String, String> items = new HashMap<String, String>();
+		for (Map.Entry<String, ManifestEntry> entry : readManifest().entrySet())
+			items.put(entry.getKey(), entry.getValue().hash);
+		return items;
 	}
 
 	/**
@@ -165,14 +229,103 @@ public class Assets {
 	private List<String> readLines(InputStream source) throws IOException {
 		List<String> lines = new ArrayList<String>();
 		BufferedReader br = new BufferedReader(new InputStreamReader(source));
-		String line;
-		while ((line = br.readLine()) != null)
-			lines.add(line);
+		try {
+			String line;
+			while ((line = br.readLine()) != null)
+				lines.add(line);
+		} finally {
+			br.close();
+		}
 		return lines;
 	}
 
 	private InputStream openAsset(String asset) throws IOException {
-		return assetManager.open(new File(SYNC_DIR, asset).getPath());
+		return assetManager.open(getAssetPath(asset));
+	}
+
+	private static String getAssetPath(String asset) {
+		return new File(SYNC_DIR, asset).getPath();
+	}
+
+	/**
+	 * Reads the manifest of the synchronized files. Each line has the
+	 * checksum, size, modification time and path of a file, separated by
+	 * spaces - the path last, as it may contain spaces itself.
+	 *
+	 * @return the entries, or an empty map if the manifest does not exist, is
+	 *         corrupted, or was written for another version of the package
+	 */
+	private Map<String, ManifestEntry> readManifest() {
+		try {
+			Map<String, ManifestEntry> entries = new HashMap<String, ManifestEntry>();
+			List<String> lines = readLines(new FileInputStream(new File(cacheDir, MANIFEST_NAME)));
+			for (String line : lines) {
+				if (line.startsWith(STAMP_PREFIX))
+					continue;
+				String[] fields = line.split(" ", 4);
+				entries.put(fields[3], new ManifestEntry(fields[0], Long.parseLong(fields[1]),
+						Long.parseLong(fields[2])));
+			}
+			return entries;
+		} catch (IOException e) {
+			return Collections.emptyMap();
+		} catch (RuntimeException e) {
+			// Corrupted manifest - everything will be checked again.
+			return Collections.emptyMap();
+		}
+	}
+
+	/**
+	 * Checks if the manifest was written for the current package and all the
+	 * files recorded on it are still unchanged on the storage.
+	 */
+	private boolean isManifestUpToDate() {
+		if (packageStamp < 0)
+			return false;
+
+		try {
+			List<String> lines = readLines(new FileInputStream(new File(cacheDir, MANIFEST_NAME)));
+			if (lines.isEmpty() || !lines.get(0).equals(STAMP_PREFIX + packageStamp))
+				return false;
+		} catch (IOException e) {
+			return false;
+		}
+
+		Map<String, ManifestEntry> entries = readManifest();
+		if (entries.isEmpty())
+			return false;
+		for (Map.Entry<String, ManifestEntry> entry : entries.entrySet()) {
+			if (!entry.getValue().matches(new File(cacheDir, entry.getKey())))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the manifest of the synchronized files, recording the current
+	 * size and modification time of each of them.
+	 *
+	 * @param items
+	 *            the paths of the files mapped to their checksums
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void writeManifest(Map<String, String> items) throws IOException {
+		cacheDir.mkdirs();
+		File manifestFile = new File(cacheDir, MANIFEST_NAME);
+		File tempFile = new File(cacheDir, MANIFEST_NAME + TEMP_EXT);
+		PrintWriter pw = new PrintWriter(new FileOutputStream(tempFile));
+		try {
+			pw.format("%s%d\n", STAMP_PREFIX, packageStamp);
+			for (Map.Entry<String, String> entry : items.entrySet()) {
+				File file = new File(cacheDir, entry.getKey());
+				pw.format("%s %d %d %s\n", entry.getValue(), file.length(), file.lastModified(), entry.getKey());
+			}
+		} finally {
+			pw.close();
+		}
+		if (!tempFile.renameTo(manifestFile))
+			throw new IOException("Could not write " + manifestFile);
 	}
 
 	/**
@@ -186,43 +339,154 @@ public class Assets {
 	 *             if an I/O error occurs
 	 */
 	public void updateItemList(Map<String, String> items) throws IOException {
-		File assetListFile = new File(cacheDir, ASSET_LIST_NAME);
-		PrintWriter pw = new PrintWriter(new FileOutputStream(assetListFile));
-		for (Map.Entry<String, String> entry : items.entrySet())
-			pw.format("%s %s\n", entry.getKey(), entry.getValue());
-		pw.close();
+		writeManifest(items);
 	}
 
 	/**
 	 * Copies raw asset resource to external storage of the device.
 	 *
+	 * The asset is written to a temporary file first and renamed at the end,
+	 * so an interrupted copy is never taken for a complete file.
+	 *
 	 * @param path
 	 *            path of the asset to copy
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
 	public File copy(String asset) throws IOException {
-		InputStream source = openAsset(asset);
 		File destinationFile = new File(cacheDir, asset);
-		destinationFile.getParentFile().mkdirs();
-		OutputStream destination = new FileOutputStream(destinationFile);
-		byte[] buffer = new byte[1024];
-		int nread;
-
-		while ((nread = source.read(buffer)) != -1) {
-			if (nread == 0) {
-				nread = source.read();
-				if (nread < 0)
-					break;
-				destination.write(nread);
-				continue;
+		File parentDir = destinationFile.getParentFile();
+		parentDir.mkdirs();
+		File tempFile = new File(parentDir, destinationFile.getName() + TEMP_EXT);
+
+		AssetFileDescriptor assetFd = null;
+		try {
+			assetFd = assetManager.openFd(getAssetPath(asset));
+		} catch (FileNotFoundException e) {
+			// The asset is compressed inside the package - it can only be streamed.
+		}
+
+		if (assetFd != null) {
+			try {
+				copyChannel(assetFd, tempFile);
+			} finally {
+				assetFd.close();
 			}
-			destination.write(buffer, 0, nread);
+		} else {
+			copyStream(openAsset(asset), tempFile);
+		}
+
+		if (!tempFile.renameTo(destinationFile)) {
+			tempFile.delete();
+			throw new IOException("Could not rename " + tempFile + " to " + destinationFile);
 		}
-		destination.close();
 		return destinationFile;
 	}
 
+	/**
+	 * Copies an uncompressed asset with a channel transfer, which lets the
+	 * kernel move the bytes without them going through Java buffers.
+	 */
+	private static void copyChannel(AssetFileDescriptor assetFd, File destinationFile) throws IOException {
+		// Not closed: the stream doesn't own the descriptor, which is closed with the AssetFileDescriptor.
+		FileChannel source = new FileInputStream(assetFd.getFileDescriptor()).getChannel();
+		long start = assetFd.getStartOffset();
+		long length = assetFd.getLength();
+		if (length == AssetFileDescriptor.UNKNOWN_LENGTH)
+			length = source.size() - start;
+
+		FileOutputStream destination = new FileOutputStream(destinationFile);
+		try {
+			FileChannel destinationChannel = destination.getChannel();
+			long transferred = 0;
+			while (transferred < length) {
+				long ntransferred = source.transferTo(start + transferred, length - transferred, destinationChannel);
+				if (ntransferred <= 0)
+					throw new IOException("Unexpected end of asset while copying to " + destinationFile);
+				transferred += ntransferred;
+			}
+		} finally {
+			destination.close();
+		}
+	}
+
+	/**
+	 * Copies a compressed asset through a large buffer.
+	 */
+	private static void copyStream(InputStream source, File destinationFile) throws IOException {
+		try {
+			OutputStream destination = new FileOutputStream(destinationFile);
+			try {
+				byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+				int nread;
+				while ((nread = source.read(buffer)) != -1)
+					destination.write(buffer, 0, nread);
+			} finally {
+				destination.close();
+			}
+		} finally {
+			source.close();
+		}
+	}
+
+	/**
+	 * Copies the given assets, in parallel if there's more than one.
+	 *
+	 * @param paths
+	 *            paths of the assets to copy
+	 * @throws IOException
+	 *             if any of the copies fails
+	 */
+	private void copyAll(Collection<String> paths) throws IOException {
+		if (paths.size() <= 1) {
+			for (String path : paths) {
+				File file = copy(path);
+				Log.i(TAG, String.format("Copying asset %s to %s", path, file));
+			}
+			return;
+		}
+
+		int numThreads = Math.min(paths.size(),
+				Math.min(MAX_COPY_THREADS, Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numThreads));
+		try {
+			List<Future<File>> futures = new ArrayList<Future<File>>(paths.size());
+			for (final String path : paths) {
+				futures.add(executor.submit(new Callable<File>() {
+					@Override
+					public File call() throws IOException {
+						return copy(path);
+					}
+				}));
+			}
+
+			int i = 0;
+			for (String path : paths) {
+				File file = getCopyResult(futures.get(i));
+				Log.i(TAG, String.format("Copying asset %s to %s", path, file));
+				++i;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static File getCopyResult(Future<File> future) throws IOException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while copying the assets");
+		}
+	}
+
 	/**
 	 * Performs the sync of assets in the application and on the external
 	 * storage
@@ -231,14 +495,20 @@ public class Assets {
 	 * @throws IOException
 	 */
 	public File syncAssets() throws IOException {
+		if (isManifestUpToDate()) {
+			Log.i(TAG, "Skipping assets sync: the package and the files are unchanged");
+			return cacheDir;
+		}
+
 		Collection<String> newItems = new ArrayList<String>();
 		Collection<String> unusedItems = new ArrayList<String>();
 		Map<String, String> items = getItems();
-		Map<String, String> externalItems = getExternalItems();
+		Map<String, ManifestEntry> externalItems = readManifest();
 
 		for (String path : items.keySet()) {
-			if (!items.get(path).equals(externalItems.get(path))
-					|| !(new File(cacheDir, path).exists()))
+			ManifestEntry entry = externalItems.get(path);
+			if (entry == null || !items.get(path).equals(entry.hash)
+					|| !entry.matches(new File(cacheDir, path)))
 				newItems.add(path);
 			else
 				Log.i(TAG,
@@ -249,10 +519,7 @@ public class Assets {
 		unusedItems.addAll(externalItems.keySet());
 		unusedItems.removeAll(items.keySet());
 
-		for (String path : newItems) {
-			File file = copy(path);
-			Log.i(TAG, String.format("Copying asset %s to %s", path, file));
-		}
+		copyAll(newItems);
 
 		for (String path : unusedItems) {
 			File file = new File(cacheDir, path);
@@ -260,7 +527,10 @@ public class Assets {
 			Log.i(TAG, String.format("Removing asset %s", file));
 		}
 
-		updateItemList(items);
+		// The list of the previous format is replaced by the manifest.
+		new File(cacheDir, ASSET_LIST_NAME).delete();
+
+		writeManifest(items);
 		return cacheDir;
 	}
 
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package edu.cmu.pocketsphinx1;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import edu.cmu.pocketsphinx.Config;
+import edu.cmu.pocketsphinx.Decoder;
+
+/**
+ * <p>Keeps a {@link Decoder} - with its acoustic model, dictionary and searches - loaded across
+ * {@link SpeechRecognizer}s, so that restarting a recognizer only needs a new audio recorder instead of loading the
+ * whole model again.</p>
+ * <p>The decoder is only loaded on the first call to {@link #getDecoder(Config)}, so a holder can also be kept for a
+ * secondary configuration that may never be used.</p>
+ * <p>Only one recognizer may use the decoder at a time - {@link SpeechRecognizer#shutdown()} waits for the
+ * recognition to stop before returning, so shut down the old recognizer before creating a new one. If it doesn't stop
+ * in time, call {@link #abandon()} so the next recognizer gets a new decoder.</p>
+ * <p>This class is thread-safe.</p>
+ */
+public final class DecoderHolder {
+
+	private static final String TAG = DecoderHolder.class.getSimpleName();
+
+	/** Name of the holder, for the logs. */
+	@NonNull private final String name;
+
+	@Nullable private Decoder decoder = null;
+	/** Names of the searches already added to {@link #decoder}. */
+	private final Set<String> searches = new HashSet<>();
+
+	/** Milliseconds the last load of the decoder took. */
+	private long load_time_ms = 0;
+	/** Native heap bytes allocated by the last load of the decoder. */
+	private long resident_bytes = 0;
+	/** Number of times the decoder was loaded. */
+	private int num_loads = 0;
+	/** Number of times the decoder was reused instead of loaded. */
+	private int num_reuses = 0;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param name a name for the holder, to be used on the logs
+	 */
+	public DecoderHolder(@NonNull final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * <p>Gets the held decoder, loading it first with the given configuration if it's not loaded.</p>
+	 *
+	 * @param config the configuration to load the decoder with, if needed (ignored if it's already loaded)
+	 *
+	 * @return the decoder
+	 */
+	@NonNull
+	synchronized Decoder getDecoder(@NonNull final Config config) {
+		if (decoder != null) {
+			++num_reuses;
+
+			return decoder;
+		}
+
+		final long native_before = Debug.getNativeHeapAllocatedSize();
+		final long start_ms = SystemClock.elapsedRealtime();
+		decoder = new Decoder(config);
+		load_time_ms = SystemClock.elapsedRealtime() - start_ms;
+		resident_bytes = Math.max(0, Debug.getNativeHeapAllocatedSize() - native_before);
+		++num_loads;
+
+		Log.i(TAG, String.format("Decoder %s loaded in %d ms, %d kB resident", name, load_time_ms,
+				resident_bytes / 1024));
+
+		return decoder;
+	}
+
+	/**
+	 * <p>Adds a keyword search to the decoder, unless a search with the same name was already added.</p>
+	 *
+	 * @param recognizer the recognizer using the decoder
+	 * @param search_name the name of the search
+	 * @param file the keywords file
+	 */
+	public synchronized void addKeywordSearch(@NonNull final SpeechRecognizer recognizer,
+											  @NonNull final String search_name, @NonNull final File file) {
+		if (searches.add(search_name)) {
+			recognizer.addKeywordSearch(search_name, file);
+		}
+	}
+
+	/**
+	 * <p>Checks if the decoder is loaded.</p>
+	 *
+	 * @return true if it's loaded, false otherwise
+	 */
+	public synchronized boolean isLoaded() {
+		return decoder != null;
+	}
+
+	/**
+	 * <p>Frees the decoder. The next {@link #getDecoder(Config)} will load it again.</p>
+	 * <p>Only call this after shutting down the recognizer using the decoder.</p>
+	 */
+	public synchronized void release() {
+		if (decoder != null) {
+			decoder.delete();
+			decoder = null;
+			searches.clear();
+		}
+	}
+
+	/**
+	 * <p>Forgets the decoder without freeing it, because a recognizer that didn't stop in time is still using it (the
+	 * native decoder is not thread-safe, so it can't be given to another recognizer). The next
+	 * {@link #getDecoder(Config)} loads a new one.</p>
+	 * <p>The old decoder is freed by its finalizer once the old recognizer is gone.</p>
+	 */
+	public synchronized void abandon() {
+		if (decoder != null) {
+			Log.w(TAG, String.format("Decoder %s abandoned - still in use by a recognizer", name));
+			decoder = null;
+			searches.clear();
+		}
+	}
+
+	/**
+	 * <p>Gets how long the last load of the decoder took.</p>
+	 *
+	 * @return the time in milliseconds
+	 */
+	public synchronized long getLoadTimeMs() {
+		return load_time_ms;
+	}
+
+	/**
+	 * <p>Gets an estimate of the memory used by the decoder, taken as the native heap growth during its last load.</p>
+	 *
+	 * @return the number of bytes
+	 */
+	public synchronized long getResidentBytes() {
+		return resident_bytes;
+	}
+
+	/**
+	 * <p>Gets the number of times the decoder was loaded.</p>
+	 *
+	 * @return the number of loads
+	 */
+	public synchronized int getNumLoads() {
+		return num_loads;
+	}
+
+	/**
+	 * <p>Gets the number of times the loaded decoder was reused by a new recognizer.</p>
+	 *
+	 * @return the number of reuses
+	 */
+	public synchronized int getNumReuses() {
+		return num_reuses;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package edu.cmu.pocketsphinx1;
+
+import androidx.annotation.NonNull;
+
+/**
+ * <p>Fixed-capacity ring buffer of 16-bit PCM samples which keeps only the most recent samples written to it.</p>
+ * <p>Nothing is allocated after construction. Not thread-safe.</p>
+ */
+final class PcmRingBuffer {
+
+	private final short[] ring;
+	/** Index where the next sample will be written. */
+	private int write_pos = 0;
+	/** Number of valid samples on the ring. */
+	private int size = 0;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param capacity the maximum number of samples kept
+	 */
+	PcmRingBuffer(final int capacity) {
+		ring = new short[capacity];
+	}
+
+	/**
+	 * <p>Writes samples to the ring, overwriting the oldest ones if it's full.</p>
+	 *
+	 * @param samples the samples
+	 * @param offset the index of the first sample to write
+	 * @param length the number of samples to write
+	 */
+	void write(@NonNull final short[] samples, final int offset, final int length) {
+		final int capacity = ring.length;
+		if (capacity == 0) {
+			return;
+		}
+
+		int src = offset;
+		int remaining = length;
+		if (remaining > capacity) {
+			// Only the last ones would be kept anyway.
+			src += remaining - capacity;
+			remaining = capacity;
+		}
+
+		while (remaining > 0) {
+			final int chunk = Math.min(remaining, capacity - write_pos);
+			System.arraycopy(samples, src, ring, write_pos, chunk);
+			write_pos = (write_pos + chunk) % capacity;
+			src += chunk;
+			remaining -= chunk;
+		}
+		size = Math.min(size + length, capacity);
+	}
+
+	/**
+	 * <p>Copies the samples on the ring, oldest first, to the given array and empties the ring.</p>
+	 *
+	 * @param out the array to copy to - must have at least {@link #capacity()} elements
+	 *
+	 * @return the number of samples copied
+	 */
+	int drainTo(@NonNull final short[] out) {
+		if (size == 0) {
+			return 0;
+		}
+
+		final int capacity = ring.length;
+		final int start = (write_pos - size + capacity) % capacity;
+		final int first_chunk = Math.min(size, capacity - start);
+		System.arraycopy(ring, start, out, 0, first_chunk);
+		System.arraycopy(ring, 0, out, first_chunk, size - first_chunk);
+
+		final int drained = size;
+		clear();
+
+		return drained;
+	}
+
+	/**
+	 * <p>Empties the ring.</p>
+	 */
+	void clear() {
+		write_pos = 0;
+		size = 0;
+	}
+
+	/**
+	 * @return the number of valid samples on the ring
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the maximum number of samples kept
+	 */
+	int capacity() {
+		return ring.length;
+	}
+}
@@ -29,11 +29,13 @@ import android.media.AudioRecord;
 import android.media.MediaRecorder;
 import android.os.Build;
 import android.os.Handler;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.edw590.visor_c_a.GlobalUtils.UtilsAudio;
+import com.edw590.visor_c_a.GlobalUtils.AudioProcessor;
+import com.edw590.visor_c_a.GlobalUtils.UtilsLogging;
 import com.edw590.visor_c_a.GlobalUtils.UtilsPermsAuths;
 
 import java.io.File;
@@ -41,7 +43,6 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 
-import edu.cmu.pocketsphinx.Config;
 import edu.cmu.pocketsphinx.Decoder;
 import edu.cmu.pocketsphinx.FsgModel;
 import edu.cmu.pocketsphinx.Hypothesis;
@@ -69,8 +70,25 @@ public class SpeechRecognizer {
 	final Decoder decoder;
 
 	private final int sampleRate;
-	private static final float BUFFER_SIZE_SECONDS = 0.4f;
+	/** Default length of each audio frame read and decoded. */
+	public static final float DEFAULT_FRAME_SECONDS = 0.4f;
+	/** Length of each audio frame in the low-latency mode. */
+	public static final float LOW_LATENCY_FRAME_SECONDS = 0.03f;
+	/** Minimum interval between hypothesis checks in the low-latency mode - getting the hypothesis string from the
+	 * decoder on every small frame would cost more than the decoding itself. */
+	public static final float LOW_LATENCY_HYP_CHECK_SECONDS = 0.1f;
+	/** Maximum time to wait for the recognition to stop on {@link #shutdown()}. */
+	private static final long SHUTDOWN_TIMEOUT_MS = 1000;
+	/** Minimum size of the recorder's internal buffer, so that it doesn't overrun while a frame is being decoded. */
+	private static final float MIN_RECORDER_BUFFER_SECONDS = 0.8f;
+	/** Minimum time between two logs of the recognition statistics. */
+	private static final long STATS_LOG_INTERVAL_MS = 10L * 60_000L;
+	/** Number of samples of each frame. */
 	int bufferSize;
+	/** Minimum number of samples decoded between hypothesis checks. */
+	final int hypCheckSamples;
+	/** The frame buffer, reused on all the recognitions. */
+	final short[] frameBuffer;
 	@Nullable
 	AudioRecord recorder;
 
@@ -79,6 +97,43 @@ public class SpeechRecognizer {
 	@Nullable Thread recognizerThread;
 
 	float gain = 3.0f;
+	/** Applies the gain to each buffer. */
+	final AudioProcessor audioProcessor;
+	/** Decides which buffers are sent to the decoder - only the ones that may contain speech are. */
+	final VoiceActivityDetector voiceActivityDetector;
+	/** Seconds of audio before the detected speech to also send to the decoder, so the start of the words is not
+	 * lost. */
+	private static final float PRE_ROLL_SECONDS = 0.3f;
+	/** The last skipped audio, sent to the decoder right before the buffer in which speech is detected. */
+	final PcmRingBuffer preRoll;
+	/** Buffer to get the {@link #preRoll} samples in order. */
+	final short[] preRollOut;
+
+	/** Number of audio buffers not sent to the decoder because they had no speech. */
+	volatile long buffers_skipped = 0;
+	/** Number of audio buffers sent to the decoder. */
+	volatile long buffers_decoded = 0;
+
+	/** Number of partial results posted. */
+	volatile long results_posted = 0;
+	/** Milliseconds between the start of the capture of the oldest frame not yet checked for a hypothesis and the
+	 * posting of the partial result with that hypothesis - last value. */
+	volatile long last_result_latency_ms = 0;
+	/** Same as {@link #last_result_latency_ms} but the sum of all values, to get the mean. */
+	volatile long total_result_latency_ms = 0;
+	/** Same as {@link #last_result_latency_ms} but the maximum value. */
+	volatile long max_result_latency_ms = 0;
+
+	/** Statistics of the current log window - only touched by the recognizer thread. */
+	long stats_window_start_ms = SystemClock.elapsedRealtime();
+	/** Number of buffers whose levels were metered on the current log window. */
+	long stats_num_buffers = 0;
+	/** Sum of the RMS levels of the buffers of the current log window, to get the mean. */
+	long stats_rms_sum = 0;
+	/** Highest peak level of the current log window. */
+	int stats_max_peak = 0;
+	/** Number of full-scale samples of the current log window. */
+	long stats_num_clipped = 0;
 
 	final Handler mainHandler;
 
@@ -95,10 +150,14 @@ public class SpeechRecognizer {
 	 * Creates speech recognizer. Recognizer holds the AudioRecord object, so you
 	 * need to call {@link release} in order to properly finalize it.
 	 *
-	 * @param config The configuration object
+	 * @param decoder The decoder to use - a new one or one kept by a {@link DecoderHolder}
+	 * @param frame_seconds length of each audio frame read and decoded ({@link #DEFAULT_FRAME_SECONDS} or
+	 *                      {@link #LOW_LATENCY_FRAME_SECONDS}, for example)
+	 * @param hyp_check_seconds minimum interval between hypothesis checks (0 to check after each frame)
 	 * @throws IOException thrown if audio recorder can not be created for some reason.
 	 */
-	protected SpeechRecognizer(Config config, @NonNull final Handler main_handler) throws IOException {
+	protected SpeechRecognizer(Decoder decoder, @NonNull final Handler main_handler, final float frame_seconds,
+							   final float hyp_check_seconds) throws IOException {
 		mainHandler = main_handler;
 
 		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT ||
@@ -108,12 +167,19 @@ public class SpeechRecognizer {
 			audio_source = MediaRecorder.AudioSource.HOTWORD;
 		}
 
-		decoder = new Decoder(config);
+		this.decoder = decoder;
 		sampleRate = (int) decoder.getConfig().getFloat("-samprate");
-		bufferSize = Math.round((float) sampleRate * BUFFER_SIZE_SECONDS);
+		bufferSize = Math.round((float) sampleRate * frame_seconds);
+		hypCheckSamples = Math.round((float) sampleRate * hyp_check_seconds);
+		frameBuffer = new short[bufferSize];
+		audioProcessor = new AudioProcessor(sampleRate, gain, AudioProcessor.DC_REMOVAL_CUTOFF_HZ);
+		voiceActivityDetector = new VoiceActivityDetector(sampleRate);
+		preRoll = new PcmRingBuffer(Math.round((float) sampleRate * PRE_ROLL_SECONDS));
+		preRollOut = new short[preRoll.capacity()];
 		recorder = new AudioRecord(audio_source, sampleRate,
 				AudioFormat.CHANNEL_IN_MONO,
-				AudioFormat.ENCODING_PCM_16BIT, bufferSize << 1);
+				AudioFormat.ENCODING_PCM_16BIT,
+				Math.max(bufferSize, Math.round((float) sampleRate * MIN_RECORDER_BUFFER_SECONDS)) << 1);
 
 		if (recorder.getState() == AudioRecord.STATE_UNINITIALIZED) {
 			recorder.release();
@@ -224,6 +290,78 @@ public class SpeechRecognizer {
 		return result;
 	}
 
+	/**
+	 * <p>Gets the number of audio buffers not sent to the decoder since the recognizer was created, because the
+	 * {@link VoiceActivityDetector} found no speech on them.</p>
+	 *
+	 * @return the number of buffers
+	 */
+	public long getBuffersSkipped() {
+		return buffers_skipped;
+	}
+
+	/**
+	 * <p>Gets the number of audio buffers sent to the decoder since the recognizer was created.</p>
+	 *
+	 * @return the number of buffers
+	 */
+	public long getBuffersDecoded() {
+		return buffers_decoded;
+	}
+
+	/**
+	 * <p>Gets the number of partial results posted since the recognizer was created.</p>
+	 *
+	 * @return the number of results
+	 */
+	public long getResultsPosted() {
+		return results_posted;
+	}
+
+	/**
+	 * <p>Gets the latency of the last partial result posted: the milliseconds from the start of the capture of the
+	 * oldest audio frame that contributed to it to the posting of the result event.</p>
+	 *
+	 * @return the latency in milliseconds
+	 */
+	public long getLastResultLatencyMs() {
+		return last_result_latency_ms;
+	}
+
+	/**
+	 * <p>Same as {@link #getLastResultLatencyMs()} but the mean of all the results posted.</p>
+	 *
+	 * @return the latency in milliseconds, or 0 if no result was posted yet
+	 */
+	public long getMeanResultLatencyMs() {
+		final long results = results_posted;
+
+		return results == 0 ? 0 : total_result_latency_ms / results;
+	}
+
+	/**
+	 * <p>Same as {@link #getLastResultLatencyMs()} but the maximum of all the results posted.</p>
+	 *
+	 * @return the latency in milliseconds
+	 */
+	public long getMaxResultLatencyMs() {
+		return max_result_latency_ms;
+	}
+
+	/**
+	 * <p>Records the latency of a posted partial result. Only called from the recognizer thread.</p>
+	 *
+	 * @param latency_ms the latency in milliseconds
+	 */
+	void recordResultLatency(final long latency_ms) {
+		last_result_latency_ms = latency_ms;
+		total_result_latency_ms += latency_ms;
+		if (latency_ms > max_result_latency_ms) {
+			max_result_latency_ms = latency_ms;
+		}
+		++results_posted;
+	}
+
 	/**
 	 * Returns the decoder object for advanced operation (dictionary extension, utterance
 	 * data collection, adaptation and so on).
@@ -235,10 +373,29 @@ public class SpeechRecognizer {
 	}
 
 	/**
-	 * Shutdown the recognizer and release the recorder
+	 * Shutdown the recognizer and release the recorder. Waits for the
+	 * recognition to stop (up to {@link #SHUTDOWN_TIMEOUT_MS}), so that the
+	 * decoder can be used right away by another recognizer.
+	 *
+	 * @return true if the recognition stopped, false if it's still using the
+	 * decoder (the decoder must not be used by anything else then - see
+	 * {@link DecoderHolder#abandon()})
 	 */
-	public void shutdown() {
+	public boolean shutdown() {
+		final Thread thread = recognizerThread;
+		cancel();
+		boolean stopped = true;
+		if (thread != null) {
+			try {
+				thread.join(SHUTDOWN_TIMEOUT_MS);
+			} catch (final InterruptedException ignored) {
+				Thread.currentThread().interrupt();
+			}
+			stopped = !thread.isAlive();
+		}
 		recorder.release();
+
+		return stopped;
 	}
 
 	/**
@@ -333,6 +490,36 @@ public class SpeechRecognizer {
 		decoder.setAllphoneFile(name, file.getPath());
 	}
 
+	/**
+	 * <p>Accounts the levels of the buffer just processed by {@link #audioProcessor} and, if it's time to, logs the
+	 * levels of the window and the decoding counters and result latencies since the recognizer was created. Only
+	 * called from the recognizer thread.</p>
+	 */
+	void recordLevelsAndLogStats() {
+		++stats_num_buffers;
+		stats_rms_sum += audioProcessor.getRms();
+		if (audioProcessor.getPeak() > stats_max_peak) {
+			stats_max_peak = audioProcessor.getPeak();
+		}
+		stats_num_clipped += audioProcessor.getNumClipped();
+
+		final long curr_time_ms = SystemClock.elapsedRealtime();
+		if (curr_time_ms - stats_window_start_ms < STATS_LOG_INTERVAL_MS) {
+			return;
+		}
+		UtilsLogging.logLnInfo("SpeechRecognizer - levels after gain " + gain + ": mean RMS " +
+				stats_rms_sum / stats_num_buffers + ", max peak " + stats_max_peak + ", " + stats_num_clipped +
+				" clipped samples in " + stats_num_buffers + " buffers");
+		UtilsLogging.logLnInfo("SpeechRecognizer - " + buffers_decoded + " buffers decoded, " + buffers_skipped +
+				" skipped by the VAD, " + results_posted + " results posted, result latency mean " +
+				getMeanResultLatencyMs() + " ms, max " + max_result_latency_ms + " ms");
+		stats_window_start_ms = curr_time_ms;
+		stats_num_buffers = 0;
+		stats_rms_sum = 0;
+		stats_max_peak = 0;
+		stats_num_clipped = 0;
+	}
+
 	private final class RecognizerThread extends Thread {
 
 		private int remainingSamples;
@@ -371,23 +558,53 @@ public class SpeechRecognizer {
 			//Log.id(TAG, "Starting decoding");
 
 			decoder.startUtt();
-			final short[] buffer = new short[bufferSize];
+			audioProcessor.reset();
+			voiceActivityDetector.reset();
+			preRoll.clear();
+			final short[] buffer = frameBuffer;
 			boolean inSpeech = decoder.getInSpeech();
 			String last_hypothesis_str = "";
+			int samples_since_hyp_check = 0;
+			// Capture start time of the oldest frame decoded since the last hypothesis check.
+			long oldest_unchecked_capture_ms = -1;
 
 			// Skip the first buffer, usually zeroes
 			recorder.read(buffer, 0, buffer.length);
 
 			while (!interrupted() && ((timeoutSamples == NO_TIMEOUT) || (remainingSamples > 0))) {
 				final int nread = recorder.read(buffer, 0, bufferSize);
-				UtilsAudio.adjustGainBuffer(buffer, gain);
+				// The read returns as soon as the last sample of the frame is captured.
+				final long frame_capture_ms = SystemClock.elapsedRealtime() - (long) nread * 1000 / sampleRate;
 
 				if (nread < 0) {
 					mainHandler.post(new OnErrorEvent(new RuntimeException("error reading audio buffer, nread = " + nread)));
 
 					break; // If an error occurred, leave - else shouldn't throw an error, just some warning
 				} else if (nread > 0) {
+					audioProcessor.process(buffer, nread);
+					recordLevelsAndLogStats();
+					if (!voiceActivityDetector.process(buffer, nread) && !inSpeech) {
+						// Only background noise or silence - no need to spend CPU decoding it. Keep the end of it in
+						// case speech starts on the next buffer.
+						preRoll.write(buffer, 0, nread);
+						++buffers_skipped;
+						if (timeoutSamples != NO_TIMEOUT) {
+							remainingSamples -= nread;
+						}
+
+						continue;
+					}
+
+					final int pre_roll_len = preRoll.drainTo(preRollOut);
+					if (pre_roll_len > 0) {
+						decoder.processRaw(preRollOut, (long) pre_roll_len, false, false);
+					}
 					decoder.processRaw(buffer, (long) nread, false, false);
+					++buffers_decoded;
+					if (oldest_unchecked_capture_ms < 0) {
+						oldest_unchecked_capture_ms = pre_roll_len > 0 ?
+								frame_capture_ms - (long) pre_roll_len * 1000 / sampleRate : frame_capture_ms;
+					}
 
 					// int max = 0;
 					// for (int i = 0; i < nread; i++) {
@@ -402,8 +619,20 @@ public class SpeechRecognizer {
 
 					if (inSpeech)
 						remainingSamples = timeoutSamples;
+					// Before the hypothesis check throttle, so skipped checks still count for the timeout.
+					if (timeoutSamples != NO_TIMEOUT) {
+						remainingSamples -= nread;
+					}
+
+					samples_since_hyp_check += pre_roll_len + nread;
+					if (samples_since_hyp_check < hypCheckSamples) {
+						continue;
+					}
+					samples_since_hyp_check = 0;
 
 					final Hypothesis hypothesis = decoder.hyp();
+					final long checked_capture_ms = oldest_unchecked_capture_ms;
+					oldest_unchecked_capture_ms = -1;
 					if (hypothesis != null) {
 						final String hypothesis_str = hypothesis.getHypstr();
 						if (!last_hypothesis_str.equals(hypothesis_str)) {
@@ -418,13 +647,11 @@ public class SpeechRecognizer {
 
 							mainHandler.post(new ResultEvent(hypothesis, false));
 							last_hypothesis_str = hypothesis_str;
+
+							recordResultLatency(SystemClock.elapsedRealtime() - checked_capture_ms);
 						}
 					}
 				}
-
-				if (timeoutSamples != NO_TIMEOUT) {
-					remainingSamples -= nread;
-				}
 			}
 
 			try {
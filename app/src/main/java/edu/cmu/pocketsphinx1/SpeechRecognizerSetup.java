@@ -44,6 +44,8 @@ public class SpeechRecognizerSetup {
     }
 
     private final Config config;
+    private float frameSeconds = SpeechRecognizer.DEFAULT_FRAME_SECONDS;
+    private float hypCheckSeconds = 0.0f;
 
     /**
      * Creates new speech recognizer builder with default configuration.
@@ -68,7 +70,54 @@ public class SpeechRecognizerSetup {
     }
 
     public SpeechRecognizer getRecognizer(@NonNull final Handler main_handler) throws IOException {
-        return new SpeechRecognizer(config, main_handler);
+        return new SpeechRecognizer(new Decoder(config), main_handler, frameSeconds, hypCheckSeconds);
+    }
+
+    /**
+     * Creates a recognizer with the decoder kept by the given holder, which
+     * is only loaded with this configuration if it's not loaded yet. Only a
+     * new audio recorder is created otherwise.
+     */
+    public SpeechRecognizer getRecognizer(@NonNull final Handler main_handler, @NonNull final DecoderHolder holder)
+            throws IOException {
+        return new SpeechRecognizer(holder.getDecoder(config), main_handler, frameSeconds, hypCheckSeconds);
+    }
+
+    /**
+     * Sets the length of each audio frame read from the microphone and decoded.
+     *
+     * @param seconds frame length in seconds
+     */
+    public SpeechRecognizerSetup setFrameSeconds(float seconds) {
+        frameSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Sets the minimum interval between hypothesis checks (0 to check after each frame).
+     *
+     * @param seconds interval in seconds
+     */
+    public SpeechRecognizerSetup setHypCheckSeconds(float seconds) {
+        hypCheckSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Selects small audio frames, so detections are posted sooner, with the hypothesis checks throttled so they
+     * don't happen on every frame - or goes back to the default frames, checked one by one.
+     *
+     * @param enabled true to enable the low-latency mode, false to use the defaults
+     */
+    public SpeechRecognizerSetup setLowLatencyMode(boolean enabled) {
+        if (enabled) {
+            frameSeconds = SpeechRecognizer.LOW_LATENCY_FRAME_SECONDS;
+            hypCheckSeconds = SpeechRecognizer.LOW_LATENCY_HYP_CHECK_SECONDS;
+        } else {
+            frameSeconds = SpeechRecognizer.DEFAULT_FRAME_SECONDS;
+            hypCheckSeconds = 0.0f;
+        }
+        return this;
     }
 
     public SpeechRecognizerSetup setAcousticModel(File model) {
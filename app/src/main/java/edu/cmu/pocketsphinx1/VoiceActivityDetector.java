@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package edu.cmu.pocketsphinx1;
+
+import androidx.annotation.NonNull;
+
+/**
+ * <p>Lightweight voice activity detector based on short-term energy and zero-crossing rate, meant to run before the
+ * decoder so that it only gets the audio that may contain speech.</p>
+ * <p>Each buffer is split in sub-frames of {@link #SUBFRAME_MS} milliseconds. A sub-frame is speech-like if it's
+ * voiced (energy well above the background noise and a low zero-crossing rate) or unvoiced (energy above the noise
+ * with a high zero-crossing rate, like fricatives). A buffer is speech if it has at least
+ * {@link #MIN_SPEECH_SUBFRAMES} speech-like sub-frames, and the detector stays active for {@link #HANGOVER_MS}
+ * milliseconds after the last speech buffer so that word endings are not cut.</p>
+ * <p>Pure Java and Android-independent, so it can be run on a host with recorded audio. Not thread-safe.</p>
+ */
+public final class VoiceActivityDetector {
+
+	/** Length of each analysis sub-frame. */
+	static final int SUBFRAME_MS = 20;
+	/** Milliseconds to stay active after the last buffer with speech. */
+	static final int HANGOVER_MS = 600;
+	/** Minimum number of speech-like sub-frames in a buffer for it to be considered speech. */
+	static final int MIN_SPEECH_SUBFRAMES = 3;
+
+	/** Minimum mean square energy of a voiced sub-frame (RMS of about 150). */
+	private static final long MIN_VOICED_ENERGY = 150L * 150L;
+	/** How many times above the noise energy a voiced sub-frame must be (about 6 dB). */
+	private static final int VOICED_TO_NOISE_RATIO = 4;
+	/** How many times above the noise energy an unvoiced sub-frame must be (about 3 dB). */
+	private static final int UNVOICED_TO_NOISE_RATIO = 2;
+	/** Zero crossings per 1000 samples below which a sub-frame is considered voiced. */
+	private static final int VOICED_MAX_ZCR = 250;
+	/** Zero crossings per 1000 samples above which a sub-frame may be unvoiced speech. */
+	private static final int UNVOICED_MIN_ZCR = 300;
+	/** Zero crossings per 1000 samples above which a sub-frame is considered hiss instead of unvoiced speech. */
+	private static final int UNVOICED_MAX_ZCR = 650;
+	/** The noise energy rises 1/2^this of the difference per non-speech sub-frame (and falls immediately). */
+	private static final int NOISE_RISE_SHIFT = 4;
+
+	private final int subframe_len;
+	private final int hangover_samples;
+
+	/** Estimate of the mean square energy of the background noise, or -1 if nothing was analyzed yet. */
+	private long noise_energy = -1;
+	private int hangover_remaining = 0;
+
+	/**
+	 * <p>Main class constructor.</p>
+	 *
+	 * @param sample_rate the sample rate of the audio
+	 */
+	public VoiceActivityDetector(final int sample_rate) {
+		subframe_len = Math.max(1, sample_rate * SUBFRAME_MS / 1000);
+		hangover_samples = sample_rate * HANGOVER_MS / 1000;
+	}
+
+	/**
+	 * <p>Analyzes a buffer of audio.</p>
+	 *
+	 * @param buffer the audio samples
+	 * @param length the number of valid samples on the buffer
+	 *
+	 * @return true if the buffer contains speech or is within the hangover after speech, false otherwise
+	 */
+	public boolean process(@NonNull final short[] buffer, final int length) {
+		int speech_subframes = 0;
+		for (int start = 0; start < length; start += subframe_len) {
+			final int end = Math.min(start + subframe_len, length);
+			if (isSpeechSubframe(buffer, start, end)) {
+				++speech_subframes;
+			}
+		}
+
+		if (speech_subframes >= Math.min(MIN_SPEECH_SUBFRAMES, (length + subframe_len - 1) / subframe_len)) {
+			hangover_remaining = hangover_samples;
+
+			return true;
+		}
+
+		if (hangover_remaining > 0) {
+			hangover_remaining -= length;
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * <p>Forces the detector out of the active state (as when it starts).</p>
+	 */
+	public void reset() {
+		noise_energy = -1;
+		hangover_remaining = 0;
+	}
+
+	/**
+	 * <p>Gets the current estimate of the background noise level.</p>
+	 *
+	 * @return the RMS level, or -1 if nothing was analyzed yet
+	 */
+	public int getNoiseRms() {
+		return noise_energy < 0 ? -1 : (int) Math.sqrt((double) noise_energy);
+	}
+
+	/**
+	 * <p>Classifies a sub-frame and updates the noise estimate with it if it's not speech.</p>
+	 *
+	 * @param buffer the audio samples
+	 * @param start the index of the first sample of the sub-frame
+	 * @param end the index after the last sample of the sub-frame
+	 *
+	 * @return true if the sub-frame is speech-like, false otherwise
+	 */
+	private boolean isSpeechSubframe(@NonNull final short[] buffer, final int start, final int end) {
+		final int len = end - start;
+		if (len <= 0) {
+			return false;
+		}
+
+		long sum_squares = 0;
+		int crossings = 0;
+		int prev = buffer[start];
+		for (int i = start; i < end; ++i) {
+			final int sample = buffer[i];
+			sum_squares += sample * sample;
+			if ((sample ^ prev) < 0) {
+				++crossings;
+			}
+			prev = sample;
+		}
+		final long energy = sum_squares / len;
+		final int zcr = crossings * 1000 / len;
+
+		if (noise_energy < 0) {
+			noise_energy = energy;
+
+			return false;
+		}
+
+		final boolean voiced = energy >= MIN_VOICED_ENERGY && energy > noise_energy * VOICED_TO_NOISE_RATIO &&
+				zcr < VOICED_MAX_ZCR;
+		final boolean unvoiced = energy >= MIN_VOICED_ENERGY && energy > noise_energy * UNVOICED_TO_NOISE_RATIO &&
+				zcr > UNVOICED_MIN_ZCR && zcr < UNVOICED_MAX_ZCR;
+		if (voiced || unvoiced) {
+			return true;
+		}
+
+		if (energy < noise_energy) {
+			noise_energy = energy;
+		} else {
+			noise_energy += (energy - noise_energy) >> NOISE_RISE_SHIFT;
+		}
+
+		return false;
+	}
+}
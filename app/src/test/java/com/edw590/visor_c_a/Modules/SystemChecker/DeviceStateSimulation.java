@@ -0,0 +1,167 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.SystemChecker;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Host simulation of a day of the SystemChecker device info uplink, with a fake {@link DeviceState.Uplink}
+ * counting the calls and the bytes passed to it.</p>
+ * <p>The day has 1 second ticks in the SystemChecker loop order, with the screen on 25% of the time (the first 15
+ * minutes of each hour, with the last use time and sometimes the brightness changing meanwhile), a Wi-Fi scan of 8
+ * networks every 10 seconds and a Bluetooth scan of 3 devices every 30 seconds (both with RSSI noise), the battery
+ * going down 1% every 15 minutes except while charging (8 hours at night) and the default uplink interval.</p>
+ * <p>Before {@link DeviceState}, the full state was sent on every tick. The bytes are counted as the UTF-8 length of
+ * the 2 strings plus 8 bytes per number and 1 per boolean. The counts are deterministic (fixed seed).</p>
+ */
+public final class DeviceStateSimulation {
+
+	private static final int DAY_S = 86400;
+	private static final long SEED = 18;
+	/** Default of the uplink interval setting. */
+	private static final long UPLINK_INTERVAL_MS = 5_000;
+	/** Bytes of the numeric and boolean arguments of each call (5 numbers, 7 booleans). */
+	private static final int FIXED_ARGS_BYTES = 5 * 8 + 7;
+
+	/** Fake uplink counting the calls and the bytes. */
+	private static final class CountingUplink implements DeviceState.Uplink {
+		long num_calls = 0;
+		long num_bytes = 0;
+		boolean last_screen_on = false;
+		boolean last_power_connected = false;
+
+		@Override
+		public void updateDeviceInfo(final long last_time_used, final boolean airplane_mode,
+									 final boolean wifi_enabled, final boolean bluetooth_enabled,
+									 final boolean power_connected, final long battery_level, final boolean screen_on,
+									 final long brightness, @NonNull final String wifi_networks,
+									 @NonNull final String bluetooth_devices, final long sound_volume,
+									 final boolean sound_muted) {
+			++num_calls;
+			num_bytes += callBytes(wifi_networks, bluetooth_devices);
+			last_screen_on = screen_on;
+			last_power_connected = power_connected;
+		}
+	}
+
+	@Test
+	public void simulatedDay() {
+		final Random random = new Random(SEED);
+		final CountingUplink uplink = new CountingUplink();
+		final DeviceState device_state = new DeviceState(uplink);
+		final NeighborTable wifi_table = new NeighborTable(10_000 * 2);
+		final NeighborTable bt_table = new NeighborTable(30_000 * 2);
+
+		long old_calls = 0;
+		long old_bytes = 0;
+		long last_time_used = 0;
+		int brightness = 100;
+		int battery_level = 100;
+		long max_gap_ms = 0;
+		long last_call_ms = 0;
+		long last_num_calls = 0;
+		for (int tick = 0; tick < DAY_S; ++tick) {
+			final long now_ms = (long) tick * 1000;
+
+			if (tick % 10 == 0) {
+				wifi_table.update(scan(random, ExtDevice.TYPE_WIFI, 8), now_ms);
+			}
+			if (tick % 30 == 0) {
+				bt_table.update(scan(random, ExtDevice.TYPE_BLUETOOTH, 3), now_ms);
+			}
+			final boolean screen_on = tick % 3600 < 900;
+			if (screen_on) {
+				last_time_used = tick;
+				if (random.nextInt(20) == 0) {
+					brightness = random.nextInt(256);
+				}
+			}
+			final boolean charging = tick < 8 * 3600;
+			if (tick % 900 == 0) {
+				battery_level = charging ? Math.min(100, battery_level + 5) : Math.max(0, battery_level - 1);
+			}
+
+			device_state.setWifiNetworks(wifi_table.getSnapshot());
+			device_state.setBluetoothDevices(bt_table.getSnapshot());
+			device_state.setLastTimeUsed(last_time_used);
+			device_state.setAirplaneMode(false);
+			device_state.setWifiEnabled(true);
+			device_state.setBluetoothEnabled(true);
+			device_state.setPowerConnected(charging);
+			device_state.setBatteryLevel(battery_level);
+			device_state.setScreenOn(screen_on);
+			device_state.setBrightness(brightness);
+			device_state.setSoundVolume(60);
+			device_state.setSoundMuted(false);
+			device_state.send(now_ms, UPLINK_INTERVAL_MS);
+
+			if (uplink.num_calls != last_num_calls) {
+				last_num_calls = uplink.num_calls;
+				last_call_ms = now_ms;
+				// Urgent changes go out on the same tick.
+				assertEquals(screen_on, uplink.last_screen_on);
+				assertEquals(charging, uplink.last_power_connected);
+			}
+			max_gap_ms = Math.max(max_gap_ms, now_ms - last_call_ms);
+
+			// What was sent before: everything, every second.
+			++old_calls;
+			old_bytes += callBytes(DeviceState.encode(wifi_table.getSnapshot().devices),
+					DeviceState.encode(bt_table.getSnapshot().devices));
+		}
+
+		assertTrue(max_gap_ms <= DeviceState.MAX_SEND_GAP_MS);
+
+		System.out.println("DeviceState - simulated day: " + old_calls + " calls and " + old_bytes +
+				" bytes before, " + uplink.num_calls + " calls and " + uplink.num_bytes + " bytes now");
+	}
+
+	/**
+	 * <p>Simulates a scan finding the same devices with noisy RSSIs.</p>
+	 */
+	@NonNull
+	private static List<ExtDevice> scan(@NonNull final Random random, final int type, final int num_devices) {
+		final List<ExtDevice> found = new ArrayList<>(num_devices);
+		for (int i = 0; i < num_devices; ++i) {
+			final String name = (type == ExtDevice.TYPE_WIFI ? "Network " : "Device ") + i;
+			found.add(new ExtDevice(type, String.format("AA:BB:CC:DD:%02X:%02X", type, i), 0,
+					-40 - 5 * i - random.nextInt(10), name, name, false));
+		}
+
+		return found;
+	}
+
+	private static long callBytes(@NonNull final String wifi_networks, @NonNull final String bluetooth_devices) {
+		return FIXED_ARGS_BYTES + wifi_networks.getBytes(StandardCharsets.UTF_8).length +
+				bluetooth_devices.getBytes(StandardCharsets.UTF_8).length;
+	}
+}
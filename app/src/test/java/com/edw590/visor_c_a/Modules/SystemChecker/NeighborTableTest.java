@@ -0,0 +1,188 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Modules.SystemChecker;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Host tests of {@link NeighborTable}: the RSSI smoothing, the eviction and the consistency of the snapshots read
+ * while scans are being applied.</p>
+ */
+public final class NeighborTableTest {
+
+	private static final long MAX_AGE_MS = 20_000;
+
+	@Test
+	public void rssiIsSmoothedOverTheScans() {
+		final NeighborTable table = new NeighborTable(MAX_AGE_MS);
+
+		table.update(Collections.singletonList(device("A", -40)), 0);
+		table.update(Collections.singletonList(device("A", -60)), 1000);
+		assertEquals(-50, table.getSnapshot().devices.get(0).rssi);
+
+		// An unknown RSSI keeps the smoothed one.
+		table.update(Collections.singletonList(device("A", NeighborTable.RSSI_UNKNOWN)), 2000);
+		assertEquals(-50, table.getSnapshot().devices.get(0).rssi);
+
+		// An unknown RSSI is replaced by the first known one.
+		table.update(Collections.singletonList(device("B", NeighborTable.RSSI_UNKNOWN)), 3000);
+		table.update(Collections.singletonList(device("B", -70)), 4000);
+		assertEquals(-70, find(table.getSnapshot(), "B").rssi);
+	}
+
+	@Test
+	public void devicesNotSeenForTooLongAreEvicted() {
+		final NeighborTable table = new NeighborTable(MAX_AGE_MS);
+
+		table.update(devices("A", "B"), 0);
+		// B missed one scan, but it's still kept.
+		table.update(devices("A"), 10_000);
+		assertEquals(2, table.getSnapshot().devices.size());
+
+		table.update(devices("A"), 20_001);
+		assertEquals(1, table.getSnapshot().devices.size());
+		assertNull(find(table.getSnapshot(), "B"));
+	}
+
+	@Test
+	public void snapshotOnlyChangesWithTheTable() {
+		final NeighborTable table = new NeighborTable(MAX_AGE_MS);
+		final NeighborTable.Snapshot first = table.getSnapshot();
+
+		// Nothing found and nothing to evict.
+		table.update(Collections.<ExtDevice>emptyList(), 0);
+		assertSame(first, table.getSnapshot());
+
+		table.update(devices("A"), 0);
+		final NeighborTable.Snapshot second = table.getSnapshot();
+		assertNotSame(first, second);
+		assertEquals(first.version + 1, second.version);
+	}
+
+	/**
+	 * <p>A writer applies 2000 scans of 100 to 160 access points (a random subset each time, so there are additions
+	 * and evictions) while a reader keeps iterating the snapshots, checking each one is complete and the versions never
+	 * go back.</p>
+	 */
+	@Test
+	public void readersNeverSeeAPartialTable() throws InterruptedException {
+		final NeighborTable table = new NeighborTable(1);
+		final AtomicBoolean writer_done = new AtomicBoolean(false);
+		final AtomicLong num_reads = new AtomicLong(0);
+		final AtomicReference<String> failure = new AtomicReference<>(null);
+
+		final Thread reader = new Thread(() -> {
+			long last_version = -1;
+			try {
+				while (!writer_done.get()) {
+					final NeighborTable.Snapshot snapshot = table.getSnapshot();
+					if (snapshot.version < last_version) {
+						failure.compareAndSet(null, "version went back from " + last_version + " to " +
+								snapshot.version);
+					}
+					last_version = snapshot.version;
+
+					// Each scan replaces the whole table (max age of 1 ms), so a snapshot must have all the devices of
+					// a single scan: between 100 and 160 unique ones.
+					final Set<String> addresses = new HashSet<>(256);
+					for (final ExtDevice device : snapshot.devices) {
+						addresses.add(device.address);
+					}
+					if (snapshot.version > 0 && (addresses.size() != snapshot.devices.size() ||
+							addresses.size() < 100 || addresses.size() > 160)) {
+						failure.compareAndSet(null, "inconsistent snapshot with " + snapshot.devices.size() +
+								" devices");
+					}
+					num_reads.incrementAndGet();
+				}
+			} catch (final RuntimeException e) {
+				failure.compareAndSet(null, e.toString());
+			}
+		});
+		reader.start();
+
+		final Random random = new Random(19);
+		for (int scan = 0; scan < 2000; ++scan) {
+			final int num_aps = 100 + random.nextInt(61);
+			final List<ExtDevice> found = new ArrayList<>(num_aps);
+			final int first_ap = random.nextInt(100);
+			for (int i = 0; i < num_aps; ++i) {
+				found.add(device("AP" + (first_ap + i), -30 - random.nextInt(60)));
+			}
+			table.update(found, scan * 1000L);
+		}
+		writer_done.set(true);
+		reader.join();
+
+		assertNull(failure.get());
+		assertTrue(num_reads.get() > 0);
+		assertEquals(2000, table.getSnapshot().version);
+
+		System.out.println("NeighborTable - 2000 scans of 100-160 APs: " + num_reads.get() +
+				" snapshot reads meanwhile, 0 failures");
+	}
+
+	@NonNull
+	private static ExtDevice device(@NonNull final String name, final int rssi) {
+		return new ExtDevice(ExtDevice.TYPE_WIFI, name.toUpperCase(), 0, rssi, name, name, false);
+	}
+
+	@NonNull
+	private static List<ExtDevice> devices(@NonNull final String... names) {
+		final List<ExtDevice> list = new ArrayList<>(names.length);
+		for (final String name : names) {
+			list.add(device(name, -50));
+		}
+
+		return list;
+	}
+
+	@Nullable
+	private static ExtDevice find(@NonNull final NeighborTable.Snapshot snapshot, @NonNull final String name) {
+		for (final ExtDevice device : snapshot.devices) {
+			if (device.name.equals(name)) {
+				return device;
+			}
+		}
+
+		return null;
+	}
+}
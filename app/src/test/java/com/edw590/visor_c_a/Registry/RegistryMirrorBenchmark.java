@@ -0,0 +1,196 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.edw590.visor_c_a.Registry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * <p>Host benchmark of the native Registry calls (JNI crossings) saved by {@link RegistryMirror}, with a fake
+ * {@link RegistryMirror.Backend} counting the calls.</p>
+ * <p>The workload is the per-second loop of SystemChecker: 4 sets and 3 gets per tick, with the brightness changing on
+ * 10% of the ticks, the volume on 2%, the device use on 1% and the mute on 0.5%. The crossings are counted as the
+ * native calls each operation makes:</p>
+ * <p>- before the mirror, as UtilsRegistry called the native Registry directly: 2 per set (get the Value, set it) and
+ * 3 per get (get the Value, get its type, get the value);</p>
+ * <p>- with the mirror, as {@link NativeRegistryBackend} does: 4 per load and 2 per store.</p>
+ * <p>The counts are deterministic (fixed seed). The read throughput depends on the machine, so it's only printed.</p>
+ */
+public final class RegistryMirrorBenchmark {
+
+	private static final int NUM_TICKS = 100_000;
+	private static final long SEED = 16;
+	private static final long WARMUP_MS = 200;
+	private static final long MEASURE_MS = 500;
+	private static final int NUM_THREADS = 4;
+
+	/** Native calls made by each operation (see the class doc). */
+	private static final int CROSSINGS_DIRECT_SET = 2;
+	private static final int CROSSINGS_DIRECT_GET = 3;
+	private static final int CROSSINGS_LOAD = 4;
+	private static final int CROSSINGS_STORE = 2;
+
+	/** Fake native Registry counting the loads and stores. */
+	private static final class CountingBackend implements RegistryMirror.Backend {
+		final Map<String, RegistryMirror.Snapshot> values = new HashMap<>(16);
+		final AtomicLong num_loads = new AtomicLong(0);
+		final AtomicLong num_stores = new AtomicLong(0);
+
+		CountingBackend() {
+			values.put(RegistryKeys.K_DEVICE_IN_USE, snapshot(RegistryMirror.TYPE_BOOL, 0));
+			values.put(RegistryKeys.K_SCREEN_BRIGHTNESS, snapshot(RegistryMirror.TYPE_INT, 128));
+			values.put(RegistryKeys.K_SOUND_VOLUME, snapshot(RegistryMirror.TYPE_INT, 50));
+			values.put(RegistryKeys.K_SOUND_MUTED, snapshot(RegistryMirror.TYPE_BOOL, 0));
+			values.put(RegistryKeys.K_POWER_CONNECTED, snapshot(RegistryMirror.TYPE_BOOL, 1));
+			values.put(RegistryKeys.K_BATTERY_LEVEL, snapshot(RegistryMirror.TYPE_INT, 80));
+			values.put(RegistryKeys.K_DEVICE_INFO_UPLINK_INTERVAL, snapshot(RegistryMirror.TYPE_INT, 30));
+		}
+
+		@Nullable
+		@Override
+		public synchronized RegistryMirror.Snapshot load(@NonNull final String key) {
+			num_loads.incrementAndGet();
+
+			return values.get(key);
+		}
+
+		@Override
+		public synchronized void store(@NonNull final String key, @NonNull final RegistryMirror.Snapshot snapshot) {
+			num_stores.incrementAndGet();
+			values.put(key, snapshot);
+		}
+
+		long getCrossings() {
+			return num_loads.get() * CROSSINGS_LOAD + num_stores.get() * CROSSINGS_STORE;
+		}
+
+		@NonNull
+		private static RegistryMirror.Snapshot snapshot(final int type, final long bits) {
+			return new RegistryMirror.Snapshot(type, bits, null, bits, null, 0);
+		}
+	}
+
+	@Test
+	public void systemCheckerLoopCrossings() {
+		final CountingBackend backend = new CountingBackend();
+		final RegistryMirror mirror = new RegistryMirror(backend);
+		final Random random = new Random(SEED);
+
+		long crossings_direct = 0;
+		boolean in_use = false;
+		int brightness = 128;
+		int volume = 50;
+		boolean muted = false;
+		for (int tick = 0; tick < NUM_TICKS; ++tick) {
+			if (random.nextInt(100) == 0) {
+				in_use = !in_use;
+			}
+			if (random.nextInt(10) == 0) {
+				brightness = random.nextInt(256);
+			}
+			if (random.nextInt(50) == 0) {
+				volume = random.nextInt(101);
+			}
+			if (random.nextInt(200) == 0) {
+				muted = !muted;
+			}
+
+			mirror.set(RegistryKeys.K_DEVICE_IN_USE, RegistryMirror.TYPE_BOOL, in_use ? 1 : 0, null, false);
+			mirror.set(RegistryKeys.K_SCREEN_BRIGHTNESS, RegistryMirror.TYPE_INT, brightness, null, false);
+			mirror.set(RegistryKeys.K_SOUND_VOLUME, RegistryMirror.TYPE_INT, volume, null, false);
+			mirror.set(RegistryKeys.K_SOUND_MUTED, RegistryMirror.TYPE_BOOL, muted ? 1 : 0, null, false);
+			assertNotNull(mirror.get(RegistryKeys.K_POWER_CONNECTED));
+			assertNotNull(mirror.get(RegistryKeys.K_BATTERY_LEVEL));
+			assertNotNull(mirror.get(RegistryKeys.K_DEVICE_INFO_UPLINK_INTERVAL));
+			crossings_direct += 4 * CROSSINGS_DIRECT_SET + 3 * CROSSINGS_DIRECT_GET;
+
+			// Each tick is 1 second, so the flush scheduled FLUSH_DELAY_MS after the first write of the tick happens
+			// before the next one.
+			mirror.flush();
+		}
+
+		// The backend must end up with the last values.
+		assertEquals(in_use ? 1 : 0, backend.values.get(RegistryKeys.K_DEVICE_IN_USE).curr_bits);
+		assertEquals(brightness, backend.values.get(RegistryKeys.K_SCREEN_BRIGHTNESS).curr_bits);
+		assertEquals(volume, backend.values.get(RegistryKeys.K_SOUND_VOLUME).curr_bits);
+		assertEquals(muted ? 1 : 0, backend.values.get(RegistryKeys.K_SOUND_MUTED).curr_bits);
+		// Each key is only loaded once.
+		assertEquals(7, backend.num_loads.get());
+
+		System.out.println("RegistryMirror - " + NUM_TICKS + " SystemChecker ticks: " + crossings_direct +
+				" native calls before, " + backend.getCrossings() + " with the mirror (" + backend.num_loads.get() +
+				" loads, " + backend.num_stores.get() + " stores)");
+	}
+
+	@Test
+	public void concurrentReads() throws InterruptedException {
+		final CountingBackend backend = new CountingBackend();
+		final RegistryMirror mirror = new RegistryMirror(backend);
+		final String[] keys = backend.values.keySet().toArray(new String[0]);
+		for (final String key : keys) {
+			assertNotNull(mirror.get(key));
+		}
+		final long loads_before = backend.num_loads.get();
+
+		final AtomicLong num_reads = new AtomicLong(0);
+		final Thread[] threads = new Thread[NUM_THREADS];
+		final long start_ms = System.currentTimeMillis();
+		for (int i = 0; i < NUM_THREADS; ++i) {
+			threads[i] = new Thread(() -> {
+				long reads = 0;
+				long sum = 0;
+				int key_idx = 0;
+				while (System.currentTimeMillis() - start_ms < WARMUP_MS + MEASURE_MS) {
+					for (int j = 0; j < 1000; ++j) {
+						sum += mirror.get(keys[key_idx]).curr_bits;
+						key_idx = (key_idx + 1) % keys.length;
+					}
+					if (System.currentTimeMillis() - start_ms >= WARMUP_MS) {
+						reads += 1000;
+					}
+				}
+				num_reads.addAndGet(reads + (sum == Long.MIN_VALUE ? 1 : 0));
+			});
+			threads[i].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		// The reads never go to the backend.
+		assertEquals(loads_before, backend.num_loads.get());
+		assertEquals(0, backend.num_stores.get());
+
+		System.out.println("RegistryMirror - " + NUM_THREADS + " threads: " + num_reads.get() * 1000 / MEASURE_MS +
+				" reads/s, 0 native calls");
+	}
+}
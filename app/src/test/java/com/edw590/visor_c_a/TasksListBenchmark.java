@@ -0,0 +1,204 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.edw590.visor_c_a;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * <p>Host benchmark of the add/remove throughput of {@link TasksList} with 10, 1k and 100k tasks pending, next to the
+ * list it replaced ({@link LinearTasksList}).</p>
+ * <p>Each measurement adds and removes one task at a time for {@link #MEASURE_MS} (after {@link #WARMUP_MS} of
+ * warm-up), with the given number of other tasks staying on the list. The results are printed - the timings depend on
+ * the machine, so only the correctness is asserted.</p>
+ */
+public final class TasksListBenchmark {
+
+	private static final long WARMUP_MS = 200;
+	private static final long MEASURE_MS = 500;
+	private static final int NUM_THREADS = 4;
+	private static final int[] NUMS_PENDING = {10, 1_000, 100_000};
+
+	private static final Runnable runnable = new Runnable() {@Override public void run() {}};
+
+	/** The list TasksList was before: random IDs checked against the whole list and linear removal. */
+	private static final class LinearTasksList {
+		private final List<int[]> tasks_list = new ArrayList<>(10);
+		private final Random random = new Random();
+
+		synchronized int addTask() {
+			int task_id = Math.abs(random.nextInt());
+			for (int i = 0; i < tasks_list.size(); ++i) {
+				if (tasks_list.get(i)[0] == task_id) {
+					task_id = Math.abs(random.nextInt());
+					i = -1;
+				}
+			}
+			tasks_list.add(new int[]{task_id});
+
+			return task_id;
+		}
+
+		synchronized boolean removeTask(final int task_id) {
+			for (int i = 0; i < tasks_list.size(); ++i) {
+				if (tasks_list.get(i)[0] == task_id) {
+					tasks_list.remove(i);
+
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	@Test
+	public void addRemoveSingleThread() {
+		for (final int num_pending : NUMS_PENDING) {
+			final int[] pending_ids = fillTasksList(num_pending);
+			measure(new Runnable() {
+				@Override
+				public void run() {
+					final int task_id = TasksList.addTask(runnable);
+					assertSame(runnable, TasksList.removeTask(task_id).runnable);
+				}
+			});
+			final double ops_s = measure(new Runnable() {
+				@Override
+				public void run() {
+					TasksList.removeTask(TasksList.addTask(runnable));
+				}
+			});
+			emptyTasksList(pending_ids);
+
+			final LinearTasksList linear_list = new LinearTasksList();
+			for (int i = 0; i < num_pending; ++i) {
+				linear_list.addTask();
+			}
+			final double linear_ops_s = measure(new Runnable() {
+				@Override
+				public void run() {
+					linear_list.removeTask(linear_list.addTask());
+				}
+			});
+
+			System.out.printf("TasksList, %d pending, 1 thread: %.0f add+remove/s (linear list: %.0f/s)%n",
+					num_pending, ops_s, linear_ops_s);
+		}
+	}
+
+	@Test
+	public void addRemoveMultiThread() throws InterruptedException {
+		for (final int num_pending : NUMS_PENDING) {
+			final int[] pending_ids = fillTasksList(num_pending);
+			final long[] num_ops = new long[NUM_THREADS];
+			final long[] num_wrong = new long[NUM_THREADS];
+			final Thread[] threads = new Thread[NUM_THREADS];
+			final long end_ms = System.currentTimeMillis() + WARMUP_MS + MEASURE_MS;
+			final long measure_start_ms = System.currentTimeMillis() + WARMUP_MS;
+			for (int i = 0; i < NUM_THREADS; ++i) {
+				final int thread_idx = i;
+				threads[i] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						long ops = 0;
+						long now_ms;
+						while ((now_ms = System.currentTimeMillis()) < end_ms) {
+							for (int j = 0; j < 1_000; ++j) {
+								final int task_id = TasksList.addTask(runnable);
+								if (TasksList.removeTask(task_id).runnable != runnable) {
+									++num_wrong[thread_idx];
+								}
+							}
+							if (now_ms >= measure_start_ms) {
+								ops += 1_000;
+							}
+						}
+						num_ops[thread_idx] = ops;
+					}
+				});
+				threads[i].start();
+			}
+			long total_ops = 0;
+			for (int i = 0; i < NUM_THREADS; ++i) {
+				threads[i].join();
+				assertEquals(0, num_wrong[i]);
+				total_ops += num_ops[i];
+			}
+			emptyTasksList(pending_ids);
+
+			System.out.printf("TasksList, %d pending, %d threads: %.0f add+remove/s%n", num_pending, NUM_THREADS,
+					total_ops * 1000.0 / MEASURE_MS);
+		}
+	}
+
+	@NonNull
+	private static int[] fillTasksList(final int num_tasks) {
+		final int[] task_ids = new int[num_tasks];
+		for (int i = 0; i < num_tasks; ++i) {
+			task_ids[i] = TasksList.addTask(runnable);
+		}
+
+		return task_ids;
+	}
+
+	private static void emptyTasksList(@NonNull final int[] task_ids) {
+		for (final int task_id : task_ids) {
+			assertEquals(task_id, TasksList.removeTask(task_id).task_id);
+		}
+	}
+
+	/**
+	 * <p>Runs an operation repeatedly for {@link #WARMUP_MS} and then for {@link #MEASURE_MS}.</p>
+	 *
+	 * @param operation the operation
+	 *
+	 * @return the operations per second of the measurement
+	 */
+	private static double measure(@NonNull final Runnable operation) {
+		long end_ms = System.currentTimeMillis() + WARMUP_MS;
+		while (System.currentTimeMillis() < end_ms) {
+			operation.run();
+		}
+
+		long num_ops = 0;
+		final long start_ns = System.nanoTime();
+		end_ms = System.currentTimeMillis() + MEASURE_MS;
+		while (System.currentTimeMillis() < end_ms) {
+			for (int i = 0; i < 100; ++i) {
+				operation.run();
+			}
+			num_ops += 100;
+		}
+
+		return num_ops * 1e9 / (System.nanoTime() - start_ns);
+	}
+}
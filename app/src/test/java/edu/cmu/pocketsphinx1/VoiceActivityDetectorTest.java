@@ -0,0 +1,304 @@
+/*
+ * Copyright 2021-2024 Edw590
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package edu.cmu.pocketsphinx1;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Host tests of the {@link VoiceActivityDetector} and of the {@link PcmRingBuffer} used for the pre-roll.</p>
+ * <p>The fixtures are synthesized and wrapped in 16-bit mono WAV files, which are then replayed through the detector
+ * in buffers the same way {@link SpeechRecognizer} does. A recorded WAV with the same format can be replayed through
+ * {@link #replayWav(byte[], int)} too.</p>
+ */
+public final class VoiceActivityDetectorTest {
+
+	private static final int SAMPLE_RATE = 16000;
+	/** 100 ms buffers - 5 sub-frames each. */
+	private static final int BUFFER_LEN = SAMPLE_RATE / 10;
+	/** Number of buffers the hangover keeps the detector active for after the last speech buffer. */
+	private static final int HANGOVER_BUFFERS = VoiceActivityDetector.HANGOVER_MS * SAMPLE_RATE / 1000 / BUFFER_LEN;
+
+	/** RMS level of the background noise of the fixtures. */
+	private static final int NOISE_RMS = 50;
+
+	@Test
+	public void backgroundNoiseIsNeverSpeech() {
+		final byte[] wav = toWav(noise(new Random(1), 30 * BUFFER_LEN, NOISE_RMS));
+
+		final boolean[] decisions = replayWav(wav, BUFFER_LEN);
+		for (int i = 0; i < decisions.length; ++i) {
+			assertFalse("buffer " + i, decisions[i]);
+		}
+	}
+
+	@Test
+	public void steadyLoudNoiseIsNotSpeech() {
+		// A fan or the car engine: loud, but as loud as the noise the detector started with.
+		final byte[] wav = toWav(noise(new Random(2), 30 * BUFFER_LEN, 2000));
+
+		final boolean[] decisions = replayWav(wav, BUFFER_LEN);
+		for (int i = 0; i < decisions.length; ++i) {
+			assertFalse("buffer " + i, decisions[i]);
+		}
+	}
+
+	@Test
+	public void voicedSpeechIsDetectedAndHangsOver() {
+		final Random random = new Random(3);
+		final byte[] wav = toWav(concat(
+				noise(random, 10 * BUFFER_LEN, NOISE_RMS),
+				mix(voiced(10 * BUFFER_LEN, 150, 3000), noise(random, 10 * BUFFER_LEN, NOISE_RMS)),
+				noise(random, 20 * BUFFER_LEN, NOISE_RMS)));
+
+		final boolean[] decisions = replayWav(wav, BUFFER_LEN);
+		for (int i = 0; i < decisions.length; ++i) {
+			// Speech on buffers 10 to 19, then the hangover.
+			final boolean expected = i >= 10 && i < 20 + HANGOVER_BUFFERS;
+			assertEquals("buffer " + i, expected, decisions[i]);
+		}
+	}
+
+	@Test
+	public void unvoicedSpeechIsDetected() {
+		// A fricative ("s", "f") is noise-like, but much louder than the background and not as high-pitched as hiss.
+		final Random random = new Random(4);
+		final byte[] wav = toWav(concat(
+				noise(random, 10 * BUFFER_LEN, NOISE_RMS),
+				noise(random, 3 * BUFFER_LEN, 2000),
+				noise(random, 10 * BUFFER_LEN, NOISE_RMS)));
+
+		final boolean[] decisions = replayWav(wav, BUFFER_LEN);
+		assertFalse(decisions[9]);
+		assertTrue(decisions[10]);
+		assertTrue(decisions[12]);
+	}
+
+	@Test
+	public void hissIsNotSpeech() {
+		// Differentiated white noise has most of its energy on the highest frequencies, like electrical hiss.
+		final Random random = new Random(5);
+		final short[] hiss = noise(random, 10 * BUFFER_LEN, 2000);
+		for (int i = hiss.length - 1; i > 0; --i) {
+			hiss[i] = (short) ((hiss[i] - hiss[i - 1]) / 2);
+		}
+		final byte[] wav = toWav(concat(noise(random, 10 * BUFFER_LEN, NOISE_RMS), hiss));
+
+		final boolean[] decisions = replayWav(wav, BUFFER_LEN);
+		for (int i = 0; i < decisions.length; ++i) {
+			assertFalse("buffer " + i, decisions[i]);
+		}
+	}
+
+	@Test
+	public void resetEndsTheHangover() {
+		final Random random = new Random(6);
+		final VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE);
+		final short[] quiet = noise(random, BUFFER_LEN, NOISE_RMS);
+		final short[] speech = mix(voiced(BUFFER_LEN, 200, 3000), noise(random, BUFFER_LEN, NOISE_RMS));
+
+		assertFalse(vad.process(quiet, quiet.length));
+		assertTrue(vad.process(speech, speech.length));
+		assertTrue(vad.process(quiet, quiet.length));
+
+		vad.reset();
+		assertEquals(-1, vad.getNoiseRms());
+		assertFalse(vad.process(quiet, quiet.length));
+		assertFalse(vad.process(quiet, quiet.length));
+	}
+
+	@Test
+	public void ringBufferKeepsTheLastSamplesInOrder() {
+		final PcmRingBuffer ring = new PcmRingBuffer(4);
+		final short[] out = new short[ring.capacity()];
+
+		assertEquals(0, ring.drainTo(out));
+
+		ring.write(new short[]{1, 2, 3}, 0, 3);
+		assertEquals(3, ring.size());
+		assertEquals(3, ring.drainTo(out));
+		assertArrayEquals(new short[]{1, 2, 3}, copyOf(out, 3));
+		assertEquals(0, ring.size());
+
+		// Wrapping around.
+		ring.write(new short[]{1, 2, 3}, 0, 3);
+		ring.write(new short[]{9, 4, 5, 6}, 1, 3);
+		assertEquals(4, ring.size());
+		assertEquals(4, ring.drainTo(out));
+		assertArrayEquals(new short[]{3, 4, 5, 6}, out);
+
+		// Writing more than fits at once.
+		ring.write(new short[]{1, 2, 3, 4, 5, 6, 7}, 0, 7);
+		assertEquals(4, ring.drainTo(out));
+		assertArrayEquals(new short[]{4, 5, 6, 7}, out);
+
+		ring.write(new short[]{1, 2}, 0, 2);
+		ring.clear();
+		assertEquals(0, ring.drainTo(out));
+	}
+
+	@Test
+	public void ringBufferOfNoCapacityKeepsNothing() {
+		final PcmRingBuffer ring = new PcmRingBuffer(0);
+		ring.write(new short[]{1, 2, 3}, 0, 3);
+		assertEquals(0, ring.size());
+		assertEquals(0, ring.drainTo(new short[0]));
+	}
+
+	/**
+	 * <p>Replays a WAV file through a new detector in buffers of the given length, like the recognizer does.</p>
+	 *
+	 * @param wav the contents of a 16-bit mono PCM WAV file
+	 * @param buffer_len the number of samples of each buffer
+	 *
+	 * @return the decision of the detector for each buffer
+	 */
+	@NonNull
+	static boolean[] replayWav(@NonNull final byte[] wav, final int buffer_len) {
+		final short[] pcm = fromWav(wav);
+		final VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE);
+		final short[] buffer = new short[buffer_len];
+		final boolean[] decisions = new boolean[(pcm.length + buffer_len - 1) / buffer_len];
+		for (int i = 0; i < decisions.length; ++i) {
+			final int length = Math.min(buffer_len, pcm.length - i * buffer_len);
+			System.arraycopy(pcm, i * buffer_len, buffer, 0, length);
+			decisions[i] = vad.process(buffer, length);
+		}
+
+		return decisions;
+	}
+
+	@NonNull
+	private static byte[] toWav(@NonNull final short[] pcm) {
+		final ByteBuffer wav = ByteBuffer.allocate(44 + pcm.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+		wav.put("RIFF".getBytes()).putInt(36 + pcm.length * 2).put("WAVE".getBytes());
+		wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1).putInt(SAMPLE_RATE)
+				.putInt(SAMPLE_RATE * 2).putShort((short) 2).putShort((short) 16);
+		wav.put("data".getBytes()).putInt(pcm.length * 2);
+		for (final short sample : pcm) {
+			wav.putShort(sample);
+		}
+
+		return wav.array();
+	}
+
+	@NonNull
+	private static short[] fromWav(@NonNull final byte[] wav) {
+		final ByteBuffer in = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+		in.position(12);
+		while (in.remaining() >= 8) {
+			final byte[] id = new byte[4];
+			in.get(id);
+			final int chunk_len = in.getInt();
+			if (new String(id).equals("fmt ")) {
+				final int start = in.position();
+				assertEquals("PCM", 1, in.getShort());
+				assertEquals("channels", 1, in.getShort());
+				assertEquals("sample rate", SAMPLE_RATE, in.getInt());
+				in.position(start + 14);
+				assertEquals("bits per sample", 16, in.getShort());
+				in.position(start + chunk_len);
+			} else if (new String(id).equals("data")) {
+				final short[] pcm = new short[chunk_len / 2];
+				in.asShortBuffer().get(pcm);
+
+				return pcm;
+			} else {
+				in.position(in.position() + chunk_len);
+			}
+		}
+
+		throw new IllegalArgumentException("No data chunk on the WAV file");
+	}
+
+	@NonNull
+	private static short[] noise(@NonNull final Random random, final int length, final int rms) {
+		final short[] samples = new short[length];
+		for (int i = 0; i < length; ++i) {
+			samples[i] = clip(random.nextGaussian() * rms);
+		}
+
+		return samples;
+	}
+
+	/**
+	 * <p>Generates a vowel-like sound: a fundamental and its first harmonics with decreasing amplitudes.</p>
+	 */
+	@NonNull
+	private static short[] voiced(final int length, final double pitch_hz, final int amplitude) {
+		final short[] samples = new short[length];
+		for (int i = 0; i < length; ++i) {
+			final double t = 2.0 * Math.PI * pitch_hz * i / SAMPLE_RATE;
+			samples[i] = clip(amplitude * (Math.sin(t) + 0.5 * Math.sin(2.0 * t) + 0.25 * Math.sin(3.0 * t)) / 1.75);
+		}
+
+		return samples;
+	}
+
+	@NonNull
+	private static short[] mix(@NonNull final short[] a, @NonNull final short[] b) {
+		final short[] mixed = new short[a.length];
+		for (int i = 0; i < a.length; ++i) {
+			mixed[i] = clip(a[i] + b[i]);
+		}
+
+		return mixed;
+	}
+
+	@NonNull
+	private static short[] concat(@NonNull final short[]... parts) {
+		int length = 0;
+		for (final short[] part : parts) {
+			length += part.length;
+		}
+		final short[] all = new short[length];
+		int pos = 0;
+		for (final short[] part : parts) {
+			System.arraycopy(part, 0, all, pos, part.length);
+			pos += part.length;
+		}
+
+		return all;
+	}
+
+	@NonNull
+	private static short[] copyOf(@NonNull final short[] array, final int length) {
+		final short[] copy = new short[length];
+		System.arraycopy(array, 0, copy, 0, length);
+
+		return copy;
+	}
+
+	private static short clip(final double sample) {
+		return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(sample)));
+	}
+}